@@ -25,6 +25,10 @@ import com.seibel.distanthorizons.api.interfaces.world.IDhApiLevelWrapper;
 import com.seibel.distanthorizons.api.objects.DhApiResult;
 import com.seibel.distanthorizons.api.objects.data.DhApiRaycastResult;
 import com.seibel.distanthorizons.api.objects.data.DhApiTerrainDataPoint;
+import com.seibel.distanthorizons.api.objects.math.DhApiVec3i;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Used to interface with Distant Horizons' terrain data.
@@ -88,6 +92,40 @@ public interface IDhApiTerrainDataRepo
 	
 	
 	
+	//===============//
+	// async getters //
+	//===============//
+	
+	/**
+	 * Async version of {@link IDhApiTerrainDataRepo#getSingleDataPointAtBlockPos} for multiple positions. <br>
+	 * Positions in the same area are loaded together, which is much faster than requesting them one at a time.
+	 *
+	 * @return a future for each position, in the same order as the given positions.
+	 * Each future completes as soon as the data for its position has been loaded.
+	 */
+	List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint>>> getSingleDataPointAtBlockPositionsAsync(IDhApiLevelWrapper levelWrapper, List<DhApiVec3i> blockPositions);
+	/**
+	 * Async version of {@link IDhApiTerrainDataRepo#getColumnDataAtBlockPos} for multiple positions. <br>
+	 * Positions in the same area are loaded together, which is much faster than requesting them one at a time.
+	 *
+	 * @param blockPositions the Y value of each position is ignored.
+	 * @return a future for each position, in the same order as the given positions.
+	 * Each future completes as soon as the data for its position has been loaded.
+	 */
+	List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>>> getColumnDataAtBlockPositionsAsync(IDhApiLevelWrapper levelWrapper, List<DhApiVec3i> blockPositions);
+	
+	/**
+	 * Async version of {@link IDhApiTerrainDataRepo#raycast}. <br>
+	 * Doesn't block any threads while waiting for LOD data to load.
+	 */
+	CompletableFuture<DhApiResult<DhApiRaycastResult>> raycastAsync(
+			IDhApiLevelWrapper levelWrapper,
+			double rayOriginX, double rayOriginY, double rayOriginZ,
+			float rayDirectionX, float rayDirectionY, float rayDirectionZ,
+			int maxRayBlockLength);
+	
+	
+	
 	//=========//
 	// setters //
 	//=========//
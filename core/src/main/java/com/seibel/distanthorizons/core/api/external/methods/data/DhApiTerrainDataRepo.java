@@ -51,6 +51,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 
@@ -121,6 +124,10 @@ public class DhApiTerrainDataRepo implements IDhApiTerrainDataRepo
 	private static DhApiResult<DhApiTerrainDataPoint> getTerrainDataAtBlockYPos(IDhApiLevelWrapper levelWrapper, DhLodPos requestedColumnPos, Integer blockYPos)
 	{
 		DhApiResult<DhApiTerrainDataPoint[]> result = getTerrainDataColumnArray(levelWrapper, requestedColumnPos, blockYPos);
+		return getFirstDataPoint(result);
+	}
+	private static DhApiResult<DhApiTerrainDataPoint> getFirstDataPoint(DhApiResult<DhApiTerrainDataPoint[]> result)
+	{
 		if (result.success && result.payload.length > 0)
 		{
 			return DhApiResult.createSuccess(result.message, result.payload[0]);
@@ -179,26 +186,12 @@ public class DhApiTerrainDataRepo implements IDhApiTerrainDataRepo
 	 */
 	private static DhApiResult<DhApiTerrainDataPoint[]> getTerrainDataColumnArray(IDhApiLevelWrapper levelWrapper, DhLodPos requestedColumnPos, Integer nullableBlockYPos)
 	{
-		AbstractDhWorld currentWorld = SharedApi.getAbstractDhWorld();
-		if (currentWorld == null)
-		{
-			return DhApiResult.createFail("Unable to get terrain data before the world has loaded.");
-		}
-		
-		if (!(levelWrapper instanceof ILevelWrapper))
-		{
-			// custom level wrappers aren't supported,
-			// the API user must get a level wrapper from our code somewhere
-			return DhApiResult.createFail("Unsupported [" + IDhApiLevelWrapper.class.getSimpleName() + "] implementation, only the core class [" + IDhLevel.class.getSimpleName() + "] is a valid parameter.");
-		}
-		ILevelWrapper coreLevelWrapper = (ILevelWrapper) levelWrapper;
-		
-		
-		IDhLevel level = currentWorld.getLevel(coreLevelWrapper);
-		if (level == null)
+		DhApiResult<IDhLevel> levelResult = getDhLevel(levelWrapper);
+		if (!levelResult.success)
 		{
-			return DhApiResult.createFail("Unable to get terrain data before the world has loaded.");
+			return DhApiResult.createFail(levelResult.message);
 		}
+		IDhLevel level = levelResult.payload;
 		
 		// get the detail levels for this request
 		byte requestedDetailLevel = requestedColumnPos.detailLevel;
@@ -211,73 +204,103 @@ public class DhApiTerrainDataRepo implements IDhApiTerrainDataRepo
 		
 		try
 		{
-			// attempt to get/generate the data source for this section
-			IFullDataSource dataSource = level.getFileHandler().readAsync(sectionPos).get();
-			if (dataSource == null)
+			// attempt to get/generate the requested column,
+			// only the column is read when the section's data source isn't already loaded
+			SingleColumnFullDataAccessor dataColumn = level.getFileHandler().readColumnAsync(sectionPos, relativePos.x, relativePos.z).get();
+			if (dataColumn == null)
 			{
 				return DhApiResult.createFail("Unable to find/generate any data at the " + DhSectionPos.class.getSimpleName() + " [" + sectionPos + "].");
 			}
 			else
 			{
-				// attempt to get the LOD data from the data source
-				FullDataPointIdMap mapping = dataSource.getMapping();
-				SingleColumnFullDataAccessor dataColumn = dataSource.tryGet(relativePos.x, relativePos.z);
-				if (dataColumn != null)
+				return getTerrainDataFromColumn(levelWrapper, dataColumn, requestedDetailLevel, nullableBlockYPos);
+			}
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			// shouldn't normally happen, but just in case
+			LOGGER.error("Unexpected exception in getTerrainDataColumnArray. Error: [" + e.getMessage() + "]", e);
+			return DhApiResult.createFail("Unexpected exception: [" + e.getMessage() + "].");
+		}
+	}
+	
+	/** @see DhApiTerrainDataRepo#getTerrainDataColumnArray */
+	private static DhApiResult<DhApiTerrainDataPoint[]> getTerrainDataFromColumn(IDhApiLevelWrapper levelWrapper, SingleColumnFullDataAccessor dataColumn, byte requestedDetailLevel, Integer nullableBlockYPos)
+	{
+		FullDataPointIdMap mapping = dataColumn.getMapping();
+		if (dataColumn.getSingleLength() != 0)
+		{
+			int dataColumnIndexCount = dataColumn.getSingleLength();
+			DhApiTerrainDataPoint[] returnArray = new DhApiTerrainDataPoint[dataColumnIndexCount];
+			long dataPoint;
+			
+			boolean getSpecificYCoordinate = nullableBlockYPos != null;
+			int levelMinimumHeight = levelWrapper.getMinHeight();
+			
+			
+			// search for a datapoint that contains the block y position
+			for (int i = 0; i < dataColumnIndexCount; i++)
+			{
+				dataPoint = dataColumn.getSingle(i);
+				
+				if (!getSpecificYCoordinate)
 				{
-					int dataColumnIndexCount = dataColumn.getSingleLength();
-					DhApiTerrainDataPoint[] returnArray = new DhApiTerrainDataPoint[dataColumnIndexCount];
-					long dataPoint;
-					
-					boolean getSpecificYCoordinate = nullableBlockYPos != null;
-					int levelMinimumHeight = levelWrapper.getMinHeight();
-					
-					
-					// search for a datapoint that contains the block y position
-					for (int i = 0; i < dataColumnIndexCount; i++)
+					// if we aren't look for a specific datapoint, add each datapoint to the return array
+					returnArray[i] = generateApiDatapoint(levelWrapper, mapping, requestedDetailLevel, dataPoint);
+				}
+				else
+				{
+					// we are looking for a specific datapoint,
+					// don't look at null ones
+					if (dataPoint != 0)
 					{
-						dataPoint = dataColumn.getSingle(i);
+						int requestedY = nullableBlockYPos;
+						int bottomY = FullDataPointUtil.getBottomY(dataPoint) + levelMinimumHeight;
+						int height = FullDataPointUtil.getHeight(dataPoint);
+						int topY = bottomY + height;
 						
-						if (!getSpecificYCoordinate)
+						// does this datapoint contain the requested Y position? 
+						if (bottomY <= requestedY && requestedY < topY) // blockPositions start from the bottom of the block, thus "<=" for bottomY, just "<" for topY
 						{
-							// if we aren't look for a specific datapoint, add each datapoint to the return array
-							returnArray[i] = generateApiDatapoint(levelWrapper, mapping, requestedDetailLevel, dataPoint);
-						}
-						else
-						{
-							// we are looking for a specific datapoint,
-							// don't look at null ones
-							if (dataPoint != 0)
-							{
-								int requestedY = nullableBlockYPos;
-								int bottomY = FullDataPointUtil.getBottomY(dataPoint) + levelMinimumHeight;
-								int height = FullDataPointUtil.getHeight(dataPoint);
-								int topY = bottomY + height;
-								
-								// does this datapoint contain the requested Y position? 
-								if (bottomY <= requestedY && requestedY < topY) // blockPositions start from the bottom of the block, thus "<=" for bottomY, just "<" for topY
-								{
-									// this datapoint contains the requested block position, return it
-									DhApiTerrainDataPoint apiTerrainData = generateApiDatapoint(levelWrapper, mapping, requestedDetailLevel, dataPoint);
-									return DhApiResult.createSuccess(new DhApiTerrainDataPoint[]{apiTerrainData});
-								}
-							}
+							// this datapoint contains the requested block position, return it
+							DhApiTerrainDataPoint apiTerrainData = generateApiDatapoint(levelWrapper, mapping, requestedDetailLevel, dataPoint);
+							return DhApiResult.createSuccess(new DhApiTerrainDataPoint[]{apiTerrainData});
 						}
 					}
-					
-					// return all collected data
-					return DhApiResult.createSuccess(returnArray);
 				}
-				
-				// the requested data wasn't present in this column (and/or the column wasn't able to be accessed/generated)
-				return DhApiResult.createSuccess(new DhApiTerrainDataPoint[0]);
 			}
+			
+			// return all collected data
+			return DhApiResult.createSuccess(returnArray);
 		}
-		catch (InterruptedException | ExecutionException e)
+		
+		// the requested data wasn't present in this column (and/or the column wasn't able to be accessed/generated)
+		return DhApiResult.createSuccess(new DhApiTerrainDataPoint[0]);
+	}
+	
+	/** Returns the {@link IDhLevel} for the given level wrapper, or a failed result explaining why it isn't available. */
+	private static DhApiResult<IDhLevel> getDhLevel(IDhApiLevelWrapper levelWrapper)
+	{
+		AbstractDhWorld currentWorld = SharedApi.getAbstractDhWorld();
+		if (currentWorld == null)
 		{
-			// shouldn't normally happen, but just in case
-			LOGGER.error("Unexpected exception in getTerrainDataColumnArray. Error: [" + e.getMessage() + "]", e);
-			return DhApiResult.createFail("Unexpected exception: [" + e.getMessage() + "].");
+			return DhApiResult.createFail("Unable to get terrain data before the world has loaded.");
+		}
+		
+		if (!(levelWrapper instanceof ILevelWrapper))
+		{
+			// custom level wrappers aren't supported,
+			// the API user must get a level wrapper from our code somewhere
+			return DhApiResult.createFail("Unsupported [" + IDhApiLevelWrapper.class.getSimpleName() + "] implementation, only the core class [" + IDhLevel.class.getSimpleName() + "] is a valid parameter.");
 		}
+		
+		IDhLevel level = currentWorld.getLevel((ILevelWrapper) levelWrapper);
+		if (level == null)
+		{
+			return DhApiResult.createFail("Unable to get terrain data before the world has loaded.");
+		}
+		
+		return DhApiResult.createSuccess(level);
 	}
 	
 	private static DhApiTerrainDataPoint generateApiDatapoint(IDhApiLevelWrapper levelWrapper, FullDataPointIdMap mapping, byte detailLevel, long dataPoint)
@@ -296,6 +319,118 @@ public class DhApiTerrainDataRepo implements IDhApiTerrainDataRepo
 	
 	
 	
+	//======================//
+	// async getter methods //
+	//======================//
+	
+	@Override
+	public List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint>>> getSingleDataPointAtBlockPositionsAsync(IDhApiLevelWrapper levelWrapper, List<DhApiVec3i> blockPositions)
+	{
+		List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>>> columnFutures = getTerrainDataColumnArraysAsync(levelWrapper, blockPositions, true);
+		
+		ArrayList<CompletableFuture<DhApiResult<DhApiTerrainDataPoint>>> futureList = new ArrayList<>(columnFutures.size());
+		for (CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>> columnFuture : columnFutures)
+		{
+			futureList.add(columnFuture.thenApply(DhApiTerrainDataRepo::getFirstDataPoint));
+		}
+		return futureList;
+	}
+	@Override
+	public List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>>> getColumnDataAtBlockPositionsAsync(IDhApiLevelWrapper levelWrapper, List<DhApiVec3i> blockPositions)
+	{
+		return getTerrainDataColumnArraysAsync(levelWrapper, blockPositions, false);
+	}
+	
+	/**
+	 * Groups the given positions by {@link DhSectionPos} so each section's data source is only loaded once. <br>
+	 * Each position's future is completed as soon as its section has been loaded.
+	 *
+	 * @param useBlockYPos if true only the datapoint containing each position's Y value will be returned
+	 * @see DhApiTerrainDataRepo#getTerrainDataColumnArray
+	 */
+	private static List<CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>>> getTerrainDataColumnArraysAsync(IDhApiLevelWrapper levelWrapper, List<DhApiVec3i> blockPositions, boolean useBlockYPos)
+	{
+		ArrayList<CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>>> futureList = new ArrayList<>(blockPositions.size());
+		for (int i = 0; i < blockPositions.size(); i++)
+		{
+			futureList.add(new CompletableFuture<>());
+		}
+		
+		DhApiResult<IDhLevel> levelResult = getDhLevel(levelWrapper);
+		if (!levelResult.success)
+		{
+			for (CompletableFuture<DhApiResult<DhApiTerrainDataPoint[]>> future : futureList)
+			{
+				future.complete(DhApiResult.createFail(levelResult.message));
+			}
+			return futureList;
+		}
+		IDhLevel level = levelResult.payload;
+		
+		
+		
+		// group the requests by section //
+		
+		byte sectionDetailLevel = (byte) (LodUtil.BLOCK_DETAIL_LEVEL + DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL);
+		HashMap<DhSectionPos, ArrayList<Integer>> positionIndexesBySectionPos = new HashMap<>();
+		for (int i = 0; i < blockPositions.size(); i++)
+		{
+			DhApiVec3i blockPos = blockPositions.get(i);
+			DhSectionPos sectionPos = new DhLodPos(LodUtil.BLOCK_DETAIL_LEVEL, blockPos.x, blockPos.z).getSectionPosWithSectionDetailLevel(sectionDetailLevel);
+			positionIndexesBySectionPos.computeIfAbsent(sectionPos, (newSectionPos) -> new ArrayList<>()).add(i);
+		}
+		
+		
+		
+		// load each section once //
+		
+		positionIndexesBySectionPos.forEach((sectionPos, positionIndexes) ->
+		{
+			level.getFileHandler().readAsync(sectionPos).handle((dataSource, exception) ->
+			{
+				for (int index : positionIndexes)
+				{
+					DhApiResult<DhApiTerrainDataPoint[]> result;
+					if (exception != null)
+					{
+						LOGGER.error("Unexpected exception in getTerrainDataColumnArraysAsync. Error: [" + exception.getMessage() + "]", exception);
+						result = DhApiResult.createFail("Unexpected exception: [" + exception.getMessage() + "].");
+					}
+					else if (dataSource == null)
+					{
+						result = DhApiResult.createFail("Unable to find/generate any data at the " + DhSectionPos.class.getSimpleName() + " [" + sectionPos + "].");
+					}
+					else
+					{
+						try
+						{
+							DhApiVec3i blockPos = blockPositions.get(index);
+							DhLodPos relativePos = new DhLodPos(LodUtil.BLOCK_DETAIL_LEVEL, blockPos.x, blockPos.z).getDhSectionRelativePositionForDetailLevel();
+							
+							SingleColumnFullDataAccessor dataColumn = dataSource.tryGet(relativePos.x, relativePos.z);
+							result = (dataColumn != null)
+									? getTerrainDataFromColumn(levelWrapper, dataColumn, LodUtil.BLOCK_DETAIL_LEVEL, useBlockYPos ? blockPos.y : null)
+									: DhApiResult.createSuccess(new DhApiTerrainDataPoint[0]);
+						}
+						catch (Exception e)
+						{
+							// caught so the remaining futures are still completed
+							LOGGER.error("Unexpected exception in getTerrainDataColumnArraysAsync. Error: [" + e.getMessage() + "]", e);
+							result = DhApiResult.createFail("Unexpected exception: [" + e.getMessage() + "].");
+						}
+					}
+					
+					futureList.get(index).complete(result);
+				}
+				return null;
+			});
+		});
+		
+		return futureList;
+	}
+	
+	
+	
 	//====================//
 	// raycasting methods //
 	//====================//
@@ -310,126 +445,271 @@ public class DhApiTerrainDataRepo implements IDhApiTerrainDataRepo
 		return this.raycastLodData(levelWrapper, new Vec3d(rayOriginX, rayOriginY, rayOriginZ), new Vec3f(rayDirectionX, rayDirectionY, rayDirectionZ), maxRayBlockLength);
 	}
 	
+	@Override
+	public CompletableFuture<DhApiResult<DhApiRaycastResult>> raycastAsync(
+			IDhApiLevelWrapper levelWrapper,
+			double rayOriginX, double rayOriginY, double rayOriginZ,
+			float rayDirectionX, float rayDirectionY, float rayDirectionZ,
+			int maxRayBlockLength)
+	{
+		DhApiResult<LodColumnRaycaster> raycasterResult = createRaycaster(levelWrapper, new Vec3d(rayOriginX, rayOriginY, rayOriginZ), new Vec3f(rayDirectionX, rayDirectionY, rayDirectionZ), maxRayBlockLength);
+		if (!raycasterResult.success)
+		{
+			return CompletableFuture.completedFuture(DhApiResult.createFail(raycasterResult.message));
+		}
+		else if (raycasterResult.payload == null)
+		{
+			return CompletableFuture.completedFuture(DhApiResult.createSuccess(null));
+		}
+		
+		return continueRaycastAsync(raycasterResult.payload);
+	}
+	/** Walks the ray until it either finishes or needs a section that hasn't been loaded yet, then continues once that section is loaded. */
+	private static CompletableFuture<DhApiResult<DhApiRaycastResult>> continueRaycastAsync(LodColumnRaycaster raycaster)
+	{
+		if (raycaster.walk())
+		{
+			return CompletableFuture.completedFuture(DhApiResult.createSuccess(raycaster.closestHit));
+		}
+		
+		DhSectionPos sectionPos = raycaster.pendingSectionPos;
+		return raycaster.level.getFileHandler().readAsync(sectionPos)
+				.thenCompose((dataSource) ->
+				{
+					if (dataSource == null)
+					{
+						return CompletableFuture.completedFuture(DhApiResult.<DhApiRaycastResult>createFail("Unable to find/generate any data at the " + DhSectionPos.class.getSimpleName() + " [" + sectionPos + "]."));
+					}
+					
+					raycaster.setSectionDataSource(sectionPos, dataSource);
+					return continueRaycastAsync(raycaster);
+				})
+				.exceptionally((e) ->
+				{
+					LOGGER.error("Unexpected exception in raycastAsync. Error: [" + e.getMessage() + "]", e);
+					return DhApiResult.createFail("Unexpected exception: [" + e.getMessage() + "].");
+				});
+	}
+	
 	/**
 	 * private since it uses non-API objects <br><br>
 	 *
-	 * Works by walking through the world and attempting to get the LOD <br>
-	 * data present at each step.
+	 * Works by walking through each LOD column the ray passes through
+	 * (see {@link RayCastUtil#walkColumns}) and returning the first LOD the ray intersects.
 	 */
 	private DhApiResult<DhApiRaycastResult> raycastLodData(IDhApiLevelWrapper levelWrapper, Vec3d rayOrigin, Vec3f rayDirection, int maxRayBlockLength)
 	{
+		DhApiResult<LodColumnRaycaster> raycasterResult = createRaycaster(levelWrapper, rayOrigin, rayDirection, maxRayBlockLength);
+		if (!raycasterResult.success)
+		{
+			return DhApiResult.createFail(raycasterResult.message);
+		}
+		else if (raycasterResult.payload == null)
+		{
+			return DhApiResult.createSuccess(null);
+		}
+		LodColumnRaycaster raycaster = raycasterResult.payload;
+		
+		
+		try
+		{
+			while (!raycaster.walk())
+			{
+				DhSectionPos sectionPos = raycaster.pendingSectionPos;
+				IFullDataSource dataSource = raycaster.level.getFileHandler().readAsync(sectionPos).get();
+				if (dataSource == null)
+				{
+					return DhApiResult.createFail("Unable to find/generate any data at the " + DhSectionPos.class.getSimpleName() + " [" + sectionPos + "].");
+				}
+				
+				raycaster.setSectionDataSource(sectionPos, dataSource);
+			}
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			LOGGER.error("Unexpected exception in raycastLodData. Error: [" + e.getMessage() + "]", e);
+			return DhApiResult.createFail("Unexpected exception: [" + e.getMessage() + "].");
+		}
+		
+		return DhApiResult.createSuccess(raycaster.closestHit);
+	}
+	
+	/** @return a successful result with a null payload if the ray starts outside the level's height range */
+	private static DhApiResult<LodColumnRaycaster> createRaycaster(IDhApiLevelWrapper levelWrapper, Vec3d rayOrigin, Vec3f rayDirection, int maxRayBlockLength)
+	{
+		DhApiResult<IDhLevel> levelResult = getDhLevel(levelWrapper);
+		if (!levelResult.success)
+		{
+			return DhApiResult.createFail(levelResult.message);
+		}
+		
+		
 		rayDirection.normalize();
 		
 		int minBlockHeight = levelWrapper.getMinHeight();
-		int maxBlockHeight = levelWrapper.getHeight();
+		int maxBlockHeight = minBlockHeight + levelWrapper.getHeight();
+		if (rayOrigin.y < minBlockHeight || rayOrigin.y >= maxBlockHeight)
+		{
+			return DhApiResult.createSuccess(null);
+		}
+		
+		// stop once the ray leaves the level's height range
+		double maxRayLength = maxRayBlockLength;
+		if (rayDirection.y > 0)
+		{
+			maxRayLength = Math.min(maxRayLength, (maxBlockHeight - rayOrigin.y) / rayDirection.y);
+		}
+		else if (rayDirection.y < 0)
+		{
+			maxRayLength = Math.min(maxRayLength, (minBlockHeight - rayOrigin.y) / rayDirection.y);
+		}
 		
+		return DhApiResult.createSuccess(new LodColumnRaycaster(levelResult.payload, levelWrapper, rayOrigin, rayDirection, maxRayLength));
+	}
+	
+	/**
+	 * Checks each column given by {@link RayCastUtil#walkColumns} for non-air LODs
+	 * that intersect the ray. <br>
+	 * Since columns are visited in order the first column with an intersection contains the closest hit. <br><br>
+	 * 
+	 * The walk stops whenever the ray enters a new section so the section's data source
+	 * can be loaded (blocking or async) and then continues from the same column
+	 * using the walker's stored state. <br>
+	 * Only the most recently used data source is kept since the ray will never re-enter a section it has left.
+	 */
+	private static class LodColumnRaycaster implements RayCastUtil.IColumnVisitor
+	{
+		public final IDhLevel level;
+		private final IDhApiLevelWrapper levelWrapper;
+		private final Vec3d rayOrigin;
+		private final Vec3f rayDirection;
+		private final RayCastUtil.ColumnWalker columnWalker;
 		
+		private DhSectionPos cachedSectionPos = null;
+		private IFullDataSource cachedDataSource = null;
 		
-		// walk through the grid //
+		/** if not null, this section must be loaded before the walk can continue */
+		public DhSectionPos pendingSectionPos = null;
+		public DhApiRaycastResult closestHit = null;
 		
-		int currentLength = 0;
 		
-		// the exact position of this step
-		Vec3d exactPos = new Vec3d(rayOrigin.x, rayOrigin.y, rayOrigin.z);
-		// the block position for this step
-		Vec3i blockPos = new Vec3i((int) Math.round(rayOrigin.x), (int) Math.round(rayOrigin.y), (int) Math.round(rayOrigin.z));
 		
-		DhApiRaycastResult closetFoundDataPoint = null;
+		public LodColumnRaycaster(IDhLevel level, IDhApiLevelWrapper levelWrapper, Vec3d rayOrigin, Vec3f rayDirection, double maxRayLength)
+		{
+			this.level = level;
+			this.levelWrapper = levelWrapper;
+			this.rayOrigin = rayOrigin;
+			this.rayDirection = rayDirection;
+			this.columnWalker = new RayCastUtil.ColumnWalker(
+					rayOrigin.x, rayOrigin.z,
+					rayDirection.x, rayDirection.z,
+					maxRayLength, BitShiftUtil.powerOfTwo(LodUtil.BLOCK_DETAIL_LEVEL));
+		}
 		
 		
-		while (blockPos.y >= minBlockHeight && blockPos.y < maxBlockHeight
-				&& currentLength <= maxRayBlockLength)
+		
+		/** @return true if the walk finished, false if {@link LodColumnRaycaster#pendingSectionPos} needs to be loaded first */
+		public boolean walk()
+		{
+			this.pendingSectionPos = null;
+			this.columnWalker.walk(this);
+			return this.pendingSectionPos == null;
+		}
+		
+		public void setSectionDataSource(DhSectionPos sectionPos, IFullDataSource dataSource)
+		{
+			this.cachedSectionPos = sectionPos;
+			this.cachedDataSource = dataSource;
+		}
+		
+		@Override
+		public boolean visit(int columnX, int columnZ, double enterDistance, double exitDistance)
 		{
-			// get the LOD columns around this position
-			ArrayList<Vec3i> columnPositions = getIntersectingColumnsAtPosition(blockPos, rayDirection);
-			for (Vec3i columnPos : columnPositions)
+			// get the data source for this column //
+			
+			int sectionX = columnX >> DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL;
+			int sectionZ = columnZ >> DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL;
+			if (this.cachedSectionPos == null || this.cachedSectionPos.getX() != sectionX || this.cachedSectionPos.getZ() != sectionZ)
 			{
-				// check each column
-				DhApiResult<DhApiTerrainDataPoint[]> result = this.getColumnDataAtBlockPos(levelWrapper, columnPos.x, columnPos.z);
-				if (!result.success)
-				{
-					// if there was an error, stop and return it
-					return DhApiResult.createFail(result.message);
-				}
-				
-				// is there a LOD at this position?
-				for (DhApiTerrainDataPoint dataPoint : result.payload)
-				{
-					// is this LOD air?
-					if (dataPoint.blockStateWrapper != null && !dataPoint.blockStateWrapper.isAir())
-					{
-						// does this LOD contain the given Y position?
-						Vec3i dataPointPos = new Vec3i(columnPos.x, dataPoint.bottomYBlockPos, columnPos.z);
-						if (exactPos.y >= dataPoint.bottomYBlockPos && exactPos.y <= dataPoint.topYBlockPos)
-						{
-							if (closetFoundDataPoint == null)
-							{
-								closetFoundDataPoint = new DhApiRaycastResult(dataPoint, dataPointPos);
-							}
-							else
-							{
-								// use the LOD closest to the ray's origin
-								double previousDistanceSquared = Math.pow(rayOrigin.x - closetFoundDataPoint.pos.x, 2) + Math.pow(rayOrigin.y - closetFoundDataPoint.pos.y, 2) + Math.pow(rayOrigin.z - closetFoundDataPoint.pos.z, 2);
-								double newDistanceSquared = Math.pow(rayOrigin.x - dataPointPos.x, 2) + Math.pow(rayOrigin.y - dataPointPos.y, 2) + Math.pow(rayOrigin.z - dataPointPos.z, 2);
-								
-								if (previousDistanceSquared > newDistanceSquared)
-								{
-									closetFoundDataPoint = new DhApiRaycastResult(dataPoint, dataPointPos);
-								}
-							}
-						}
-					}
-				}
+				// stop so the section can be loaded,
+				// the walker will re-visit this column once the walk continues
+				this.pendingSectionPos = new DhSectionPos(DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, sectionX, sectionZ);
+				return true;
 			}
 			
-			if (closetFoundDataPoint != null)
+			int relativeMask = BitShiftUtil.powerOfTwo(DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL) - 1;
+			SingleColumnFullDataAccessor dataColumn = this.cachedDataSource.tryGet(columnX & relativeMask, columnZ & relativeMask);
+			if (dataColumn == null)
 			{
-				return DhApiResult.createSuccess(closetFoundDataPoint);
+				return false;
 			}
 			
 			
 			
-			// take the next step in the ray //
+			// find the closest LOD in this column that intersects the ray //
 			
-			exactPos.x += rayDirection.x;
-			exactPos.y += rayDirection.y;
-			exactPos.z += rayDirection.z;
+			FullDataPointIdMap mapping = this.cachedDataSource.getMapping();
+			int levelMinimumHeight = this.levelWrapper.getMinHeight();
 			
-			blockPos.x = (int) Math.round(exactPos.x);
-			blockPos.y = (int) Math.round(exactPos.y);
-			blockPos.z = (int) Math.round(exactPos.z);
-			
-			// calculate the taxiCab Distance
-			currentLength = (int) (Math.abs(rayOrigin.x - exactPos.x) + Math.abs(rayOrigin.y - exactPos.y) + Math.abs(rayOrigin.z - exactPos.z));
-		}
-		
-		return DhApiResult.createSuccess(null);
-	}
-	
-	/**
-	 * checks the surrounding 3x3 block columns and returns those that intersect with the ray. <br><br>
-	 *
-	 * Used to make sure the raycast step doesn't accidentally walk over any adjacent data.
-	 */
-	private static ArrayList<Vec3i> getIntersectingColumnsAtPosition(Vec3i rayEndingPos, Vec3f rayDirection)
-	{
-		ArrayList<Vec3i> returnList = new ArrayList<Vec3i>(9);
-		
-		for (int x = -1; x <= 1; x++)
-		{
-			for (int z = -1; z <= 1; z++)
+			long closestDataPoint = 0;
+			double closestHitDistance = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < dataColumn.getSingleLength(); i++)
 			{
-				Vec3i pos = new Vec3i(rayEndingPos.x + x, rayEndingPos.y, rayEndingPos.z + z);
+				long dataPoint = dataColumn.getSingle(i);
+				if (dataPoint == 0)
+				{
+					continue;
+				}
+				
+				IBlockStateWrapper blockState = mapping.getBlockStateWrapper(FullDataPointUtil.getId(dataPoint));
+				if (blockState == null || blockState.isAir())
+				{
+					continue;
+				}
+				
+				int bottomY = FullDataPointUtil.getBottomY(dataPoint) + levelMinimumHeight;
+				int topY = bottomY + FullDataPointUtil.getHeight(dataPoint);
 				
-				// check if this column is intersected by the ray
-				if (RayCastUtil.rayIntersectsSquare(rayEndingPos.x, rayEndingPos.z, rayDirection.x, rayDirection.z, pos.x, pos.z, 1))
+				// where the ray is between this LOD's bottom and top
+				double slabEnterDistance;
+				double slabExitDistance;
+				if (this.rayDirection.y == 0)
+				{
+					if (this.rayOrigin.y < bottomY || this.rayOrigin.y > topY)
+					{
+						continue;
+					}
+					slabEnterDistance = Double.NEGATIVE_INFINITY;
+					slabExitDistance = Double.POSITIVE_INFINITY;
+				}
+				else
 				{
-					returnList.add(pos);
+					double bottomDistance = (bottomY - this.rayOrigin.y) / this.rayDirection.y;
+					double topDistance = (topY - this.rayOrigin.y) / this.rayDirection.y;
+					slabEnterDistance = Math.min(bottomDistance, topDistance);
+					slabExitDistance = Math.max(bottomDistance, topDistance);
+				}
+				
+				double hitDistance = Math.max(enterDistance, slabEnterDistance);
+				if (hitDistance <= Math.min(exitDistance, slabExitDistance)
+					&& hitDistance < closestHitDistance)
+				{
+					closestHitDistance = hitDistance;
+					closestDataPoint = dataPoint;
 				}
 			}
+			
+			if (closestHitDistance == Double.POSITIVE_INFINITY)
+			{
+				return false;
+			}
+			
+			
+			DhApiTerrainDataPoint apiTerrainData = generateApiDatapoint(this.levelWrapper, mapping, LodUtil.BLOCK_DETAIL_LEVEL, closestDataPoint);
+			this.closestHit = new DhApiRaycastResult(apiTerrainData, new Vec3i(columnX, apiTerrainData.bottomYBlockPos, columnZ));
+			return true;
 		}
 		
-		return returnList;
 	}
 	
 	
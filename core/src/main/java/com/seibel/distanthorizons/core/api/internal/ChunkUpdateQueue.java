@@ -0,0 +1,676 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.api.internal;
+
+import com.seibel.distanthorizons.core.config.Config;
+import com.seibel.distanthorizons.core.level.IDhLevel;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.logging.f3.F3Screen;
+import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.util.threading.ThreadPools;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces chunk updates so only the newest {@link IChunkWrapper} for each {@link DhChunkPos} is processed. <br><br>
+ *
+ * If a position is already queued its update is replaced (latest-wins),
+ * and if a position is currently being processed (or is waiting out
+ * {@link Config.Client.Advanced.LodBuilding#minTimeBetweenChunkUpdatesInSeconds})
+ * the newest update is held until that position is free again. <br>
+ * If updates come in faster than they can be processed, the oldest pending updates are dropped
+ * once {@link ChunkUpdateQueue#DEFAULT_MAX_PENDING_UPDATE_COUNT} positions are waiting. <br>
+ * Block changes queue a single area relight for the changed chunk and its neighbours,
+ * overlapping area relights are merged so building quickly doesn't re-light the same chunks over and over. 
+ * Every chunk in an area relight is marked busy while it runs, so no other update can touch those chunks at the same time. <br><br>
+ *
+ * The queue is drained by a bounded number of workers running on the light populator thread pool.
+ * Workers pull updates instead of each update submitting its own task,
+ * which keeps the thread pool's queue short.
+ */
+public class ChunkUpdateQueue
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	private static final Timer CHUNK_UPDATE_TIMER = new Timer("ChunkUpdateQueue-Timeout", true);
+	
+	/** 
+	 * Area relights whose combined area would be wider than this won't be merged. <br>
+	 * 5 allows merging any two 3x3 areas whose centers are within 2 chunks of each other.
+	 */
+	public static final int MAX_MERGED_AREA_WIDTH_IN_CHUNKS = 5;
+	/** 
+	 * How many positions can have a pending update at once. <br>
+	 * Each update holds a whole chunk, so this prevents the queue from using an unbounded amount of memory
+	 * when flying or generating faster than the updates can be processed.
+	 */
+	public static final int DEFAULT_MAX_PENDING_UPDATE_COUNT = 4096;
+	/** chunk offsets that may contain a mergeable job, sorted by distance */
+	private static final int[][] MERGE_SEARCH_OFFSETS = createMergeSearchOffsets();
+	
+	
+	private final Consumer<PendingChunkUpdate> updateHandler;
+	/** returns null if the thread pool isn't currently available */
+	private final Supplier<ThreadPoolExecutor> executorSupplier;
+	private final IntSupplier maxWorkerCountSupplier;
+	private final IntSupplier updateTimeoutInSecSupplier;
+	private final int maxPendingUpdateCount;
+	
+	/** the newest update for each position that hasn't been started yet */
+	private final ConcurrentHashMap<DhChunkPos, PendingChunkUpdate> pendingUpdateByPos = new ConcurrentHashMap<>();
+	/** 
+	 * The order positions should be processed in. <br>
+	 * May contain positions that were already handled, those are skipped when polled.
+	 */
+	private final ConcurrentLinkedQueue<DhChunkPos> pendingPosQueue = new ConcurrentLinkedQueue<>();
+	/** positions that are currently being processed or are waiting for their update timeout to finish */
+	private final Set<DhChunkPos> busyPosSet = ConcurrentHashMap.newKeySet();
+	/** 
+	 * Pending positions whose area relight overlapped a busy position, 
+	 * these are re-queued whenever a busy position is released. 
+	 */
+	private final Set<DhChunkPos> deferredPosSet = ConcurrentHashMap.newKeySet();
+	
+	/** 
+	 * Replaced whenever the thread pool changes, 
+	 * workers that were queued on a pool that was shut down may never run and would otherwise never release their count. 
+	 */
+	private final AtomicReference<WorkerCounter> workerCounterRef = new AtomicReference<>(new WorkerCounter(null));
+	
+	private final AtomicLong supersededUpdateCount = new AtomicLong(0);
+	private final AtomicLong droppedUpdateCount = new AtomicLong(0);
+	private final AtomicLong completedUpdateCount = new AtomicLong(0);
+	private final AtomicLong totalUpdateLatencyInNs = new AtomicLong(0);
+	private volatile long lastUpdateLatencyInNs = 0;
+	
+	private final F3Screen.NestedMessage f3Message;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	/** @param updateHandler will be run on a light populator thread for each update */
+	public ChunkUpdateQueue(Consumer<PendingChunkUpdate> updateHandler)
+	{
+		this(updateHandler, 
+				ThreadPools::getLightPopulatorExecutor, 
+				() -> Config.Client.Advanced.MultiThreading.numberOfLodBuilderThreads.get(), 
+				() -> Config.Client.Advanced.LodBuilding.minTimeBetweenChunkUpdatesInSeconds.get());
+	}
+	/** Allows the thread pool and config values to be replaced, generally for testing. */
+	public ChunkUpdateQueue(Consumer<PendingChunkUpdate> updateHandler, Supplier<ThreadPoolExecutor> executorSupplier, IntSupplier maxWorkerCountSupplier, IntSupplier updateTimeoutInSecSupplier) { this(updateHandler, executorSupplier, maxWorkerCountSupplier, updateTimeoutInSecSupplier, DEFAULT_MAX_PENDING_UPDATE_COUNT); }
+	/** @param maxPendingUpdateCount once this many positions have a pending update the oldest updates will be dropped */
+	public ChunkUpdateQueue(Consumer<PendingChunkUpdate> updateHandler, Supplier<ThreadPoolExecutor> executorSupplier, IntSupplier maxWorkerCountSupplier, IntSupplier updateTimeoutInSecSupplier, int maxPendingUpdateCount)
+	{
+		this.updateHandler = updateHandler;
+		this.executorSupplier = executorSupplier;
+		this.maxWorkerCountSupplier = maxWorkerCountSupplier;
+		this.updateTimeoutInSecSupplier = updateTimeoutInSecSupplier;
+		this.maxPendingUpdateCount = maxPendingUpdateCount;
+		this.f3Message = new F3Screen.NestedMessage(this::f3Log);
+	}
+	
+	
+	
+	//==========//
+	// queueing //
+	//==========//
+	
+	/**
+	 * Queues the given chunk to be updated, replacing any older update for the same position
+	 * that hasn't started yet.
+	 */
+	public void queueUpdate(IChunkWrapper chunkWrapper, IDhLevel dhLevel)
+	{
+		ArrayList<IChunkWrapper> chunkList = new ArrayList<>(1);
+		chunkList.add(chunkWrapper);
+		this.addOrMergeUpdate(chunkWrapper.getChunkPos(), new PendingChunkUpdate(chunkList, false, dhLevel, System.nanoTime()));
+	}
+	
+	/**
+	 * Queues a single job that lights every chunk in the area together and then updates each of them. <br>
+	 * If a pending job's area overlaps this one the two are merged,
+	 * as long as the merged area isn't wider than {@link ChunkUpdateQueue#MAX_MERGED_AREA_WIDTH_IN_CHUNKS}.
+	 *
+	 * @param areaChunkList should contain centerChunk
+	 */
+	public void queueAreaRelight(IChunkWrapper centerChunk, ArrayList<IChunkWrapper> areaChunkList, IDhLevel dhLevel)
+	{
+		DhChunkPos centerPos = centerChunk.getChunkPos();
+		PendingChunkUpdate newUpdate = new PendingChunkUpdate(areaChunkList, true, dhLevel, System.nanoTime());
+		
+		// try merging into an overlapping job,
+		// closer jobs are checked first since they share the most chunks
+		for (int i = 0; i < MERGE_SEARCH_OFFSETS.length; i++)
+		{
+			DhChunkPos pendingPos = new DhChunkPos(centerPos.x + MERGE_SEARCH_OFFSETS[i][0], centerPos.z + MERGE_SEARCH_OFFSETS[i][1]);
+			PendingChunkUpdate pendingUpdate = this.pendingUpdateByPos.get(pendingPos);
+			if (pendingUpdate == null || !pendingUpdate.canMergeWith(newUpdate))
+			{
+				continue;
+			}
+			
+			PendingChunkUpdate mergedUpdate = pendingUpdate.mergeWith(newUpdate);
+			// will fail if a worker started the pending job in the meantime
+			if (this.pendingUpdateByPos.replace(pendingPos, pendingUpdate, mergedUpdate))
+			{
+				this.supersededUpdateCount.incrementAndGet();
+				this.tryStartWorkers();
+				return;
+			}
+		}
+		
+		this.addOrMergeUpdate(centerPos, newUpdate);
+	}
+	/** 
+	 * Updates at the same position are always merged, regardless of {@link ChunkUpdateQueue#MAX_MERGED_AREA_WIDTH_IN_CHUNKS},
+	 * otherwise the older update would be lost. 
+	 */
+	private void addOrMergeUpdate(DhChunkPos pos, PendingChunkUpdate newUpdate)
+	{
+		PendingChunkUpdate queuedUpdate = this.pendingUpdateByPos.merge(pos, newUpdate,
+				(pendingUpdate, newerUpdate) -> (pendingUpdate.dhLevel == newerUpdate.dhLevel) ? pendingUpdate.mergeWith(newerUpdate) : newerUpdate);
+		if (queuedUpdate == newUpdate)
+		{
+			// nothing was pending at this position
+			this.pendingPosQueue.add(pos);
+			this.dropOldestUpdates(pos);
+		}
+		else
+		{
+			this.supersededUpdateCount.incrementAndGet();
+		}
+		
+		this.tryStartWorkers();
+	}
+	
+	/** Drops pending updates, oldest first, until the pending map is back within {@link ChunkUpdateQueue#maxPendingUpdateCount}. */
+	private void dropOldestUpdates(DhChunkPos newestPos)
+	{
+		while (this.pendingUpdateByPos.size() > this.maxPendingUpdateCount)
+		{
+			DhChunkPos oldestPos = this.pollOldestDroppablePos(newestPos);
+			if (oldestPos == null)
+			{
+				return;
+			}
+			
+			if (this.pendingUpdateByPos.remove(oldestPos) != null)
+			{
+				this.droppedUpdateCount.incrementAndGet();
+			}
+		}
+	}
+	/** @return null if the only pending update is at newestPos */
+	private DhChunkPos pollOldestDroppablePos(DhChunkPos newestPos)
+	{
+		DhChunkPos oldestPos = this.pendingPosQueue.poll();
+		if (oldestPos != null && !oldestPos.equals(newestPos))
+		{
+			return oldestPos;
+		}
+		else if (oldestPos != null)
+		{
+			// the update that was just queued shouldn't be dropped
+			this.pendingPosQueue.add(oldestPos);
+		}
+		
+		// the remaining updates are being held until their position is free,
+		// these aren't ordered so any of them can be dropped
+		for (DhChunkPos heldPos : this.pendingUpdateByPos.keySet())
+		{
+			if (!heldPos.equals(newestPos))
+			{
+				return heldPos;
+			}
+		}
+		return null;
+	}
+	
+	/** 
+	 * Removes any pending updates and resets the worker tracking, 
+	 * updates that are currently running will still finish. <br>
+	 * Should be called when the thread pools are shut down.
+	 */
+	public void clear()
+	{
+		this.pendingUpdateByPos.clear();
+		this.pendingPosQueue.clear();
+		this.busyPosSet.clear();
+		this.deferredPosSet.clear();
+		this.workerCounterRef.set(new WorkerCounter(null));
+	}
+	
+	
+	
+	//=========//
+	// workers //
+	//=========//
+	
+	/** Should be called after the thread pool is re-created so any waiting updates are started. */
+	public void tryStartWorkers()
+	{
+		ThreadPoolExecutor executor = this.executorSupplier.get();
+		if (executor == null || executor.isShutdown())
+		{
+			// the updates will be processed once the thread pools are available again
+			return;
+		}
+		
+		WorkerCounter workerCounter = this.workerCounterRef.get();
+		if (workerCounter.executor != executor)
+		{
+			// the thread pool was replaced, workers queued on the old pool are no longer counted
+			WorkerCounter newWorkerCounter = new WorkerCounter(executor);
+			workerCounter = this.workerCounterRef.compareAndSet(workerCounter, newWorkerCounter) ? newWorkerCounter : this.workerCounterRef.get();
+			if (workerCounter.executor != executor)
+			{
+				// another thread replaced the counter with a different pool
+				return;
+			}
+		}
+		
+		
+		int maxWorkerCount = this.maxWorkerCountSupplier.getAsInt();
+		while (!this.pendingPosQueue.isEmpty())
+		{
+			int workerCount = workerCounter.runningCount.get();
+			if (workerCount >= maxWorkerCount)
+			{
+				return;
+			}
+			
+			if (workerCounter.runningCount.compareAndSet(workerCount, workerCount + 1))
+			{
+				final WorkerCounter finalWorkerCounter = workerCounter;
+				try
+				{
+					executor.execute(() -> this.runWorker(finalWorkerCounter));
+				}
+				catch (RejectedExecutionException e)
+				{
+					// the thread pool is shutting down
+					workerCounter.runningCount.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+	
+	private void runWorker(WorkerCounter workerCounter)
+	{
+		try
+		{
+			DhChunkPos pos;
+			while ((pos = this.pendingPosQueue.poll()) != null)
+			{
+				if (!this.busyPosSet.add(pos))
+				{
+					// this position is already being processed,
+					// its pending update will be re-queued once the current one finishes
+					continue;
+				}
+				
+				PendingChunkUpdate update = this.pendingUpdateByPos.remove(pos);
+				if (update == null)
+				{
+					// this position was already handled
+					this.releasePos(pos);
+					continue;
+				}
+				
+				ArrayList<DhChunkPos> claimedPosList = this.tryClaimUpdatePositions(pos, update);
+				if (claimedPosList == null)
+				{
+					// part of the area is being processed by another update,
+					// this update will be re-queued once that position is released
+					continue;
+				}
+				
+				try
+				{
+					this.updateHandler.accept(update);
+				}
+				catch (Exception e)
+				{
+					LOGGER.error("Unexpected error when updating chunk at pos: [" + pos + "]", e);
+				}
+				finally
+				{
+					long latencyInNs = System.nanoTime() - update.queuedNanoTime;
+					this.lastUpdateLatencyInNs = latencyInNs;
+					this.totalUpdateLatencyInNs.addAndGet(latencyInNs);
+					this.completedUpdateCount.incrementAndGet();
+					
+					this.onPosListFinished(claimedPosList);
+				}
+			}
+		}
+		finally
+		{
+			workerCounter.runningCount.decrementAndGet();
+			
+			// an update may have been queued between the last poll and the decrement
+			if (!this.pendingPosQueue.isEmpty())
+			{
+				this.tryStartWorkers();
+			}
+		}
+	}
+	
+	/**
+	 * Marks every chunk position in the update as busy so overlapping updates 
+	 * (including single chunk updates inside an area relight) can't run at the same time. <br>
+	 * If any position is already busy nothing is claimed, the update is put back in the pending map 
+	 * and its position is deferred until a busy position is released.
+	 * 
+	 * @param pos the update's key, must already be in {@link ChunkUpdateQueue#busyPosSet}
+	 * @return null if the positions couldn't be claimed
+	 */
+	private ArrayList<DhChunkPos> tryClaimUpdatePositions(DhChunkPos pos, PendingChunkUpdate update)
+	{
+		ArrayList<DhChunkPos> claimedPosList = new ArrayList<>(update.chunkList.size());
+		claimedPosList.add(pos);
+		
+		DhChunkPos blockingPos = null;
+		for (int i = 0; i < update.chunkList.size(); i++)
+		{
+			DhChunkPos chunkPos = update.chunkList.get(i).getChunkPos();
+			if (chunkPos.equals(pos))
+			{
+				continue;
+			}
+			
+			if (!this.busyPosSet.add(chunkPos))
+			{
+				blockingPos = chunkPos;
+				break;
+			}
+			claimedPosList.add(chunkPos);
+		}
+		
+		if (blockingPos == null)
+		{
+			return claimedPosList;
+		}
+		
+		
+		// put the update back, merging with anything that was queued in the meantime
+		this.pendingUpdateByPos.merge(pos, update,
+				(newerUpdate, takenUpdate) -> (takenUpdate.dhLevel == newerUpdate.dhLevel) ? takenUpdate.mergeWith(newerUpdate) : newerUpdate);
+		
+		// release the claimed positions before deferring,
+		// otherwise releasing them would immediately re-queue this position
+		for (int i = 1; i < claimedPosList.size(); i++)
+		{
+			this.releasePos(claimedPosList.get(i));
+		}
+		this.busyPosSet.remove(pos);
+		this.requeueDeferredPositions();
+		
+		this.deferredPosSet.add(pos);
+		// the blocking position may have been released before this position was deferred
+		if (!this.busyPosSet.contains(blockingPos))
+		{
+			this.requeueDeferredPositions();
+		}
+		
+		return null;
+	}
+	
+	private void onPosListFinished(ArrayList<DhChunkPos> posList)
+	{
+		int updateTimeoutInSec = this.updateTimeoutInSecSupplier.getAsInt();
+		if (updateTimeoutInSec != 0)
+		{
+			// prevent updating these chunks again until the timeout finishes,
+			// any updates that come in during that time will wait in the pending map
+			CHUNK_UPDATE_TIMER.schedule(new TimerTask()
+			{
+				@Override
+				public void run()
+				{
+					ChunkUpdateQueue.this.releasePosList(posList);
+					ChunkUpdateQueue.this.tryStartWorkers();
+				}
+			}, TimeUnit.SECONDS.toMillis(updateTimeoutInSec));
+		}
+		else
+		{
+			// instantly allow these chunks to be updated again
+			this.releasePosList(posList);
+		}
+	}
+	private void releasePosList(ArrayList<DhChunkPos> posList)
+	{
+		for (int i = 0; i < posList.size(); i++)
+		{
+			this.releasePos(posList.get(i));
+		}
+	}
+	
+	/** allows the position to be processed again and re-queues it if an update came in while it was busy */
+	private void releasePos(DhChunkPos pos)
+	{
+		this.busyPosSet.remove(pos);
+		
+		// the pending map is checked after the busy set is cleared,
+		// so either this thread or the thread queueing the update will see the other's change
+		if (this.pendingUpdateByPos.containsKey(pos))
+		{
+			this.pendingPosQueue.add(pos);
+		}
+		
+		this.requeueDeferredPositions();
+	}
+	
+	/** should be called whenever a busy position is released so deferred area relights can try again */
+	private void requeueDeferredPositions()
+	{
+		for (DhChunkPos deferredPos : this.deferredPosSet)
+		{
+			if (this.deferredPosSet.remove(deferredPos)
+				&& this.pendingUpdateByPos.containsKey(deferredPos))
+			{
+				this.pendingPosQueue.add(deferredPos);
+			}
+		}
+	}
+	
+	
+	
+	private static int[][] createMergeSearchOffsets()
+	{
+		int radius = MAX_MERGED_AREA_WIDTH_IN_CHUNKS / 2;
+		ArrayList<int[]> offsetList = new ArrayList<>();
+		for (int x = -radius; x <= radius; x++)
+		{
+			for (int z = -radius; z <= radius; z++)
+			{
+				offsetList.add(new int[]{ x, z });
+			}
+		}
+		offsetList.sort(Comparator.comparingInt((int[] offset) -> Math.max(Math.abs(offset[0]), Math.abs(offset[1]))));
+		return offsetList.toArray(new int[0][]);
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getQueueDepth() { return this.pendingUpdateByPos.size(); }
+	public int getBusyCount() { return this.busyPosSet.size(); }
+	public int getRunningWorkerCount() { return this.workerCounterRef.get().runningCount.get(); }
+	public long getSupersededUpdateCount() { return this.supersededUpdateCount.get(); }
+	public long getDroppedUpdateCount() { return this.droppedUpdateCount.get(); }
+	public long getCompletedUpdateCount() { return this.completedUpdateCount.get(); }
+	
+	/** @return the average time between an update being queued and finishing, in milliseconds */
+	public double getAverageUpdateLatencyInMs()
+	{
+		long completedCount = this.completedUpdateCount.get();
+		return (completedCount == 0) ? 0 : (this.totalUpdateLatencyInNs.get() / (double) completedCount) / 1_000_000.0;
+	}
+	
+	private String[] f3Log()
+	{
+		return new String[]
+			{
+				"Chunk updates: [" + this.getQueueDepth() + "] queued, [" + this.getBusyCount() + "] busy, [" + this.getRunningWorkerCount() + "] workers",
+				"Chunk updates: [" + this.getCompletedUpdateCount() + "] done, [" + this.getSupersededUpdateCount() + "] superseded, [" + this.getDroppedUpdateCount() + "] dropped, "
+					+ "latency avg [" + String.format("%.1f", this.getAverageUpdateLatencyInMs()) + "ms] last [" + String.format("%.1f", this.lastUpdateLatencyInNs / 1_000_000.0) + "ms]"
+			};
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	/** tracks how many workers have been queued on a specific thread pool */
+	private static class WorkerCounter
+	{
+		/** null if no thread pool has been used yet */
+		public final ThreadPoolExecutor executor;
+		public final AtomicInteger runningCount = new AtomicInteger(0);
+		
+		public WorkerCounter(ThreadPoolExecutor executor) { this.executor = executor; }
+		
+	}
+	
+	public static class PendingChunkUpdate
+	{
+		/** every chunk that should be lit and sent to the level, only contains one chunk per position */
+		public final ArrayList<IChunkWrapper> chunkList;
+		/** if true the chunks should be lit together, otherwise the list only contains a single chunk */
+		public final boolean isAreaRelight;
+		public final IDhLevel dhLevel;
+		
+		/** when this position was first queued, kept when newer updates are merged into this one */
+		private final long queuedNanoTime;
+		
+		private final int minChunkX;
+		private final int minChunkZ;
+		private final int maxChunkX;
+		private final int maxChunkZ;
+		
+		
+		
+		public PendingChunkUpdate(ArrayList<IChunkWrapper> chunkList, boolean isAreaRelight, IDhLevel dhLevel, long queuedNanoTime)
+		{
+			this.chunkList = chunkList;
+			this.isAreaRelight = isAreaRelight;
+			this.dhLevel = dhLevel;
+			this.queuedNanoTime = queuedNanoTime;
+			
+			int minX = Integer.MAX_VALUE;
+			int minZ = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE;
+			int maxZ = Integer.MIN_VALUE;
+			for (int i = 0; i < chunkList.size(); i++)
+			{
+				DhChunkPos pos = chunkList.get(i).getChunkPos();
+				minX = Math.min(minX, pos.x);
+				minZ = Math.min(minZ, pos.z);
+				maxX = Math.max(maxX, pos.x);
+				maxZ = Math.max(maxZ, pos.z);
+			}
+			this.minChunkX = minX;
+			this.minChunkZ = minZ;
+			this.maxChunkX = maxX;
+			this.maxChunkZ = maxZ;
+		}
+		
+		
+		
+		public boolean canMergeWith(PendingChunkUpdate newerUpdate)
+		{
+			if (this.dhLevel != newerUpdate.dhLevel)
+			{
+				return false;
+			}
+			
+			int mergedWidth = Math.max(this.maxChunkX, newerUpdate.maxChunkX) - Math.min(this.minChunkX, newerUpdate.minChunkX) + 1;
+			int mergedDepth = Math.max(this.maxChunkZ, newerUpdate.maxChunkZ) - Math.min(this.minChunkZ, newerUpdate.minChunkZ) + 1;
+			return mergedWidth <= MAX_MERGED_AREA_WIDTH_IN_CHUNKS && mergedDepth <= MAX_MERGED_AREA_WIDTH_IN_CHUNKS;
+		}
+		
+		/** 
+		 * The newer update's chunks replace any of this update's chunks at the same position. <br>
+		 * If neither update is an area relight (IE both are for the same single chunk) the newer update is returned.
+		 */
+		public PendingChunkUpdate mergeWith(PendingChunkUpdate newerUpdate)
+		{
+			if (!this.isAreaRelight && !newerUpdate.isAreaRelight)
+			{
+				// latest wins
+				return new PendingChunkUpdate(newerUpdate.chunkList, false, newerUpdate.dhLevel, Math.min(this.queuedNanoTime, newerUpdate.queuedNanoTime));
+			}
+			
+			
+			ArrayList<IChunkWrapper> mergedChunkList = new ArrayList<>(newerUpdate.chunkList);
+			for (int i = 0; i < this.chunkList.size(); i++)
+			{
+				IChunkWrapper olderChunk = this.chunkList.get(i);
+				
+				boolean replaced = false;
+				for (int j = 0; j < newerUpdate.chunkList.size(); j++)
+				{
+					if (newerUpdate.chunkList.get(j).getChunkPos().equals(olderChunk.getChunkPos()))
+					{
+						replaced = true;
+						break;
+					}
+				}
+				
+				if (!replaced)
+				{
+					mergedChunkList.add(olderChunk);
+				}
+			}
+			
+			return new PendingChunkUpdate(mergedChunkList, true, newerUpdate.dhLevel, Math.min(this.queuedNanoTime, newerUpdate.queuedNanoTime));
+		}
+		
+	}
+	
+}
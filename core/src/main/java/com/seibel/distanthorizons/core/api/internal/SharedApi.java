@@ -35,14 +35,8 @@ import com.seibel.distanthorizons.core.wrapperInterfaces.minecraft.IMinecraftRen
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.IClientLevelWrapper;
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 import org.apache.logging.log4j.Logger;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadPoolExecutor;
 
 /** Contains code and variables used by both {@link ClientApi} and {@link ServerApi} */
 public class SharedApi
@@ -51,16 +45,14 @@ public class SharedApi
 	
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
 	private static final IMinecraftRenderWrapper MC_RENDER = SingletonInjector.INSTANCE.get(IMinecraftRenderWrapper.class);
-	private static final Set<DhChunkPos> UPDATING_CHUNK_SET = ConcurrentHashMap.newKeySet();
-	private static final int MAX_UPDATING_CHUNK_COUNT_PER_THREAD = 100;
+	/** lighting the chunks needs to be done on separate threads to prevent lagging any of the event threads */
+	private static final ChunkUpdateQueue CHUNK_UPDATE_QUEUE = new ChunkUpdateQueue(SharedApi::bakeChunkLightingAndSendToLevel);
 	
 	
 	
 	private static AbstractDhWorld currentWorld;
 	private static int lastWorldGenTickDelta = 0;
 	
-	private static final Timer CHUNK_UPDATE_TIMER = new Timer();
-	
 	
 	
 	//=============//
@@ -88,9 +80,12 @@ public class SharedApi
 		if (currentWorld != null)
 		{
 			ThreadPools.setupThreadPools();
+			// start any updates that were queued while the thread pools were unavailable
+			CHUNK_UPDATE_QUEUE.tryStartWorkers();
 		}
 		else
 		{
+			CHUNK_UPDATE_QUEUE.clear();
 			ThreadPools.shutdownThreadPools();
 			DebugRenderer.clearRenderables();
 			MC_RENDER.clearTargetFrameBuffer();
@@ -183,7 +178,7 @@ public class SharedApi
 		{
 			// only update the center chunk
 			
-			bakeChunkLightingAndSendToLevelAsync(chunkWrapper, null, dhLevel);
+			CHUNK_UPDATE_QUEUE.queueUpdate(chunkWrapper, dhLevel);
 		}
 		else
 		{
@@ -214,103 +209,52 @@ public class SharedApi
 				}
 			}
 			
-			// light and send the chunks
-			for (IChunkWrapper litChunk : neighbourChunkList)
-			{
-				bakeChunkLightingAndSendToLevelAsync(litChunk, neighbourChunkList, dhLevel);
-			}
+			// light the whole area once and send each chunk
+			CHUNK_UPDATE_QUEUE.queueAreaRelight(chunkWrapper, neighbourChunkList, dhLevel);
 		}
 	}
-	private static void bakeChunkLightingAndSendToLevelAsync(IChunkWrapper chunkWrapper, @Nullable ArrayList<IChunkWrapper> neighbourChunkList, IDhLevel dhLevel)
+	/** run on a light populator thread by {@link SharedApi#CHUNK_UPDATE_QUEUE} */
+	private static void bakeChunkLightingAndSendToLevel(ChunkUpdateQueue.PendingChunkUpdate update)
 	{
-		if (UPDATING_CHUNK_SET.size() >= MAX_UPDATING_CHUNK_COUNT_PER_THREAD * Config.Client.Advanced.MultiThreading.numberOfLodBuilderThreads.get())
-		{
-			// The maximum number of chunks are already queued, don't add more.
-			// This is done to prevent overloading the system if the user flys extremely fast and queues too many chunks
-			return;
-		}
-		
-		// prevent duplicate update requests
-		if (UPDATING_CHUNK_SET.contains(chunkWrapper.getChunkPos()))
-		{
-			// this chunk is already being updated
-			return;
-		}
-		UPDATING_CHUNK_SET.add(chunkWrapper.getChunkPos());
+		ArrayList<IChunkWrapper> chunkList = update.chunkList;
+		IDhLevel dhLevel = update.dhLevel;
 		
-		
-		// lighting the chunk needs to be done on a separate thread to prevent lagging any of the event threads
-		ThreadPoolExecutor executor = ThreadPools.getLightPopulatorExecutor();
-		if (executor == null)
-		{
-			return;
-		}
-		
-		executor.execute(() ->
+		// Save or populate the chunk wrapper's lighting
+		// this is done so we don't have to worry about MC unloading the lighting data for this chunk
+		boolean onlyUseDhLighting = Config.Client.Advanced.LodBuilding.onlyUseDhLightingEngine.get();
+		ArrayList<IChunkWrapper> dhLitChunkList = new ArrayList<>(chunkList.size());
+		for (int i = 0; i < chunkList.size(); i++)
 		{
-			LOGGER.trace(chunkWrapper.getChunkPos() + " " + executor.getActiveCount() + " / " + executor.getQueue().size() + " - " + executor.getCompletedTaskCount());
-			
-			try
+			IChunkWrapper chunkWrapper = chunkList.get(i);
+			if (!onlyUseDhLighting && chunkWrapper.isLightCorrect())
 			{
-				// Save or populate the chunk wrapper's lighting
-				// this is done so we don't have to worry about MC unloading the lighting data for this chunk
-				boolean onlyUseDhLighting = Config.Client.Advanced.LodBuilding.onlyUseDhLightingEngine.get();
-				if (!onlyUseDhLighting && chunkWrapper.isLightCorrect())
+				try
 				{
-					try
-					{
-						// If MC's lighting engine isn't thread safe this may cause the server thread to lag
-						chunkWrapper.bakeDhLightingUsingMcLightingEngine();
-					}
-					catch (IllegalStateException e)
-					{
-						LOGGER.warn("Chunk light baking error: " + e.getMessage(), e);
-					}
+					// If MC's lighting engine isn't thread safe this may cause the server thread to lag
+					chunkWrapper.bakeDhLightingUsingMcLightingEngine();
 				}
-				else
+				catch (IllegalStateException e)
 				{
-					// generate the chunk's lighting, using neighboring chunks if present
-					
-					ArrayList<IChunkWrapper> nearbyChunkList;
-					if (neighbourChunkList != null)
-					{
-						nearbyChunkList = neighbourChunkList;
-					}
-					else
-					{
-						nearbyChunkList = new ArrayList<>(1);
-						nearbyChunkList.add(chunkWrapper);
-					}
-					
-					DhLightingEngine.INSTANCE.lightChunk(chunkWrapper, nearbyChunkList, dhLevel.hasSkyLight() ? 15 : 0);
+					LOGGER.warn("Chunk light baking error: " + e.getMessage(), e);
 				}
-				
-				dhLevel.updateChunkAsync(chunkWrapper);
 			}
-			catch (Exception e)
+			else
 			{
-				LOGGER.error("Unexpected error when updating chunk at pos: ["+chunkWrapper.getChunkPos()+"]", e);
+				dhLitChunkList.add(chunkWrapper);
 			}
-			finally
-			{
-				// the LOD chunk has finished being updated
-				int updateTimeoutInSec = Config.Client.Advanced.LodBuilding.minTimeBetweenChunkUpdatesInSeconds.get();
-				if (updateTimeoutInSec != 0)
-				{
-					// prevent updating this chunk again until the timeout finishes
-					CHUNK_UPDATE_TIMER.schedule(new TimerTask() 
-					{
-						@Override
-						public void run() { UPDATING_CHUNK_SET.remove(chunkWrapper.getChunkPos()); }
-					}, updateTimeoutInSec * 1000L);
-				}
-				else
-				{
-					// instantly allow this chunk to be updated again
-					UPDATING_CHUNK_SET.remove(chunkWrapper.getChunkPos());
-				}
-			}
-		});
+		}
+		
+		if (!dhLitChunkList.isEmpty())
+		{
+			// generate the chunks' lighting, using neighboring chunks if present.
+			// area relights are lit in a single pass so each light source is only propagated once
+			DhLightingEngine.INSTANCE.lightChunks(dhLitChunkList, chunkList, dhLevel.hasSkyLight() ? 15 : 0);
+		}
+		
+		for (int i = 0; i < chunkList.size(); i++)
+		{
+			dhLevel.updateChunkAsync(chunkList.get(i));
+		}
 	}
 	
 	
@@ -777,6 +777,45 @@ public class Config
 								+ "")
 						.build();
 				
+				public static ConfigEntry<Boolean> enableDatabaseMaintenance = new ConfigEntry.Builder<Boolean>()
+						.set(true)
+						.comment(""
+								+ "If true Distant Horizons will verify, update and compact \n"
+								+ "its databases in the background while no LODs are being loaded. \n"
+								+ "\n"
+								+ "Corrupted LOD data will be deleted and re-created, \n"
+								+ "LOD data saved by older versions will be re-saved in the newest format. \n"
+								+ "")
+						.build();
+				
+				public static ConfigEntry<Boolean> enableDatabaseSharding = new ConfigEntry.Builder<Boolean>()
+						.set(false)
+						.comment(""
+								+ "If true LOD data will be split between multiple database files \n"
+								+ "based on which 16,384 x 16,384 block region it is in. \n"
+								+ "This can speed up saving in very large worlds. \n"
+								+ "\n"
+								+ "Existing LOD data will be moved into the new files as it is saved. \n"
+								+ "If this is disabled after being used, LOD data will still be read from the existing files \n"
+								+ "and will be moved back into the main database as it is saved. \n"
+								+ "\n"
+								+ "Changes will only apply after re-loading the world. \n"
+								+ "")
+						.build();
+				
+				public static ConfigEntry<Boolean> enableMappedRenderCache = new ConfigEntry.Builder<Boolean>()
+						.set(false)
+						.comment(""
+								+ "If true the render cache will be stored in memory mapped files \n"
+								+ "instead of the database. \n"
+								+ "This speeds up loading LODs at the cost of more disk space. \n"
+								+ "\n"
+								+ "Toggling this will cause the render cache to be re-created. \n"
+								+ "\n"
+								+ "Changes will only apply after re-loading the world. \n"
+								+ "")
+						.build();
+				
 			}
 			
 			public static class Multiplayer
@@ -979,6 +1018,16 @@ public class Config
 								+ "")
 						.build();
 				
+				public static ConfigEntry<Boolean> cacheBuiltMeshes = new ConfigEntry.Builder<Boolean>()
+						.set(true)
+						.comment(""
+								+ "If true built geometry will be saved alongside the render data \n"
+								+ "so unchanged LODs can skip geometry building the next time they are loaded. \n"
+								+ "\n"
+								+ "Disabling this will reduce the render cache's size on disk. \n"
+								+ "")
+						.build();
+				
 				// deprecated and not implemented, can be made public if we ever re-implement it
 				@Deprecated
 				private static ConfigEntry<EBufferRebuildTimes> rebuildTimes = new ConfigEntry.Builder<EBufferRebuildTimes>()
@@ -0,0 +1,227 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData;
+
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.sql.FullDataPaletteRepo;
+import com.seibel.distanthorizons.core.sql.PaletteDto;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Level-wide dictionary of every Biome/BlockState pair saved in a level's database. <br><br>
+ * 
+ * Each pair is given a stable integer ID that is stored in the {@link FullDataPaletteRepo},
+ * allowing each {@link FullDataPointIdMap} to save palette IDs instead of serialized strings. <br>
+ * Wrappers are only deserialized the first time their ID is requested and are then cached
+ * for the rest of the level's lifetime, so loading a data source doesn't require any string parsing. <br><br>
+ * 
+ * Reading entries is lock free, adding entries is guarded by a lock.
+ * 
+ * @see FullDataPointIdMap
+ */
+public class FullDataPalette
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	private final FullDataPaletteRepo repo;
+	private final ILevelWrapper levelWrapper;
+	
+	/** only used when adding entries, reading is lock free */
+	private final ReentrantLock writeLock = new ReentrantLock();
+	
+	/** 
+	 * The index is the palette ID. <br>
+	 * Replaced instead of modified when it needs to grow so readers never see a partially copied array.
+	 */
+	private volatile String[] serialStringById = new String[64];
+	/** 
+	 * Lazily populated from {@link FullDataPalette#serialStringById}. <br>
+	 * Since deserializing the same string twice returns equivalent entries, 
+	 * readers can populate this array without locking. 
+	 */
+	private volatile FullDataPointIdMap.Entry[] entryById = new FullDataPointIdMap.Entry[64];
+	/** 
+	 * key: {@link FullDataPointIdMap.Entry#handlePair} <br>
+	 * Only accessed while holding the {@link FullDataPalette#writeLock}. 
+	 */
+	private final Long2IntOpenHashMap idByHandlePair = new Long2IntOpenHashMap();
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public FullDataPalette(FullDataPaletteRepo repo, ILevelWrapper levelWrapper)
+	{
+		this.repo = repo;
+		this.levelWrapper = levelWrapper;
+		this.idByHandlePair.defaultReturnValue(-1);
+		
+		// only the strings are loaded here,
+		// the wrappers will be deserialized when they're first needed
+		List<PaletteDto> paletteList = this.repo.getAll();
+		for (PaletteDto dto : paletteList)
+		{
+			try
+			{
+				this.putSerialString(dto.id, dto.biomeBlockStateString, FullDataPointIdMap.Entry.getHandlePair(dto.biomeBlockStateString));
+			}
+			catch (IOException e)
+			{
+				LOGGER.warn("Ignoring invalid palette entry ["+dto.id+"]: ["+dto.biomeBlockStateString+"], error: ["+e.getMessage()+"].");
+			}
+		}
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	/** @throws IOException if the given ID isn't in this palette */
+	public FullDataPointIdMap.Entry getEntry(int id) throws IOException, InterruptedException
+	{
+		FullDataPointIdMap.Entry[] entryById = this.entryById;
+		if (id >= 0 && id < entryById.length && entryById[id] != null)
+		{
+			return entryById[id];
+		}
+		
+		
+		String[] serialStringById = this.serialStringById;
+		String serialString = (id >= 0 && id < serialStringById.length) ? serialStringById[id] : null;
+		if (serialString == null)
+		{
+			throw new IOException("Palette ID ["+id+"] isn't present in the level palette.");
+		}
+		
+		FullDataPointIdMap.Entry entry = FullDataPointIdMap.Entry.deserialize(serialString, this.levelWrapper);
+		
+		// if the array was replaced in the meantime this entry will just be deserialized again next time
+		entryById = this.entryById;
+		if (id < entryById.length)
+		{
+			entryById[id] = entry;
+		}
+		return entry;
+	}
+	
+	
+	
+	//=========//
+	// setters //
+	//=========//
+	
+	/** 
+	 * Adds the given entry to the database if it isn't already present. 
+	 * 
+	 * @throws IOException if the database connection has been closed
+	 */
+	public int getOrCreateId(FullDataPointIdMap.Entry entry) throws IOException
+	{
+		this.writeLock.lock();
+		try
+		{
+			int id = this.idByHandlePair.get(entry.handlePair);
+			if (id == -1)
+			{
+				id = this.insertSerialString(entry.serialize(), entry.handlePair);
+				this.entryById[id] = entry;
+			}
+			return id;
+		}
+		finally
+		{
+			this.writeLock.unlock();
+		}
+	}
+	
+	/** 
+	 * Used when reading data sources that were saved with serialized strings
+	 * instead of palette IDs. <br> 
+	 * Doesn't deserialize the string's wrappers.
+	 * 
+	 * @throws IOException if the string is formatted incorrectly or the database connection has been closed
+	 */
+	public int getOrCreateId(String serialString) throws IOException
+	{
+		long handlePair = FullDataPointIdMap.Entry.getHandlePair(serialString);
+		
+		this.writeLock.lock();
+		try
+		{
+			int id = this.idByHandlePair.get(handlePair);
+			if (id == -1)
+			{
+				id = this.insertSerialString(serialString, handlePair);
+			}
+			return id;
+		}
+		finally
+		{
+			this.writeLock.unlock();
+		}
+	}
+	
+	/** Must be called while holding the write lock. */
+	private int insertSerialString(String serialString, long handlePair) throws IOException
+	{
+		int id = this.repo.getOrInsertId(serialString);
+		if (id < 0)
+		{
+			throw new IOException("Unable to add ["+serialString+"] to the level palette, the database connection is closed.");
+		}
+		
+		this.putSerialString(id, serialString, handlePair);
+		return id;
+	}
+	/** Must be called while holding the write lock or before this palette has been shared. */
+	private void putSerialString(int id, String serialString, long handlePair)
+	{
+		String[] serialStringById = this.serialStringById;
+		if (id >= serialStringById.length)
+		{
+			int newLength = Math.max(serialStringById.length * 2, id + 1);
+			
+			// the entries are replaced first so readers that see the new
+			// string array will also find a large enough entry array
+			this.entryById = Arrays.copyOf(this.entryById, newLength);
+			serialStringById = Arrays.copyOf(serialStringById, newLength);
+			serialStringById[id] = serialString;
+			this.serialStringById = serialStringById;
+		}
+		else
+		{
+			serialStringById[id] = serialString;
+		}
+		
+		this.idByHandlePair.put(handlePair, id);
+	}
+	
+}
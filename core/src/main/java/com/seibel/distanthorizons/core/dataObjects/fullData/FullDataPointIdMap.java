@@ -27,18 +27,25 @@ import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrappe
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper;
 import com.seibel.distanthorizons.core.wrapperInterfaces.IWrapperFactory;
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * WARNING: This is not THREAD-SAFE!
- * <p>
- * Used to map a numerical IDs to a Biome/BlockState pair.
+ * Used to map a numerical IDs to a Biome/BlockState pair. <br><br>
+ * 
+ * Reading IDs is lock free and can be done from any number of threads.
+ * Adding entries is guarded by a lock, however that lock should almost always be uncontended
+ * since each map is generally only written to by one thread at a time. <br><br>
+ * 
+ * Entries are compared using the handles from {@link WrapperHandleRegistry}
+ * so no string work is needed when adding or merging entries.
+ * When saved each entry is written as its ID in the level's {@link FullDataPalette}.
  *
  * @author Leetom
  */
@@ -55,16 +62,25 @@ public class FullDataPointIdMap
 	private static final String BLOCK_STATE_SEPARATOR_STRING = "_DH-BSW_";
 	
 	
-	// FIXME: Improve performance maybe?
-	/** used when the data point map is running normally */
-	private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+	/** only used when adding entries, reading is lock free */
+	private final ReentrantLock writeLock = new ReentrantLock();
 	
 	/** should only be used for debugging */
 	private DhSectionPos pos;
 	
-	/** The index should be the same as the Entry's ID */
-	private final ArrayList<Entry> entryList = new ArrayList<>();
-	private final HashMap<Entry, Integer> idMap = new HashMap<>();
+	/** 
+	 * The index should be the same as the Entry's ID. <br>
+	 * May be larger than {@link FullDataPointIdMap#entryCount}, 
+	 * this array is replaced instead of modified when it needs to grow so readers never see a partially copied array. 
+	 */
+	private volatile Entry[] entries = new Entry[16];
+	/** Written after the entry it includes, so readers that see this count will also see every entry below it. */
+	private volatile int entryCount = 0;
+	/** 
+	 * key: {@link Entry#handlePair} <br>
+	 * Only accessed while holding the {@link FullDataPointIdMap#writeLock}. 
+	 */
+	private final Long2IntOpenHashMap idByHandlePair = new Long2IntOpenHashMap();
 	
 	
 	
@@ -72,7 +88,11 @@ public class FullDataPointIdMap
 	// constructor //
 	//=============//
 	
-	public FullDataPointIdMap(DhSectionPos pos) { this.pos = pos; }
+	public FullDataPointIdMap(DhSectionPos pos)
+	{
+		this.pos = pos;
+		this.idByHandlePair.defaultReturnValue(-1);
+	}
 	
 	
 	
@@ -80,28 +100,17 @@ public class FullDataPointIdMap
 	// getters //
 	//=========//
 	
-	/** @throws IndexOutOfBoundsException if the given ID isn't in the {@link FullDataPointIdMap#entryList} */
+	/** @throws IndexOutOfBoundsException if the given ID isn't in the {@link FullDataPointIdMap#entries} */
 	private Entry getEntry(int id) throws IndexOutOfBoundsException
 	{
-		try
-		{
-			this.readWriteLock.readLock().lock();
-			Entry entry;
-			try
-			{
-				entry = this.entryList.get(id);
-			}
-			catch (IndexOutOfBoundsException e)
-			{
-				throw new IndexOutOfBoundsException("FullData ID Map out of sync for pos: "+this.pos+". ID: ["+id+"] greater than the number of known ID's: ["+this.entryList.size()+"].");
-			}
-			
-			return entry;
-		}
-		finally
+		// the count must be read before the array
+		int entryCount = this.entryCount;
+		if (id < 0 || id >= entryCount)
 		{
-			this.readWriteLock.readLock().unlock();
+			throw new IndexOutOfBoundsException("FullData ID Map out of sync for pos: "+this.pos+". ID: ["+id+"] greater than the number of known ID's: ["+entryCount+"].");
 		}
+		
+		return this.entries[id];
 	}
 	
 	/** @see FullDataPointIdMap#getEntry(int) */
@@ -111,7 +120,7 @@ public class FullDataPointIdMap
 	
 	
 	/** @return -1 if the list is empty */
-	public int getMaxValidId() { return this.entryList.size() - 1; }
+	public int getMaxValidId() { return this.entryCount - 1; }
 	
 	public DhSectionPos getPos() { return this.pos; }
 	
@@ -133,22 +142,17 @@ public class FullDataPointIdMap
 		{
 			if (useWriteLocks)
 			{
-				this.readWriteLock.writeLock().lock();
+				this.writeLock.lock();
 			}
 			
 			
-			int id;
-			if (this.idMap.containsKey(biomeBlockStateEntry))
-			{
-				// use the existing ID
-				id = this.idMap.get(biomeBlockStateEntry);
-			}
-			else
+			int id = this.idByHandlePair.get(biomeBlockStateEntry.handlePair);
+			if (id == -1)
 			{
 				// Add the new ID
-				id = this.entryList.size();
-				this.entryList.add(biomeBlockStateEntry);
-				this.idMap.put(biomeBlockStateEntry, id);
+				id = this.entryCount;
+				this.appendEntry(biomeBlockStateEntry);
+				this.idByHandlePair.put(biomeBlockStateEntry.handlePair, id);
 			}
 			
 			return id;
@@ -157,10 +161,30 @@ public class FullDataPointIdMap
 		{
 			if (useWriteLocks)
 			{
-				this.readWriteLock.writeLock().unlock();
+				this.writeLock.unlock();
 			}
 		}
 	}
+	/** Must be called while holding the write lock or before this map has been shared. */
+	private void appendEntry(Entry entry)
+	{
+		int entryCount = this.entryCount;
+		Entry[] entries = this.entries;
+		if (entryCount == entries.length)
+		{
+			// replace the array so readers never see a partially copied array
+			entries = Arrays.copyOf(entries, entries.length * 2);
+			entries[entryCount] = entry;
+			this.entries = entries;
+		}
+		else
+		{
+			entries[entryCount] = entry;
+		}
+		
+		// must be written last so readers see the new entry
+		this.entryCount = entryCount + 1;
+	}
 	
 	
 	/**
@@ -170,30 +194,30 @@ public class FullDataPointIdMap
 	 */
 	public int[] mergeAndReturnRemappedEntityIds(FullDataPointIdMap target)
 	{
+		// the target's entries can be read without locking,
+		// any entries added to the target after this point will be ignored
+		int targetEntryCount = target.entryCount;
+		Entry[] targetEntries = target.entries;
+		
 		try
 		{
-			LOGGER.trace("merging {" + this.pos + ", " + this.entryList.size() + "} and {" + target.pos + ", " + target.entryList.size() + "}");
+			LOGGER.trace("merging {" + this.pos + ", " + this.entryCount + "} and {" + target.pos + ", " + targetEntryCount + "}");
 			
-			target.readWriteLock.readLock().lock();
-			this.readWriteLock.writeLock().lock();
+			this.writeLock.lock();
 			
-			ArrayList<Entry> entriesToMerge = target.entryList;
-			int[] remappedEntryIds = new int[entriesToMerge.size()];
-			for (int i = 0; i < entriesToMerge.size(); i++)
+			int[] remappedEntryIds = new int[targetEntryCount];
+			for (int i = 0; i < targetEntryCount; i++)
 			{
-				Entry entity = entriesToMerge.get(i);
-				int id = this.addIfNotPresentAndGetId(entity, false);
-				remappedEntryIds[i] = id;
+				remappedEntryIds[i] = this.addIfNotPresentAndGetId(targetEntries[i], false);
 			}
 			
 			return remappedEntryIds;
 		}
 		finally
 		{
-			this.readWriteLock.writeLock().unlock();
-			target.readWriteLock.readLock().unlock();
+			this.writeLock.unlock();
 			
-			LOGGER.trace("finished merging {" + this.pos + ", " + this.entryList.size() + "} and {" + target.pos + ", " + target.entryList.size() + "}");
+			LOGGER.trace("finished merging {" + this.pos + ", " + this.entryCount + "} and {" + target.pos + ", " + targetEntryCount + "}");
 		}
 	}
 	
@@ -201,8 +225,9 @@ public class FullDataPointIdMap
 	public void clear(DhSectionPos pos)
 	{
 		this.pos = pos;
-		this.entryList.clear();
-		this.idMap.clear();
+		Arrays.fill(this.entries, 0, this.entryCount, null);
+		this.entryCount = 0;
+		this.idByHandlePair.clear();
 	}
 	
 	
@@ -211,73 +236,74 @@ public class FullDataPointIdMap
 	// serializing //
 	//=============//
 	
-	/** Serializes all contained entries into the given stream, formatted in UTF */
-	public void serialize(DhDataOutputStream outputStream) throws IOException
+	/** Serializes each contained entry into the given stream as its ID in the level's {@link FullDataPalette}. */
+	public void serialize(DhDataOutputStream outputStream, FullDataPalette palette) throws IOException
 	{
+		int entryCount = this.entryCount;
+		Entry[] entries = this.entries;
 		try
 		{
-			this.readWriteLock.readLock().lock();
-			outputStream.writeInt(this.entryList.size());
+			outputStream.writeInt(entryCount);
 			
 			// only used when debugging
-			HashMap<String, FullDataPointIdMap.Entry> dataPointEntryBySerialization = new HashMap<>();
+			HashMap<Integer, FullDataPointIdMap.Entry> dataPointEntryByPaletteId = new HashMap<>();
 			
-			for (Entry entry : this.entryList)
+			for (int i = 0; i < entryCount; i++)
 			{
-				String entryString = entry.serialize();
-				outputStream.writeUTF(entryString);
+				Entry entry = entries[i];
+				int paletteId = palette.getOrCreateId(entry);
+				outputStream.writeInt(paletteId);
 				
 				if (RUN_SERIALIZATION_DUPLICATE_VALIDATION)
 				{
-					if (dataPointEntryBySerialization.containsKey(entryString))
-					{
-						LOGGER.error("Duplicate serialized entry found with serial: " + entryString);
-					}
-					if (dataPointEntryBySerialization.containsValue(entry))
+					if (dataPointEntryByPaletteId.containsKey(paletteId))
 					{
-						LOGGER.error("Duplicate serialized entry found with value: " + entry.serialize());
+						LOGGER.error("Duplicate serialized entry found with palette ID: " + paletteId + ", value: " + entry.serialize());
 					}
-					dataPointEntryBySerialization.put(entryString, entry);
+					dataPointEntryByPaletteId.put(paletteId, entry);
 				}
 			}
 		}
 		finally
 		{
-			this.readWriteLock.readLock().unlock();
-			LOGGER.trace("serialize " + this.pos + " " + this.entryList.size());
+			LOGGER.trace("serialize " + this.pos + " " + entryCount);
 		}
 	}
 	
-	/** Creates a new IdBiomeBlockStateMap from the given UTF formatted stream */
-	public static FullDataPointIdMap deserialize(DhDataInputStream inputStream, DhSectionPos pos, ILevelWrapper levelWrapper) throws IOException, InterruptedException
+	/** 
+	 * Creates a new IdBiomeBlockStateMap from the given stream.
+	 * 
+	 * @param usePaletteIds if false the stream is expected to contain UTF serialized entries,
+	 *                      which were used before the {@link FullDataPalette} was added.
+	 */
+	public static FullDataPointIdMap deserialize(DhDataInputStream inputStream, DhSectionPos pos, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException
 	{
 		int entityCount = inputStream.readInt();
 		
 		// only used when debugging
-		HashMap<String, FullDataPointIdMap.Entry> dataPointEntryBySerialization = new HashMap<>();
+		HashMap<Integer, FullDataPointIdMap.Entry> dataPointEntryByPaletteId = new HashMap<>();
 		
 		FullDataPointIdMap newMap = new FullDataPointIdMap(pos);
 		for (int i = 0; i < entityCount; i++)
 		{
-			String entryString = inputStream.readUTF();
-			Entry newEntry = Entry.deserialize(entryString, levelWrapper);
-			newMap.entryList.add(newEntry);
+			// legacy strings are added to the palette so their wrappers only have to be deserialized once
+			int paletteId = usePaletteIds ? inputStream.readInt() : palette.getOrCreateId(inputStream.readUTF());
+			Entry newEntry = palette.getEntry(paletteId);
+			// the entry list must be kept as-is, otherwise the saved IDs would no longer line up 
+			newMap.appendEntry(newEntry);
+			newMap.idByHandlePair.putIfAbsent(newEntry.handlePair, i);
 			
 			if (RUN_SERIALIZATION_DUPLICATE_VALIDATION)
 			{
-				if (dataPointEntryBySerialization.containsKey(entryString))
-				{
-					LOGGER.error("Duplicate deserialized entry found with serial: " + entryString);
-				}
-				if (dataPointEntryBySerialization.containsValue(newEntry))
+				if (dataPointEntryByPaletteId.containsKey(paletteId))
 				{
-					LOGGER.error("Duplicate deserialized entry found with value: " + newEntry.serialize());
+					LOGGER.error("Duplicate deserialized entry found with palette ID: " + paletteId + ", value: " + newEntry.serialize());
 				}
-				dataPointEntryBySerialization.put(entryString, newEntry);
+				dataPointEntryByPaletteId.put(paletteId, newEntry);
 			}
 		}
 		
-		LOGGER.trace("deserialized " + pos + " " + newMap.entryList.size() + "-" + entityCount);
+		LOGGER.trace("deserialized " + pos + " " + newMap.entryCount + "-" + entityCount);
 		
 		return newMap;
 	}
@@ -308,22 +334,32 @@ public class FullDataPointIdMap
 	// helper class //
 	//==============//
 	
-	private static final class Entry
+	/** Also used by the {@link FullDataPalette} so entries can be shared between maps. */
+	static final class Entry
 	{
 		private static final IWrapperFactory WRAPPER_FACTORY = SingletonInjector.INSTANCE.get(IWrapperFactory.class);
 		
 		public final IBiomeWrapper biome;
 		public final IBlockStateWrapper blockState;
 		
-		private Integer hashCode = null;
+		/** 
+		 * The combined {@link WrapperHandleRegistry} handles for the biome and block state. <br>
+		 * Two entries with the same handle pair have the same serial string.
+		 */
+		public final long handlePair;
 		
 		
 		// constructor //
 		
 		public Entry(IBiomeWrapper biome, IBlockStateWrapper blockState)
+		{
+			this(biome, blockState, WrapperHandleRegistry.BIOMES.getHandle(biome), WrapperHandleRegistry.BLOCK_STATES.getHandle(blockState));
+		}
+		private Entry(IBiomeWrapper biome, IBlockStateWrapper blockState, int biomeHandle, int blockStateHandle)
 		{
 			this.biome = biome;
 			this.blockState = blockState;
+			this.handlePair = WrapperHandleRegistry.combineHandles(biomeHandle, blockStateHandle);
 		}
 		
 		
@@ -331,16 +367,7 @@ public class FullDataPointIdMap
 		// methods //
 		
 		@Override
-		public int hashCode()
-		{
-			// cache the hash code to improve speed
-			if (this.hashCode == null)
-			{
-				this.hashCode = this.serialize().hashCode();
-			}
-			
-			return this.hashCode;
-		}
+		public int hashCode() { return Long.hashCode(this.handlePair); }
 		
 		@Override
 		public boolean equals(Object otherObj)
@@ -352,8 +379,7 @@ public class FullDataPointIdMap
 				return false;
 			
 			Entry other = (Entry) otherObj;
-			return other.biome.getSerialString().equals(this.biome.getSerialString())
-					&& other.blockState.getSerialString().equals(this.blockState.getSerialString());
+			return other.handlePair == this.handlePair;
 		}
 		
 		@Override
@@ -365,11 +391,7 @@ public class FullDataPointIdMap
 		
 		public static Entry deserialize(String str, ILevelWrapper levelWrapper) throws IOException, InterruptedException
 		{
-			String[] stringArray = str.split(BLOCK_STATE_SEPARATOR_STRING);
-			if (stringArray.length != 2)
-			{
-				throw new IOException("Failed to deserialize BiomeBlockStateEntry");
-			}
+			String[] stringArray = splitSerialString(str);
 			
 			// necessary to prevent issues with deserializing objects after the level has been closed
 			if (Thread.interrupted())
@@ -379,7 +401,25 @@ public class FullDataPointIdMap
 			
 			IBiomeWrapper biome = WRAPPER_FACTORY.deserializeBiomeWrapper(stringArray[0], levelWrapper);
 			IBlockStateWrapper blockState = WRAPPER_FACTORY.deserializeBlockStateWrapper(stringArray[1], levelWrapper);
-			return new Entry(biome, blockState);
+			// the serial strings are already known, so they don't need to be re-built to get the handles
+			return new Entry(biome, blockState, WrapperHandleRegistry.BIOMES.getHandle(stringArray[0]), WrapperHandleRegistry.BLOCK_STATES.getHandle(stringArray[1]));
+		}
+		
+		/** @return the {@link Entry#handlePair} for the given serial string without deserializing its wrappers */
+		public static long getHandlePair(String str) throws IOException
+		{
+			String[] stringArray = splitSerialString(str);
+			return WrapperHandleRegistry.combineHandles(WrapperHandleRegistry.BIOMES.getHandle(stringArray[0]), WrapperHandleRegistry.BLOCK_STATES.getHandle(stringArray[1]));
+		}
+		
+		private static String[] splitSerialString(String str) throws IOException
+		{
+			String[] stringArray = str.split(BLOCK_STATE_SEPARATOR_STRING);
+			if (stringArray.length != 2)
+			{
+				throw new IOException("Failed to deserialize BiomeBlockStateEntry");
+			}
+			return stringArray;
 		}
 		
 	}
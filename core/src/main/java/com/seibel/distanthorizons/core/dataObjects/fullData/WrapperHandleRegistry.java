@@ -0,0 +1,97 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData;
+
+import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Assigns a unique integer handle to each distinct wrapper,
+ * allowing {@link FullDataPointIdMap} to compare and hash biome/block state pairs
+ * without having to build and hash their serial strings. <br><br>
+ * 
+ * Handles are based on the wrapper's serial string, so two wrappers with the same serial string
+ * will always have the same handle. Handles are only valid for the current session and shouldn't be saved.
+ * 
+ * @param <T> the wrapper type
+ */
+public class WrapperHandleRegistry<T>
+{
+	public static final WrapperHandleRegistry<IBiomeWrapper> BIOMES = new WrapperHandleRegistry<>(IBiomeWrapper::getSerialString);
+	public static final WrapperHandleRegistry<IBlockStateWrapper> BLOCK_STATES = new WrapperHandleRegistry<>(IBlockStateWrapper::getSerialString);
+	
+	/** 
+	 * Wrappers are generally cached by the wrapper factory, so this cache shouldn't grow very large.
+	 * However, if it does, it will be cleared to prevent holding onto old wrappers forever.
+	 */
+	private static final int MAX_CACHED_WRAPPER_COUNT = 65_536;
+	
+	
+	private final Function<T, String> serialStringGetter;
+	
+	private final ConcurrentHashMap<String, Integer> handleBySerialString = new ConcurrentHashMap<>();
+	/** allows skipping the serial string lookup for wrappers that have already been seen */
+	private final ConcurrentHashMap<T, Integer> handleByWrapper = new ConcurrentHashMap<>();
+	private final AtomicInteger nextHandle = new AtomicInteger(0);
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	private WrapperHandleRegistry(Function<T, String> serialStringGetter) { this.serialStringGetter = serialStringGetter; }
+	
+	
+	
+	//=========//
+	// methods //
+	//=========//
+	
+	/** Only builds the wrapper's serial string the first time a given wrapper is seen. */
+	public int getHandle(T wrapper)
+	{
+		Integer handle = this.handleByWrapper.get(wrapper);
+		if (handle != null)
+		{
+			return handle;
+		}
+		
+		
+		handle = this.getHandle(this.serialStringGetter.apply(wrapper));
+		if (this.handleByWrapper.size() >= MAX_CACHED_WRAPPER_COUNT)
+		{
+			this.handleByWrapper.clear();
+		}
+		this.handleByWrapper.put(wrapper, handle);
+		
+		return handle;
+	}
+	
+	public int getHandle(String serialString) { return this.handleBySerialString.computeIfAbsent(serialString, (newSerialString) -> this.nextHandle.getAndIncrement()); }
+	
+	/** @return a single long that uniquely identifies the given biome/block state handle pair */
+	public static long combineHandles(int biomeHandle, int blockStateHandle) { return (((long) biomeHandle) << 32) | (blockStateHandle & 0xFFFF_FFFFL); }
+	
+}
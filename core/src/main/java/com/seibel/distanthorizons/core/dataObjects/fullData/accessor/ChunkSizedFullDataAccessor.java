@@ -25,28 +25,94 @@ import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * A more specific version of {@link FullDataArrayAccessor}
- * that only contains full data for a single chunk.
+ * that only contains full data for a single chunk. <br><br>
+ *
+ * Accessors are reference counted and pooled, since they are created for every chunk update
+ * and are generally only needed until their data has been applied to the relevant data sources.
+ * Anything that holds onto an accessor asynchronously should call {@link ChunkSizedFullDataAccessor#retain()}
+ * and {@link ChunkSizedFullDataAccessor#release()} once it is done. <br>
+ * Forgetting to release an accessor won't leak anything, it just won't be re-used.
  *
  * @see FullDataPointUtil
  */
 public class ChunkSizedFullDataAccessor extends FullDataArrayAccessor
 {
-	public final DhChunkPos chunkPos;
-	public final DhSectionPos sectionPos;
+	private static final int MAX_POOLED_ACCESSOR_COUNT = 64;
+	
+	private static final ArrayList<ChunkSizedFullDataAccessor> POOLED_ACCESSORS = new ArrayList<>();
+	private static final ReentrantLock POOL_LOCK = new ReentrantLock();
+	
+	
+	public DhChunkPos chunkPos;
+	public DhSectionPos sectionPos;
 	
 	// TODO replace this var with LodUtil.BLOCK_DETAIL_LEVEL 
 	public final byte detailLevel = LodUtil.BLOCK_DETAIL_LEVEL;
 	
+	/** same object as {@link FullDataArrayAccessor#columnStore} */
+	private final ContiguousFullDataColumnStore contiguousColumnStore;
+	/** when this reaches 0 the accessor is returned to the pool */
+	private final AtomicInteger referenceCount = new AtomicInteger(1);
+	
 	
 	
-	public ChunkSizedFullDataAccessor(DhChunkPos chunkPos)
+	//==============//
+	// constructors //
+	//==============//
+	
+	/** 
+	 * Should be used in conjunction with {@link ChunkSizedFullDataAccessor#release()}. <br>
+	 * The returned accessor will have a reference count of 1.
+	 */
+	public static ChunkSizedFullDataAccessor getPooledOrCreate(DhChunkPos chunkPos)
+	{
+		ChunkSizedFullDataAccessor accessor = null;
+		try
+		{
+			POOL_LOCK.lock();
+			
+			int index = POOLED_ACCESSORS.size() - 1;
+			if (index != -1)
+			{
+				accessor = POOLED_ACCESSORS.remove(index);
+			}
+		}
+		finally
+		{
+			POOL_LOCK.unlock();
+		}
+		
+		
+		if (accessor == null)
+		{
+			return new ChunkSizedFullDataAccessor(chunkPos);
+		}
+		
+		accessor.setChunkPos(chunkPos);
+		accessor.mapping.clear(accessor.sectionPos);
+		accessor.contiguousColumnStore.clear();
+		accessor.referenceCount.set(1);
+		return accessor;
+	}
+	
+	public ChunkSizedFullDataAccessor(DhChunkPos chunkPos) { this(chunkPos, new ContiguousFullDataColumnStore(LodUtil.CHUNK_WIDTH * LodUtil.CHUNK_WIDTH)); }
+	private ChunkSizedFullDataAccessor(DhChunkPos chunkPos, ContiguousFullDataColumnStore columnStore)
 	{
 		super(new FullDataPointIdMap(new DhSectionPos(chunkPos)),
-				new long[LodUtil.CHUNK_WIDTH * LodUtil.CHUNK_WIDTH][0],
+				columnStore,
 				LodUtil.CHUNK_WIDTH);
 		
+		this.contiguousColumnStore = columnStore;
+		this.setChunkPos(chunkPos);
+	}
+	private void setChunkPos(DhChunkPos chunkPos)
+	{
 		this.chunkPos = chunkPos;
 		// TODO the fact this is using a LodUtil detail level instead of the DhSectionPos detail level may cause confusion and trouble down the line
 		this.sectionPos = new DhSectionPos(LodUtil.CHUNK_DETAIL_LEVEL, this.chunkPos.x, this.chunkPos.z);
@@ -54,14 +120,68 @@ public class ChunkSizedFullDataAccessor extends FullDataArrayAccessor
 	
 	
 	
-	public void setSingleColumn(long[] data, int xRelative, int zRelative) { this.dataArrays[xRelative * LodUtil.CHUNK_WIDTH + zRelative] = data; }
+	//====================//
+	// reference counting //
+	//====================//
+	
+	/** Should be called before this accessor is handed off to something that will use it at some point in the future. */
+	public void retain() { this.referenceCount.incrementAndGet(); }
+	
+	/** 
+	 * Should be called once this accessor is no longer needed. <br>
+	 * After the last reference has been released this accessor must not be used. 
+	 */
+	public void release()
+	{
+		int referenceCount = this.referenceCount.decrementAndGet();
+		if (referenceCount > 0)
+		{
+			return;
+		}
+		else if (referenceCount < 0)
+		{
+			// shouldn't happen, but re-pooling the accessor again would cause it to be shared
+			LodUtil.assertNotReach("ChunkSizedFullDataAccessor ["+this.chunkPos+"] was released more times than it was retained.");
+			return;
+		}
+		
+		
+		try
+		{
+			POOL_LOCK.lock();
+			if (POOLED_ACCESSORS.size() < MAX_POOLED_ACCESSOR_COUNT)
+			{
+				POOLED_ACCESSORS.add(this);
+			}
+		}
+		finally
+		{
+			POOL_LOCK.unlock();
+		}
+	}
+	
+	
+	
+	//=========//
+	// methods //
+	//=========//
+	
+	public void setSingleColumn(long[] data, int xRelative, int zRelative) { this.columnStore.setColumn(xRelative * LodUtil.CHUNK_WIDTH + zRelative, data); }
+	
+	/** 
+	 * Allows a column to be written directly into this accessor's backing array. <br>
+	 * Any data points added via {@link ChunkSizedFullDataAccessor#appendToColumn(long)} will be added to this column.
+	 */
+	public void beginColumn(int xRelative, int zRelative) { this.contiguousColumnStore.beginAppendingColumn(xRelative * LodUtil.CHUNK_WIDTH + zRelative); }
+	/** @see ChunkSizedFullDataAccessor#beginColumn(int, int) */
+	public void appendToColumn(long fullDataPoint) { this.contiguousColumnStore.appendToColumn(fullDataPoint); }
 	
 	public long nonEmptyCount()
 	{
 		long count = 0;
-		for (long[] data : this.dataArrays)
+		for (int i = 0; i < this.columnStore.columnCount(); i++)
 		{
-			if (data.length != 0)
+			if (this.columnStore.getColumnLength(i) != 0)
 			{
 				count += 1;
 			}
@@ -76,4 +196,4 @@ public class ChunkSizedFullDataAccessor extends FullDataArrayAccessor
 	@Override
 	public String toString() { return this.chunkPos + " " + this.nonEmptyCount(); }
 	
-}
\ No newline at end of file
+}
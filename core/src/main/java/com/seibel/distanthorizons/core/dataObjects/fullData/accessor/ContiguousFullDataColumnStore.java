@@ -0,0 +1,337 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData.accessor;
+
+import java.util.Arrays;
+
+/**
+ * Stores every column back to back in a single long array,
+ * with an offset table describing where each column starts. <br><br>
+ * 
+ * Compared to {@link JaggedFullDataColumnStore} this removes an array header
+ * and pointer per column, lets column scans stream through memory linearly,
+ * and gives the garbage collector a single object to track instead of thousands. <br><br>
+ * 
+ * Columns that grow past their reserved space are moved to the end of the array,
+ * the space they leave behind is reclaimed by {@link ContiguousFullDataColumnStore#compact()}
+ * once enough of it has accumulated.
+ *
+ * @see JaggedFullDataColumnStore
+ */
+public class ContiguousFullDataColumnStore implements IFullDataColumnStore
+{
+	/** the backing array will be compacted once this fraction of it is unused */
+	private static final double MAX_WASTED_FRACTION = 0.5;
+	
+	private long[] data;
+	/** how much of {@link ContiguousFullDataColumnStore#data} has been handed out to columns */
+	private int usedLength;
+	/** how much of {@link ContiguousFullDataColumnStore#usedLength} is no longer referenced by any column */
+	private int wastedLength;
+	
+	private final int[] columnStart;
+	private final int[] columnLength;
+	/** how many data points can be stored in a column before it has to be moved */
+	private final int[] columnCapacity;
+	
+	/** -1 if no column is currently being appended to */
+	private int appendingColumnIndex = -1;
+	
+	
+	
+	//==============//
+	// constructors //
+	//==============//
+	
+	public ContiguousFullDataColumnStore(int columnCount)
+	{
+		this.data = new long[0];
+		this.columnStart = new int[columnCount];
+		this.columnLength = new int[columnCount];
+		this.columnCapacity = new int[columnCount];
+	}
+	
+	/** Packs the given store's content without any unused space. */
+	public static ContiguousFullDataColumnStore createPackedCopy(IFullDataColumnStore source)
+	{
+		int columnCount = source.columnCount();
+		int[] columnLengths = new int[columnCount];
+		for (int i = 0; i < columnCount; i++)
+		{
+			columnLengths[i] = source.getColumnLength(i);
+		}
+		
+		ContiguousFullDataColumnStore store = new ContiguousFullDataColumnStore(columnCount);
+		store.resetColumnLengths(columnLengths);
+		for (int i = 0; i < columnCount; i++)
+		{
+			int start = store.columnStart[i];
+			for (int y = 0; y < columnLengths[i]; y++)
+			{
+				store.data[start + y] = source.get(i, y);
+			}
+		}
+		return store;
+	}
+	
+	
+	
+	//=========//
+	// methods //
+	//=========//
+	
+	@Override
+	public int columnCount() { return this.columnStart.length; }
+	
+	@Override
+	public int getColumnLength(int columnIndex) { return this.columnLength[columnIndex]; }
+	
+	@Override
+	public long get(int columnIndex, int yIndex) { return this.data[this.getDataIndex(columnIndex, yIndex)]; }
+	@Override
+	public void set(int columnIndex, int yIndex, long fullDataPoint) { this.data[this.getDataIndex(columnIndex, yIndex)] = fullDataPoint; }
+	private int getDataIndex(int columnIndex, int yIndex)
+	{
+		if (yIndex < 0 || yIndex >= this.columnLength[columnIndex])
+		{
+			throw new ArrayIndexOutOfBoundsException("Y index [" + yIndex + "] is outside column [" + columnIndex + "] with the length [" + this.columnLength[columnIndex] + "].");
+		}
+		return this.columnStart[columnIndex] + yIndex;
+	}
+	
+	@Override
+	public void setColumnLength(int columnIndex, int length)
+	{
+		if (columnIndex == this.appendingColumnIndex)
+		{
+			this.appendingColumnIndex = -1;
+		}
+		
+		if (length <= this.columnCapacity[columnIndex])
+		{
+			// the column still fits in its existing space
+			this.columnLength[columnIndex] = length;
+			return;
+		}
+		
+		
+		// move the column to the end of the array
+		this.appendingColumnIndex = -1;
+		this.wastedLength += this.columnCapacity[columnIndex];
+		if (this.usedLength + length > this.data.length)
+		{
+			if (this.wastedLength > this.usedLength * MAX_WASTED_FRACTION)
+			{
+				// the old column will be dropped during compaction
+				this.columnLength[columnIndex] = 0;
+				this.columnCapacity[columnIndex] = 0;
+				this.compact(length);
+			}
+			
+			if (this.usedLength + length > this.data.length)
+			{
+				int newLength = Math.max(this.usedLength + length, this.data.length + (this.data.length >> 1));
+				this.data = Arrays.copyOf(this.data, newLength);
+			}
+		}
+		
+		this.columnStart[columnIndex] = this.usedLength;
+		this.columnLength[columnIndex] = length;
+		this.columnCapacity[columnIndex] = length;
+		this.usedLength += length;
+	}
+	
+	/** Returns a copy of the column. */
+	@Override
+	public long[] getColumnArray(int columnIndex)
+	{
+		int start = this.columnStart[columnIndex];
+		return Arrays.copyOfRange(this.data, start, start + this.columnLength[columnIndex]);
+	}
+	
+	/** Copies the given array's content into this store. */
+	@Override
+	public void setColumn(int columnIndex, long[] column)
+	{
+		int length = (column != null) ? column.length : 0;
+		this.setColumnLength(columnIndex, length);
+		if (length != 0)
+		{
+			System.arraycopy(column, 0, this.data, this.columnStart[columnIndex], length);
+		}
+	}
+	
+	/** Copies directly between backing arrays when possible, so the column is only copied once. */
+	@Override
+	public void shadowCopyColumnFrom(IFullDataColumnStore source, int sourceColumnIndex, int columnIndex)
+	{
+		if (!(source instanceof ContiguousFullDataColumnStore))
+		{
+			// other stores return their backing array, so this is still a single copy
+			this.setColumn(columnIndex, source.getColumnArray(sourceColumnIndex));
+			return;
+		}
+		
+		ContiguousFullDataColumnStore contiguousSource = (ContiguousFullDataColumnStore) source;
+		int length = contiguousSource.columnLength[sourceColumnIndex];
+		this.setColumnLength(columnIndex, length);
+		if (length != 0)
+		{
+			// the source's start is read after resizing since resizing may compact the source if both stores are the same
+			System.arraycopy(contiguousSource.data, contiguousSource.columnStart[sourceColumnIndex], this.data, this.columnStart[columnIndex], length);
+		}
+	}
+	
+	
+	
+	//=============//
+	// bulk access //
+	//=============//
+	
+	/**
+	 * Lays out every column back to back using the given lengths,
+	 * re-using the backing array if it is large enough. <br>
+	 * Every column's content is undefined afterwards. <br><br>
+	 * 
+	 * This is much faster than calling {@link ContiguousFullDataColumnStore#setColumnLength(int, int)}
+	 * for each column when the whole store is going to be overwritten, IE when reading from file.
+	 */
+	public void resetColumnLengths(int[] columnLengths)
+	{
+		if (columnLengths.length != this.columnStart.length)
+		{
+			throw new IllegalArgumentException("Column count mismatch, expected [" + this.columnStart.length + "] but got [" + columnLengths.length + "].");
+		}
+		
+		int totalLength = 0;
+		for (int i = 0; i < columnLengths.length; i++)
+		{
+			this.columnStart[i] = totalLength;
+			this.columnLength[i] = columnLengths[i];
+			this.columnCapacity[i] = columnLengths[i];
+			totalLength += columnLengths[i];
+		}
+		
+		if (this.data.length < totalLength)
+		{
+			this.data = new long[totalLength];
+		}
+		this.usedLength = totalLength;
+		this.wastedLength = 0;
+		this.appendingColumnIndex = -1;
+	}
+	
+	/**
+	 * Moves the given column to the end of the backing array and empties it,
+	 * subsequent {@link ContiguousFullDataColumnStore#appendToColumn(long)} calls will add to this column. <br>
+	 * This allows columns to be written directly into the store when their final length isn't known ahead of time.
+	 */
+	public void beginAppendingColumn(int columnIndex)
+	{
+		this.wastedLength += this.columnCapacity[columnIndex];
+		this.columnStart[columnIndex] = this.usedLength;
+		this.columnLength[columnIndex] = 0;
+		this.columnCapacity[columnIndex] = 0;
+		this.appendingColumnIndex = columnIndex;
+	}
+	/** @see ContiguousFullDataColumnStore#beginAppendingColumn(int) */
+	public void appendToColumn(long fullDataPoint)
+	{
+		if (this.appendingColumnIndex == -1)
+		{
+			throw new IllegalStateException("beginAppendingColumn() must be called before appending data.");
+		}
+		
+		if (this.usedLength == this.data.length)
+		{
+			this.data = Arrays.copyOf(this.data, Math.max(16, this.data.length + (this.data.length >> 1)));
+		}
+		
+		this.data[this.usedLength] = fullDataPoint;
+		this.usedLength++;
+		this.columnLength[this.appendingColumnIndex]++;
+		this.columnCapacity[this.appendingColumnIndex]++;
+	}
+	
+	/** 
+	 * Grows the backing array so at least the given number of data points can be held
+	 * without re-allocating, IE before appending a known number of data points.
+	 */
+	public void ensureCapacity(int length)
+	{
+		if (this.data.length < length)
+		{
+			this.data = Arrays.copyOf(this.data, length);
+		}
+	}
+	
+	/** Empties every column without releasing the backing array so it can be re-used. */
+	public void clear()
+	{
+		Arrays.fill(this.columnStart, 0);
+		Arrays.fill(this.columnLength, 0);
+		Arrays.fill(this.columnCapacity, 0);
+		this.usedLength = 0;
+		this.wastedLength = 0;
+		this.appendingColumnIndex = -1;
+	}
+	
+	/**
+	 * Returns the backing array, each column can be found using
+	 * {@link ContiguousFullDataColumnStore#getColumnStart(int)} and {@link ContiguousFullDataColumnStore#getColumnLength(int)}. <br>
+	 * The returned array may be replaced if any column is resized.
+	 */
+	public long[] getBackingArray() { return this.data; }
+	public int getColumnStart(int columnIndex) { return this.columnStart[columnIndex]; }
+	
+	
+	
+	//============//
+	// compaction //
+	//============//
+	
+	/** Removes any unused space between columns. */
+	public void compact() { this.compact(0); }
+	/** @param extraCapacity how much free space should be available after the used space */
+	private void compact(int extraCapacity)
+	{
+		int liveLength = this.usedLength - this.wastedLength;
+		long[] newData = new long[liveLength + extraCapacity];
+		
+		int newUsedLength = 0;
+		for (int i = 0; i < this.columnStart.length; i++)
+		{
+			int length = this.columnLength[i];
+			System.arraycopy(this.data, this.columnStart[i], newData, newUsedLength, length);
+			this.columnStart[i] = newUsedLength;
+			this.columnCapacity[i] = length;
+			newUsedLength += length;
+		}
+		
+		this.data = newData;
+		this.usedLength = newUsedLength;
+		this.wastedLength = 0;
+		this.appendingColumnIndex = -1;
+	}
+	
+	/** @return how many data points are held in the backing array, including unused space */
+	public int getAllocatedLength() { return this.data.length; }
+	
+}
@@ -20,7 +20,6 @@
 package com.seibel.distanthorizons.core.dataObjects.fullData.accessor;
 
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
-import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.CompleteFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.LowDetailIncompleteFullDataSource;
@@ -36,15 +35,15 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 {
 	protected final FullDataPointIdMap mapping;
 	
-	/** A flattened 2D array (for the X and Z directions) containing an array for the Y direction. */
-	protected final long[][] dataArrays;
+	/** A flattened 2D grid (for the X and Z directions) containing a column for the Y direction. */
+	protected final IFullDataColumnStore columnStore;
 	
 	/** measured in data points */
 	protected final int width;
 	/** measured in data points */
 	protected final int dataWidth;
 	
-	/** index offset used when getting/setting data in {@link FullDataArrayAccessor#dataArrays}. */
+	/** index offset used when getting/setting data in {@link FullDataArrayAccessor#columnStore}. */
 	protected final int offset;
 	
 	
@@ -53,14 +52,15 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 	// constructors //
 	//==============//
 	
-	public FullDataArrayAccessor(FullDataPointIdMap mapping, long[][] dataArrays, int width)
+	public FullDataArrayAccessor(FullDataPointIdMap mapping, long[][] dataArrays, int width) { this(mapping, new JaggedFullDataColumnStore(dataArrays), width); }
+	public FullDataArrayAccessor(FullDataPointIdMap mapping, IFullDataColumnStore columnStore, int width)
 	{
-		if (dataArrays.length != width * width)
+		if (columnStore.columnCount() != width * width)
 		{
 			throw new IllegalArgumentException("tried constructing dataArrayView with invalid input!");
 		}
 		
-		this.dataArrays = dataArrays;
+		this.columnStore = columnStore;
 		this.width = width;
 		this.dataWidth = width;
 		this.mapping = mapping;
@@ -74,7 +74,7 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 			throw new IllegalArgumentException("tried constructing dataArrayView subview with invalid input!");
 		}
 		
-		this.dataArrays = source.dataArrays;
+		this.columnStore = source.columnStore;
 		this.width = width;
 		this.dataWidth = source.dataWidth;
 		this.mapping = source.mapping;
@@ -103,8 +103,11 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 		{
 			for (int x = 0; x < this.width; x++)
 			{
-				System.arraycopy(this.dataArrays, this.offset + x * this.dataWidth,
-						target.dataArrays, target.offset + x * target.dataWidth, this.width);
+				for (int z = 0; z < this.width; z++)
+				{
+					// jagged stores will share the column array, contiguous stores will copy it
+					target.columnStore.shadowCopyColumnFrom(this.columnStore, this.offset + x * this.dataWidth + z, target.offset + x * target.dataWidth + z);
+				}
 			}
 		}
 		else
@@ -114,17 +117,11 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 			{
 				for (int z = 0; z < this.width; z++)
 				{
-					long[] currentData = this.dataArrays[this.offset + x * this.dataWidth + z];
-					// may be null if no data exists for this column yet
-					if (currentData != null)
+					int sourceIndex = this.offset + x * this.dataWidth + z;
+					// the column may be empty if no data exists for this column yet
+					if (this.columnStore.getColumnLength(sourceIndex) != 0)
 					{
-						long[] newData = new long[currentData.length]; // TODO what to do if null?
-						for (int dataPointIndex = 0; dataPointIndex < newData.length; dataPointIndex++)
-						{
-							newData[dataPointIndex] = FullDataPointUtil.remap(remappedIds, currentData[dataPointIndex]);
-						}
-						
-						target.dataArrays[target.offset + x * target.dataWidth + z] = newData;
+						target.columnStore.copyColumnFrom(this.columnStore, sourceIndex, target.offset + x * target.dataWidth + z, remappedIds);
 					}
 				}
 			}
@@ -171,16 +168,16 @@ public class FullDataArrayAccessor implements IFullDataAccessor
 	public SingleColumnFullDataAccessor get(int relativeX, int relativeZ)
 	{
 		int dataArrayIndex = (relativeX * this.width) + relativeZ + this.offset;
-		if (dataArrayIndex >= this.dataArrays.length)
+		if (dataArrayIndex >= this.columnStore.columnCount())
 		{
 			LodUtil.assertNotReach(
 					"FullDataArrayAccessor.get() called with a relative position that is outside the data source. \n" +
 							"source width: [" + this.width + "] source offset: [" + this.offset + "]\n" +
 							"given relative pos X: [" + relativeX + "] Z: [" + relativeZ + "]\n" +
-							"dataArrays.length: [" + this.dataArrays.length + "] dataArrayIndex: [" + dataArrayIndex + "].");
+							"columnCount: [" + this.columnStore.columnCount() + "] dataArrayIndex: [" + dataArrayIndex + "].");
 		}
 		
-		return new SingleColumnFullDataAccessor(this.mapping, this.dataArrays, dataArrayIndex);
+		return new SingleColumnFullDataAccessor(this.mapping, this.columnStore, dataArrayIndex);
 	}
 	
 	@Override
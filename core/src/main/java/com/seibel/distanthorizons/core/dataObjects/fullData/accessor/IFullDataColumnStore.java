@@ -0,0 +1,103 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData.accessor;
+
+import com.seibel.distanthorizons.core.util.FullDataPointUtil;
+
+/**
+ * Holds the Y columns of full data points for a flattened X/Z grid. <br>
+ * Allows {@link FullDataArrayAccessor} and {@link SingleColumnFullDataAccessor}
+ * to work the same regardless of how the data is actually laid out in memory.
+ *
+ * @see JaggedFullDataColumnStore
+ * @see ContiguousFullDataColumnStore
+ * @see FullDataPointUtil
+ */
+public interface IFullDataColumnStore
+{
+	/** @return how many columns this store can hold */
+	int columnCount();
+	
+	/** @return 0 if the column doesn't have any data */
+	int getColumnLength(int columnIndex);
+	
+	long get(int columnIndex, int yIndex);
+	void set(int columnIndex, int yIndex, long fullDataPoint);
+	
+	/** 
+	 * Resizes the given column. <br> 
+	 * The column's content is undefined afterwards and should be completely overwritten by the caller. 
+	 */
+	void setColumnLength(int columnIndex, int length);
+	
+	/**
+	 * Depending on the implementation this may either return the backing array
+	 * or a copy, so the returned array should be treated as read only.
+	 * 
+	 * @return null if the column has never been set 
+	 */
+	long[] getColumnArray(int columnIndex);
+	
+	/**
+	 * Depending on the implementation this may either store the given array
+	 * or copy its content, so the caller shouldn't modify the array afterwards.
+	 */
+	void setColumn(int columnIndex, long[] column);
+	
+	
+	
+	//=================//
+	// default methods //
+	//=================//
+	
+	/**
+	 * Copies a column from the source into this store without remapping it. <br>
+	 * Depending on the implementations the column array may be shared between both stores,
+	 * so neither column should be modified afterwards.
+	 */
+	default void shadowCopyColumnFrom(IFullDataColumnStore source, int sourceColumnIndex, int columnIndex) { this.setColumn(columnIndex, source.getColumnArray(sourceColumnIndex)); }
+	
+	/**
+	 * Copies a column from the source into this store.
+	 * 
+	 * @param remappedIds if not null every copied data point will be remapped with {@link FullDataPointUtil#remap(int[], long)}
+	 */
+	default void copyColumnFrom(IFullDataColumnStore source, int sourceColumnIndex, int columnIndex, int[] remappedIds)
+	{
+		int length = source.getColumnLength(sourceColumnIndex);
+		this.setColumnLength(columnIndex, length);
+		
+		if (remappedIds == null)
+		{
+			for (int y = 0; y < length; y++)
+			{
+				this.set(columnIndex, y, source.get(sourceColumnIndex, y));
+			}
+		}
+		else
+		{
+			for (int y = 0; y < length; y++)
+			{
+				this.set(columnIndex, y, FullDataPointUtil.remap(remappedIds, source.get(sourceColumnIndex, y)));
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,326 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData.accessor;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes a {@link ContiguousFullDataColumnStore} as a series of individually compressed
+ * chunk sized blocks with an offset table in front of them,
+ * allowing a single column to be read without decompressing the whole store. <br><br>
+ * 
+ * The given streams shouldn't be compressed since each block is already LZ4 compressed. <br><br>
+ * 
+ * <strong>Format: </strong><br>
+ * <code>
+ * 4 bytes: block count <br>
+ * 4 bytes: total data point count <br>
+ * 8 bytes (per block): uncompressed byte length, compressed byte length <br>
+ * n bytes: each compressed block <br><br>
+ * </code>
+ * 
+ * Each uncompressed block contains every column length in the block (4 bytes each)
+ * followed by every column's data points (8 bytes each).
+ */
+public class IndexedColumnStoreFormat
+{
+	/** measured in columns, each block contains the columns for a single chunk */
+	public static final int BLOCK_WIDTH = 16;
+	public static final int COLUMNS_PER_BLOCK = BLOCK_WIDTH * BLOCK_WIDTH;
+	
+	private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+	
+	
+	
+	private IndexedColumnStoreFormat() { }
+	
+	
+	
+	//=========//
+	// writing //
+	//=========//
+	
+	/** @param width how many columns wide the given store is, must be a multiple of {@link IndexedColumnStoreFormat#BLOCK_WIDTH} */
+	public static void write(ContiguousFullDataColumnStore columnStore, int width, DataOutputStream outputStream) throws IOException
+	{
+		int blockCount = getBlockCount(width);
+		LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+		long[] backingArray = columnStore.getBackingArray();
+		
+		int totalDataPointCount = 0;
+		int[] uncompressedLengths = new int[blockCount];
+		byte[][] compressedBlocks = new byte[blockCount][];
+		for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+		{
+			int blockDataPointCount = 0;
+			for (int i = 0; i < COLUMNS_PER_BLOCK; i++)
+			{
+				blockDataPointCount += columnStore.getColumnLength(getColumnIndex(width, blockIndex, i));
+			}
+			totalDataPointCount += blockDataPointCount;
+			
+			
+			ByteBuffer blockBuffer = ByteBuffer.allocate((COLUMNS_PER_BLOCK * Integer.BYTES) + (blockDataPointCount * Long.BYTES));
+			for (int i = 0; i < COLUMNS_PER_BLOCK; i++)
+			{
+				blockBuffer.putInt(columnStore.getColumnLength(getColumnIndex(width, blockIndex, i)));
+			}
+			for (int i = 0; i < COLUMNS_PER_BLOCK; i++)
+			{
+				int columnIndex = getColumnIndex(width, blockIndex, i);
+				int columnStart = columnStore.getColumnStart(columnIndex);
+				int columnEnd = columnStart + columnStore.getColumnLength(columnIndex);
+				for (int dataIndex = columnStart; dataIndex < columnEnd; dataIndex++)
+				{
+					blockBuffer.putLong(backingArray[dataIndex]);
+				}
+			}
+			
+			uncompressedLengths[blockIndex] = blockBuffer.capacity();
+			compressedBlocks[blockIndex] = compressor.compress(blockBuffer.array());
+		}
+		
+		
+		outputStream.writeInt(blockCount);
+		outputStream.writeInt(totalDataPointCount);
+		for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+		{
+			outputStream.writeInt(uncompressedLengths[blockIndex]);
+			outputStream.writeInt(compressedBlocks[blockIndex].length);
+		}
+		for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+		{
+			outputStream.write(compressedBlocks[blockIndex]);
+		}
+	}
+	
+	
+	
+	//=========//
+	// reading //
+	//=========//
+	
+	/** Overwrites every column in the given store with the data from the stream. */
+	public static void readInto(ContiguousFullDataColumnStore columnStore, int width, DataInputStream inputStream) throws IOException
+	{
+		BlockOffsetTable offsetTable = BlockOffsetTable.read(width, inputStream);
+		LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+		
+		columnStore.clear();
+		columnStore.ensureCapacity(offsetTable.totalDataPointCount);
+		
+		// the buffers are sized for the largest block so they can be shared by every block
+		byte[] compressedBuffer = new byte[offsetTable.maxCompressedLength];
+		byte[] uncompressedBuffer = new byte[offsetTable.maxUncompressedLength];
+		
+		int dataPointCount = 0;
+		for (int blockIndex = 0; blockIndex < offsetTable.blockCount; blockIndex++)
+		{
+			ByteBuffer blockBuffer = offsetTable.readBlock(blockIndex, inputStream, decompressor, compressedBuffer, uncompressedBuffer);
+			
+			int dataOffset = COLUMNS_PER_BLOCK * Integer.BYTES;
+			for (int i = 0; i < COLUMNS_PER_BLOCK; i++)
+			{
+				int columnLength = blockBuffer.getInt(i * Integer.BYTES);
+				columnStore.beginAppendingColumn(getColumnIndex(width, blockIndex, i));
+				for (int y = 0; y < columnLength; y++)
+				{
+					columnStore.appendToColumn(blockBuffer.getLong(dataOffset));
+					dataOffset += Long.BYTES;
+				}
+				dataPointCount += columnLength;
+			}
+		}
+		
+		if (dataPointCount != offsetTable.totalDataPointCount)
+		{
+			throw new IOException("Data point count mismatch, expected [" + offsetTable.totalDataPointCount + "] but found [" + dataPointCount + "].");
+		}
+	}
+	
+	/**
+	 * Only decompresses the block containing the requested column,
+	 * the stream will be positioned after the last block once this method returns.
+	 * 
+	 * @return the requested column's data points
+	 */
+	public static long[] readColumn(int width, int relativeX, int relativeZ, DataInputStream inputStream) throws IOException
+	{
+		BlockOffsetTable offsetTable = BlockOffsetTable.read(width, inputStream);
+		
+		int blocksPerSide = width / BLOCK_WIDTH;
+		int requestedBlockIndex = ((relativeX / BLOCK_WIDTH) * blocksPerSide) + (relativeZ / BLOCK_WIDTH);
+		int requestedColumnInBlock = ((relativeX % BLOCK_WIDTH) * BLOCK_WIDTH) + (relativeZ % BLOCK_WIDTH);
+		
+		
+		// skip to the requested block
+		long bytesBeforeBlock = 0;
+		for (int blockIndex = 0; blockIndex < requestedBlockIndex; blockIndex++)
+		{
+			bytesBeforeBlock += offsetTable.compressedLengths[blockIndex];
+		}
+		skipFully(inputStream, bytesBeforeBlock);
+		
+		ByteBuffer blockBuffer = offsetTable.readBlock(requestedBlockIndex, inputStream, LZ4_FACTORY.safeDecompressor(),
+				new byte[offsetTable.compressedLengths[requestedBlockIndex]], new byte[offsetTable.uncompressedLengths[requestedBlockIndex]]);
+		
+		// skip the remaining blocks so anything after this data can be read
+		long bytesAfterBlock = 0;
+		for (int blockIndex = requestedBlockIndex + 1; blockIndex < offsetTable.blockCount; blockIndex++)
+		{
+			bytesAfterBlock += offsetTable.compressedLengths[blockIndex];
+		}
+		skipFully(inputStream, bytesAfterBlock);
+		
+		
+		// find the column inside the block
+		int dataOffset = COLUMNS_PER_BLOCK * Integer.BYTES;
+		for (int i = 0; i < requestedColumnInBlock; i++)
+		{
+			dataOffset += blockBuffer.getInt(i * Integer.BYTES) * Long.BYTES;
+		}
+		
+		long[] column = new long[blockBuffer.getInt(requestedColumnInBlock * Integer.BYTES)];
+		for (int y = 0; y < column.length; y++)
+		{
+			column[y] = blockBuffer.getLong(dataOffset);
+			dataOffset += Long.BYTES;
+		}
+		return column;
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static int getBlockCount(int width) throws IOException
+	{
+		if (width <= 0 || width % BLOCK_WIDTH != 0)
+		{
+			throw new IOException("Width [" + width + "] must be a positive multiple of the block width [" + BLOCK_WIDTH + "].");
+		}
+		
+		int blocksPerSide = width / BLOCK_WIDTH;
+		return blocksPerSide * blocksPerSide;
+	}
+	
+	/** @return the index used by the {@link ContiguousFullDataColumnStore} for the given column in the given block */
+	private static int getColumnIndex(int width, int blockIndex, int columnInBlock)
+	{
+		int blocksPerSide = width / BLOCK_WIDTH;
+		int relativeX = ((blockIndex / blocksPerSide) * BLOCK_WIDTH) + (columnInBlock / BLOCK_WIDTH);
+		int relativeZ = ((blockIndex % blocksPerSide) * BLOCK_WIDTH) + (columnInBlock % BLOCK_WIDTH);
+		return (relativeX * width) + relativeZ;
+	}
+	
+	private static void skipFully(DataInputStream inputStream, long byteCount) throws IOException
+	{
+		while (byteCount > 0)
+		{
+			int skippedCount = inputStream.skipBytes((int) Math.min(byteCount, Integer.MAX_VALUE));
+			if (skippedCount <= 0)
+			{
+				// skipBytes may stop early without reaching the end of the stream
+				inputStream.readByte();
+				skippedCount = 1;
+			}
+			byteCount -= skippedCount;
+		}
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	private static class BlockOffsetTable
+	{
+		public final int blockCount;
+		public final int totalDataPointCount;
+		public final int[] uncompressedLengths;
+		public final int[] compressedLengths;
+		
+		public int maxUncompressedLength = 0;
+		public int maxCompressedLength = 0;
+		
+		
+		private BlockOffsetTable(int blockCount, int totalDataPointCount)
+		{
+			this.blockCount = blockCount;
+			this.totalDataPointCount = totalDataPointCount;
+			this.uncompressedLengths = new int[blockCount];
+			this.compressedLengths = new int[blockCount];
+		}
+		
+		public static BlockOffsetTable read(int width, DataInputStream inputStream) throws IOException
+		{
+			int expectedBlockCount = getBlockCount(width);
+			int blockCount = inputStream.readInt();
+			if (blockCount != expectedBlockCount)
+			{
+				throw new IOException("Block count mismatch, expected [" + expectedBlockCount + "] but found [" + blockCount + "].");
+			}
+			
+			BlockOffsetTable table = new BlockOffsetTable(blockCount, inputStream.readInt());
+			for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+			{
+				table.uncompressedLengths[blockIndex] = inputStream.readInt();
+				table.compressedLengths[blockIndex] = inputStream.readInt();
+				if (table.uncompressedLengths[blockIndex] < COLUMNS_PER_BLOCK * Integer.BYTES || table.compressedLengths[blockIndex] < 0)
+				{
+					throw new IOException("Invalid length for block [" + blockIndex + "].");
+				}
+				
+				table.maxUncompressedLength = Math.max(table.maxUncompressedLength, table.uncompressedLengths[blockIndex]);
+				table.maxCompressedLength = Math.max(table.maxCompressedLength, table.compressedLengths[blockIndex]);
+			}
+			return table;
+		}
+		
+		/** Reads and decompresses the next block in the stream, which should be the given block. */
+		public ByteBuffer readBlock(int blockIndex, DataInputStream inputStream, LZ4SafeDecompressor decompressor, byte[] compressedBuffer, byte[] uncompressedBuffer) throws IOException
+		{
+			int compressedLength = this.compressedLengths[blockIndex];
+			int uncompressedLength = this.uncompressedLengths[blockIndex];
+			
+			inputStream.readFully(compressedBuffer, 0, compressedLength);
+			int decompressedLength = decompressor.decompress(compressedBuffer, 0, compressedLength, uncompressedBuffer, 0, uncompressedLength);
+			if (decompressedLength != uncompressedLength)
+			{
+				throw new EOFException("Block [" + blockIndex + "] decompressed to [" + decompressedLength + "] bytes, expected [" + uncompressedLength + "].");
+			}
+			
+			return ByteBuffer.wrap(uncompressedBuffer, 0, uncompressedLength);
+		}
+		
+	}
+	
+}
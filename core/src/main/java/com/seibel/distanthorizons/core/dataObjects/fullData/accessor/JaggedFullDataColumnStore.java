@@ -0,0 +1,84 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.fullData.accessor;
+
+/**
+ * Stores each column as its own array. <br>
+ * Columns can be shared between stores without copying,
+ * which makes this store cheap for short-lived and frequently changing data.
+ *
+ * @see ContiguousFullDataColumnStore
+ */
+public class JaggedFullDataColumnStore implements IFullDataColumnStore
+{
+	private static final long[] EMPTY_COLUMN = new long[0];
+	
+	/** A flattened 2D array (for the X and Z directions) containing an array for the Y direction. */
+	private final long[][] dataArrays;
+	
+	
+	
+	//==============//
+	// constructors //
+	//==============//
+	
+	public JaggedFullDataColumnStore(int columnCount) { this(new long[columnCount][0]); }
+	public JaggedFullDataColumnStore(long[][] dataArrays) { this.dataArrays = dataArrays; }
+	
+	
+	
+	//=========//
+	// methods //
+	//=========//
+	
+	@Override
+	public int columnCount() { return this.dataArrays.length; }
+	
+	@Override
+	public int getColumnLength(int columnIndex)
+	{
+		long[] column = this.dataArrays[columnIndex];
+		return (column != null) ? column.length : 0;
+	}
+	
+	@Override
+	public long get(int columnIndex, int yIndex) { return this.dataArrays[columnIndex][yIndex]; }
+	@Override
+	public void set(int columnIndex, int yIndex, long fullDataPoint) { this.dataArrays[columnIndex][yIndex] = fullDataPoint; }
+	
+	@Override
+	public void setColumnLength(int columnIndex, int length)
+	{
+		long[] column = this.dataArrays[columnIndex];
+		if (column == null || column.length != length)
+		{
+			this.dataArrays[columnIndex] = (length == 0) ? EMPTY_COLUMN : new long[length];
+		}
+	}
+	
+	/** Returns the backing array. */
+	@Override
+	public long[] getColumnArray(int columnIndex) { return this.dataArrays[columnIndex]; }
+	
+	/** Stores the given array without copying it. */
+	@Override
+	public void setColumn(int columnIndex, long[] column) { this.dataArrays[columnIndex] = column; }
+	
+}
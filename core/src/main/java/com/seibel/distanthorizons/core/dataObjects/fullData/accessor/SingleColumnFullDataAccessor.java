@@ -30,36 +30,27 @@ import com.seibel.distanthorizons.core.util.LodUtil;
  */
 public class SingleColumnFullDataAccessor implements IFullDataAccessor
 {
-	/**
-	 * A flattened 2D array (for the X and Z directions) containing an array for the Y direction.
-	 * TODO the flattened array is probably to reduce garbage collection overhead, but is doing it this way worth while? Having a 3D array would be much easier to understand
-	 *
-	 * @see FullDataArrayAccessor#dataArrays
-	 */
-	private final long[][] dataArrays;
-	/** indicates what index of the {@link SingleColumnFullDataAccessor#dataArrays} is used by this accessor */
+	/** @see FullDataArrayAccessor#columnStore */
+	private final IFullDataColumnStore columnStore;
+	/** indicates what column of the {@link SingleColumnFullDataAccessor#columnStore} is used by this accessor */
 	private final int dataArrayIndex;
 	private final FullDataPointIdMap mapping;
 	
 	
 	
-	public SingleColumnFullDataAccessor(FullDataPointIdMap mapping, long[][] dataArrays, int dataArrayIndex)
+	public SingleColumnFullDataAccessor(FullDataPointIdMap mapping, IFullDataColumnStore columnStore, int dataArrayIndex)
 	{
-		this.dataArrays = dataArrays;
+		this.columnStore = columnStore;
 		this.dataArrayIndex = dataArrayIndex;
 		this.mapping = mapping;
 		
-		LodUtil.assertTrue(this.dataArrayIndex < this.dataArrays.length, "dataArrays.length [" + this.dataArrays.length + "] is less than the dataArrayIndex [" + this.dataArrayIndex + "].");
+		LodUtil.assertTrue(this.dataArrayIndex < this.columnStore.columnCount(), "columnCount [" + this.columnStore.columnCount() + "] is less than the dataArrayIndex [" + this.dataArrayIndex + "].");
 	}
 	
 	
 	
 	/** @return true if any data exists in this column. */
-	public boolean doesColumnExist()
-	{
-		long[] dataColumn = this.dataArrays[this.dataArrayIndex];
-		return dataColumn != null && dataColumn.length != 0;
-	}
+	public boolean doesColumnExist() { return this.columnStore.getColumnLength(this.dataArrayIndex) != 0; }
 	
 	@Override
 	public FullDataPointIdMap getMapping() { return this.mapping; }
@@ -86,16 +77,20 @@ public class SingleColumnFullDataAccessor implements IFullDataAccessor
 		return this;
 	}
 	
-	/** @return the entire array of raw full data points. */
-	public long[] getRaw() { return this.dataArrays[this.dataArrayIndex]; }
+	/**
+	 * @return the entire array of raw full data points. <br>
+	 * Depending on the {@link IFullDataColumnStore} this may be a copy,
+	 * so {@link SingleColumnFullDataAccessor#getSingle(int)} should be preferred when possible.
+	 */
+	public long[] getRaw() { return this.columnStore.getColumnArray(this.dataArrayIndex); }
 	
-	public long getSingle(int yIndex) { return this.dataArrays[this.dataArrayIndex][yIndex]; }
-	public void setSingle(int yIndex, long fullDataPoint) { this.dataArrays[this.dataArrayIndex][yIndex] = fullDataPoint; }
+	public long getSingle(int yIndex) { return this.columnStore.get(this.dataArrayIndex, yIndex); }
+	public void setSingle(int yIndex, long fullDataPoint) { this.columnStore.set(this.dataArrayIndex, yIndex, fullDataPoint); }
 	
-	public void setNew(long[] newArray) { this.dataArrays[this.dataArrayIndex] = newArray; }
+	public void setNew(long[] newArray) { this.columnStore.setColumn(this.dataArrayIndex, newArray); }
 	
 	/** @return how many data points are in this column */
-	public int getSingleLength() { return this.dataArrays[this.dataArrayIndex].length; }
+	public int getSingleLength() { return this.columnStore.getColumnLength(this.dataArrayIndex); }
 	
 	@Override
 	public int width() { return 1; }
@@ -116,19 +111,12 @@ public class SingleColumnFullDataAccessor implements IFullDataAccessor
 	{
 		if (target.mapping.equals(this.mapping))
 		{
-			target.dataArrays[target.dataArrayIndex] = this.dataArrays[this.dataArrayIndex];
+			target.columnStore.shadowCopyColumnFrom(this.columnStore, this.dataArrayIndex, target.dataArrayIndex);
 		}
 		else
 		{
 			int[] remappedEntryIds = target.mapping.mergeAndReturnRemappedEntityIds(this.mapping);
-			long[] sourceData = this.dataArrays[this.dataArrayIndex];
-			long[] newData = new long[sourceData.length];
-			
-			for (int i = 0; i < newData.length; i++)
-			{
-				newData[i] = FullDataPointUtil.remap(remappedEntryIds, sourceData[i]);
-			}
-			target.dataArrays[target.dataArrayIndex] = newData;
+			target.columnStore.copyColumnFrom(this.columnStore, this.dataArrayIndex, target.dataArrayIndex, remappedEntryIds);
 		}
 	}
 	
@@ -137,21 +125,15 @@ public class SingleColumnFullDataAccessor implements IFullDataAccessor
 	{
 		if (target.mapping.equals(this.mapping))
 		{
-			System.arraycopy(this.dataArrays[this.dataArrayIndex], 0, target.dataArrays[target.dataArrayIndex], 0, this.dataArrays[this.dataArrayIndex].length);
+			target.columnStore.copyColumnFrom(this.columnStore, this.dataArrayIndex, target.dataArrayIndex, null);
 		}
 		else
 		{
 			int[] remappedEntryIds = target.mapping.mergeAndReturnRemappedEntityIds(this.mapping);
-			long[] sourceData = this.dataArrays[this.dataArrayIndex];
-			// FIXME sourceData.length != 0 may not be a good solution and may end up breaking issues down the line, but fixes exceptions being fired here
-			if (sourceData != null && sourceData.length != 0)
+			// FIXME skipping empty columns may not be a good solution and may end up breaking issues down the line, but fixes exceptions being fired here
+			if (this.columnStore.getColumnLength(this.dataArrayIndex) != 0)
 			{
-				long[] newData = new long[sourceData.length];
-				for (int i = 0; i < newData.length; i++)
-				{
-					newData[i] = FullDataPointUtil.remap(remappedEntryIds, sourceData[i]);
-				}
-				target.dataArrays[target.dataArrayIndex] = newData;
+				target.columnStore.copyColumnFrom(this.columnStore, this.dataArrayIndex, target.dataArrayIndex, remappedEntryIds);
 			}
 		}
 	}
@@ -106,6 +106,25 @@ public abstract class AbstractFullDataSourceLoader
 				.findFirst().orElse(null);
 	}
 	
+	/** @return -1 if no loader is registered for the given data type */
+	public static byte getNewestSupportedVersion(String dataType)
+	{
+		Class<? extends IFullDataSource> clazz = DATATYPE_REGISTRY.get(dataType);
+		if (clazz == null)
+		{
+			return -1;
+		}
+		
+		byte newestVersion = -1;
+		for (AbstractFullDataSourceLoader loader : LOADER_REGISTRY.get(clazz))
+		{
+			// the supported versions are sorted in the constructor
+			byte loaderNewestVersion = loader.loaderSupportedVersions[loader.loaderSupportedVersions.length - 1];
+			newestVersion = (byte) Math.max(newestVersion, loaderNewestVersion);
+		}
+		return newestVersion;
+	}
+	
 	
 	
 	//==================//
@@ -25,7 +25,9 @@ import com.seibel.distanthorizons.core.dataObjects.fullData.sources.CompleteFull
 
 public class CompleteFullDataSourceLoader extends AbstractFullDataSourceLoader
 {
-	public CompleteFullDataSourceLoader() { super(CompleteFullDataSource.class, CompleteFullDataSource.DATA_SOURCE_TYPE, new byte[]{CompleteFullDataSource.DATA_FORMAT_VERSION}); }
+	// version 3 saved its ID mappings as strings instead of palette IDs, see IFullDataSource#FIRST_PALETTE_DATA_FORMAT_VERSION
+	// and versions before 5 compressed the whole stream, see CompleteFullDataSource#FIRST_COLUMN_INDEXED_DATA_FORMAT_VERSION
+	public CompleteFullDataSourceLoader() { super(CompleteFullDataSource.class, CompleteFullDataSource.DATA_SOURCE_TYPE, new byte[]{3, 4, CompleteFullDataSource.DATA_FORMAT_VERSION}); }
 	
 	@Override
 	protected IFullDataSource createEmptyDataSource(DhSectionPos pos) { return CompleteFullDataSource.createEmpty(pos); }
@@ -25,7 +25,8 @@ import com.seibel.distanthorizons.core.dataObjects.fullData.sources.HighDetailIn
 
 public class HighDetailIncompleteFullDataSourceLoader extends AbstractFullDataSourceLoader
 {
-	public HighDetailIncompleteFullDataSourceLoader() { super(HighDetailIncompleteFullDataSource.class, HighDetailIncompleteFullDataSource.DATA_SOURCE_TYPE, new byte[]{HighDetailIncompleteFullDataSource.DATA_FORMAT_VERSION}); }
+	// version 3 saved its ID mappings as strings instead of palette IDs, see IFullDataSource#FIRST_PALETTE_DATA_FORMAT_VERSION
+	public HighDetailIncompleteFullDataSourceLoader() { super(HighDetailIncompleteFullDataSource.class, HighDetailIncompleteFullDataSource.DATA_SOURCE_TYPE, new byte[]{3, HighDetailIncompleteFullDataSource.DATA_FORMAT_VERSION}); }
 	
 	@Override
 	protected IFullDataSource createEmptyDataSource(DhSectionPos pos) { return HighDetailIncompleteFullDataSource.createEmpty(pos); }
@@ -21,7 +21,10 @@ package com.seibel.distanthorizons.core.dataObjects.fullData.sources;
 
 import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ContiguousFullDataColumnStore;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.FullDataArrayAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.IFullDataColumnStore;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.IndexedColumnStoreFormat;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.SingleColumnFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IStreamableFullDataSource;
@@ -35,22 +38,24 @@ import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
-import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
-import java.util.Arrays;
 
 /**
- * This data source contains every datapoint over its given {@link DhSectionPos}.
+ * This data source contains every datapoint over its given {@link DhSectionPos}. <br><br>
+ * 
+ * Since complete sources are long-lived and read far more often than they are written,
+ * their columns are packed into a single {@link ContiguousFullDataColumnStore}.
  *
  * @see FullDataPointUtil
  * @see LowDetailIncompleteFullDataSource
  * @see HighDetailIncompleteFullDataSource
  */
-public class CompleteFullDataSource extends FullDataArrayAccessor implements IFullDataSource, IStreamableFullDataSource<IStreamableFullDataSource.FullDataSourceSummaryData, long[][]>
+public class CompleteFullDataSource extends FullDataArrayAccessor implements IFullDataSource, IStreamableFullDataSource<IStreamableFullDataSource.FullDataSourceSummaryData, ContiguousFullDataColumnStore>
 {
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
 	
@@ -58,13 +63,21 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 	/** measured in dataPoints */
 	public static final int WIDTH = BitShiftUtil.powerOfTwo(SECTION_SIZE_OFFSET);
 	
-	public static final byte DATA_FORMAT_VERSION = 3;
+	public static final byte DATA_FORMAT_VERSION = 5;
+	/** 
+	 * Data sources saved with this version or later store their data points using the {@link IndexedColumnStoreFormat}
+	 * and aren't wrapped in a compressed stream.
+	 */
+	public static final byte FIRST_COLUMN_INDEXED_DATA_FORMAT_VERSION = 5;
 	public static final String DATA_SOURCE_TYPE = "CompleteFullDataSource";
 	
 	private DhSectionPos sectionPos;
 	private boolean isEmpty = true;
 	public EDhApiWorldGenerationStep worldGenStep = EDhApiWorldGenerationStep.EMPTY;
 	
+	/** same object as {@link FullDataArrayAccessor#columnStore} */
+	private final ContiguousFullDataColumnStore contiguousColumnStore;
+	
 	
 	
 	//==============//
@@ -74,19 +87,26 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 	public static CompleteFullDataSource createEmpty(DhSectionPos pos) { return new CompleteFullDataSource(pos); }
 	private CompleteFullDataSource(DhSectionPos sectionPos)
 	{
-		super(new FullDataPointIdMap(sectionPos), new long[WIDTH * WIDTH][0], WIDTH);
+		this(new FullDataPointIdMap(sectionPos), new ContiguousFullDataColumnStore(WIDTH * WIDTH));
 		this.sectionPos = sectionPos;
 	}
 	
-	public CompleteFullDataSource(DhSectionPos pos, FullDataPointIdMap mapping, long[][] data)
+	/** The given data will be copied into a new {@link ContiguousFullDataColumnStore}. */
+	public CompleteFullDataSource(DhSectionPos pos, FullDataPointIdMap mapping, IFullDataColumnStore data)
 	{
-		super(mapping, data, WIDTH);
-		LodUtil.assertTrue(data.length == WIDTH * WIDTH);
+		this(mapping, ContiguousFullDataColumnStore.createPackedCopy(data));
+		LodUtil.assertTrue(data.columnCount() == WIDTH * WIDTH);
 		
 		this.sectionPos = pos;
 		this.isEmpty = false;
 	}
 	
+	private CompleteFullDataSource(FullDataPointIdMap mapping, ContiguousFullDataColumnStore columnStore)
+	{
+		super(mapping, columnStore, WIDTH);
+		this.contiguousColumnStore = columnStore;
+	}
+	
 	
 	
 	//=================//
@@ -103,7 +123,8 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 		
 	}
 	@Override
-	public FullDataSourceSummaryData readSourceSummaryInfo(FullDataMetaFile dataFile, DhDataInputStream inputStream, IDhLevel level) throws IOException
+	public FullDataSourceSummaryData readSourceSummaryInfo(FullDataMetaFile dataFile, DhDataInputStream inputStream, IDhLevel level) throws IOException { return readSummaryInfo(dataFile, inputStream, level); }
+	private static FullDataSourceSummaryData readSummaryInfo(FullDataMetaFile dataFile, DhDataInputStream inputStream, IDhLevel level) throws IOException
 	{
 		int dataDetail = inputStream.readInt();
 		if (dataDetail != dataFile.baseMetaData.dataDetailLevel)
@@ -150,42 +171,13 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 		}
 		outputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
 		
-		
-		
-		// Data array length
-		for (int x = 0; x < this.width; x++)
-		{
-			for (int z = 0; z < this.width; z++)
-			{
-				outputStream.writeInt(this.get(x, z).getSingleLength());
-			}
-		}
-		
-		
-		
-		// Data array content (only on non-empty columns)
-		outputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
-		for (int x = 0; x < this.width; x++)
-		{
-			for (int z = 0; z < this.width; z++)
-			{
-				SingleColumnFullDataAccessor columnAccessor = this.get(x, z);
-				if (columnAccessor.doesColumnExist())
-				{
-					long[] dataPointArray = columnAccessor.getRaw();
-					for (long dataPoint : dataPointArray)
-					{
-						outputStream.writeLong(dataPoint);
-					}
-				}
-			}
-		}
-		
+		// each chunk sized block is compressed separately so single columns can be read quickly
+		IndexedColumnStoreFormat.write(this.contiguousColumnStore, this.width, outputStream);
 		
 		return true;
 	}
 	@Override
-	public long[][] readDataPoints(FullDataMetaFile dataFile, int width, DhDataInputStream dataInputStream) throws IOException
+	public ContiguousFullDataColumnStore readDataPoints(FullDataMetaFile dataFile, int width, DhDataInputStream dataInputStream) throws IOException
 	{
 		// Data array length
 		int dataPresentFlag = dataInputStream.readInt();
@@ -201,38 +193,36 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 		
 		
 		
-		long[][] dataPointArrays;
-		if (this.width == width) // attempt to use the existing dataArrays if possible
+		ContiguousFullDataColumnStore columnStore;
+		if (this.width == width) // attempt to use the existing backing array if possible
 		{
-			dataPointArrays = this.dataArrays;
+			columnStore = this.contiguousColumnStore;
 		}
 		else
 		{
-			dataPointArrays = new long[width * width][]; 
+			columnStore = new ContiguousFullDataColumnStore(width * width);
 		}
 		
-		for (int x = 0; x < width; x++)
+		if (isColumnIndexed(dataFile.baseMetaData.dataType, dataFile.baseMetaData.binaryDataFormatVersion))
 		{
-			for (int z = 0; z < width; z++)
-			{
-				int requestedArrayLength = dataInputStream.readInt();
-				int arrayIndex = x * width + z;
-				
-				// attempt to use the existing dataArrays if possible
-				if (dataPointArrays[arrayIndex] == null || dataPointArrays[arrayIndex].length != requestedArrayLength)
-				{
-					dataPointArrays[arrayIndex] = new long[requestedArrayLength];
-				}
-				else
-				{
-					// clear the existing array to prevent any data leakage
-					Arrays.fill(dataPointArrays[arrayIndex], 0);
-				}
-			}
+			IndexedColumnStoreFormat.readInto(columnStore, width, dataInputStream);
+			return columnStore;
 		}
 		
 		
 		
+		// older formats store every column length followed by every data point
+		
+		// all column lengths are known up front, so the columns can be packed exactly
+		int[] columnLengths = new int[width * width];
+		for (int xz = 0; xz < columnLengths.length; xz++) // x and z are combined
+		{
+			columnLengths[xz] = dataInputStream.readInt();
+		}
+		columnStore.resetColumnLengths(columnLengths);
+		
+		
+		
 		// check if the array start flag is present
 		int arrayStartFlag = dataInputStream.readInt();
 		if (arrayStartFlag != IFullDataSource.DATA_GUARD_BYTE)
@@ -240,39 +230,46 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 			throw new IOException("invalid data length end guard");
 		}
 		
-		for (int xz = 0; xz < dataPointArrays.length; xz++) // x and z are combined
+		// columns are packed in the same order they were written, so they can be read in one pass
+		long[] backingArray = columnStore.getBackingArray();
+		int totalLength = columnStore.getColumnStart(columnLengths.length - 1) + columnLengths[columnLengths.length - 1];
+		for (int i = 0; i < totalLength; i++)
 		{
-			if (dataPointArrays[xz].length != 0)
-			{
-				for (int y = 0; y < dataPointArrays[xz].length; y++)
-				{
-					dataPointArrays[xz][y] = dataInputStream.readLong();
-				}
-			}
+			backingArray[i] = dataInputStream.readLong();
 		}
 		
 		
 		
-		return dataPointArrays;
+		return columnStore;
 	}
 	@Override
-	public void setDataPoints(long[][] dataPoints)
+	public void setDataPoints(ContiguousFullDataColumnStore dataPoints)
 	{
-		LodUtil.assertTrue(this.dataArrays.length == dataPoints.length, "Data point array length mismatch.");
+		LodUtil.assertTrue(this.contiguousColumnStore.columnCount() == dataPoints.columnCount(), "Data point array length mismatch.");
 		
 		this.isEmpty = false;
-		System.arraycopy(dataPoints, 0, this.dataArrays, 0, dataPoints.length);
+		if (dataPoints != this.contiguousColumnStore)
+		{
+			for (int xz = 0; xz < dataPoints.columnCount(); xz++)
+			{
+				this.contiguousColumnStore.copyColumnFrom(dataPoints, xz, xz, null);
+			}
+		}
 	}
 	
 	
 	@Override
-	public void writeIdMappings(DhDataOutputStream outputStream) throws IOException
+	public void writeIdMappings(DhDataOutputStream outputStream, FullDataPalette palette) throws IOException
 	{
 		outputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
-		this.mapping.serialize(outputStream);
+		this.mapping.serialize(outputStream, palette);
 	}
 	@Override
-	public FullDataPointIdMap readIdMappings(long[][] dataPoints, DhDataInputStream inputStream, ILevelWrapper levelWrapper) throws IOException, InterruptedException
+	public FullDataPointIdMap readIdMappings(ContiguousFullDataColumnStore dataPoints, DhDataInputStream inputStream, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException
+	{
+		return readIdMapping(inputStream, this.sectionPos, usePaletteIds, palette);
+	}
+	private static FullDataPointIdMap readIdMapping(DhDataInputStream inputStream, DhSectionPos pos, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException
 	{
 		int guardByte = inputStream.readInt();
 		if (guardByte != IFullDataSource.DATA_GUARD_BYTE)
@@ -280,12 +277,46 @@ public class CompleteFullDataSource extends FullDataArrayAccessor implements IFu
 			throw new IOException("Invalid data content end guard for ID mapping");
 		}
 		
-		return FullDataPointIdMap.deserialize(inputStream, this.sectionPos, levelWrapper);
+		return FullDataPointIdMap.deserialize(inputStream, pos, usePaletteIds, palette);
 	}
 	@Override
 	public void setIdMapping(FullDataPointIdMap mappings) { this.mapping.mergeAndReturnRemappedEntityIds(mappings); }
 	
 	
+	/** @return true if the data points for the given type and version were written using the {@link IndexedColumnStoreFormat} */
+	public static boolean isColumnIndexed(String dataType, byte binaryDataFormatVersion) { return DATA_SOURCE_TYPE.equals(dataType) && binaryDataFormatVersion >= FIRST_COLUMN_INDEXED_DATA_FORMAT_VERSION; }
+	
+	/**
+	 * Reads a single column from a stream without reading the rest of the data source. <br>
+	 * Should only be used if {@link CompleteFullDataSource#isColumnIndexed} returns true for the given file.
+	 * 
+	 * @return an empty column if the data source is empty
+	 */
+	public static SingleColumnFullDataAccessor readSingleColumn(FullDataMetaFile dataFile, DhDataInputStream inputStream, IDhLevel level, int relativeX, int relativeZ) throws IOException, InterruptedException
+	{
+		LodUtil.assertTrue(isColumnIndexed(dataFile.baseMetaData.dataType, dataFile.baseMetaData.binaryDataFormatVersion), "Single columns can't be read from data format version [" + dataFile.baseMetaData.binaryDataFormatVersion + "].");
+		
+		readSummaryInfo(dataFile, inputStream, level);
+		
+		ContiguousFullDataColumnStore columnStore = new ContiguousFullDataColumnStore(1);
+		int dataPresentFlag = inputStream.readInt();
+		if (dataPresentFlag == IFullDataSource.NO_DATA_FLAG_BYTE)
+		{
+			return new SingleColumnFullDataAccessor(new FullDataPointIdMap(dataFile.pos), columnStore, 0);
+		}
+		else if (dataPresentFlag != IFullDataSource.DATA_GUARD_BYTE)
+		{
+			throw new IOException("Invalid file format. Data Points guard byte expected: (no data) [" + IFullDataSource.NO_DATA_FLAG_BYTE + "] or (data present) [" + IFullDataSource.DATA_GUARD_BYTE + "], but found [" + dataPresentFlag + "].");
+		}
+		columnStore.setColumn(0, IndexedColumnStoreFormat.readColumn(WIDTH, relativeX, relativeZ, inputStream));
+		
+		// the whole ID mapping is needed since the column can reference any of its entries,
+		// however since it only contains palette IDs it's cheap to read
+		FullDataPointIdMap mapping = readIdMapping(inputStream, dataFile.pos, true, level.getFileHandler().getPalette());
+		return new SingleColumnFullDataAccessor(mapping, columnStore, 0);
+	}
+	
+	
 	
 	//======//
 	// data //
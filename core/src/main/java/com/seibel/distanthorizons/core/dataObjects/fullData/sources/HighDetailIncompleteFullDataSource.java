@@ -35,8 +35,8 @@ import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
-import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
 import org.apache.logging.log4j.Logger;
 
@@ -71,7 +71,7 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 	/** aka max detail level */
 	public static final byte MAX_SECTION_DETAIL = SECTION_SIZE_OFFSET + SPARSE_UNIT_DETAIL;
 	
-	public static final byte DATA_FORMAT_VERSION = 3;
+	public static final byte DATA_FORMAT_VERSION = 4;
 	public static final String DATA_SOURCE_TYPE = "HighDetailIncompleteFullDataSource";
 	
 	
@@ -234,13 +234,10 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 					SingleColumnFullDataAccessor column = array.get(x, z);
 					LodUtil.assertTrue(column.getMapping() == this.mapping); // the mappings must be exactly equal!
 					
-					if (column.doesColumnExist())
+					int columnLength = column.getSingleLength();
+					for (int y = 0; y < columnLength; y++)
 					{
-						long[] rawDataPoints = column.getRaw();
-						for (long dataPoint : rawDataPoints)
-						{
-							dataOutputStream.writeLong(dataPoint);
-						}
+						dataOutputStream.writeLong(column.getSingle(y));
 					}
 				}
 			}
@@ -361,18 +358,9 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 			{
 				for (int dataPointColIndex = 0; dataPointColIndex < dataPoints[arrayAccessorIndex].length; dataPointColIndex++)
 				{
+					// the incoming column was just read in and isn't shared, so it can be used directly
 					long[] incomingColumn = dataPoints[arrayAccessorIndex][dataPointColIndex];
-					long[] destinationColumn = this.sparseData[arrayAccessorIndex].get(dataPointColIndex).getRaw();
-					
-					// use the existing arrays if possible
-					if (incomingColumn.length == destinationColumn.length)
-					{
-						System.arraycopy(incomingColumn, 0, destinationColumn, 0, incomingColumn.length);
-					}
-					else
-					{
-						this.sparseData[arrayAccessorIndex].get(dataPointColIndex).setNew(incomingColumn);
-					}
+					this.sparseData[arrayAccessorIndex].get(dataPointColIndex).setNew(incomingColumn);
 				}
 			}
 		}
@@ -380,7 +368,7 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 	
 	
 	@Override
-	public FullDataPointIdMap readIdMappings(long[][][] dataPoints, DhDataInputStream inputStream, ILevelWrapper levelWrapper) throws IOException, InterruptedException
+	public FullDataPointIdMap readIdMappings(long[][][] dataPoints, DhDataInputStream inputStream, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException
 	{
 		// mark the start of the ID data
 		int idMappingStartByte = inputStream.readInt();
@@ -391,13 +379,13 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 		}
 		
 		// deserialize the ID data
-		return FullDataPointIdMap.deserialize(inputStream, this.sectionPos, levelWrapper);
+		return FullDataPointIdMap.deserialize(inputStream, this.sectionPos, usePaletteIds, palette);
 	}
 	@Override
-	public void writeIdMappings(DhDataOutputStream dataOutputStream) throws IOException
+	public void writeIdMappings(DhDataOutputStream dataOutputStream, FullDataPalette palette) throws IOException
 	{
 		dataOutputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
-		this.mapping.serialize(dataOutputStream);
+		this.mapping.serialize(dataOutputStream, palette);
 	}
 	@Override
 	public void setIdMapping(FullDataPointIdMap mappings) { this.mapping.mergeAndReturnRemappedEntityIds(mappings); }
@@ -461,7 +449,7 @@ public class HighDetailIncompleteFullDataSource implements IIncompleteFullDataSo
 		{
 			this.sparseData = new FullDataArrayAccessor[this.sectionCount * this.sectionCount];
 		}
-		 
+		
 	}
 	
 	@Override
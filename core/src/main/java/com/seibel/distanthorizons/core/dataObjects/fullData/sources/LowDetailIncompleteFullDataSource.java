@@ -35,8 +35,8 @@ import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
-import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
 import org.apache.logging.log4j.Logger;
 
@@ -62,7 +62,7 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 	/** measured in dataPoints */
 	public static final int WIDTH = BitShiftUtil.powerOfTwo(SECTION_SIZE_OFFSET);
 	
-	public static final byte DATA_FORMAT_VERSION = 3;
+	public static final byte DATA_FORMAT_VERSION = 4;
 	public static final String DATA_SOURCE_TYPE = "LowDetailIncompleteFullDataSource";
 	
 	
@@ -175,10 +175,11 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 		dataOutputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
 		for (int i = this.isColumnNotEmpty.nextSetBit(0); i >= 0; i = this.isColumnNotEmpty.nextSetBit(i + 1))
 		{
-			dataOutputStream.writeByte(this.dataArrays[i].length);
-			for (long dataPoint : this.dataArrays[i])
+			int columnLength = this.columnStore.getColumnLength(i);
+			dataOutputStream.writeByte(columnLength);
+			for (int y = 0; y < columnLength; y++)
 			{
-				dataOutputStream.writeLong(dataPoint);
+				dataOutputStream.writeLong(this.columnStore.get(i, y));
 			}
 		}
 		
@@ -242,8 +243,11 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 		long[][] dataPoints = streamDataPointContainer.dataPoints;
 		
 		// copy over the datapoints
-		LodUtil.assertTrue(this.dataArrays.length == dataPoints.length, "Data point array length mismatch.");
-		System.arraycopy(dataPoints, 0, this.dataArrays, 0, dataPoints.length);
+		LodUtil.assertTrue(this.columnStore.columnCount() == dataPoints.length, "Data point array length mismatch.");
+		for (int i = 0; i < dataPoints.length; i++)
+		{
+			this.columnStore.setColumn(i, dataPoints[i]);
+		}
 		
 		// overwrite the bitset
 		for (int i = 0; i < streamDataPointContainer.isColumnNotEmpty.length(); i++)
@@ -256,14 +260,14 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 	
 	
 	@Override
-	public void writeIdMappings(DhDataOutputStream outputStream) throws IOException
+	public void writeIdMappings(DhDataOutputStream outputStream, FullDataPalette palette) throws IOException
 	{
 		outputStream.writeInt(IFullDataSource.DATA_GUARD_BYTE);
-		this.mapping.serialize(outputStream);
+		this.mapping.serialize(outputStream, palette);
 		
 	}
 	@Override
-	public FullDataPointIdMap readIdMappings(StreamDataPointContainer streamDataPointContainer, DhDataInputStream inputStream, ILevelWrapper levelWrapper) throws IOException, InterruptedException
+	public FullDataPointIdMap readIdMappings(StreamDataPointContainer streamDataPointContainer, DhDataInputStream inputStream, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException
 	{
 		// Id mapping
 		int dataPresentFlag = inputStream.readInt();
@@ -271,7 +275,7 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 		{
 			throw new IOException("invalid ID mapping end guard");
 		}
-		return FullDataPointIdMap.deserialize(inputStream, this.sectionPos, levelWrapper);
+		return FullDataPointIdMap.deserialize(inputStream, this.sectionPos, usePaletteIds, palette);
 	}
 	@Override
 	public void setIdMapping(FullDataPointIdMap mappings) { this.mapping.mergeAndReturnRemappedEntityIds(mappings); }
@@ -386,7 +390,7 @@ public class LowDetailIncompleteFullDataSource extends FullDataArrayAccessor imp
 			return this;
 		}
 		this.isPromoted = true;
-		return new CompleteFullDataSource(this.sectionPos, this.mapping, this.dataArrays);
+		return new CompleteFullDataSource(this.sectionPos, this.mapping, this.columnStore);
 	}
 	
 	@Override
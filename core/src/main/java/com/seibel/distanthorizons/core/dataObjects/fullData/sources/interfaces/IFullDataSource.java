@@ -22,6 +22,7 @@ package com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces;
 import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
 import com.seibel.distanthorizons.core.level.IDhLevel;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.IFullDataAccessor;
@@ -54,6 +55,11 @@ public interface IFullDataSource
 	 * The presence and absence of this byte indicates if the file is correctly formatted.
 	 */
 	int DATA_GUARD_BYTE = 0xFFFFFFFF;
+	/**
+	 * Data sources saved before this binary format version stored their ID mappings 
+	 * as serialized strings instead of {@link FullDataPalette} IDs.
+	 */
+	byte FIRST_PALETTE_DATA_FORMAT_VERSION = 4;
 	/** indicates the binary save file represents an empty data source */
 	int NO_DATA_FLAG_BYTE = 0x00000001;
 	
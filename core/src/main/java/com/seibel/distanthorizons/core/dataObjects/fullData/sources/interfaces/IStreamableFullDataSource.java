@@ -21,12 +21,12 @@ package com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces;
 
 import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
 import com.seibel.distanthorizons.core.level.IDhLevel;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
 import com.seibel.distanthorizons.core.file.fullDatafile.FullDataMetaFile;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
-import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 
 import java.io.IOException;
 
@@ -85,7 +85,8 @@ public interface IStreamableFullDataSource<SummaryDataType extends IStreamableFu
 		this.setDataPoints(dataPoints);
 		
 		
-		FullDataPointIdMap mapping = this.readIdMappings(dataPoints, inputStream, level.getLevelWrapper());
+		boolean usePaletteIds = dataFile.baseMetaData.binaryDataFormatVersion >= FIRST_PALETTE_DATA_FORMAT_VERSION;
+		FullDataPointIdMap mapping = this.readIdMappings(dataPoints, inputStream, usePaletteIds, level.getFileHandler().getPalette());
 		this.setIdMapping(mapping);
 		
 	}
@@ -101,7 +102,7 @@ public interface IStreamableFullDataSource<SummaryDataType extends IStreamableFu
 			return;
 		}
 		
-		this.writeIdMappings(outputStream);
+		this.writeIdMappings(outputStream, level.getFileHandler().getPalette());
 	}
 	
 	
@@ -130,8 +131,9 @@ public interface IStreamableFullDataSource<SummaryDataType extends IStreamableFu
 	void setDataPoints(DataContainerType dataPoints);
 	
 	
-	void writeIdMappings(DhDataOutputStream outputStream) throws IOException;
-	FullDataPointIdMap readIdMappings(DataContainerType dataPoints, DhDataInputStream inputStream, ILevelWrapper levelWrapper) throws IOException, InterruptedException;
+	void writeIdMappings(DhDataOutputStream outputStream, FullDataPalette palette) throws IOException;
+	/** @param usePaletteIds false if the stream was written before {@link IFullDataSource#FIRST_PALETTE_DATA_FORMAT_VERSION} */
+	FullDataPointIdMap readIdMappings(DataContainerType dataPoints, DhDataInputStream inputStream, boolean usePaletteIds, FullDataPalette palette) throws IOException, InterruptedException;
 	void setIdMapping(FullDataPointIdMap mappings);
 	
 	
@@ -20,6 +20,7 @@
 package com.seibel.distanthorizons.core.dataObjects.render;
 
 import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
+import com.seibel.distanthorizons.core.file.renderfile.RenderCacheSegmentStore;
 import com.seibel.distanthorizons.core.file.renderfile.RenderDataMetaFile;
 import com.seibel.distanthorizons.core.level.IDhLevel;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
@@ -27,6 +28,7 @@ import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStrea
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -69,6 +71,26 @@ public class ColumnRenderLoader
 		}
 	}
 	
+	/** Used when reading uncompressed data directly from a {@link RenderCacheSegmentStore}. */
+	public ColumnRenderSource loadRenderSource(RenderDataMetaFile dataFile, ByteBuffer dataBuffer, IDhLevel level) throws IOException
+	{
+		int dataFileVersion = dataFile.baseMetaData.binaryDataFormatVersion;
+		
+		switch (dataFileVersion)
+		{
+			case 1:
+				ParsedColumnData parsedColumnData = readDataV1(dataBuffer, level.getMinY());
+				if (parsedColumnData.isEmpty)
+				{
+					LOGGER.warn("Empty render file " + dataFile.pos);
+				}
+				
+				return new ColumnRenderSource(dataFile.pos, parsedColumnData, level);
+			default:
+				throw new IOException("Invalid Data: The data version [" + dataFileVersion + "] is not supported");
+		}
+	}
+	
 	
 	
 	//========================//
@@ -79,7 +101,7 @@ public class ColumnRenderLoader
 	 * @param inputStream Expected format: 1st byte: detail level, 2nd byte: vertical size, 3rd byte on: column data
 	 * @throws IOException if there was an issue reading the stream
 	 */
-	private static ParsedColumnData readDataV1(DhDataInputStream inputStream, int expectedYOffset) throws IOException
+	public static ParsedColumnData readDataV1(DhDataInputStream inputStream, int expectedYOffset) throws IOException
 	{
 		// TODO move into ColumnRenderSource
 		
@@ -155,6 +177,90 @@ public class ColumnRenderLoader
 		}
 	}
 	
+	/**
+	 * Same format as {@link ColumnRenderLoader#readDataV1(DhDataInputStream, int)}, 
+	 * but the column data is copied straight from the buffer into the data array
+	 * without going through any intermediate arrays.
+	 *
+	 * @param dataBuffer uncompressed data, the buffer's position will be moved to the end of the read data
+	 * @throws IOException if the data is invalid or incomplete
+	 */
+	public static ParsedColumnData readDataV1(ByteBuffer dataBuffer, int expectedYOffset) throws IOException
+	{
+		try
+		{
+			byte detailLevel = dataBuffer.get();
+			
+			int verticalDataCount = dataBuffer.getInt();
+			if (verticalDataCount <= 0)
+			{
+				throw new IOException("Invalid data: vertical size must be 0 or greater");
+			}
+			
+			int maxNumberOfDataPoints = ColumnRenderSource.SECTION_SIZE * ColumnRenderSource.SECTION_SIZE * verticalDataCount;
+			
+			
+			byte dataPresentFlag = dataBuffer.get();
+			if (dataPresentFlag != ColumnRenderSource.NO_DATA_FLAG_BYTE && dataPresentFlag != ColumnRenderSource.DATA_GUARD_BYTE)
+			{
+				throw new IOException("Incorrect render file format. Expected either: NO_DATA_FLAG_BYTE [" + ColumnRenderSource.NO_DATA_FLAG_BYTE + "] or DATA_GUARD_BYTE [" + ColumnRenderSource.DATA_GUARD_BYTE + "], Found: [" + dataPresentFlag + "]");
+			}
+			else if (dataPresentFlag == ColumnRenderSource.NO_DATA_FLAG_BYTE)
+			{
+				// no data is present
+				return new ParsedColumnData(detailLevel, verticalDataCount, EDhApiWorldGenerationStep.EMPTY, new long[maxNumberOfDataPoints], true);
+			}
+			
+			
+			// data is present
+			
+			int fileYOffset = dataBuffer.getInt();
+			if (fileYOffset != expectedYOffset)
+			{
+				throw new IOException("Invalid data: yOffset is incorrect. Expected: [" + expectedYOffset + "], found: [" + fileYOffset + "].");
+			}
+			
+			
+			// read the column data, 
+			// the columns are stored little endian (unlike the rest of the data)
+			long[] dataPoints = new long[maxNumberOfDataPoints];
+			dataBuffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(dataPoints);
+			dataBuffer.position(dataBuffer.position() + (maxNumberOfDataPoints * Long.BYTES));
+			
+			boolean isEmpty = true;
+			for (long dataPoint : dataPoints)
+			{
+				if (dataPoint != 0)
+				{
+					isEmpty = false;
+					break;
+				}
+			}
+			
+			
+			
+			byte guardByteFlag = dataBuffer.get();
+			if (guardByteFlag != ColumnRenderSource.DATA_GUARD_BYTE)
+			{
+				throw new IOException("invalid world gen step end guard");
+			}
+			EDhApiWorldGenerationStep worldGenStep = EDhApiWorldGenerationStep.fromValue(dataBuffer.get());
+			if (worldGenStep == null)
+			{
+				LOGGER.warn("Missing WorldGenStep, defaulting to: " + EDhApiWorldGenerationStep.SURFACE.name());
+				worldGenStep = EDhApiWorldGenerationStep.SURFACE;
+			}
+			
+			
+			
+			return new ParsedColumnData(detailLevel, verticalDataCount, worldGenStep, dataPoints, isEmpty);
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Invalid data: the render data ended unexpectedly.", e);
+		}
+	}
+	
 	public static class ParsedColumnData
 	{
 		public final byte detailLevel;
@@ -81,6 +81,10 @@ public class ColumnRenderSource
 	
 	public AtomicLong localVersion = new AtomicLong(0); // used to track changes to the data source, so that buffers can be updated when necessary
 	
+	/** the {@link ColumnRenderSource#localVersion} {@link ColumnRenderSource#cachedContentHash} was calculated for */
+	private volatile long contentHashVersion = -1;
+	private volatile long cachedContentHash = 0;
+	
 	//==============//
 	// constructors //
 	//==============//
@@ -451,6 +455,33 @@ public class ColumnRenderSource
 	
 	public byte getRenderDataFormatVersion() { return DATA_FORMAT_VERSION; }
 	
+	/**
+	 * Unlike {@link ColumnRenderSource#localVersion} this hash will be the same
+	 * between sessions as long as the render data is the same. <br>
+	 * Only re-calculated when the {@link ColumnRenderSource#localVersion} changes.
+	 */
+	public long getContentHash()
+	{
+		long version = this.localVersion.get();
+		if (this.contentHashVersion != version)
+		{
+			// FNV-1a over each data point
+			long hash = 0xCBF29CE484222325L;
+			hash = (hash ^ this.verticalDataCount) * 0x100000001B3L;
+			hash = (hash ^ this.yOffset) * 0x100000001B3L;
+			
+			long[] dataContainer = this.renderDataContainer;
+			for (int i = 0; i < dataContainer.length; i++)
+			{
+				hash = (hash ^ dataContainer[i]) * 0x100000001B3L;
+			}
+			
+			this.cachedContentHash = hash;
+			this.contentHashVersion = version;
+		}
+		return this.cachedContentHash;
+	}
+	
 	/**
 	 * Whether this object is still valid. If not, a new one should be created.
 	 * TODO this will be necessary for dedicated multiplayer support, if the server has newer data this section should no longer be valid
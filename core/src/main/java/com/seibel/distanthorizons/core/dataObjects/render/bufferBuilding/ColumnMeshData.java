@@ -0,0 +1,237 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.render.bufferBuilding;
+
+import com.seibel.distanthorizons.api.enums.config.EGpuUploadMethod;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.render.glObject.buffer.GLVertexBuffer;
+import com.seibel.distanthorizons.core.render.AbstractRenderBuffer;
+import com.seibel.distanthorizons.core.sql.MeshDataDto;
+import com.seibel.distanthorizons.core.sql.MeshDataRepo;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
+import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
+import com.seibel.distanthorizons.coreapi.util.MathUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+
+/**
+ * The finished, packed vertex data for a single render section. <br>
+ * Can be saved to and loaded from a {@link MeshDataRepo} so the quads
+ * don't have to be re-built every time a section is loaded. <br><br>
+ *
+ * The vertex data is stored in the native byte order it was built with,
+ * so the byte order has to be included in the build input hash.
+ *
+ * @see LodQuadBuilder
+ * @see MeshDataDto
+ */
+public class ColumnMeshData implements IVertexBufferSource
+{
+	private final byte[] opaqueVertexData;
+	private final byte[] transparentVertexData;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	private ColumnMeshData(byte[] opaqueVertexData, byte[] transparentVertexData)
+	{
+		this.opaqueVertexData = opaqueVertexData;
+		this.transparentVertexData = transparentVertexData;
+	}
+	
+	public static ColumnMeshData fromQuadBuilder(LodQuadBuilder builder)
+	{
+		byte[] opaqueData = copyVertexData(builder.makeOpaqueVertexBuffers(), builder.getCurrentOpaqueQuadsCount());
+		byte[] transparentData = copyVertexData(builder.makeTransparentVertexBuffers(), builder.getCurrentTransparentQuadsCount());
+		return new ColumnMeshData(opaqueData, transparentData);
+	}
+	private static byte[] copyVertexData(Iterator<ByteBuffer> bufferIterator, int quadCount)
+	{
+		byte[] data = new byte[quadCount * AbstractRenderBuffer.QUADS_BYTE_SIZE];
+		if (quadCount == 0)
+		{
+			return data;
+		}
+		
+		int offset = 0;
+		while (bufferIterator.hasNext())
+		{
+			ByteBuffer buffer = bufferIterator.next();
+			int size = buffer.remaining();
+			buffer.get(data, offset, size);
+			offset += size;
+		}
+		LodUtil.assertTrue(offset == data.length, "Expected [" + data.length + "] bytes of vertex data, got [" + offset + "].");
+		
+		return data;
+	}
+	
+	
+	
+	//===============//
+	// serialization //
+	//===============//
+	
+	/** @return null if no mesh was saved for the given position or if the saved mesh is out of date */
+	@Nullable
+	public static ColumnMeshData tryLoadFromRepo(MeshDataRepo repo, DhSectionPos pos, long renderSourceHash, long buildInputHash) throws IOException
+	{
+		MeshDataDto dto = repo.getByPrimaryKey(pos.serialize());
+		if (dto == null
+			|| dto.dataArray == null
+			|| dto.renderSourceHash != renderSourceHash
+			|| dto.buildInputHash != buildInputHash)
+		{
+			return null;
+		}
+		
+		
+		try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(dto.dataArray);
+				DhDataInputStream inputStream = new DhDataInputStream(byteArrayInputStream))
+		{
+			byte[] opaqueData = new byte[inputStream.readInt()];
+			inputStream.readFully(opaqueData);
+			
+			byte[] transparentData = new byte[inputStream.readInt()];
+			inputStream.readFully(transparentData);
+			
+			return new ColumnMeshData(opaqueData, transparentData);
+		}
+	}
+	
+	public void saveToRepo(MeshDataRepo repo, DhSectionPos pos, long renderSourceHash, long buildInputHash) throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		DhDataOutputStream outputStream = new DhDataOutputStream(byteArrayOutputStream);
+		
+		outputStream.writeInt(this.opaqueVertexData.length);
+		outputStream.write(this.opaqueVertexData);
+		outputStream.writeInt(this.transparentVertexData.length);
+		outputStream.write(this.transparentVertexData);
+		outputStream.flush();
+		
+		repo.save(new MeshDataDto(pos, renderSourceHash, buildInputHash, byteArrayOutputStream.toByteArray()));
+	}
+	
+	
+	
+	//==================//
+	// buffer uploading //
+	//==================//
+	
+	@Override
+	public int getCurrentNeededOpaqueVertexBufferCount() { return MathUtil.ceilDiv(this.opaqueVertexData.length, AbstractRenderBuffer.FULL_SIZED_BUFFER); }
+	@Override
+	public int getCurrentNeededTransparentVertexBufferCount() { return MathUtil.ceilDiv(this.transparentVertexData.length, AbstractRenderBuffer.FULL_SIZED_BUFFER); }
+	
+	@Override
+	public Iterator<ByteBuffer> makeOpaqueVertexBuffers() { return makeVertexBufferIterator(this.opaqueVertexData); }
+	@Override
+	public Iterator<ByteBuffer> makeTransparentVertexBuffers() { return makeVertexBufferIterator(this.transparentVertexData); }
+	private static Iterator<ByteBuffer> makeVertexBufferIterator(byte[] vertexData)
+	{
+		return new Iterator<ByteBuffer>()
+		{
+			ByteBuffer buffer = null;
+			int offset = 0;
+			
+			@Override
+			public boolean hasNext() { return this.offset < vertexData.length; }
+			
+			@Override
+			public ByteBuffer next()
+			{
+				if (this.offset >= vertexData.length)
+				{
+					return null;
+				}
+				
+				if (this.buffer == null)
+				{
+					this.buffer = ByteBuffer.allocateDirect(AbstractRenderBuffer.FULL_SIZED_BUFFER).order(ByteOrder.nativeOrder());
+				}
+				
+				int size = Math.min(vertexData.length - this.offset, AbstractRenderBuffer.FULL_SIZED_BUFFER);
+				this.buffer.clear();
+				this.buffer.put(vertexData, this.offset, size);
+				this.buffer.flip();
+				this.offset += size;
+				return this.buffer;
+			}
+		};
+	}
+	
+	@Override
+	public LodQuadBuilder.BufferFiller makeOpaqueBufferFiller(EGpuUploadMethod method) { return makeBufferFiller(this.opaqueVertexData, method); }
+	@Override
+	public LodQuadBuilder.BufferFiller makeTransparentBufferFiller(EGpuUploadMethod method) { return makeBufferFiller(this.transparentVertexData, method); }
+	private static LodQuadBuilder.BufferFiller makeBufferFiller(byte[] vertexData, EGpuUploadMethod method)
+	{
+		return new LodQuadBuilder.BufferFiller()
+		{
+			int offset = 0;
+			
+			@Override
+			public boolean fill(GLVertexBuffer vbo)
+			{
+				if (this.offset >= vertexData.length)
+				{
+					vbo.setVertexCount(0);
+					return false;
+				}
+				
+				int size = Math.min(vertexData.length - this.offset, AbstractRenderBuffer.FULL_SIZED_BUFFER);
+				ByteBuffer buffer = vbo.mapBuffer(size, method, AbstractRenderBuffer.FULL_SIZED_BUFFER);
+				if (buffer == null)
+				{
+					throw new NullPointerException("mapBuffer returned null");
+				}
+				buffer.clear();
+				buffer.put(vertexData, this.offset, size);
+				buffer.rewind();
+				vbo.unmapBuffer();
+				vbo.setVertexCount(size / LodUtil.LOD_VERTEX_FORMAT.getByteSize());
+				
+				this.offset += size;
+				return this.offset < vertexData.length;
+			}
+		};
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getOpaqueByteCount() { return this.opaqueVertexData.length; }
+	public int getTransparentByteCount() { return this.transparentVertexData.length; }
+	
+}
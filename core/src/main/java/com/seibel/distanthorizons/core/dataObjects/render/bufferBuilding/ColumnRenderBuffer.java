@@ -84,7 +84,7 @@ public class ColumnRenderBuffer extends AbstractRenderBuffer
 	//==================//
 	
 	/** Should be run on a DH thread. */
-	public void uploadBuffer(LodQuadBuilder builder, EGpuUploadMethod gpuUploadMethod) throws InterruptedException
+	public void uploadBuffer(IVertexBufferSource builder, EGpuUploadMethod gpuUploadMethod) throws InterruptedException
 	{
 		LodUtil.assertTrue(Thread.currentThread().getName().startsWith(ThreadUtil.THREAD_NAME_PREFIX), "Buffer uploading needs to be done on a DH thread to prevent locking up any MC threads.");
 		
@@ -143,7 +143,7 @@ public class ColumnRenderBuffer extends AbstractRenderBuffer
 			
 		}
 	}
-	private void uploadBuffersUsingUploadMethod(LodQuadBuilder builder, EGpuUploadMethod gpuUploadMethod) throws InterruptedException
+	private void uploadBuffersUsingUploadMethod(IVertexBufferSource builder, EGpuUploadMethod gpuUploadMethod) throws InterruptedException
 	{
 		if (gpuUploadMethod.useEarlyMapping)
 		{
@@ -159,7 +159,7 @@ public class ColumnRenderBuffer extends AbstractRenderBuffer
 	
 	
 	
-	private void uploadBuffersMapped(LodQuadBuilder builder, EGpuUploadMethod method)
+	private void uploadBuffersMapped(IVertexBufferSource builder, EGpuUploadMethod method)
 	{
 		// opaque vbos //
 		
@@ -195,7 +195,7 @@ public class ColumnRenderBuffer extends AbstractRenderBuffer
 		}
 	}
 	
-	private void uploadBuffersDirect(LodQuadBuilder builder, EGpuUploadMethod method) throws InterruptedException
+	private void uploadBuffersDirect(IVertexBufferSource builder, EGpuUploadMethod method) throws InterruptedException
 	{
 		this.vbos = ColumnRenderBufferBuilder.resizeBuffer(this.vbos, builder.getCurrentNeededOpaqueVertexBufferCount());
 		uploadBuffersDirect(this.vbos, builder.makeOpaqueVertexBuffers(), method);
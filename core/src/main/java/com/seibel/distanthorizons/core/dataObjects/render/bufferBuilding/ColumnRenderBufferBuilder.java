@@ -29,6 +29,7 @@ import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.pos.DhBlockPos;
 import com.seibel.distanthorizons.core.render.glObject.GLProxy;
 import com.seibel.distanthorizons.core.render.glObject.buffer.GLVertexBuffer;
+import com.seibel.distanthorizons.core.sql.MeshDataRepo;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.RenderDataPointUtil;
 import com.seibel.distanthorizons.core.util.objects.Reference;
@@ -37,8 +38,11 @@ import com.seibel.distanthorizons.core.dataObjects.render.columnViews.ColumnArra
 import com.seibel.distanthorizons.core.util.threading.ThreadPools;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteOrder;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -56,6 +60,14 @@ public class ColumnRenderBufferBuilder
 	public static final int MAX_NUMBER_OF_CONCURRENT_CALLS_PER_THREAD = 3;
 	public static int maxNumberOfConcurrentCalls = MAX_NUMBER_OF_CONCURRENT_CALLS_PER_THREAD;
 	
+	/** 
+	 * Should be incremented whenever the quad building or vertex format changes 
+	 * so meshes cached by previous versions are rebuilt. 
+	 */
+	private static final int MESH_FORMAT_VERSION = 1;
+	/** used in place of a content hash for missing adjacent render sources */
+	private static final long MISSING_ADJACENT_SOURCE_HASH = 0x9E3779B97F4A7C15L;
+	
 	
 	
 	
@@ -63,9 +75,10 @@ public class ColumnRenderBufferBuilder
 	// vbo building //
 	//==============//
 	
+	/** @param meshDataRepo if not null built meshes will be cached in and loaded from this repo */
 	public static CompletableFuture<ColumnRenderBuffer> buildBuffersAsync(
 			IDhClientLevel clientLevel, Reference<ColumnRenderBuffer> renderBufferRef,
-			ColumnRenderSource renderSource, ColumnRenderSource[] adjData)
+			ColumnRenderSource renderSource, ColumnRenderSource[] adjData, @Nullable MeshDataRepo meshDataRepo)
 	{
 		ThreadPoolExecutor bufferBuilderExecutor = ThreadPools.getBufferBuilderExecutor();
 		ThreadPoolExecutor bufferUploaderExecutor = ThreadPools.getBufferUploaderExecutor();
@@ -93,6 +106,27 @@ public class ColumnRenderBufferBuilder
 						skyLightCullingBelow = Math.max(skyLightCullingBelow, clientLevel.getMinY());
 						
 						
+						// debug rendering changes the quads' colors, so those meshes shouldn't be cached
+						boolean useMeshCache = meshDataRepo != null
+								&& Config.Client.Advanced.GpuBuffers.cacheBuiltMeshes.get()
+								&& Config.Client.Advanced.Debugging.debugRendering.get() == EDebugRendering.OFF;
+						
+						long renderSourceHash = 0;
+						long buildInputHash = 0;
+						if (useMeshCache)
+						{
+							renderSourceHash = renderSource.getContentHash();
+							buildInputHash = getBuildInputHash(clientLevel, renderSource, adjData, enableTransparency, enableSkyLightCulling, skyLightCullingBelow);
+							
+							ColumnMeshData cachedMesh = tryLoadCachedMesh(meshDataRepo, renderSource, renderSourceHash, buildInputHash);
+							if (cachedMesh != null)
+							{
+								EVENT_LOGGER.trace("RenderRegion cached mesh found @ " + renderSource.sectionPos);
+								return cachedMesh;
+							}
+						}
+						
+						
 						long builderStartTime = System.currentTimeMillis();
 						
 						LodQuadBuilder builder = new LodQuadBuilder(enableSkyLightCulling, (short) (skyLightCullingBelow - clientLevel.getMinY()), enableTransparency);
@@ -102,7 +136,14 @@ public class ColumnRenderBufferBuilder
 						long buildMs = builderEndTime - builderStartTime;
 						LOGGER.debug("RenderRegion end QuadBuild @ " + renderSource.sectionPos + " took: " + buildMs);
 						
-						return builder;
+						if (!useMeshCache)
+						{
+							return builder;
+						}
+						
+						ColumnMeshData meshData = ColumnMeshData.fromQuadBuilder(builder);
+						queueMeshSave(meshDataRepo, meshData, renderSource, renderSourceHash, buildInputHash);
+						return meshData;
 					}
 					catch (UncheckedInterruptedException e)
 					{
@@ -114,7 +155,7 @@ public class ColumnRenderBufferBuilder
 						throw e3;
 					}
 				}, bufferBuilderExecutor)
-				.thenApplyAsync((quadBuilder) ->
+				.thenApplyAsync((vertexSource) ->
 				{
 					try
 					{
@@ -128,7 +169,7 @@ public class ColumnRenderBufferBuilder
 						
 						try
 						{
-							buffer.uploadBuffer(quadBuilder, GLProxy.getInstance().getGpuUploadMethod());
+							buffer.uploadBuffer(vertexSource, GLProxy.getInstance().getGpuUploadMethod());
 							LodUtil.assertTrue(buffer.buffersUploaded);
 							EVENT_LOGGER.trace("RenderRegion end Upload @ " + renderSource.sectionPos);
 							return buffer;
@@ -175,6 +216,90 @@ public class ColumnRenderBufferBuilder
 					}
 				});
 	}
+	
+	
+	
+	//============//
+	// mesh cache //
+	//============//
+	
+	/** 
+	 * Hashes everything besides the render source itself that changes the built mesh. <br>
+	 * Uses the adjacent sources' content hashes so neighbors that change between sessions invalidate the mesh.
+	 */
+	private static long getBuildInputHash(
+			IDhClientLevel clientLevel, ColumnRenderSource renderSource, ColumnRenderSource[] adjData,
+			boolean enableTransparency, boolean enableSkyLightCulling, int skyLightCullingBelow)
+	{
+		long hash = MESH_FORMAT_VERSION;
+		hash = 31 * hash + renderSource.getDataDetailLevel();
+		for (ColumnRenderSource adjSource : adjData)
+		{
+			hash = 31 * hash + (adjSource != null ? adjSource.getContentHash() : MISSING_ADJACENT_SOURCE_HASH);
+		}
+		
+		hash = 31 * hash + (enableTransparency ? 1 : 0);
+		hash = 31 * hash + (enableSkyLightCulling ? 1 : 0);
+		hash = 31 * hash + skyLightCullingBelow;
+		hash = 31 * hash + clientLevel.getMinY();
+		hash = 31 * hash + Config.Client.Advanced.Graphics.AdvancedGraphics.earthCurveRatio.get();
+		hash = 31 * hash + Double.doubleToLongBits(Config.Client.Advanced.Graphics.AdvancedGraphics.saturationMultiplier.get());
+		hash = 31 * hash + Double.doubleToLongBits(Config.Client.Advanced.Graphics.AdvancedGraphics.brightnessMultiplier.get());
+		// cached vertex data is stored in native order
+		hash = 31 * hash + (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 1 : 0);
+		return hash;
+	}
+	
+	/** @return null if no valid mesh was cached */
+	@Nullable
+	private static ColumnMeshData tryLoadCachedMesh(MeshDataRepo meshDataRepo, ColumnRenderSource renderSource, long renderSourceHash, long buildInputHash)
+	{
+		try
+		{
+			return ColumnMeshData.tryLoadFromRepo(meshDataRepo, renderSource.sectionPos, renderSourceHash, buildInputHash);
+		}
+		catch (Exception e)
+		{
+			// the mesh can just be re-built
+			LOGGER.warn("Unable to load cached mesh at pos: [" + renderSource.sectionPos + "], error: [" + e.getMessage() + "].", e);
+			return null;
+		}
+	}
+	
+	private static void queueMeshSave(MeshDataRepo meshDataRepo, ColumnMeshData meshData, ColumnRenderSource renderSource, long renderSourceHash, long buildInputHash)
+	{
+		ThreadPoolExecutor fileHandlerExecutor = ThreadPools.getFileHandlerExecutor();
+		if (fileHandlerExecutor == null || fileHandlerExecutor.isTerminated())
+		{
+			return;
+		}
+		
+		try
+		{
+			fileHandlerExecutor.execute(() ->
+			{
+				try
+				{
+					meshData.saveToRepo(meshDataRepo, renderSource.sectionPos, renderSourceHash, buildInputHash);
+				}
+				catch (Exception e)
+				{
+					LOGGER.warn("Unable to cache mesh at pos: [" + renderSource.sectionPos + "], error: [" + e.getMessage() + "].", e);
+				}
+			});
+		}
+		catch (RejectedExecutionException ignore)
+		{
+			// the executor was shut down, the mesh will be re-built next time
+		}
+	}
+	
+	
+	
+	//===============//
+	// quad building //
+	//===============//
+	
 	private static void makeLodRenderData(LodQuadBuilder quadBuilder, ColumnRenderSource renderSource, ColumnRenderSource[] adjRegions)
 	{
 		// Variable initialization
@@ -0,0 +1,48 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.dataObjects.render.bufferBuilding;
+
+import com.seibel.distanthorizons.api.enums.config.EGpuUploadMethod;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Anything that can provide packed vertex data to a {@link ColumnRenderBuffer}.
+ *
+ * @see LodQuadBuilder
+ * @see ColumnMeshData
+ */
+public interface IVertexBufferSource
+{
+	/** Returns how many GpuBuffers will be needed to render opaque quads. */
+	int getCurrentNeededOpaqueVertexBufferCount();
+	/** Returns how many GpuBuffers will be needed to render transparent quads. */
+	int getCurrentNeededTransparentVertexBufferCount();
+	
+	/** The returned {@link ByteBuffer}s may be re-used between calls to {@link Iterator#next()}. */
+	Iterator<ByteBuffer> makeOpaqueVertexBuffers();
+	/** The returned {@link ByteBuffer}s may be re-used between calls to {@link Iterator#next()}. */
+	Iterator<ByteBuffer> makeTransparentVertexBuffers();
+	
+	LodQuadBuilder.BufferFiller makeOpaqueBufferFiller(EGpuUploadMethod method);
+	LodQuadBuilder.BufferFiller makeTransparentBufferFiller(EGpuUploadMethod method);
+	
+}
@@ -39,7 +39,7 @@ import org.apache.logging.log4j.Logger;
  *
  * Note: the magic number 6 you see throughout this method represents the number of sides on a cube.
  */
-public class LodQuadBuilder
+public class LodQuadBuilder implements IVertexBufferSource
 {
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
 	
@@ -374,6 +374,7 @@ public class LodQuadBuilder
 	// buffer setup //
 	//==============//
 	
+	@Override
 	public Iterator<ByteBuffer> makeOpaqueVertexBuffers()
 	{
 		return new Iterator<ByteBuffer>()
@@ -442,6 +443,7 @@ public class LodQuadBuilder
 		};
 	}
 	
+	@Override
 	public Iterator<ByteBuffer> makeTransparentVertexBuffers()
 	{
 		return new Iterator<ByteBuffer>()
@@ -517,6 +519,7 @@ public class LodQuadBuilder
 		
 	}
 	
+	@Override
 	public BufferFiller makeOpaqueBufferFiller(EGpuUploadMethod method)
 	{
 		return new BufferFiller()
@@ -597,6 +600,7 @@ public class LodQuadBuilder
 		};
 	}
 	
+	@Override
 	public BufferFiller makeTransparentBufferFiller(EGpuUploadMethod method)
 	{
 		return new BufferFiller()
@@ -710,8 +714,10 @@ public class LodQuadBuilder
 	}
 	
 	/** Returns how many GpuBuffers will be needed to render opaque quads in this builder. */
+	@Override
 	public int getCurrentNeededOpaqueVertexBufferCount() { return MathUtil.ceilDiv(this.getCurrentOpaqueQuadsCount(), AbstractRenderBuffer.MAX_QUADS_PER_BUFFER); }
 	/** Returns how many GpuBuffers will be needed to render transparent quads in this builder. */
+	@Override
 	public int getCurrentNeededTransparentVertexBufferCount()
 	{
 		if (!this.doTransparency)
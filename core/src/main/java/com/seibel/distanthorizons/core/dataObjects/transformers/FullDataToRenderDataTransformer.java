@@ -56,6 +56,12 @@ public class FullDataToRenderDataTransformer
 	private static final IWrapperFactory WRAPPER_FACTORY = SingletonInjector.INSTANCE.get(IWrapperFactory.class);
 	private static final IMinecraftClientWrapper MC = SingletonInjector.INSTANCE.get(IMinecraftClientWrapper.class);
 	
+	/** 
+	 * Minor garbage collection optimization. <br>
+	 * Used when computing block colors so we don't have to create a new {@link DhBlockPos} for every data point.
+	 */
+	private static final ThreadLocal<DhBlockPos> COLOR_BLOCK_POS_REF = ThreadLocal.withInitial(() -> new DhBlockPos());
+	
 	
 	
 	//==============================//
@@ -237,6 +243,10 @@ public class FullDataToRenderDataTransformer
 		FullDataPointIdMap fullDataMapping = data.getMapping();
 		HashSet<IBlockStateWrapper> blockStatesToIgnore = WRAPPER_FACTORY.getRendererIgnoredBlocks(level.getLevelWrapper());
 		
+		DhBlockPos colorBlockPos = COLOR_BLOCK_POS_REF.get();
+		colorBlockPos.x = blockX;
+		colorBlockPos.z = blockZ;
+		
 		boolean isVoid = true;
 		int colorToApplyToNextBlock = -1;
 		int columnOffset = 0;
@@ -284,7 +294,8 @@ public class FullDataToRenderDataTransformer
 			{
 				if (colorBelowWithAvoidedBlocks)
 				{
-					colorToApplyToNextBlock = level.computeBaseColor(new DhBlockPos(blockX, bottomY + level.getMinY(), blockZ), biome, block);
+					colorBlockPos.y = bottomY + level.getMinY();
+					colorToApplyToNextBlock = level.computeBaseColor(colorBlockPos, biome, block);
 				}
 				
 				// don't add this block
@@ -296,7 +307,8 @@ public class FullDataToRenderDataTransformer
 			if (colorToApplyToNextBlock == -1)
 			{
 				// use this block's color
-				color = level.computeBaseColor(new DhBlockPos(blockX, bottomY + level.getMinY(), blockZ), biome, block);
+				colorBlockPos.y = bottomY + level.getMinY();
+				color = level.computeBaseColor(colorBlockPos, biome, block);
 			}
 			else
 			{
@@ -19,18 +19,21 @@
 
 package com.seibel.distanthorizons.core.dataObjects.transformers;
 
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPointIdMap;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
 import com.seibel.distanthorizons.core.dependencyInjection.SingletonInjector;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.util.FullDataPointUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.ChunkSectionPalette;
 import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper;
 import com.seibel.distanthorizons.core.wrapperInterfaces.IWrapperFactory;
-import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Arrays;
+
 public class LodDataBuilder
 {
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
@@ -51,6 +54,10 @@ public class LodDataBuilder
 		return (byte)((blockLight << 4) + skyLight);
 	}
 	
+	/** 
+	 * The returned accessor is pooled, 
+	 * {@link ChunkSizedFullDataAccessor#release()} should be called once the caller is done with it. 
+	 */
 	public static ChunkSizedFullDataAccessor createChunkData(IChunkWrapper chunkWrapper)
 	{
 		if (!canGenerateLodFromChunk(chunkWrapper))
@@ -59,18 +66,24 @@ public class LodDataBuilder
 		}
 		
 		
-		ChunkSizedFullDataAccessor chunkData = new ChunkSizedFullDataAccessor(chunkWrapper.getChunkPos());
-		int minBuildHeight = chunkWrapper.getMinFilledHeight();
+		// columns are encoded directly into the pooled accessor's backing array
+		ChunkSizedFullDataAccessor chunkData = ChunkSizedFullDataAccessor.getPooledOrCreate(chunkWrapper.getChunkPos());
+		FullDataPointIdMap mapping = chunkData.getMapping();
+		int minBuildHeight = chunkWrapper.getMinBuildHeight();
+		int minFilledHeight = chunkWrapper.getMinFilledHeight();
+		
+		// sections are only loaded once they're needed, 
+		// since everything below the min filled height is skipped
+		SectionIdCache[] sectionIdCaches = new SectionIdCache[chunkWrapper.getSectionCount()];
 		
 		for (int x = 0; x < LodUtil.CHUNK_WIDTH; x++)
 		{
 			for (int z = 0; z < LodUtil.CHUNK_WIDTH; z++)
 			{
-				LongArrayList longs = new LongArrayList(chunkWrapper.getHeight() / 4);
+				chunkData.beginColumn(x, z);
 				int lastY = chunkWrapper.getMaxBuildHeight();
 				IBiomeWrapper biome = chunkWrapper.getBiome(x, lastY, z);
-				IBlockStateWrapper blockState = AIR;
-				int mappedId = chunkData.getMapping().addIfNotPresentAndGetId(biome, blockState);
+				int mappedId = mapping.addIfNotPresentAndGetId(biome, AIR);
 				
 				/*
 				// FIXME: The +1 offset to reproduce the old behavior. Remove this when we get per-face lighting
@@ -112,23 +125,23 @@ public class LodDataBuilder
 				
 				*/
 				
-				for (; y >= minBuildHeight; y--)
+				for (; y >= minFilledHeight; y--)
 				{
-					IBiomeWrapper newBiome = chunkWrapper.getBiome(x, y, z);
-					IBlockStateWrapper newBlockState = chunkWrapper.getBlockState(x, y, z);
-					
-					/*
-					byte newLight = (byte) ((chunkWrapper.getBlockLight(x, y + 1, z) << 4) + chunkWrapper.getSkyLight(x, y + 1, z));
-					*/
-					byte newLight = kawaChunkLightStorageNPEWorkaround(chunkWrapper, x, y + 1, z);
+					int sectionIndex = chunkWrapper.getSectionIndex(y);
+					SectionIdCache section = sectionIdCaches[sectionIndex];
+					if (section == null)
+					{
+						section = new SectionIdCache(chunkWrapper, sectionIndex, mapping);
+						sectionIdCaches[sectionIndex] = section;
+					}
 					
-					if (!newBiome.equals(biome) || !newBlockState.equals(blockState))
+					int newMappedId = section.getMappedId(x, y - section.minY, z);
+					if (newMappedId != mappedId)
 					{
-						longs.add(FullDataPointUtil.encode(mappedId, lastY - y, y + 1 - chunkWrapper.getMinBuildHeight(), light));
-						biome = newBiome;
-						blockState = newBlockState;
-						mappedId = chunkData.getMapping().addIfNotPresentAndGetId(biome, blockState);
-						light = newLight;
+						chunkData.appendToColumn(FullDataPointUtil.encode(mappedId, lastY - y, y + 1 - minBuildHeight, light));
+						mappedId = newMappedId;
+						// lighting is only needed at the top of each data point
+						light = kawaChunkLightStorageNPEWorkaround(chunkWrapper, x, y + 1, z);
 						lastY = y;
 					}
 //                    else if (newLight != light) {
@@ -136,13 +149,22 @@ public class LodDataBuilder
 //                        light = newLight;
 //                        lastY = y;
 //                    }
+					
+					if (section.isUniform())
+					{
+						// every block below this one in the section is identical, 
+						// skip to the bottom of the section
+						y = Math.max(section.minY, minFilledHeight);
+					}
 				}
-				longs.add(FullDataPointUtil.encode(mappedId, lastY - y, y + 1 - chunkWrapper.getMinBuildHeight(), light));
-				
-				chunkData.setSingleColumn(longs.toLongArray(), x, z);
+				chunkData.appendToColumn(FullDataPointUtil.encode(mappedId, lastY - y, y + 1 - minBuildHeight, light));
 			}
 		}
-		if (!canGenerateLodFromChunk(chunkWrapper)) return null;
+		if (!canGenerateLodFromChunk(chunkWrapper))
+		{
+			chunkData.release();
+			return null;
+		}
 		LodUtil.assertTrue(chunkData.emptyCount() == 0);
 		return chunkData;
 	}
@@ -153,4 +175,79 @@ public class LodDataBuilder
 		return chunk != null && chunk.isLightCorrect(); // TODO client only chunks return chunks with bad lighting, preventing chunk building (or transparent only chunks)
 	}
 	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	/** 
+	 * Caches the {@link FullDataPointIdMap} ID for each block state/biome palette combination in a chunk section,
+	 * so the ID map only has to be queried once per combination instead of once per block.
+	 */
+	private static class SectionIdCache
+	{
+		/** 
+		 * If the palettes have more combinations than this the IDs won't be cached. 
+		 * This should only happen in extremely unusual sections.
+		 */
+		private static final int MAX_CACHED_ID_COUNT = 4096;
+		
+		public final int minY;
+		private final ChunkSectionPalette<IBlockStateWrapper> blockStates;
+		private final ChunkSectionPalette<IBiomeWrapper> biomes;
+		private final FullDataPointIdMap mapping;
+		
+		/** indexed by: blockStatePaletteIndex * biomePaletteSize + biomePaletteIndex, -1 if not mapped yet, null if too large to cache */
+		private final int[] mappedIdByPaletteIndices;
+		
+		
+		
+		public SectionIdCache(IChunkWrapper chunkWrapper, int sectionIndex, FullDataPointIdMap mapping)
+		{
+			this.minY = chunkWrapper.getSectionMinY(sectionIndex);
+			this.blockStates = chunkWrapper.getBlockStateSection(sectionIndex);
+			this.biomes = chunkWrapper.getBiomeSection(sectionIndex);
+			this.mapping = mapping;
+			
+			int combinationCount = this.blockStates.getPaletteSize() * this.biomes.getPaletteSize();
+			if (combinationCount <= MAX_CACHED_ID_COUNT)
+			{
+				this.mappedIdByPaletteIndices = new int[combinationCount];
+				Arrays.fill(this.mappedIdByPaletteIndices, -1);
+			}
+			else
+			{
+				this.mappedIdByPaletteIndices = null;
+			}
+		}
+		
+		
+		
+		/** @return true if every block in this section has the same block state and biome */
+		public boolean isUniform() { return this.blockStates.isUniform() && this.biomes.isUniform(); }
+		
+		/** all positions are relative to the section */
+		public int getMappedId(int relX, int relY, int relZ)
+		{
+			int blockStateIndex = this.blockStates.getPaletteIndex(relX, relY, relZ);
+			int biomeIndex = this.biomes.getPaletteIndex(relX, relY, relZ);
+			if (this.mappedIdByPaletteIndices == null)
+			{
+				return this.mapping.addIfNotPresentAndGetId(this.biomes.getPaletteValue(biomeIndex), this.blockStates.getPaletteValue(blockStateIndex));
+			}
+			
+			
+			int cacheIndex = blockStateIndex * this.biomes.getPaletteSize() + biomeIndex;
+			int mappedId = this.mappedIdByPaletteIndices[cacheIndex];
+			if (mappedId == -1)
+			{
+				mappedId = this.mapping.addIfNotPresentAndGetId(this.biomes.getPaletteValue(biomeIndex), this.blockStates.getPaletteValue(blockStateIndex));
+				this.mappedIdByPaletteIndices[cacheIndex] = mappedId;
+			}
+			return mappedId;
+		}
+		
+	}
+	
 }
@@ -0,0 +1,228 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.file;
+
+import com.seibel.distanthorizons.core.config.Config;
+import com.seibel.distanthorizons.core.file.fullDatafile.FullDataMetaFile;
+import com.seibel.distanthorizons.core.file.metaData.AbstractMetaDataContainerFile;
+import com.seibel.distanthorizons.core.file.renderfile.RenderDataMetaFile;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.util.ThreadUtil;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Removes idle {@link FullDataMetaFile} and {@link RenderDataMetaFile} handles
+ * from a file handler's loaded file map so they don't accumulate forever. <br><br>
+ *
+ * A handle is only evicted if it is clean (see {@link AbstractMetaDataContainerFile#canBeEvicted()}),
+ * hasn't been accessed for {@link MetaFileHandleEvictor#MS_BEFORE_IDLE_EVICTION}
+ * and is outside the keep radius of every player. <br>
+ * Evicted handles will be re-created from the database the next time they are requested.
+ *
+ * @see DataSourceReferenceTracker
+ */
+public class MetaFileHandleEvictor<TMetaFile extends AbstractMetaDataContainerFile>
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	private static final boolean LOG_EVICTIONS = false;
+	
+	/** How often eviction passes will run */
+	private static final long MS_BETWEEN_EVICTION_CHECKS = TimeUnit.SECONDS.toMillis(10);
+	/** How long a handle has to go unused before it can be evicted */
+	private static final long MS_BEFORE_IDLE_EVICTION = TimeUnit.SECONDS.toMillis(60);
+	
+	/** 
+	 * How far beyond the render distance handles will be kept, 
+	 * prevents handles along the render distance's edge from constantly being evicted and re-loaded. 
+	 */
+	private static final int KEEP_RADIUS_MARGIN_IN_BLOCKS = 8 * LodUtil.CHUNK_WIDTH;
+	
+	/** shared between every evictor since eviction passes are short and infrequent */
+	private static final ThreadPoolExecutor EVICTION_THREAD = ThreadUtil.makeSingleThreadPool("MetaFileHandleEvictor", ThreadUtil.MINIMUM_RELATIVE_PRIORITY);
+	
+	
+	private final ConcurrentHashMap<DhSectionPos, TMetaFile> loadedMetaFileBySectionPos;
+	/** additional checks the file handler may want to run before a handle is evicted */
+	private final Predicate<TMetaFile> canEvictPredicate;
+	
+	private final AtomicBoolean evictionRunning = new AtomicBoolean(false);
+	private volatile long lastEvictionMsTime = System.currentTimeMillis();
+	private final AtomicLong totalEvictedCount = new AtomicLong(0);
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public MetaFileHandleEvictor(ConcurrentHashMap<DhSectionPos, TMetaFile> loadedMetaFileBySectionPos, Predicate<TMetaFile> canEvictPredicate)
+	{
+		this.loadedMetaFileBySectionPos = loadedMetaFileBySectionPos;
+		this.canEvictPredicate = canEvictPredicate;
+	}
+	
+	
+	
+	//==========//
+	// eviction //
+	//==========//
+	
+	/**
+	 * Queues an eviction pass if enough time has passed since the last one. <br>
+	 * Can be called every tick.
+	 *
+	 * @param playerPositions handles within keepRadiusInBlocks of any of these positions won't be evicted.
+	 *                        If empty, handles will be evicted based on their idle time alone.
+	 * @param keepRadiusInBlocks generally the LOD render distance
+	 */
+	public void tryQueueEviction(Collection<DhBlockPos2D> playerPositions, int keepRadiusInBlocks)
+	{
+		long nowMs = System.currentTimeMillis();
+		if (nowMs - this.lastEvictionMsTime < MS_BETWEEN_EVICTION_CHECKS
+			|| EVICTION_THREAD.isTerminated()
+			|| !this.evictionRunning.compareAndSet(false, true))
+		{
+			return;
+		}
+		this.lastEvictionMsTime = nowMs;
+		
+		
+		// copy the positions so the caller can re-use their collection
+		ArrayList<DhBlockPos2D> playerPosList = new ArrayList<>(playerPositions);
+		EVICTION_THREAD.execute(() ->
+		{
+			try
+			{
+				int evictedCount = this.evictIdleHandles(playerPosList, keepRadiusInBlocks);
+				if (LOG_EVICTIONS && evictedCount != 0)
+				{
+					LOGGER.info("Evicted [" + evictedCount + "] idle meta file handles, [" + this.loadedMetaFileBySectionPos.size() + "] remain.");
+				}
+			}
+			catch (Exception e)
+			{
+				LOGGER.error("Unexpected meta file eviction exception: " + e.getMessage(), e);
+			}
+			finally
+			{
+				this.evictionRunning.set(false);
+			}
+		});
+	}
+	
+	/** @return the number of handles that were evicted */
+	private int evictIdleHandles(ArrayList<DhBlockPos2D> playerPosList, int keepRadiusInBlocks)
+	{
+		long expiredAccessMsTime = System.currentTimeMillis() - MS_BEFORE_IDLE_EVICTION;
+		
+		int evictedCount = 0;
+		for (Map.Entry<DhSectionPos, TMetaFile> entry : this.loadedMetaFileBySectionPos.entrySet())
+		{
+			DhSectionPos pos = entry.getKey();
+			TMetaFile metaFile = entry.getValue();
+			
+			if (metaFile.getLastAccessedMsTime() > expiredAccessMsTime
+				|| isNearAnyPlayer(pos, playerPosList, keepRadiusInBlocks)
+				|| !this.canEvict(metaFile))
+			{
+				continue;
+			}
+			
+			
+			if (!this.loadedMetaFileBySectionPos.remove(pos, metaFile))
+			{
+				// the handle was replaced or removed by another thread
+				continue;
+			}
+			
+			// writes can't be queued while the handle is being evicted, 
+			// so any write that started before this point is either in the queue or will go to a new handle
+			if (!this.canEvictPredicate.test(metaFile) || !metaFile.tryEvict())
+			{
+				// another thread started using this handle between the check and the removal,
+				// put it back so the queued work isn't lost
+				TMetaFile replacementFile = this.loadedMetaFileBySectionPos.putIfAbsent(pos, metaFile);
+				if (replacementFile != null)
+				{
+					// a new handle was already created, make sure this handle's changes are saved
+					metaFile.flushAndSaveAsync();
+				}
+				continue;
+			}
+			
+			
+			metaFile.onEvicted();
+			evictedCount++;
+		}
+		
+		this.totalEvictedCount.addAndGet(evictedCount);
+		return evictedCount;
+	}
+	
+	/** @return the LOD render distance in blocks plus {@link MetaFileHandleEvictor#KEEP_RADIUS_MARGIN_IN_BLOCKS} */
+	public static int getRenderDistanceKeepRadiusInBlocks() { return (Config.Client.Advanced.Graphics.Quality.lodChunkRenderDistanceRadius.get() * LodUtil.CHUNK_WIDTH) + KEEP_RADIUS_MARGIN_IN_BLOCKS; }
+	
+	private boolean canEvict(TMetaFile metaFile) { return metaFile.canBeEvicted() && this.canEvictPredicate.test(metaFile); }
+	
+	private static boolean isNearAnyPlayer(DhSectionPos pos, ArrayList<DhBlockPos2D> playerPosList, int keepRadiusInBlocks)
+	{
+		int halfBlockWidth = pos.getBlockWidth() / 2;
+		int centerX = pos.getCenterBlockPosX();
+		int centerZ = pos.getCenterBlockPosZ();
+		
+		for (int i = 0; i < playerPosList.size(); i++)
+		{
+			DhBlockPos2D playerPos = playerPosList.get(i);
+			
+			// distance from the player to the closest edge of the section
+			int distX = Math.max(0, Math.abs(playerPos.x - centerX) - halfBlockWidth);
+			int distZ = Math.max(0, Math.abs(playerPos.z - centerZ) - halfBlockWidth);
+			if (Math.max(distX, distZ) <= keepRadiusInBlocks)
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getLiveHandleCount() { return this.loadedMetaFileBySectionPos.size(); }
+	public long getTotalEvictedCount() { return this.totalEvictedCount.get(); }
+	
+}
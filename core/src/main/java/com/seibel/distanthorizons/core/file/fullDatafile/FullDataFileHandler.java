@@ -20,21 +20,28 @@
 package com.seibel.distanthorizons.core.file.fullDatafile;
 
 import com.seibel.distanthorizons.core.config.Config;
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.SingleColumnFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.loader.AbstractFullDataSourceLoader;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.HighDetailIncompleteFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.LowDetailIncompleteFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IIncompleteFullDataSource;
+import com.seibel.distanthorizons.core.file.MetaFileHandleEvictor;
 import com.seibel.distanthorizons.core.file.structure.AbstractSaveStructure;
 import com.seibel.distanthorizons.core.level.IDhLevel;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.logging.f3.F3Screen;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
 import com.seibel.distanthorizons.core.pos.DhLodPos;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.CompleteFullDataSource;
 import com.seibel.distanthorizons.core.render.renderer.DebugRenderer;
+import com.seibel.distanthorizons.core.sql.DatabaseMaintainer;
+import com.seibel.distanthorizons.core.sql.FullDataPaletteRepo;
 import com.seibel.distanthorizons.core.sql.FullDataRepo;
-import com.seibel.distanthorizons.core.sql.MetaDataDto;
+import com.seibel.distanthorizons.core.file.metaData.BaseMetaData;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -53,6 +60,9 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
 	
 	protected final ConcurrentHashMap<DhSectionPos, FullDataMetaFile> loadedMetaFileBySectionPos = new ConcurrentHashMap<>();
+	protected final MetaFileHandleEvictor<FullDataMetaFile> metaFileHandleEvictor;
+	private final F3Screen.NestedMessage f3Message;
+	private final DatabaseMaintainer databaseMaintainer;
 	
 	protected final IDhLevel level;
 	protected final File saveDir;
@@ -63,6 +73,11 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 	@Override
 	public FullDataRepo getRepo() { return this.fullDataRepo; }
 	
+	public final FullDataPaletteRepo paletteRepo;
+	protected final FullDataPalette palette;
+	@Override
+	public FullDataPalette getPalette() { return this.palette; }
+	
 	
 	
 	//=============//
@@ -82,7 +97,8 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 		
 		try
 		{
-			this.fullDataRepo = new FullDataRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME);
+			this.fullDataRepo = new FullDataRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME, Config.Client.Advanced.LodBuilding.enableDatabaseSharding.get());
+			this.paletteRepo = new FullDataPaletteRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME);
 		}
 		catch (SQLException e)
 		{
@@ -90,6 +106,12 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 			// or the database update failed
 			throw new RuntimeException(e);
 		}
+		this.palette = new FullDataPalette(this.paletteRepo, level.getLevelWrapper());
+		
+		// evicted positions are tracked so chunk updates for them aren't lost
+		this.metaFileHandleEvictor = new MetaFileHandleEvictor<>(this.loadedMetaFileBySectionPos, this::canEvictFile);
+		this.databaseMaintainer = new DatabaseMaintainer(this.fullDataRepo, new FullDataMaintenanceHandler());
+		this.f3Message = new F3Screen.NestedMessage(this::f3Log);
 	}
 	
 	
@@ -134,6 +156,34 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 		return futureWrapper;
 	}
 	
+	@Override
+	public CompletableFuture<SingleColumnFullDataAccessor> readColumnAsync(DhSectionPos pos, int relativeX, int relativeZ)
+	{
+		this.topDetailLevelRef.updateAndGet(oldDetailLevel -> Math.max(oldDetailLevel, pos.getDetailLevel()));
+		FullDataMetaFile metaFile = this.getLoadOrMakeFile(pos, true);
+		if (metaFile == null)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		
+		// future wrapper necessary in order to handle file read errors
+		CompletableFuture<SingleColumnFullDataAccessor> futureWrapper = new CompletableFuture<>();
+		metaFile.getColumnAsync(relativeX, relativeZ).exceptionally((e) ->
+				{
+					this.removeCorruptedFile(pos, e);
+					
+					futureWrapper.completeExceptionally(e);
+					return null; // return value doesn't matter
+				})
+				.whenComplete((column, e) ->
+				{
+					futureWrapper.complete(column);
+				});
+		
+		return futureWrapper;
+	}
+	
 	@Override
 	public FullDataMetaFile getFileIfExist(DhSectionPos pos) { return this.getLoadOrMakeFile(pos, false); }
 	protected FullDataMetaFile getLoadOrMakeFile(DhSectionPos pos, boolean allowCreateFile)
@@ -141,13 +191,15 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 		FullDataMetaFile metaFile = this.loadedMetaFileBySectionPos.get(pos);
 		if (metaFile != null)
 		{
+			metaFile.markAccessed();
 			return metaFile;
 		}
 		
 		
-		// check if the file exists, but hasn't been loaded
-		MetaDataDto metaDataDto = this.fullDataRepo.getByPrimaryKey(pos.serialize());
-		if (metaDataDto != null)
+		// check if the file exists, but hasn't been loaded,
+		// only the meta data is read here, the data itself is read when the data source is loaded
+		BaseMetaData baseMetaData = this.fullDataRepo.getMetaDataByPrimaryKey(pos.serialize());
+		if (baseMetaData != null)
 		{
 			synchronized (this)
 			{
@@ -157,12 +209,13 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 				metaFile = this.loadedMetaFileBySectionPos.get(pos);
 				if (metaFile != null)
 				{
+					metaFile.markAccessed();
 					return metaFile; // someone else loaded it already.
 				}
 				
 				try
 				{
-					metaFile = FullDataMetaFile.createFromExistingDto(this, this.level, metaDataDto);
+					metaFile = FullDataMetaFile.createFromExistingMetaData(this, this.level, baseMetaData);
 					this.topDetailLevelRef.updateAndGet(oldDetailLevel -> Math.max(oldDetailLevel, pos.getDetailLevel()));
 					this.loadedMetaFileBySectionPos.put(pos, metaFile);
 					return metaFile;
@@ -170,7 +223,7 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 				catch (IOException e)
 				{
 					LOGGER.error("Failed to read meta data file at pos " + pos + ": ", e);
-					this.fullDataRepo.delete(metaDataDto);
+					this.fullDataRepo.deleteByPrimaryKey(pos.serialize());
 				}
 			}
 		}
@@ -198,7 +251,12 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 		
 		// This is a Compare And Swap with expected null value.
 		FullDataMetaFile metaFileCas = this.loadedMetaFileBySectionPos.putIfAbsent(pos, metaFile);
-		return metaFileCas == null ? metaFile : metaFileCas;
+		if (metaFileCas != null)
+		{
+			metaFileCas.markAccessed();
+			return metaFileCas;
+		}
+		return metaFile;
 	}
 	
 	/**
@@ -314,10 +372,19 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 	private void writeChunkDataToMetaFile(DhSectionPos sectionPos, ChunkSizedFullDataAccessor chunkData)
 	{
 		FullDataMetaFile metaFile = this.loadedMetaFileBySectionPos.get(sectionPos);
-		if (metaFile != null)
+		if (metaFile == null)
 		{
-			// there is a file for this position
-			metaFile.addToWriteQueue(chunkData);
+			// the file may have been evicted, 
+			// re-load it from the database (if it was saved) so the update isn't lost
+			metaFile = this.getLoadOrMakeFile(sectionPos, false);
+		}
+		
+		// there is a file for this position
+		while (metaFile != null && !metaFile.addToWriteQueue(chunkData))
+		{
+			// the handle was evicted after it was retrieved,
+			// send the update to a new handle instead so it isn't lost
+			metaFile = this.getLoadOrMakeFile(sectionPos, true);
 		}
 		
 		if (sectionPos.getDetailLevel() <= this.topDetailLevelRef.get())
@@ -479,6 +546,11 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 		LOGGER.error("Error reading Data file [" + pos + "]", exception);
 		
 		this.fullDataRepo.deleteByPrimaryKey(pos.serialize());
+		return this.recreateMetaFile(pos);
+	}
+	
+	private FullDataMetaFile recreateMetaFile(DhSectionPos pos)
+	{
 		// remove the FullDataMetaFile since the old one was corrupted
 		this.loadedMetaFileBySectionPos.remove(pos);
 		// create a new FullDataMetaFile to write new data to
@@ -487,6 +559,50 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 	
 	
 	
+	//================//
+	// handle cleanup //
+	//================//
+	
+	/** 
+	 * Queues removal of idle {@link FullDataMetaFile} handles that are outside the render distance of the given players. <br>
+	 * Can be called every tick, the eviction itself is rate limited and runs on a background thread.
+	 */
+	@Override
+	public void tryEvictIdleFiles(Collection<DhBlockPos2D> playerPositions)
+	{
+		this.metaFileHandleEvictor.tryQueueEviction(playerPositions, MetaFileHandleEvictor.getRenderDistanceKeepRadiusInBlocks());
+		this.fullDataRepo.tryCloseIdleShards();
+	}
+	
+	/** Can be overridden if a file handler needs to keep certain handles loaded. */
+	protected boolean canEvictFile(FullDataMetaFile metaFile) { return true; }
+	
+	/** 
+	 * Verifies, updates and compacts the database while the file handler is idle. <br>
+	 * Can be called every tick, the maintenance itself is rate limited and runs on a background thread.
+	 */
+	@Override
+	public void tryQueueDatabaseMaintenance() { this.databaseMaintainer.tryQueueMaintenance(); }
+	
+	
+	
+	//=========//
+	// F3 menu //
+	//=========//
+	
+	/** Returns what should be displayed in Minecraft's F3 debug menu */
+	private String[] f3Log()
+	{
+		return new String[] {
+			"Full Data File Handler [" + this.level.getLevelWrapper().getDimensionType().getDimensionName() + "]",
+			"  Loaded files: " + this.metaFileHandleEvictor.getLiveHandleCount() + " (evicted: " + this.metaFileHandleEvictor.getTotalEvictedCount() + ")",
+			"  Open database shards: " + this.fullDataRepo.getOpenShardCount(),
+			"  " + this.databaseMaintainer.getProgressString()
+		};
+	}
+	
+	
+	
 	//=========//
 	// cleanup //
 	//=========//
@@ -494,7 +610,50 @@ public class FullDataFileHandler implements IFullDataSourceProvider
 	@Override
 	public void close() {
 		FullDataMetaFile.checkAndLogPhantomDataSourceLifeCycles();
+		this.f3Message.close();
+		this.databaseMaintainer.close();
 		this.fullDataRepo.close();
+		this.paletteRepo.close();
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	private class FullDataMaintenanceHandler implements DatabaseMaintainer.IMaintenanceHandler
+	{
+		@Override
+		public void onCorruptedRowDeleted(DhSectionPos pos)
+		{
+			// if another copy of the row exists (IE in a shard) the loaded file came from that copy and is still valid
+			if (!FullDataFileHandler.this.fullDataRepo.existsWithPrimaryKey(pos.serialize()))
+			{
+				FullDataFileHandler.this.recreateMetaFile(pos);
+			}
+		}
+		
+		@Override
+		public boolean isFormatOutdated(String dataType, byte binaryDataFormatVersion)
+		{
+			byte newestVersion = AbstractFullDataSourceLoader.getNewestSupportedVersion(dataType);
+			return newestVersion != -1 && binaryDataFormatVersion < newestVersion;
+		}
+		
+		@Override
+		public CompletableFuture<Void> rewriteRowAsync(DhSectionPos pos)
+		{
+			FullDataMetaFile metaFile = FullDataFileHandler.this.getLoadOrMakeFile(pos, false);
+			if (metaFile == null)
+			{
+				return CompletableFuture.completedFuture(null);
+			}
+			
+			// saving always uses the newest format
+			metaFile.markNeedsRewrite();
+			return metaFile.flushAndSaveAsync();
+		}
 	}
 	
 }
@@ -31,6 +31,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import com.seibel.distanthorizons.core.config.Config;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.CompleteFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ContiguousFullDataColumnStore;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.SingleColumnFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IIncompleteFullDataSource;
 import com.seibel.distanthorizons.core.file.DataSourceReferenceTracker;
@@ -42,7 +44,6 @@ import com.seibel.distanthorizons.core.pos.DhLodPos;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.dataObjects.fullData.loader.AbstractFullDataSourceLoader;
 import com.seibel.distanthorizons.core.render.renderer.IDebugRenderable;
-import com.seibel.distanthorizons.core.sql.MetaDataDto;
 import com.seibel.distanthorizons.core.util.AtomicsUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.ThreadUtil;
@@ -78,6 +79,8 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	
 	
 	private volatile boolean needsUpdate = false;
+	/** if true the data source will be saved even if no new data was applied, used to update old binary formats */
+	private volatile boolean needsRewrite = false;
 	
 	private final IDhLevel level;
 	private final IFullDataSourceProvider fullDataSourceProvider;
@@ -126,10 +129,10 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	 * @throws IOException if the file was formatted incorrectly
 	 * @throws FileNotFoundException if no file exists for the given path
 	 */
-	public static FullDataMetaFile createFromExistingDto(IFullDataSourceProvider fullDataSourceProvider, IDhLevel level, MetaDataDto metaDataDto) throws IOException { return new FullDataMetaFile(fullDataSourceProvider, level, metaDataDto); }
-	private FullDataMetaFile(IFullDataSourceProvider fullDataSourceProvider, IDhLevel level, MetaDataDto metaDataDto) throws IOException
+	public static FullDataMetaFile createFromExistingMetaData(IFullDataSourceProvider fullDataSourceProvider, IDhLevel level, BaseMetaData baseMetaData) throws IOException { return new FullDataMetaFile(fullDataSourceProvider, level, baseMetaData); }
+	private FullDataMetaFile(IFullDataSourceProvider fullDataSourceProvider, IDhLevel level, BaseMetaData baseMetaData) throws IOException
 	{
-		super(metaDataDto.baseMetaData);
+		super(baseMetaData);
 		checkAndLogPhantomDataSourceLifeCycles();
 		
 		this.fullDataSourceProvider = fullDataSourceProvider;
@@ -256,7 +259,7 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 							// Load the file.
 							IFullDataSource fullDataSource;
 							try (InputStream inputStream = this.getInputStream();
-									DhDataInputStream compressedStream = new DhDataInputStream(inputStream))
+									DhDataInputStream compressedStream = new DhDataInputStream(inputStream, !this.isColumnIndexed()))
 							{
 								if (cacheLoadingSource)
 								{
@@ -371,6 +374,71 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	
 	
 	
+	/**
+	 * Returns a single column of this file's data. <br>
+	 * If the data source isn't in memory and doesn't have any pending changes only the requested column
+	 * will be read from the database, otherwise the full data source will be loaded.
+	 * 
+	 * @return null if no data source exists for this file
+	 */
+	public CompletableFuture<SingleColumnFullDataAccessor> getColumnAsync(int relativeX, int relativeZ)
+	{
+		checkAndLogPhantomDataSourceLifeCycles();
+		
+		boolean canReadColumnDirectly = this.doesDtoExist
+				&& this.cachedFullDataSourceRef.get() == null
+				&& this.dataSourceLoadFutureRef.get() == null
+				&& this.writeQueueRef.get().queue.isEmpty() && !this.needsUpdate
+				&& this.isColumnIndexed();
+		if (!canReadColumnDirectly)
+		{
+			return this.getOrLoadCachedDataSourceAsync().thenApply((fullDataSource) -> getColumnFromDataSource(fullDataSource, relativeX, relativeZ));
+		}
+		
+		ThreadPoolExecutor executor = ThreadPools.getFileHandlerExecutor();
+		if (executor == null || executor.isTerminated())
+		{
+			// don't load anything if the provider has been shut down
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		return CompletableFuture.supplyAsync(() ->
+				{
+					try (InputStream inputStream = this.getInputStream();
+							DhDataInputStream dataStream = new DhDataInputStream(inputStream, false))
+					{
+						return CompleteFullDataSource.readSingleColumn(this, dataStream, this.level, relativeX, relativeZ);
+					}
+					catch (Exception e)
+					{
+						// can happen if the file was changed or removed after the checks above
+						LOGGER.warn("Unable to read a single column for pos [" + this.pos + "], the full data source will be loaded instead. Error: [" + e.getMessage() + "].");
+						return null;
+					}
+				}, executor)
+				.thenCompose((column) ->
+				{
+					if (column != null)
+					{
+						return CompletableFuture.completedFuture(column);
+					}
+					return this.getOrLoadCachedDataSourceAsync().thenApply((fullDataSource) -> getColumnFromDataSource(fullDataSource, relativeX, relativeZ));
+				});
+	}
+	private static SingleColumnFullDataAccessor getColumnFromDataSource(IFullDataSource fullDataSource, int relativeX, int relativeZ)
+	{
+		if (fullDataSource == null)
+		{
+			return null;
+		}
+		
+		// incomplete data sources may not have every column
+		SingleColumnFullDataAccessor column = fullDataSource.tryGet(relativeX, relativeZ);
+		return (column != null) ? column : new SingleColumnFullDataAccessor(fullDataSource.getMapping(), new ContiguousFullDataColumnStore(1), 0);
+	}
+	
+	
+	
 	//===============//
 	// data updating //
 	//===============//
@@ -378,8 +446,11 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	/**
 	 * Adds the given {@link ChunkSizedFullDataAccessor} to the write queue,
 	 * which will be applied to the object at some undefined time in the future.
+	 *
+	 * @return false if this handle has been evicted and the write wasn't queued,
+	 *          in which case the write should be sent to a new handle
 	 */
-	public void addToWriteQueue(ChunkSizedFullDataAccessor chunkAccessor)
+	public boolean addToWriteQueue(ChunkSizedFullDataAccessor chunkAccessor)
 	{
 		checkAndLogPhantomDataSourceLifeCycles();
 		
@@ -388,27 +459,43 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 		LodUtil.assertTrue(this.pos.getSectionBBoxPos().overlapsExactly(chunkLodPos), "Chunk pos " + chunkLodPos + " doesn't exactly overlap with section " + this.pos);
 		//LOGGER.info("Write Chunk {} to file {}", chunkPos, pos);
 		
-		GuardedMultiAppendQueue writeQueue = this.writeQueueRef.get();
-		// Using read lock is OK, because the queue's underlying data structure is thread-safe.
-		// This lock is only used to insure on polling the queue, that the queue is not being
-		// modified by another thread.
-		ReentrantReadWriteLock.ReadLock appendLock = writeQueue.appendLock.readLock();
-		appendLock.lock();
+		if (!this.tryStartWrite())
+		{
+			return false;
+		}
+		
 		try
 		{
-			writeQueue.queue.add(chunkAccessor);
+			GuardedMultiAppendQueue writeQueue = this.writeQueueRef.get();
+			// Using read lock is OK, because the queue's underlying data structure is thread-safe.
+			// This lock is only used to insure on polling the queue, that the queue is not being
+			// modified by another thread.
+			ReentrantReadWriteLock.ReadLock appendLock = writeQueue.appendLock.readLock();
+			appendLock.lock();
+			try
+			{
+				// released once the accessor has been applied to the data source
+				chunkAccessor.retain();
+				writeQueue.queue.add(chunkAccessor);
+			}
+			finally
+			{
+				appendLock.unlock();
+			}
 		}
 		finally
 		{
-			appendLock.unlock();
+			this.endWrite();
 		}
 		
 		this.flushAndSaveAsync();
 		//LOGGER.info("write queue length for pos "+this.pos+": " + writeQueue.queue.size());
+		return true;
 	}
 	
 	
 	/** Applies any queued {@link ChunkSizedFullDataAccessor} to this metadata's {@link IFullDataSource} and writes the data to file. */
+	@Override
 	public CompletableFuture<Void> flushAndSaveAsync()
 	{
 		checkAndLogPhantomDataSourceLifeCycles();
@@ -430,6 +517,34 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	
 	
 	public void markNeedsUpdate() { this.needsUpdate = true; }
+	/** Forces the next save to re-write this file's data using the newest binary format. */
+	public void markNeedsRewrite()
+	{
+		this.needsRewrite = true;
+		this.needsUpdate = true;
+	}
+	
+	
+	
+	//===========//
+	// lifecycle //
+	//===========//
+	
+	@Override
+	public boolean canBeEvicted()
+	{
+		return this.writeQueueRef.get().queue.isEmpty()
+				&& this.backWriteQueue.queue.isEmpty()
+				&& !this.needsUpdate
+				&& this.dataSourceLoadFutureRef.get() == null;
+	}
+	
+	@Override
+	public void onEvicted()
+	{
+		this.cachedFullDataSourceRef.close();
+		this.cachedFullDataSourceRef.clear();
+	}
 	
 	
 	
@@ -522,13 +637,27 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 	//================//
 	
 	// TODO merge with RenderDataMetaFile
-	/** @return a stream for the data contained in this file, skips the metadata from {@link AbstractMetaDataContainerFile}. */
+	/** 
+	 * @return a stream for the data contained in this file, skips the metadata from {@link AbstractMetaDataContainerFile}. 
+	 * @throws FileNotFoundException if the data was deleted after this file was loaded
+	 */
 	private InputStream getInputStream() throws IOException
 	{
-		MetaDataDto dto = this.fullDataSourceProvider.getRepo().getByPrimaryKey(this.pos.serialize());
-		return new ByteArrayInputStream(dto.dataArray);
+		// the data is only read when needed, the meta data was already read when this file was created
+		InputStream inputStream = this.fullDataSourceProvider.getRepo().getDataInputStreamByPrimaryKey(this.pos.serialize());
+		if (inputStream == null)
+		{
+			throw new FileNotFoundException("No data exists for pos ["+this.pos+"].");
+		}
+		return inputStream;
 	}
 	
+	/** 
+	 * Column indexed data sources handle their own compression. 
+	 * @see CompleteFullDataSource#isColumnIndexed(String, byte) 
+	 */
+	private boolean isColumnIndexed() { return CompleteFullDataSource.isColumnIndexed(this.baseMetaData.dataType, this.baseMetaData.binaryDataFormatVersion); }
+	
 	/** 
 	 * Applies the {@link FullDataMetaFile#writeQueueRef} to the current {@link IFullDataSource} 
 	 * and stores the result in {@link FullDataMetaFile#cachedFullDataSourceRef}.
@@ -540,6 +669,8 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 		
 		
 		boolean dataChanged = this.applyWriteQueueToFullDataSource(fullDataSourceToUpdate);
+		dataChanged |= this.needsRewrite;
+		this.needsRewrite = false;
 		this.needsUpdate = false;
 		
 		// attempt to promote the data source
@@ -628,7 +759,14 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 			this.swapWriteQueues();
 			for (ChunkSizedFullDataAccessor chunk : this.backWriteQueue.queue)
 			{
-				fullDataSource.update(chunk);
+				try
+				{
+					fullDataSource.update(chunk);
+				}
+				finally
+				{
+					chunk.release();
+				}
 			}
 			
 			this.backWriteQueue.queue.clear();
@@ -658,11 +796,7 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 		if (fullDataSource.isEmpty())
 		{
 			// delete the empty data source
-			MetaDataDto dto = this.fullDataSourceProvider.getRepo().getByPrimaryKey(this.pos.serialize());
-			if (dto != null)
-			{
-				this.fullDataSourceProvider.getRepo().delete(dto);
-			}
+			this.fullDataSourceProvider.getRepo().deleteByPrimaryKey(this.pos.serialize());
 			
 			this.doesDtoExist = false;
 		}
@@ -689,7 +823,7 @@ public class FullDataMetaFile extends AbstractMetaDataContainerFile implements I
 				
 				
 				// save the data to the database //
-				super.writeToDatabase((bufferedOutputStream) -> fullDataSource.writeToStream((bufferedOutputStream), this.level), this.fullDataSourceProvider.getRepo());
+				super.writeToDatabase((bufferedOutputStream) -> fullDataSource.writeToStream((bufferedOutputStream), this.level), this.fullDataSourceProvider.getRepo(), !this.isColumnIndexed());
 				this.doesDtoExist = true;
 			}
 			catch (ClosedByInterruptException e) // thrown by buffers that are interrupted
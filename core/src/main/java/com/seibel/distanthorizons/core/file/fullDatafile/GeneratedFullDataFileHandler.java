@@ -20,6 +20,7 @@
 package com.seibel.distanthorizons.core.file.fullDatafile;
 
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.SingleColumnFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.CompleteFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IFullDataSource;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IIncompleteFullDataSource;
@@ -81,6 +82,30 @@ public class GeneratedFullDataFileHandler extends FullDataFileHandler
 		});
 	}
 	
+	@Override
+	public CompletableFuture<SingleColumnFullDataAccessor> readColumnAsync(DhSectionPos pos, int relativeX, int relativeZ)
+	{
+		CompletableFuture<SingleColumnFullDataAccessor> future = super.readColumnAsync(pos, relativeX, relativeZ);
+		return future.thenApply((column) ->
+		{
+			// only incomplete data sources can be missing columns,
+			// those are always fully loaded (and cached) when reading a column
+			IWorldGenerationQueue worldGenQueue = this.worldGenQueueRef.get();
+			FullDataMetaFile metaFile = this.loadedMetaFileBySectionPos.get(pos);
+			IFullDataSource dataSource = (metaFile != null) ? metaFile.getCachedDataSourceNowOrNull() : null;
+			if (worldGenQueue != null && dataSource != null)
+			{
+				this.queueWorldGenForMissingColumnsInDataSource(worldGenQueue, metaFile, dataSource);
+			}
+			
+			return column;
+		});
+	}
+	
+	/** files that are waiting on world generation must stay loaded so the generated chunks can be written to them */
+	@Override
+	protected boolean canEvictFile(FullDataMetaFile metaFile) { return !this.generatingDataSourceByPos.containsKey(metaFile.pos); }
+	
 	@Override
 	public void onRenderDataFileLoaded(DhSectionPos pos)
 	{
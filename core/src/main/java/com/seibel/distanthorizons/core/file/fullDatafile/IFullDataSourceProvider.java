@@ -19,22 +19,38 @@
 
 package com.seibel.distanthorizons.core.file.fullDatafile;
 
+import com.seibel.distanthorizons.core.dataObjects.fullData.FullDataPalette;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.SingleColumnFullDataAccessor;
 import com.seibel.distanthorizons.core.dataObjects.fullData.sources.interfaces.IFullDataSource;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.sql.FullDataRepo;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 public interface IFullDataSourceProvider extends AutoCloseable
 {
 	CompletableFuture<IFullDataSource> readAsync(DhSectionPos pos);
+	/** 
+	 * Returns a single column from the given section, 
+	 * this may avoid loading the whole {@link IFullDataSource} if it isn't already in memory.
+	 * 
+	 * @return null if no data exists for the given section
+	 */
+	CompletableFuture<SingleColumnFullDataAccessor> readColumnAsync(DhSectionPos pos, int relativeX, int relativeZ);
 	void writeChunkDataToFile(DhSectionPos sectionPos, ChunkSizedFullDataAccessor chunkData);
 	CompletableFuture<Void> flushAndSaveAsync();
 	CompletableFuture<Void> flushAndSaveAsync(DhSectionPos sectionPos);
 	
+	/** Frees idle {@link FullDataMetaFile} handles that aren't near any of the given players */
+	void tryEvictIdleFiles(Collection<DhBlockPos2D> playerPositions);
+	/** Runs a small amount of database verification/compaction if the provider is idle. Can be called every tick. */
+	void tryQueueDatabaseMaintenance();
+	
 	//long getCacheVersion(DhSectionPos sectionPos);
 	//boolean isCacheVersionValid(DhSectionPos sectionPos, long cacheVersion);
 	
@@ -47,6 +63,8 @@ public interface IFullDataSourceProvider extends AutoCloseable
     FullDataMetaFile getFileIfExist(DhSectionPos pos);
 	
 	FullDataRepo getRepo();
+	/** The level-wide biome/block state palette used when (de)serializing this provider's data sources. */
+	FullDataPalette getPalette();
 	
 	
 	
@@ -22,9 +22,12 @@ package com.seibel.distanthorizons.core.file.metaData;
 import java.io.*;
 import java.nio.channels.ClosedChannelException;
 import java.nio.file.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.Adler32;
 import java.util.zip.CheckedOutputStream;
 
+import com.seibel.distanthorizons.core.file.MetaFileHandleEvictor;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.sql.AbstractDhRepo;
@@ -74,6 +77,16 @@ public abstract class AbstractMetaDataContainerFile
 	/** Should be used instead of the position inside {@link AbstractMetaDataContainerFile#baseMetaData} */
 	public final DhSectionPos pos;
 	
+	/** used by {@link MetaFileHandleEvictor} to determine when this handle can be freed */
+	private volatile long lastAccessedMsTime = System.currentTimeMillis();
+	/** 
+	 * Writers hold the read lock while queuing a write and eviction holds the write lock, 
+	 * so a handle can't be evicted between a writer retrieving it and queuing its write. 
+	 */
+	private final ReentrantReadWriteLock evictionLock = new ReentrantReadWriteLock();
+	/** once true any new writes must be sent to a new handle */
+	private boolean evicted = false;
+	
 	
 	
 	//==============//
@@ -100,11 +113,79 @@ public abstract class AbstractMetaDataContainerFile
 	}
 	
 	
+	//===========//
+	// lifecycle //
+	//===========//
+	
+	/** Should be called whenever this handle is retrieved by its file handler. */
+	public void markAccessed() { this.lastAccessedMsTime = System.currentTimeMillis(); }
+	public long getLastAccessedMsTime() { return this.lastAccessedMsTime; }
+	
+	/** 
+	 * @return true if this handle doesn't have any queued writes or in-progress loads
+	 *          and can be safely dropped and re-created from the database later.
+	 */
+	public abstract boolean canBeEvicted();
+	
+	/** 
+	 * Marks this handle as evicted if {@link AbstractMetaDataContainerFile#canBeEvicted()} is true. <br>
+	 * Once evicted {@link AbstractMetaDataContainerFile#tryStartWrite()} will always fail.
+	 *
+	 * @return true if the handle was evicted
+	 */
+	public boolean tryEvict()
+	{
+		this.evictionLock.writeLock().lock();
+		try
+		{
+			if (this.evicted || !this.canBeEvicted())
+			{
+				return false;
+			}
+			
+			this.evicted = true;
+			return true;
+		}
+		finally
+		{
+			this.evictionLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Must be followed by {@link AbstractMetaDataContainerFile#endWrite()} if successful.
+	 * @return false if this handle has been evicted, in which case the write should be sent to a new handle
+	 */
+	protected boolean tryStartWrite()
+	{
+		this.evictionLock.readLock().lock();
+		if (this.evicted)
+		{
+			this.evictionLock.readLock().unlock();
+			return false;
+		}
+		return true;
+	}
+	protected void endWrite() { this.evictionLock.readLock().unlock(); }
+	
+	/** 
+	 * Called after this handle has been removed from its file handler. <br>
+	 * Implementations should close their cached data source's soft reference, 
+	 * otherwise the DataSourceReferenceTracker will keep this handle alive.
+	 */
+	public abstract void onEvicted();
+	
+	public abstract CompletableFuture<Void> flushAndSaveAsync();
+	
+	
+	
 	//==============//
 	// file writing //
 	//==============//
 	
-	public void writeToDatabase(IMetaDataWriterFunc<DhDataOutputStream> dataWriterFunc, AbstractDhRepo<MetaDataDto> repo) throws IOException
+	public void writeToDatabase(IMetaDataWriterFunc<DhDataOutputStream> dataWriterFunc, AbstractDhRepo<MetaDataDto> repo) throws IOException { this.writeToDatabase(dataWriterFunc, repo, true); }
+	/** @param compressData should only be false if the written data handles its own compression */
+	public void writeToDatabase(IMetaDataWriterFunc<DhDataOutputStream> dataWriterFunc, AbstractDhRepo<MetaDataDto> repo, boolean compressData) throws IOException
 	{
 		LodUtil.assertTrue(this.baseMetaData != null);
 		
@@ -115,7 +196,7 @@ public abstract class AbstractMetaDataContainerFile
 			// the order of these streams is important, otherwise the checksum won't be calculated
 			CheckedOutputStream checkedOut = new CheckedOutputStream(byteArrayOutputStream, new Adler32());
 			// normally a DhStream should be the topmost stream to prevent closing the stream accidentally, but since this stream will be closed immediately after writing anyway, it won't be an issue
-			DhDataOutputStream compressedOut = new DhDataOutputStream(checkedOut);
+			DhDataOutputStream compressedOut = new DhDataOutputStream(checkedOut, compressData);
 			
 			// write the contained data
 			dataWriterFunc.writeBinaryDataToStream(compressedOut);
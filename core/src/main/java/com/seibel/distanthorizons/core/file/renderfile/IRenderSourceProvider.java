@@ -22,7 +22,9 @@ package com.seibel.distanthorizons.core.file.renderfile;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderSource;
+import com.seibel.distanthorizons.core.sql.MeshDataRepo;
 import com.seibel.distanthorizons.core.sql.RenderDataRepo;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -44,5 +46,13 @@ public interface IRenderSourceProvider extends AutoCloseable
 	
 	
 	RenderDataRepo getRepo();
+	/** Stores the built geometry for each render source, see {@link MeshDataRepo} */
+	MeshDataRepo getMeshDataRepo();
+	/** 
+	 * If not null render data should be stored here instead of in the {@link RenderDataRepo}, 
+	 * see {@link RenderCacheSegmentStore}. 
+	 */
+	@Nullable
+	RenderCacheSegmentStore getSegmentStore();
 	
 }
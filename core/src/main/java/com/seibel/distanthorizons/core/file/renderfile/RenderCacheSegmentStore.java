@@ -0,0 +1,897 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.seibel.distanthorizons.core.file.renderfile;
+
+import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
+import com.seibel.distanthorizons.core.file.metaData.BaseMetaData;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.sql.RenderDataRepo;
+import com.seibel.distanthorizons.core.util.ThreadUtil;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+
+/**
+ * An append-only, memory mapped alternative to storing render data in the {@link RenderDataRepo}. <br><br>
+ *
+ * Render data is stored uncompressed in fixed size segment files, so loading a render source
+ * only requires a single copy from the mapped file into the render source's data array,
+ * instead of copying the database blob, decompressing it and then parsing it. <br><br>
+ *
+ * Records are never modified once written, overwriting or deleting a position just appends a new record.
+ * The position index is kept in memory and re-built from the record headers on startup. <br>
+ * Stale records are removed by {@link RenderCacheSegmentStore#compactNextSegment()},
+ * which copies the remaining live records out of a mostly stale segment and deletes it. <br><br>
+ *
+ * The mapped pages can be written to disk in any order, so after an OS crash or power loss
+ * a record's identifier may be present while its length or data isn't. 
+ * Record lengths are bounds checked when scanning and each record's data is checked against its checksum
+ * when read, corrupt records are treated as missing and deleted. <br><br>
+ *
+ * <strong>Record format: </strong><br>
+ * <code>
+ * 4 bytes: record identifier, written last so partially written records are ignored <br>
+ * 8 bytes: packed section position <br>
+ * 4 bytes: data checksum (Adler32) <br>
+ * 1 byte: data detail level <br>
+ * 1 byte: world gen step <br>
+ * 1 byte: binary data format version <br>
+ * 1 byte: flags (1 = deleted) <br>
+ * 8 bytes: data version <br>
+ * 4 bytes: data length <br>
+ * n bytes: data, padded to a multiple of 8 bytes <br>
+ * </code>
+ */
+public class RenderCacheSegmentStore implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	public static final String SEGMENT_FOLDER_NAME = "renderSegments";
+	private static final String SEGMENT_FILE_PREFIX = "RenderCache_";
+	private static final String SEGMENT_FILE_SUFFIX = ".segment";
+	private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("^" + SEGMENT_FILE_PREFIX + "(\\d+)" + Pattern.quote(SEGMENT_FILE_SUFFIX) + "$");
+	
+	/** 64 MB */
+	public static final int DEFAULT_SEGMENT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+	
+	/** "DHRS" */
+	private static final int RECORD_IDENTIFIER = 0x44485253;
+	private static final int POS_OFFSET = 4;
+	private static final int CHECKSUM_OFFSET = 12;
+	private static final int DETAIL_LEVEL_OFFSET = 16;
+	private static final int WORLD_GEN_STEP_OFFSET = 17;
+	private static final int FORMAT_VERSION_OFFSET = 18;
+	private static final int FLAGS_OFFSET = 19;
+	private static final int DATA_VERSION_OFFSET = 20;
+	private static final int DATA_LENGTH_OFFSET = 28;
+	private static final int RECORD_HEADER_SIZE_IN_BYTES = 32;
+	
+	private static final byte DELETED_FLAG = 1;
+	
+	/** segments with less live data than this ratio will be compacted */
+	private static final double MIN_LIVE_DATA_RATIO = 0.5;
+	private static final long MS_BETWEEN_COMPACTION_CHECKS = TimeUnit.SECONDS.toMillis(30);
+	
+	/** shared between every store since compaction passes are infrequent */
+	private static final ThreadPoolExecutor COMPACTION_THREAD = ThreadUtil.makeSingleThreadPool("RenderCacheCompactor", ThreadUtil.MINIMUM_RELATIVE_PRIORITY);
+	
+	
+	private final File segmentFolder;
+	private final String dataType;
+	private final int segmentSizeInBytes;
+	
+	/** 
+	 * Guards the index and segment list. <br>
+	 * Reads only use absolute gets or duplicates of the mapped buffers, so they can run concurrently.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final HashMap<Long, IndexEntry> indexByPackedPos = new HashMap<>();
+	/** sorted from oldest to newest */
+	private final TreeMap<Integer, Segment> segmentById = new TreeMap<>();
+	/** new records are only appended to this segment */
+	private Segment activeSegment = null;
+	private int nextSegmentId = 0;
+	private boolean closed = false;
+	
+	/** 
+	 * Only one compaction can run at a time since each one reserves space in the active segment 
+	 * and then copies into it without holding {@link RenderCacheSegmentStore#lock}.
+	 */
+	private final ReentrantLock compactionLock = new ReentrantLock();
+	private final AtomicBoolean compactionRunning = new AtomicBoolean(false);
+	private volatile long lastCompactionMsTime = System.currentTimeMillis();
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public RenderCacheSegmentStore(File segmentFolder, String dataType) throws IOException { this(segmentFolder, dataType, DEFAULT_SEGMENT_SIZE_IN_BYTES); }
+	/** @param segmentSizeInBytes generally only changed for testing */
+	public RenderCacheSegmentStore(File segmentFolder, String dataType, int segmentSizeInBytes) throws IOException
+	{
+		this.segmentFolder = segmentFolder;
+		this.dataType = dataType;
+		this.segmentSizeInBytes = segmentSizeInBytes;
+		
+		if (!this.segmentFolder.exists() && !this.segmentFolder.mkdirs())
+		{
+			throw new IOException("Unable to create render cache segment folder [" + this.segmentFolder + "].");
+		}
+		
+		this.loadExistingSegments();
+	}
+	
+	/** Re-builds the index by scanning the record headers in each segment. */
+	private void loadExistingSegments() throws IOException
+	{
+		TreeMap<Integer, File> segmentFileById = new TreeMap<>();
+		File[] files = this.segmentFolder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				Matcher matcher = SEGMENT_FILE_PATTERN.matcher(file.getName());
+				if (matcher.matches())
+				{
+					segmentFileById.put(Integer.parseInt(matcher.group(1)), file);
+				}
+			}
+		}
+		
+		
+		// scan the segments from oldest to newest so newer records replace older ones
+		ArrayList<Segment> scannedSegments = new ArrayList<>();
+		ByteBuffer headerBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE_IN_BYTES);
+		for (Map.Entry<Integer, File> entry : segmentFileById.entrySet())
+		{
+			Segment segment = new Segment(entry.getKey(), entry.getValue());
+			scannedSegments.add(segment);
+			this.nextSegmentId = segment.id + 1;
+			
+			// anything past the segment size can't be mapped
+			long scanLimit = Math.min(segment.channel.size(), this.segmentSizeInBytes);
+			int offset = 0;
+			while (offset + RECORD_HEADER_SIZE_IN_BYTES <= scanLimit)
+			{
+				headerBuffer.clear();
+				while (headerBuffer.hasRemaining() && segment.channel.read(headerBuffer, offset + headerBuffer.position()) > 0) { }
+				
+				// the length is checked as a long since a corrupt length could overflow the record length
+				int dataLength = headerBuffer.getInt(DATA_LENGTH_OFFSET);
+				long recordLength = RECORD_HEADER_SIZE_IN_BYTES + ((dataLength + 7L) & ~7L);
+				if (headerBuffer.hasRemaining()
+					|| headerBuffer.getInt(0) != RECORD_IDENTIFIER
+					|| dataLength < 0
+					|| offset + recordLength > scanLimit)
+				{
+					// the end of the segment, a partially written record, or a corrupt length
+					break;
+				}
+				
+				boolean deleted = (headerBuffer.get(FLAGS_OFFSET) & DELETED_FLAG) != 0;
+				this.putIndexEntry(headerBuffer.getLong(POS_OFFSET), new IndexEntry(segment, offset, (int) recordLength, deleted));
+				offset += (int) recordLength;
+			}
+			segment.writeOffset = offset;
+		}
+		
+		
+		for (Segment segment : scannedSegments)
+		{
+			if (segment.liveByteCount == 0)
+			{
+				// nothing in this segment is still used,
+				// deleting it before it's mapped prevents issues on OS's that don't allow deleting mapped files
+				segment.channel.close();
+				if (!segment.file.delete())
+				{
+					LOGGER.warn("Unable to delete empty render cache segment [" + segment.file + "].");
+				}
+			}
+			else
+			{
+				segment.map(this.segmentSizeInBytes);
+				this.segmentById.put(segment.id, segment);
+				this.activeSegment = segment;
+			}
+		}
+	}
+	
+	
+	
+	//=========//
+	// reading //
+	//=========//
+	
+	/** @return null if no data exists for the given position */
+	@Nullable
+	public BaseMetaData getMetaData(DhSectionPos pos)
+	{
+		this.lock.readLock().lock();
+		try
+		{
+			IndexEntry entry = this.getLiveEntry(pos);
+			if (entry == null)
+			{
+				return null;
+			}
+			
+			MappedByteBuffer buffer = entry.segment.buffer;
+			int offset = entry.recordOffset;
+			
+			EDhApiWorldGenerationStep worldGenStep = EDhApiWorldGenerationStep.fromValue(buffer.get(offset + WORLD_GEN_STEP_OFFSET));
+			return new BaseMetaData(pos, 
+					buffer.getInt(offset + CHECKSUM_OFFSET), buffer.get(offset + DETAIL_LEVEL_OFFSET), 
+					(worldGenStep != null) ? worldGenStep : EDhApiWorldGenerationStep.EMPTY, this.dataType, 
+					buffer.get(offset + FORMAT_VERSION_OFFSET), buffer.getLong(offset + DATA_VERSION_OFFSET));
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	public boolean exists(DhSectionPos pos)
+	{
+		this.lock.readLock().lock();
+		try
+		{
+			return this.getLiveEntry(pos) != null;
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Runs the given reader on the data stored for the given position. <br>
+	 * The buffer given to the reader points directly at the mapped file and is only valid while the reader is running,
+	 * anything that's needed afterwards must be copied out of it. <br><br>
+	 * 
+	 * If the stored data doesn't match its checksum the record is deleted and null is returned.
+	 *
+	 * @return null if no valid data exists for the given position
+	 */
+	@Nullable
+	public <T> T read(DhSectionPos pos, IDataReader<T> reader) throws IOException
+	{
+		IndexEntry corruptEntry;
+		
+		this.lock.readLock().lock();
+		try
+		{
+			IndexEntry entry = this.getLiveEntry(pos);
+			if (entry == null)
+			{
+				return null;
+			}
+			
+			// duplicate the buffer so concurrent readers don't share a position
+			ByteBuffer dataBuffer = entry.segment.buffer.duplicate();
+			int dataOffset = entry.recordOffset + RECORD_HEADER_SIZE_IN_BYTES;
+			dataBuffer.limit(dataOffset + dataBuffer.getInt(entry.recordOffset + DATA_LENGTH_OFFSET));
+			dataBuffer.position(dataOffset);
+			ByteBuffer recordDataBuffer = dataBuffer.slice();
+			
+			if (getChecksum(recordDataBuffer.duplicate()) == entry.segment.buffer.getInt(entry.recordOffset + CHECKSUM_OFFSET))
+			{
+				return reader.read(recordDataBuffer.asReadOnlyBuffer());
+			}
+			corruptEntry = entry;
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+		
+		
+		// the read lock can't be upgraded, so the record is deleted after it's released
+		LOGGER.warn("Render cache data for pos [" + pos + "] doesn't match its checksum and will be deleted.");
+		this.lock.writeLock().lock();
+		try
+		{
+			// the position may have been re-written in the meantime
+			if (this.indexByPackedPos.get(pos.asLong()) == corruptEntry)
+			{
+				this.appendDeletionRecord(pos);
+			}
+		}
+		finally
+		{
+			this.lock.writeLock().unlock();
+		}
+		return null;
+	}
+	
+	/** Should only be called while holding the lock. */
+	@Nullable
+	private IndexEntry getLiveEntry(DhSectionPos pos)
+	{
+		if (this.closed)
+		{
+			return null;
+		}
+		
+		IndexEntry entry = this.indexByPackedPos.get(pos.asLong());
+		return (entry != null && !entry.deleted) ? entry : null;
+	}
+	
+	
+	
+	//=========//
+	// writing //
+	//=========//
+	
+	/** 
+	 * Replaces any data currently stored for the meta data's position. <br>
+	 * The meta data's checksum is ignored, instead the checksum of the given data is stored.
+	 * 
+	 * @return the stored data's checksum
+	 */
+	public int write(BaseMetaData metaData, byte[] data) throws IOException
+	{
+		int recordLength = getRecordLength(data.length);
+		if (recordLength > this.segmentSizeInBytes)
+		{
+			throw new IOException("Render data for pos [" + metaData.pos + "] is [" + data.length + "] bytes, which is larger than the segment size [" + this.segmentSizeInBytes + "].");
+		}
+		
+		int checksum = getChecksum(ByteBuffer.wrap(data));
+		
+		this.lock.writeLock().lock();
+		try
+		{
+			if (this.closed)
+			{
+				return checksum;
+			}
+			
+			Segment segment = this.getSegmentWithSpace(recordLength);
+			int offset = segment.writeOffset;
+			MappedByteBuffer buffer = segment.buffer;
+			
+			buffer.putLong(offset + POS_OFFSET, metaData.pos.asLong());
+			buffer.putInt(offset + CHECKSUM_OFFSET, checksum);
+			buffer.put(offset + DETAIL_LEVEL_OFFSET, metaData.dataDetailLevel);
+			buffer.put(offset + WORLD_GEN_STEP_OFFSET, (metaData.worldGenStep != null) ? metaData.worldGenStep.value : EDhApiWorldGenerationStep.EMPTY.value);
+			buffer.put(offset + FORMAT_VERSION_OFFSET, metaData.binaryDataFormatVersion);
+			buffer.put(offset + FLAGS_OFFSET, (byte) 0);
+			buffer.putLong(offset + DATA_VERSION_OFFSET, metaData.dataVersion.get());
+			buffer.putInt(offset + DATA_LENGTH_OFFSET, data.length);
+			
+			ByteBuffer dataBuffer = buffer.duplicate();
+			dataBuffer.position(offset + RECORD_HEADER_SIZE_IN_BYTES);
+			dataBuffer.put(data);
+			
+			// written last so the record is only found once it's complete
+			buffer.putInt(offset, RECORD_IDENTIFIER);
+			
+			segment.writeOffset += recordLength;
+			this.putIndexEntry(metaData.pos.asLong(), new IndexEntry(segment, offset, recordLength, false));
+			return checksum;
+		}
+		finally
+		{
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/** Does nothing if no data exists for the given position. */
+	public void delete(DhSectionPos pos) throws IOException
+	{
+		this.lock.writeLock().lock();
+		try
+		{
+			if (this.getLiveEntry(pos) == null)
+			{
+				return;
+			}
+			
+			this.appendDeletionRecord(pos);
+		}
+		finally
+		{
+			this.lock.writeLock().unlock();
+		}
+	}
+	/** Should only be called while holding the write lock. */
+	private void appendDeletionRecord(DhSectionPos pos) throws IOException
+	{
+		// a deletion record is needed so older records for this position aren't used after a restart
+		Segment segment = this.getSegmentWithSpace(RECORD_HEADER_SIZE_IN_BYTES);
+		int offset = segment.writeOffset;
+		MappedByteBuffer buffer = segment.buffer;
+		
+		buffer.putLong(offset + POS_OFFSET, pos.asLong());
+		buffer.put(offset + FLAGS_OFFSET, DELETED_FLAG);
+		buffer.putInt(offset + DATA_LENGTH_OFFSET, 0);
+		buffer.putInt(offset, RECORD_IDENTIFIER);
+		
+		segment.writeOffset += RECORD_HEADER_SIZE_IN_BYTES;
+		this.putIndexEntry(pos.asLong(), new IndexEntry(segment, offset, RECORD_HEADER_SIZE_IN_BYTES, true));
+	}
+	
+	/** 
+	 * Should only be called while holding the write lock. <br>
+	 * The previous segment isn't forced to disk here since that would block every reader,
+	 * the OS will write it back on its own and it is forced when the store is closed.
+	 */
+	private Segment getSegmentWithSpace(int recordLength) throws IOException
+	{
+		if (this.activeSegment == null || this.activeSegment.writeOffset + recordLength > this.segmentSizeInBytes)
+		{
+			int id = this.nextSegmentId++;
+			Segment segment = new Segment(id, new File(this.segmentFolder, SEGMENT_FILE_PREFIX + id + SEGMENT_FILE_SUFFIX));
+			segment.map(this.segmentSizeInBytes);
+			this.segmentById.put(id, segment);
+			this.activeSegment = segment;
+		}
+		
+		return this.activeSegment;
+	}
+	
+	/** Should only be called while holding the write lock. */
+	private void putIndexEntry(long packedPos, IndexEntry entry)
+	{
+		IndexEntry oldEntry = this.indexByPackedPos.put(packedPos, entry);
+		if (oldEntry != null)
+		{
+			oldEntry.segment.liveByteCount -= oldEntry.recordLength;
+		}
+		entry.segment.liveByteCount += entry.recordLength;
+	}
+	
+	private static int getRecordLength(int dataLength)
+	{
+		// padding keeps every record 8 byte aligned
+		return RECORD_HEADER_SIZE_IN_BYTES + ((dataLength + 7) & ~7);
+	}
+	
+	private static int getChecksum(ByteBuffer dataBuffer)
+	{
+		Adler32 adler32 = new Adler32();
+		adler32.update(dataBuffer);
+		return (int) adler32.getValue();
+	}
+	
+	
+	
+	//============//
+	// compaction //
+	//============//
+	
+	/**
+	 * Queues compaction of a mostly stale segment if enough time has passed since the last check. <br>
+	 * Can be called every tick.
+	 */
+	public void tryQueueCompaction()
+	{
+		long nowMs = System.currentTimeMillis();
+		if (nowMs - this.lastCompactionMsTime < MS_BETWEEN_COMPACTION_CHECKS
+			|| COMPACTION_THREAD.isTerminated()
+			|| !this.compactionRunning.compareAndSet(false, true))
+		{
+			return;
+		}
+		this.lastCompactionMsTime = nowMs;
+		
+		
+		COMPACTION_THREAD.execute(() ->
+		{
+			try
+			{
+				this.compactNextSegment();
+			}
+			catch (Exception e)
+			{
+				LOGGER.error("Unexpected render cache compaction exception: " + e.getMessage(), e);
+			}
+			finally
+			{
+				this.compactionRunning.set(false);
+			}
+		});
+	}
+	
+	/**
+	 * Copies the live records from the oldest segment with less than {@link RenderCacheSegmentStore#MIN_LIVE_DATA_RATIO}
+	 * live data into the active segment and then deletes it. <br>
+	 * The active segment is never compacted. <br><br>
+	 * 
+	 * Space for the live records is reserved in the active segment while holding the write lock,
+	 * the records are then copied and forced to disk without the lock, 
+	 * so reads and writes are only blocked while the index entries are swapped. 
+	 * Records written while the copy is running are appended after the reserved space,
+	 * so they still replace the copied records when the index is re-built.
+	 *
+	 * @return true if a segment was compacted
+	 */
+	public boolean compactNextSegment() throws IOException
+	{
+		this.compactionLock.lock();
+		try
+		{
+			Segment staleSegment = null;
+			Segment destinationSegment;
+			int destinationOffset;
+			ArrayList<Long> copiedPackedPosList = new ArrayList<>();
+			ArrayList<IndexEntry> copiedEntryList = new ArrayList<>();
+			
+			
+			// find the live records and reserve space for them
+			this.lock.writeLock().lock();
+			try
+			{
+				if (this.closed)
+				{
+					return false;
+				}
+				
+				for (Segment segment : this.segmentById.values())
+				{
+					if (segment != this.activeSegment && segment.liveByteCount < segment.writeOffset * MIN_LIVE_DATA_RATIO)
+					{
+						staleSegment = segment;
+						break;
+					}
+				}
+				if (staleSegment == null)
+				{
+					return false;
+				}
+				
+				
+				boolean olderSegmentExists = this.segmentById.firstKey() < staleSegment.id;
+				MappedByteBuffer staleBuffer = staleSegment.buffer;
+				int copiedByteCount = 0;
+				int offset = 0;
+				while (offset < staleSegment.writeOffset)
+				{
+					long packedPos = staleBuffer.getLong(offset + POS_OFFSET);
+					int recordLength = getRecordLength(staleBuffer.getInt(offset + DATA_LENGTH_OFFSET));
+					
+					IndexEntry entry = this.indexByPackedPos.get(packedPos);
+					if (entry != null && entry.segment == staleSegment && entry.recordOffset == offset)
+					{
+						if (entry.deleted && !olderSegmentExists)
+						{
+							// there aren't any older records this deletion record could be hiding
+							this.indexByPackedPos.remove(packedPos);
+							staleSegment.liveByteCount -= recordLength;
+						}
+						else
+						{
+							copiedPackedPosList.add(packedPos);
+							copiedEntryList.add(entry);
+							copiedByteCount += recordLength;
+						}
+					}
+					
+					offset += recordLength;
+				}
+				
+				if (copiedEntryList.isEmpty())
+				{
+					this.removeSegment(staleSegment);
+					destinationSegment = null;
+					destinationOffset = 0;
+				}
+				else
+				{
+					// less than half of a segment is live, so the records will always fit in a new segment
+					destinationSegment = this.getSegmentWithSpace(copiedByteCount);
+					destinationOffset = destinationSegment.writeOffset;
+					destinationSegment.writeOffset += copiedByteCount;
+				}
+			}
+			finally
+			{
+				this.lock.writeLock().unlock();
+			}
+			
+			if (destinationSegment == null)
+			{
+				// the index no longer references this segment
+				deleteSegmentFile(staleSegment);
+				return true;
+			}
+			
+			
+			// copy the records, the stale records are never modified and
+			// nothing else writes to the reserved space so no lock is needed
+			int newOffset = destinationOffset;
+			int[] newOffsets = new int[copiedEntryList.size()];
+			for (int i = 0; i < copiedEntryList.size(); i++)
+			{
+				IndexEntry entry = copiedEntryList.get(i);
+				
+				ByteBuffer recordBuffer = staleSegment.buffer.duplicate();
+				recordBuffer.limit(entry.recordOffset + entry.recordLength);
+				recordBuffer.position(entry.recordOffset + POS_OFFSET);
+				ByteBuffer newBuffer = destinationSegment.buffer.duplicate();
+				newBuffer.position(newOffset + POS_OFFSET);
+				newBuffer.put(recordBuffer);
+				
+				// written last so the record is only found once it's complete
+				destinationSegment.buffer.putInt(newOffset, RECORD_IDENTIFIER);
+				
+				newOffsets[i] = newOffset;
+				newOffset += entry.recordLength;
+			}
+			
+			// make sure the copied records are on disk before the originals are removed
+			destinationSegment.buffer.force();
+			
+			
+			// swap the index entries
+			this.lock.writeLock().lock();
+			try
+			{
+				if (this.closed
+					|| this.segmentById.get(staleSegment.id) != staleSegment
+					|| this.segmentById.get(destinationSegment.id) != destinationSegment)
+				{
+					// the store was closed or cleared while copying
+					return false;
+				}
+				
+				for (int i = 0; i < copiedEntryList.size(); i++)
+				{
+					IndexEntry entry = copiedEntryList.get(i);
+					long packedPos = copiedPackedPosList.get(i);
+					
+					// positions that were written or deleted while copying already point to a newer record
+					if (this.indexByPackedPos.get(packedPos) == entry)
+					{
+						this.putIndexEntry(packedPos, new IndexEntry(destinationSegment, newOffsets[i], entry.recordLength, entry.deleted));
+					}
+				}
+				
+				this.removeSegment(staleSegment);
+			}
+			finally
+			{
+				this.lock.writeLock().unlock();
+			}
+			
+			// readers only access segments while holding the lock, so nothing can still be reading this segment
+			deleteSegmentFile(staleSegment);
+			return true;
+		}
+		finally
+		{
+			this.compactionLock.unlock();
+		}
+	}
+	
+	/** 
+	 * Should only be called while holding the write lock. <br>
+	 * Removes the segment from the store, {@link RenderCacheSegmentStore#deleteSegmentFile} should be called afterwards. 
+	 */
+	private void removeSegment(Segment segment)
+	{
+		this.segmentById.remove(segment.id);
+		if (this.activeSegment == segment)
+		{
+			this.activeSegment = null;
+		}
+	}
+	private static void deleteSegmentFile(Segment segment) throws IOException
+	{
+		// Some OS's won't delete a file while it's mapped,
+		// clearing the first record identifier makes sure the segment is ignored if it's still there on the next startup.
+		// The segment will then be deleted during that startup instead.
+		segment.buffer.putInt(0, 0);
+		segment.buffer.force();
+		segment.channel.close();
+		segment.file.delete();
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getSegmentCount()
+	{
+		this.lock.readLock().lock();
+		try
+		{
+			return this.segmentById.size();
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/** @return the number of bytes used by data that can still be read */
+	public long getLiveByteCount()
+	{
+		this.lock.readLock().lock();
+		try
+		{
+			long liveByteCount = 0;
+			for (Segment segment : this.segmentById.values())
+			{
+				liveByteCount += segment.liveByteCount;
+			}
+			return liveByteCount;
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/** @return the number of bytes used by both live and stale data */
+	public long getUsedByteCount()
+	{
+		this.lock.readLock().lock();
+		try
+		{
+			long usedByteCount = 0;
+			for (Segment segment : this.segmentById.values())
+			{
+				usedByteCount += segment.writeOffset;
+			}
+			return usedByteCount;
+		}
+		finally
+		{
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	
+	
+	//=====================//
+	// clearing / shutdown //
+	//=====================//
+	
+	public void deleteAll() throws IOException
+	{
+		this.lock.writeLock().lock();
+		try
+		{
+			for (Segment segment : new ArrayList<>(this.segmentById.values()))
+			{
+				this.removeSegment(segment);
+				deleteSegmentFile(segment);
+			}
+			this.indexByPackedPos.clear();
+		}
+		finally
+		{
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void close()
+	{
+		this.lock.writeLock().lock();
+		try
+		{
+			if (this.closed)
+			{
+				return;
+			}
+			this.closed = true;
+			
+			for (Segment segment : this.segmentById.values())
+			{
+				try
+				{
+					segment.buffer.force();
+					segment.channel.close();
+				}
+				catch (IOException e)
+				{
+					LOGGER.warn("Unable to close render cache segment [" + segment.file + "], error: [" + e.getMessage() + "].", e);
+				}
+			}
+			this.segmentById.clear();
+			this.indexByPackedPos.clear();
+			this.activeSegment = null;
+		}
+		finally
+		{
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	@FunctionalInterface
+	public interface IDataReader<T>
+	{
+		T read(ByteBuffer dataBuffer) throws IOException;
+	}
+	
+	private static class Segment
+	{
+		public final int id;
+		public final File file;
+		public final FileChannel channel;
+		public MappedByteBuffer buffer;
+		
+		/** where the next record will be written */
+		public int writeOffset = 0;
+		/** the number of bytes used by records that are still in the index */
+		public long liveByteCount = 0;
+		
+		public Segment(int id, File file) throws IOException
+		{
+			this.id = id;
+			this.file = file;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		
+		/** mapping past the end of the file grows it to the full segment size */
+		public void map(int segmentSizeInBytes) throws IOException { this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeInBytes); }
+		
+	}
+	
+	private static class IndexEntry
+	{
+		public final Segment segment;
+		public final int recordOffset;
+		public final int recordLength;
+		/** deletion records are kept in the index so compaction knows whether they're still needed */
+		public final boolean deleted;
+		
+		public IndexEntry(Segment segment, int recordOffset, int recordLength, boolean deleted)
+		{
+			this.segment = segment;
+			this.recordOffset = recordOffset;
+			this.recordLength = recordLength;
+			this.deleted = deleted;
+		}
+		
+	}
+	
+}
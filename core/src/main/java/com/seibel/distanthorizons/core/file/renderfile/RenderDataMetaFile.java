@@ -35,11 +35,11 @@ import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderLoader;
 import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderSource;
 import com.seibel.distanthorizons.core.level.IDhClientLevel;
 import com.seibel.distanthorizons.core.render.renderer.IDebugRenderable;
-import com.seibel.distanthorizons.core.sql.MetaDataDto;
 import com.seibel.distanthorizons.core.util.AtomicsUtil;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.Reference;
 import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataInputStream;
+import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
@@ -99,10 +99,10 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 	 * NOTE: should only be used if there IS an existing file.
 	 * @throws IOException if no file exists for this position
 	 */
-	public static RenderDataMetaFile createFromExistingFile(IFullDataSourceProvider fullDataSourceProvider, IRenderSourceProvider renderDataSourceProvider, IDhClientLevel clientLevel, MetaDataDto metaDataDto) throws IOException { return new RenderDataMetaFile(fullDataSourceProvider, renderDataSourceProvider, clientLevel, metaDataDto); }
-	private RenderDataMetaFile(IFullDataSourceProvider fullDataSourceProvider, IRenderSourceProvider renderDataSourceProvider, IDhClientLevel clientLevel, MetaDataDto metaDataDto) throws IOException
+	public static RenderDataMetaFile createFromExistingFile(IFullDataSourceProvider fullDataSourceProvider, IRenderSourceProvider renderDataSourceProvider, IDhClientLevel clientLevel, BaseMetaData baseMetaData) throws IOException { return new RenderDataMetaFile(fullDataSourceProvider, renderDataSourceProvider, clientLevel, baseMetaData); }
+	private RenderDataMetaFile(IFullDataSourceProvider fullDataSourceProvider, IRenderSourceProvider renderDataSourceProvider, IDhClientLevel clientLevel, BaseMetaData baseMetaData) throws IOException
 	{
-		super(metaDataDto.baseMetaData);
+		super(baseMetaData);
 		this.fullDataSourceProvider = fullDataSourceProvider;
 		this.renderDataSourceProvider = renderDataSourceProvider;
 		this.clientLevel = clientLevel;
@@ -133,9 +133,25 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 		}
 		
 		
-		renderSourceLoadFuture.thenAccept((renderSource) ->
+		// released once the render source has been updated
+		chunkDataView.retain();
+		renderSourceLoadFuture.whenComplete((renderSource, exception) ->
 		{
-			boolean dataUpdated = renderSource.updateWithChunkData(chunkDataView, this.clientLevel);
+			if (renderSource == null)
+			{
+				chunkDataView.release();
+				return;
+			}
+			
+			boolean dataUpdated;
+			try
+			{
+				dataUpdated = renderSource.updateWithChunkData(chunkDataView, this.clientLevel);
+			}
+			finally
+			{
+				chunkDataView.release();
+			}
 			
 			
 			// add a debug particle
@@ -146,7 +162,7 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 				Color debugColor = dataUpdated ? Color.blue : Color.red;
 				DebugRenderer.makeParticle(
 						new DebugRenderer.BoxParticle(
-								new DebugRenderer.Box(chunkDataView.getSectionPos(), 32f, 64f + offset, 0.07f, debugColor),
+								new DebugRenderer.Box(chunkSectionPos, 32f, 64f + offset, 0.07f, debugColor),
 								2.0, 16f
 						)
 				);
@@ -218,18 +234,14 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 						}
 						
 						// Load the render source file.
-						ColumnRenderSource renderSource;
-						try (InputStream inputStream = this.getInputStream(); // throws IoException
-								DhDataInputStream compressedInputStream = new DhDataInputStream(inputStream))
+						try
 						{
-							renderSource = ColumnRenderLoader.INSTANCE.loadRenderSource(this, compressedInputStream, this.clientLevel);
+							return this.loadRenderSource();
 						}
 						catch (IOException ex)
 						{
 							throw new CompletionException(ex);
 						}
-						
-						return renderSource;
 					}, fileReaderThreads)
 					// TODO: Check for file version and only update if needed.
 					.thenCompose(renderSource -> this.updateRenderCacheAsync(renderSource))
@@ -255,11 +267,36 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 		
 		return getSourceFuture;
 	}
+	private ColumnRenderSource loadRenderSource() throws IOException
+	{
+		RenderCacheSegmentStore segmentStore = this.renderDataSourceProvider.getSegmentStore();
+		if (segmentStore != null)
+		{
+			// the data is parsed directly from the mapped segment file
+			ColumnRenderSource renderSource = segmentStore.read(this.pos, (dataBuffer) -> ColumnRenderLoader.INSTANCE.loadRenderSource(this, dataBuffer, this.clientLevel));
+			if (renderSource == null)
+			{
+				throw new FileNotFoundException("No render data exists for pos ["+this.pos+"].");
+			}
+			return renderSource;
+		}
+		
+		
+		try (InputStream inputStream = this.getInputStream(); // throws IoException
+				DhDataInputStream compressedInputStream = new DhDataInputStream(inputStream))
+		{
+			return ColumnRenderLoader.INSTANCE.loadRenderSource(this, compressedInputStream, this.clientLevel);
+		}
+	}
 	// TODO merge with FullDataMetaFile
 	private InputStream getInputStream() throws IOException
 	{
-		MetaDataDto dto = this.renderDataSourceProvider.getRepo().getByPrimaryKey(this.pos.serialize());
-		return new ByteArrayInputStream(dto.dataArray);
+		InputStream inputStream = this.renderDataSourceProvider.getRepo().getDataInputStreamByPrimaryKey(this.pos.serialize());
+		if (inputStream == null)
+		{
+			throw new FileNotFoundException("No render data exists for pos ["+this.pos+"].");
+		}
+		return inputStream;
 	}
 	
 	
@@ -363,9 +400,12 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 	// file handling //
 	//===============//
 	
+	@Override
 	public CompletableFuture<Void> flushAndSaveAsync()
 	{
-		if (!this.renderDataSourceProvider.getRepo().existsWithPrimaryKey(this.pos.serialize()))
+		RenderCacheSegmentStore segmentStore = this.renderDataSourceProvider.getSegmentStore();
+		boolean dataExists = (segmentStore != null) ? segmentStore.exists(this.pos) : this.renderDataSourceProvider.getRepo().existsWithPrimaryKey(this.pos.serialize());
+		if (!dataExists)
 		{
 			return CompletableFuture.completedFuture(null); // No need to save if the file doesn't exist.
 		}
@@ -385,10 +425,25 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 	/** writes the given {@link ColumnRenderSource} to file */
 	private void save(ColumnRenderSource renderSource)
 	{
+		RenderCacheSegmentStore segmentStore = this.renderDataSourceProvider.getSegmentStore();
 		if (renderSource.isEmpty())
 		{
 			// delete the empty data source
-			this.fullDataSourceProvider.getRepo().deleteByPrimaryKey(this.pos.serialize());
+			if (segmentStore != null)
+			{
+				try
+				{
+					segmentStore.delete(this.pos);
+				}
+				catch (IOException e)
+				{
+					LOGGER.error("Failed to delete empty render data for pos "+this.pos, e);
+				}
+			}
+			else
+			{
+				this.fullDataSourceProvider.getRepo().deleteByPrimaryKey(this.pos.serialize());
+			}
 			this.doesDtoExist = false;
 		}
 		else
@@ -396,7 +451,14 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 			//LOGGER.info("Saving updated render file v[{}] at sect {}", this.metaData.dataVersion.get(), this.pos);
 			try
 			{
-				super.writeToDatabase((dhDataOutputStream) -> renderSource.writeData(dhDataOutputStream), this.renderDataSourceProvider.getRepo());
+				if (segmentStore != null)
+				{
+					this.writeToSegmentStore(renderSource, segmentStore);
+				}
+				else
+				{
+					super.writeToDatabase((dhDataOutputStream) -> renderSource.writeData(dhDataOutputStream), this.renderDataSourceProvider.getRepo());
+				}
 				this.doesDtoExist = true;
 			}
 			catch (IOException e)
@@ -405,6 +467,37 @@ public class RenderDataMetaFile extends AbstractMetaDataContainerFile implements
 			}
 		}
 	}
+	/** 
+	 * The data isn't compressed since it is read directly from the mapped segment, 
+	 * see {@link ColumnRenderLoader#readDataV1(java.nio.ByteBuffer, int)}.
+	 */
+	private void writeToSegmentStore(ColumnRenderSource renderSource, RenderCacheSegmentStore segmentStore) throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		DhDataOutputStream dhDataOutputStream = new DhDataOutputStream(byteArrayOutputStream, false);
+		
+		renderSource.writeData(dhDataOutputStream);
+		dhDataOutputStream.flush();
+		
+		// the segment store calculates the checksum so it can validate the data when it's read
+		this.baseMetaData.checksum = segmentStore.write(this.baseMetaData, byteArrayOutputStream.toByteArray());
+	}
+	
+	
+	
+	//===========//
+	// lifecycle //
+	//===========//
+	
+	@Override
+	public boolean canBeEvicted() { return this.renderSourceLoadFutureRef.get() == null; }
+	
+	@Override
+	public void onEvicted()
+	{
+		this.cachedRenderDataSourceRef.close();
+		this.cachedRenderDataSourceRef.clear();
+	}
 	
 	
 	
@@ -19,20 +19,26 @@
 
 package com.seibel.distanthorizons.core.file.renderfile;
 
+import com.seibel.distanthorizons.core.config.Config;
 import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.file.MetaFileHandleEvictor;
 import com.seibel.distanthorizons.core.file.fullDatafile.FullDataFileHandler;
 import com.seibel.distanthorizons.core.file.structure.AbstractSaveStructure;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.logging.f3.F3Screen;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderSource;
 import com.seibel.distanthorizons.core.file.fullDatafile.IFullDataSourceProvider;
 import com.seibel.distanthorizons.core.level.IDhClientLevel;
-import com.seibel.distanthorizons.core.sql.MetaDataDto;
+import com.seibel.distanthorizons.core.sql.DatabaseMaintainer;
+import com.seibel.distanthorizons.core.file.metaData.BaseMetaData;
+import com.seibel.distanthorizons.core.sql.MeshDataRepo;
 import com.seibel.distanthorizons.core.sql.RenderDataRepo;
 import com.seibel.distanthorizons.core.util.ThreadUtil;
 import com.seibel.distanthorizons.core.util.threading.ThreadPools;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -48,6 +54,11 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 	private final F3Screen.NestedMessage threadPoolMsg;
 	
 	protected final ConcurrentHashMap<DhSectionPos, RenderDataMetaFile> loadedMetaFileBySectionPos = new ConcurrentHashMap<>();
+	/** 
+	 * Evicted positions don't need to be tracked since render files are validated 
+	 * against their full data file when re-loaded. 
+	 */
+	private final MetaFileHandleEvictor<RenderDataMetaFile> metaFileHandleEvictor = new MetaFileHandleEvictor<>(this.loadedMetaFileBySectionPos, (metaFile) -> true);
 	
 	private final IDhClientLevel clientLevel;
 	private final File saveDir;
@@ -61,6 +72,19 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 	@Override
 	public RenderDataRepo getRepo() { return this.renderDataRepo; }
 	
+	public final MeshDataRepo meshDataRepo;
+	@Override
+	public MeshDataRepo getMeshDataRepo() { return this.meshDataRepo; }
+	
+	/** null if the mapped render cache is disabled or couldn't be opened */
+	@Nullable
+	private final RenderCacheSegmentStore segmentStore;
+	@Override
+	@Nullable
+	public RenderCacheSegmentStore getSegmentStore() { return this.segmentStore; }
+	
+	private final DatabaseMaintainer databaseMaintainer;
+	
 	
 	
 	//=============//
@@ -82,7 +106,8 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 		
 		try
 		{
-			this.renderDataRepo = new RenderDataRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME);
+			this.renderDataRepo = new RenderDataRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME, Config.Client.Advanced.LodBuilding.enableDatabaseSharding.get());
+			this.meshDataRepo = new MeshDataRepo("jdbc:sqlite", this.saveDir.getPath() + "/" + AbstractSaveStructure.DATABASE_NAME);
 		}
 		catch (SQLException e)
 		{
@@ -90,6 +115,23 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 			// or the database update failed
 			throw new RuntimeException(e);
 		}
+		
+		this.databaseMaintainer = new DatabaseMaintainer(this.renderDataRepo, new RenderDataMaintenanceHandler());
+		
+		RenderCacheSegmentStore segmentStore = null;
+		if (Config.Client.Advanced.LodBuilding.enableMappedRenderCache.get())
+		{
+			try
+			{
+				segmentStore = new RenderCacheSegmentStore(new File(this.saveDir, RenderCacheSegmentStore.SEGMENT_FOLDER_NAME), RenderDataMetaFile.RENDER_SOURCE_TYPE);
+			}
+			catch (Exception e)
+			{
+				// unchecked exceptions are also caught since a corrupt segment shouldn't prevent the world from loading
+				LOGGER.warn("Unable to open the mapped render cache, the render cache database will be used instead. Error: [" + e.getMessage() + "].", e);
+			}
+		}
+		this.segmentStore = segmentStore;
 	}
 	
 	
@@ -141,12 +183,14 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 		RenderDataMetaFile metaFile = this.loadedMetaFileBySectionPos.get(pos);
 		if (metaFile != null)
 		{
+			metaFile.markAccessed();
 			return metaFile;
 		}
 		
 		
-		MetaDataDto metaDataDto = this.renderDataRepo.getByPrimaryKey(pos.serialize());
-		if (metaDataDto != null)
+		// only the meta data is read here, the data itself is read when the render source is loaded
+		BaseMetaData baseMetaData = (this.segmentStore != null) ? this.segmentStore.getMetaData(pos) : this.renderDataRepo.getMetaDataByPrimaryKey(pos.serialize());
+		if (baseMetaData != null)
 		{
 			synchronized (this)
 			{
@@ -163,7 +207,7 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 				
 				try
 				{
-					metaFile = RenderDataMetaFile.createFromExistingFile(this.fullDataSourceProvider, this, this.clientLevel, metaDataDto);
+					metaFile = RenderDataMetaFile.createFromExistingFile(this.fullDataSourceProvider, this, this.clientLevel, baseMetaData);
 					this.topDetailLevelRef.updateAndGet(currentTopDetailLevel -> Math.max(currentTopDetailLevel, pos.getDetailLevel()));
 					this.loadedMetaFileBySectionPos.put(pos, metaFile);
 					return metaFile;
@@ -171,7 +215,7 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 				catch (IOException e)
 				{
 					LOGGER.error("Failed to read meta data file at pos " + pos + ": ", e);
-					this.renderDataRepo.delete(metaDataDto);
+					this.deleteRenderData(pos);
 				}
 			}
 		}
@@ -258,6 +302,32 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 	
 	
 	
+	//================//
+	// handle cleanup //
+	//================//
+	
+	/** 
+	 * Queues removal of idle {@link RenderDataMetaFile} handles that are outside the render distance of the given player. <br>
+	 * Can be called every tick, the eviction itself is rate limited and runs on a background thread.
+	 */
+	public void tryEvictIdleFiles(DhBlockPos2D playerPos)
+	{
+		this.metaFileHandleEvictor.tryQueueEviction(Collections.singletonList(playerPos), MetaFileHandleEvictor.getRenderDistanceKeepRadiusInBlocks());
+		this.renderDataRepo.tryCloseIdleShards();
+		if (this.segmentStore != null)
+		{
+			this.segmentStore.tryQueueCompaction();
+		}
+	}
+	
+	/** 
+	 * Verifies and compacts the render cache database while the file handler is idle. <br>
+	 * Can be called every tick, the maintenance itself is rate limited and runs on a background thread.
+	 */
+	public void tryQueueDatabaseMaintenance() { this.databaseMaintainer.tryQueueMaintenance(); }
+	
+	
+	
 	//=========//
 	// F3 menu //
 	//=========//
@@ -272,8 +342,13 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 		
 		ArrayList<String> lines = new ArrayList<>();
 		lines.add("Render Source File Handler [" + this.clientLevel.getClientLevelWrapper().getDimensionType().getDimensionName() + "]");
-		lines.add("  Loaded files: " + this.loadedMetaFileBySectionPos.size());
+		lines.add("  Loaded files: " + this.metaFileHandleEvictor.getLiveHandleCount() + " (evicted: " + this.metaFileHandleEvictor.getTotalEvictedCount() + ")");
 		lines.add("  Thread pool tasks: " + queueSize + " (completed: " + completedTaskSize + ")");
+		lines.add("  " + this.databaseMaintainer.getProgressString());
+		if (this.segmentStore != null)
+		{
+			lines.add("  Mapped render cache segments: " + this.segmentStore.getSegmentCount() + " (live: " + (this.segmentStore.getLiveByteCount() / 1024 / 1024) + " / " + (this.segmentStore.getUsedByteCount() / 1024 / 1024) + " MB)");
+		}
 		
 		int totalFutures = this.taskTracker.size();
 		EnumMap<ETaskType, Integer> tasksOutstanding = new EnumMap<>(ETaskType.class);
@@ -318,7 +393,13 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 	{
 		LOGGER.info("Closing " + this.getClass().getSimpleName() + " with [" + this.loadedMetaFileBySectionPos.size() + "] files...");
 		this.threadPoolMsg.close();
+		this.databaseMaintainer.close();
 		this.renderDataRepo.close();
+		this.meshDataRepo.close();
+		if (this.segmentStore != null)
+		{
+			this.segmentStore.close();
+		}
 	}
 	
 	public void deleteRenderCache()
@@ -328,6 +409,38 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 		
 		// delete the render cache
 		this.renderDataRepo.deleteAll();
+		this.meshDataRepo.deleteAll();
+		if (this.segmentStore != null)
+		{
+			try
+			{
+				this.segmentStore.deleteAll();
+			}
+			catch (IOException e)
+			{
+				LOGGER.error("Unable to delete the mapped render cache, error: [" + e.getMessage() + "].", e);
+			}
+		}
+	}
+	
+	/** Removes the render data for the given position from whichever storage is in use. */
+	private void deleteRenderData(DhSectionPos pos)
+	{
+		if (this.segmentStore != null)
+		{
+			try
+			{
+				this.segmentStore.delete(pos);
+			}
+			catch (IOException e)
+			{
+				LOGGER.error("Unable to delete render data for pos [" + pos + "], error: [" + e.getMessage() + "].", e);
+			}
+		}
+		else
+		{
+			this.renderDataRepo.deleteByPrimaryKey(pos.serialize());
+		}
 	}
 	
 	
@@ -336,6 +449,35 @@ public class RenderSourceFileHandler implements IRenderSourceProvider
 	// helper classes //
 	//================//
 	
+	/** 
+	 * Render data is a cache that can be re-created from the full data, 
+	 * so corrupted or outdated rows are simply deleted. <br>
+	 * Loaded handles are left alone since their in-memory data will overwrite the row when saved.
+	 */
+	private class RenderDataMaintenanceHandler implements DatabaseMaintainer.IMaintenanceHandler
+	{
+		@Override
+		public void onCorruptedRowDeleted(DhSectionPos pos) { /* loaded handles will re-create the row when they're saved */ }
+		
+		@Override
+		public boolean isFormatOutdated(String dataType, byte binaryDataFormatVersion) { return binaryDataFormatVersion < ColumnRenderSource.DATA_FORMAT_VERSION; }
+		
+		@Override
+		public CompletableFuture<Void> rewriteRowAsync(DhSectionPos pos)
+		{
+			this.deleteIfUnloaded(pos);
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		private void deleteIfUnloaded(DhSectionPos pos)
+		{
+			if (!RenderSourceFileHandler.this.loadedMetaFileBySectionPos.containsKey(pos))
+			{
+				RenderSourceFileHandler.this.renderDataRepo.deleteByPrimaryKey(pos.serialize());
+			}
+		}
+	}
+	
 	/**
 	 * READ <br>
 	 * UPDATE_READ_DATA <br>
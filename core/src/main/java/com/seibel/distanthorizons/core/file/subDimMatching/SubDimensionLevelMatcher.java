@@ -199,6 +199,7 @@ public class SubDimensionLevelMatcher implements AutoCloseable
 		// convert to a data source for easier comparing
 		CompleteFullDataSource newDataSource = CompleteFullDataSource.createEmpty(new DhSectionPos(this.playerData.playerBlockPos));
 		newDataSource.update(newChunkSizedFullDataView);
+		newChunkSizedFullDataView.release();
 		
 		
 		
@@ -25,6 +25,7 @@ import com.seibel.distanthorizons.core.pos.DhBlockPos;
 import com.seibel.distanthorizons.core.pos.DhChunkPos;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.ChunkSectionPalette;
 import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
 import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
 import org.apache.logging.log4j.Logger;
@@ -69,143 +70,404 @@ public class DhLightingEngine
 	 */
 	public void lightChunk(IChunkWrapper centerChunk, ArrayList<IChunkWrapper> nearbyChunkList, int maxSkyLight)
 	{
-		DhChunkPos centerChunkPos = centerChunk.getChunkPos();
-		AdjacentChunkHolder adjacentChunkHolder = new AdjacentChunkHolder(centerChunk);
+		ArrayList<IChunkWrapper> litChunkList = new ArrayList<>(1);
+		litChunkList.add(centerChunk);
+		this.lightChunks(litChunkList, nearbyChunkList, maxSkyLight);
+	}
+	
+	/**
+	 * Lights every chunk in litChunkList in a single pass. <br>
+	 * This is much cheaper than calling {@link DhLightingEngine#lightChunk} for each chunk
+	 * when the chunks are next to each other, since each light source is only propagated once. <br><br>
+	 *
+	 * Only chunks within 1 chunk of a lit chunk will be used for lighting,
+	 * any other chunks in nearbyChunkList are ignored.
+	 *
+	 * @param litChunkList the chunks we want to apply lighting to
+	 * @param nearbyChunkList should also contain every chunk in litChunkList
+	 * @param maxSkyLight should be a value between 0 and 15
+	 * @see DhLightingEngine#lightChunk
+	 */
+	public void lightChunks(ArrayList<IChunkWrapper> litChunkList, ArrayList<IChunkWrapper> nearbyChunkList, int maxSkyLight)
+	{
+		if (litChunkList.isEmpty())
+		{
+			return;
+		}
+		
+		AdjacentChunkHolder adjacentChunkHolder = new AdjacentChunkHolder(litChunkList);
+		DhChunkPos firstChunkPos = litChunkList.get(0).getChunkPos();
 		
 		long startTimeNs = System.nanoTime();
 		
 		
-		// try-finally to handle the stableArray resources
-		StableLightPosStack blockLightPosQueue = null;
-		StableLightPosStack skyLightPosQueue = null;
+		// find all adjacent chunks,
+		// only the first chunk found for each position is used
+		for (int chunkIndex = 0; chunkIndex < nearbyChunkList.size(); chunkIndex++) // using iterators in high traffic areas can cause GC issues due to allocating a bunch of iterators, use an indexed for-loop instead
+		{
+			IChunkWrapper chunk = nearbyChunkList.get(chunkIndex);
+			if (chunk != null)
+			{
+				adjacentChunkHolder.tryAddNearbyChunk(chunk);
+			}
+			
+			if (adjacentChunkHolder.isFull())
+			{
+				// we found every chunk we needed, we don't need to keep iterating
+				break;
+			}
+		}
+		
+		
+		// try-finally to handle the volume resources
+		LightingVolume lightingVolume = null;
 		try
 		{
-			blockLightPosQueue = StableLightPosStack.borrowStableLightPosArray();
-			skyLightPosQueue = StableLightPosStack.borrowStableLightPosArray();
+			lightingVolume = LightingVolume.borrowLightingVolume();
+			lightingVolume.snapshotBlocks(adjacentChunkHolder);
 			
 			
+			// block light
+			lightingVolume.beginChannel((chunk, relBlockPos) -> chunk.getDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z));
 			
-			// generate the list of chunk pos we need,
-			// currently a 3x3 grid
-			HashSet<DhChunkPos> requestedAdjacentPositions = new HashSet<>(9);
-			for (int xOffset = -1; xOffset <= 1; xOffset++)
+			final DhBlockPos relLightBlockPos = PRIMARY_BLOCK_POS_REF.get();
+			for (int holderIndex = 0; holderIndex < adjacentChunkHolder.chunkArray.length; holderIndex++)
 			{
-				for (int zOffset = -1; zOffset <= 1; zOffset++)
+				if (!adjacentChunkHolder.nearbyChunkFound[holderIndex])
+				{
+					// only nearby chunks are used as light sources
+					continue;
+				}
+				
+				IChunkWrapper chunk = adjacentChunkHolder.chunkArray[holderIndex];
+				ArrayList<DhBlockPos> blockLightPosList = chunk.getBlockLightPosList();
+				for (int blockLightIndex = 0; blockLightIndex < blockLightPosList.size(); blockLightIndex++) // using iterators in high traffic areas can cause GC issues due to allocating a bunch of iterators, use an indexed for-loop instead
 				{
-					DhChunkPos adjacentPos = new DhChunkPos(centerChunkPos.x + xOffset, centerChunkPos.z + zOffset);
-					requestedAdjacentPositions.add(adjacentPos);
+					DhBlockPos blockLightPos = blockLightPosList.get(blockLightIndex);
+					blockLightPos.mutateToChunkRelativePos(relLightBlockPos);
+					
+					IBlockStateWrapper blockState = chunk.getBlockState(relLightBlockPos);
+					lightingVolume.seedLight(blockLightPos.x, blockLightPos.y, blockLightPos.z, blockState.getLightEmission());
 				}
 			}
 			
+			lightingVolume.propagate();
+			lightingVolume.writeChangedLights((chunk, relBlockPos, newLightValue) -> chunk.setDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
 			
-			// find all adjacent chunks
-			// and get any necessary info from them
-			boolean warningLogged = false;
-			for (int chunkIndex = 0; chunkIndex < nearbyChunkList.size(); chunkIndex++) // using iterators in high traffic areas can cause GC issues due to allocating a bunch of iterators, use an indexed for-loop instead
+			
+			// sky light,
+			// if the dimension has skylights
+			if (maxSkyLight > 0)
 			{
-				IChunkWrapper chunk = nearbyChunkList.get(chunkIndex);
+				lightingVolume.beginChannel((chunk, relBlockPos) -> chunk.getDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z));
 				
-				if (chunk != null && requestedAdjacentPositions.contains(chunk.getChunkPos()))
+				for (int holderIndex = 0; holderIndex < adjacentChunkHolder.chunkArray.length; holderIndex++)
 				{
-					// remove the newly found position
-					requestedAdjacentPositions.remove(chunk.getChunkPos());
-					
-					// add the adjacent chunk
-					adjacentChunkHolder.add(chunk);
-					
-					
-					
-					// get and set the adjacent chunk's initial block lights
-					final DhBlockPos relLightBlockPos = PRIMARY_BLOCK_POS_REF.get();
-					final DhBlockPos relBlockPos = SECONDARY_BLOCK_POS_REF.get();
-					
-					ArrayList<DhBlockPos> blockLightPosList = chunk.getBlockLightPosList();
-					for (int blockLightIndex = 0; blockLightIndex < blockLightPosList.size(); blockLightIndex++) // using iterators in high traffic areas can cause GC issues due to allocating a bunch of iterators, use an indexed for-loop instead
+					if (adjacentChunkHolder.nearbyChunkFound[holderIndex])
 					{
-						DhBlockPos blockLightPos = blockLightPosList.get(blockLightIndex);
-						blockLightPos.mutateToChunkRelativePos(relLightBlockPos);
-						
-						// get the light
-						IBlockStateWrapper blockState = chunk.getBlockState(relLightBlockPos);
-						int lightValue = blockState.getLightEmission();
-						blockLightPosQueue.push(blockLightPos.x, blockLightPos.y, blockLightPos.z, lightValue);
-						
-						// set the light
-						blockLightPos.mutateToChunkRelativePos(relBlockPos);
-						chunk.setDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, lightValue);
-					}
-					
-					
-					// get and set the adjacent chunk's initial skylights,
-					// if the dimension has skylights
-					if (maxSkyLight > 0)
-					{
-						// get the adjacent chunk's sky lights
-						for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++) // relative block pos
-						{
-							for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
-							{
-								// set each pos' sky light all the way down until a opaque block is hit
-								for (int y = chunk.getMaxBuildHeight(); y >= chunk.getMinBuildHeight(); y--)
-								{
-									IBlockStateWrapper block = chunk.getBlockState(relX, y, relZ);
-									if (block != null && block.getOpacity() != IBlockStateWrapper.FULLY_TRANSPARENT)
-									{
-										// keep moving down until we find a non-transparent block
-										break;
-									}
-									
-									
-									// add sky light to the queue
-									DhBlockPos skyLightPos = new DhBlockPos(chunk.getMinBlockX() + relX, y, chunk.getMinBlockZ() + relZ);
-									skyLightPosQueue.push(skyLightPos.x, skyLightPos.y, skyLightPos.z, maxSkyLight);
-									
-									// set the chunk's sky light
-									skyLightPos.mutateToChunkRelativePos(relBlockPos);
-									chunk.setDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, maxSkyLight);
-								}
-							}
-						}
+						lightingVolume.seedSkyLights(adjacentChunkHolder.chunkArray[holderIndex], maxSkyLight);
 					}
 				}
 				
-				
-				if (requestedAdjacentPositions.isEmpty())
+				lightingVolume.propagate();
+				lightingVolume.writeChangedLights((chunk, relBlockPos, newLightValue) -> chunk.setDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
+			}
+		}
+		catch (Exception e)
+		{
+			LOGGER.error("Unexpected lighting issue for chunks: "+adjacentChunkHolder, e);
+		}
+		finally
+		{
+			LightingVolume.returnLightingVolume(lightingVolume);
+		}
+		
+		
+		
+		for (int i = 0; i < litChunkList.size(); i++)
+		{
+			IChunkWrapper litChunk = litChunkList.get(i);
+			litChunk.setIsDhLightCorrect(true);
+			litChunk.setUseDhLighting(true);
+		}
+		
+		long endTimeNs = System.nanoTime();
+		float totalTimeMs = (endTimeNs - startTimeNs) / 1_000_000.0f;
+		LOGGER.trace("Finished generating lighting for [" + litChunkList.size() + "] chunk(s) starting at: [" + firstChunkPos + "] in ["+totalTimeMs+"] milliseconds");
+	}
+	
+	
+	
+	//=====================//
+	// incremental updates //
+	//=====================//
+	
+	/**
+	 * Updates the lighting around the given block positions without re-lighting the whole area. <br>
+	 * Much faster than {@link DhLightingEngine#lightChunks} when only a few blocks changed,
+	 * since only the region that could have been lit through the changed blocks is touched. <br><br>
+	 *
+	 * For each light type a removal pass first darkens every position that may have received light
+	 * through the changed blocks, then light is re-propagated into that region from its brighter edges
+	 * and from any light sources inside it. <br><br>
+	 *
+	 * Every chunk in nearbyChunkList must already have correct DH lighting
+	 * and the changed positions must already contain their new block states.
+	 *
+	 * @param nearbyChunkList should contain every chunk with a changed block and any chunks next to them
+	 * @param changedBlockPosList absolute block positions
+	 * @param maxSkyLight should be a value between 0 and 15
+	 */
+	public void updateChangedBlockLights(ArrayList<IChunkWrapper> nearbyChunkList, ArrayList<DhBlockPos> changedBlockPosList, int maxSkyLight)
+	{
+		if (changedBlockPosList.isEmpty())
+		{
+			return;
+		}
+		
+		
+		// only chunks next to a changed block can be affected, 
+		// light can't travel further than 15 blocks
+		ArrayList<IChunkWrapper> changedChunkList = new ArrayList<>();
+		for (int i = 0; i < nearbyChunkList.size(); i++)
+		{
+			IChunkWrapper chunk = nearbyChunkList.get(i);
+			if (chunk == null)
+			{
+				continue;
+			}
+			
+			for (int j = 0; j < changedBlockPosList.size(); j++)
+			{
+				DhBlockPos changedPos = changedBlockPosList.get(j);
+				if (changedPos.x >= chunk.getMinBlockX() && changedPos.x <= chunk.getMaxBlockX()
+					&& changedPos.z >= chunk.getMinBlockZ() && changedPos.z <= chunk.getMaxBlockZ())
 				{
-					// we found every chunk we needed, we don't need to keep iterating
+					changedChunkList.add(chunk);
 					break;
 				}
 			}
-
+		}
+		
+		if (changedChunkList.isEmpty())
+		{
+			return;
+		}
+		
+		AdjacentChunkHolder adjacentChunkHolder = new AdjacentChunkHolder(changedChunkList);
+		for (int i = 0; i < nearbyChunkList.size(); i++)
+		{
+			IChunkWrapper chunk = nearbyChunkList.get(i);
+			if (chunk != null)
+			{
+				adjacentChunkHolder.tryAddNearbyChunk(chunk);
+			}
+		}
+		
+		
+		// try-finally to handle the stableArray resources
+		StableLightPosStack removalPosQueue = null;
+		StableLightPosStack addPosQueue = null;
+		try
+		{
+			removalPosQueue = StableLightPosStack.borrowStableLightPosArray();
+			addPosQueue = StableLightPosStack.borrowStableLightPosArray();
+			
 			// block light
-			this.propagateLightPosList(blockLightPosQueue, adjacentChunkHolder,
-					(neighbourChunk, relBlockPos) -> neighbourChunk.getDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z),
-					(neighbourChunk, relBlockPos, newLightValue) -> neighbourChunk.setDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
+			this.updateChangedLights(changedBlockPosList, adjacentChunkHolder, removalPosQueue, addPosQueue, 0,
+					(chunk, relBlockPos) -> chunk.getDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z),
+					(chunk, relBlockPos, newLightValue) -> chunk.setDhBlockLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
 			
 			// sky light
-			this.propagateLightPosList(skyLightPosQueue, adjacentChunkHolder,
-					(neighbourChunk, relBlockPos) -> neighbourChunk.getDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z),
-					(neighbourChunk, relBlockPos, newLightValue) -> neighbourChunk.setDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
+			if (maxSkyLight > 0)
+			{
+				this.updateChangedLights(changedBlockPosList, adjacentChunkHolder, removalPosQueue, addPosQueue, maxSkyLight,
+						(chunk, relBlockPos) -> chunk.getDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z),
+						(chunk, relBlockPos, newLightValue) -> chunk.setDhSkyLight(relBlockPos.x, relBlockPos.y, relBlockPos.z, newLightValue));
+			}
 		}
 		catch (Exception e)
 		{
-			LOGGER.error("Unexpected lighting issue for center chunk: "+centerChunkPos, e);
+			LOGGER.error("Unexpected incremental lighting issue for chunks: "+adjacentChunkHolder, e);
 		}
 		finally
 		{
-			StableLightPosStack.returnStableLightPosArray(blockLightPosQueue);
-			StableLightPosStack.returnStableLightPosArray(skyLightPosQueue);
+			StableLightPosStack.returnStableLightPosArray(removalPosQueue);
+			StableLightPosStack.returnStableLightPosArray(addPosQueue);
 		}
+	}
+	
+	/** @param maxSkyLight 0 when updating block lights, otherwise sky light sources will be updated */
+	private void updateChangedLights(
+			ArrayList<DhBlockPos> changedBlockPosList, AdjacentChunkHolder adjacentChunkHolder,
+			StableLightPosStack removalPosQueue, StableLightPosStack addPosQueue, int maxSkyLight,
+			IGetLightFunc getLightFunc, ISetLightFunc setLightFunc)
+	{
+		boolean isSkyLight = (maxSkyLight > 0);
+		final DhBlockPos relBlockPos = new DhBlockPos();
 		
 		
+		// seed the removal pass
+		for (int i = 0; i < changedBlockPosList.size(); i++)
+		{
+			DhBlockPos changedPos = changedBlockPosList.get(i);
+			IChunkWrapper chunk = adjacentChunkHolder.getByBlockPos(changedPos.x, changedPos.z);
+			if (chunk == null)
+			{
+				continue;
+			}
+			
+			changedPos.mutateToChunkRelativePos(relBlockPos);
+			if (isSkyLight)
+			{
+				// blocking or un-blocking a column changes which positions are sky light sources
+				this.updateSkyLightColumn(chunk, changedPos, maxSkyLight, removalPosQueue, addPosQueue, getLightFunc, setLightFunc);
+				
+				if (getLightFunc.getLight(chunk, relBlockPos) == maxSkyLight)
+				{
+					// this position is a sky light source, no need to remove it
+					continue;
+				}
+			}
+			
+			if (relBlockPos.y < chunk.getMinFilledHeight() || relBlockPos.y > chunk.getMaxBuildHeight())
+			{
+				continue;
+			}
+			
+			int oldLightValue = getLightFunc.getLight(chunk, relBlockPos);
+			this.removeLight(chunk, changedPos, relBlockPos, isSkyLight, addPosQueue, setLightFunc);
+			removalPosQueue.push(changedPos.x, changedPos.y, changedPos.z, oldLightValue);
+		}
 		
-		centerChunk.setIsDhLightCorrect(true);
-		centerChunk.setUseDhLighting(true);
 		
-		long endTimeNs = System.nanoTime();
-		float totalTimeMs = (endTimeNs - startTimeNs) / 1_000_000.0f;
-		LOGGER.trace("Finished generating lighting for chunk: [" + centerChunkPos + "] in ["+totalTimeMs+"] milliseconds");
+		// removal pass
+		final LightPos lightPos = new LightPos(0, 0, 0, 0);
+		final DhBlockPos neighbourBlockPos = new DhBlockPos();
+		final DhBlockPos relNeighbourBlockPos = new DhBlockPos();
+		while (!removalPosQueue.isEmpty())
+		{
+			removalPosQueue.popMutate(lightPos);
+			int lightValue = lightPos.lightValue;
+			
+			for (EDhDirection direction : EDhDirection.CARDINAL_DIRECTIONS) // since this is an array instead of an ArrayList this advanced for-loop shouldn't cause any GC issues
+			{
+				lightPos.mutateOffset(direction, neighbourBlockPos);
+				neighbourBlockPos.mutateToChunkRelativePos(relNeighbourBlockPos);
+				
+				IChunkWrapper neighbourChunk = adjacentChunkHolder.getByBlockPos(neighbourBlockPos.x, neighbourBlockPos.z);
+				if (neighbourChunk == null
+					|| relNeighbourBlockPos.y < neighbourChunk.getMinFilledHeight() 
+					|| relNeighbourBlockPos.y > neighbourChunk.getMaxBuildHeight())
+				{
+					// same limits as propagateLightPosList
+					continue;
+				}
+				
+				
+				int neighbourLight = getLightFunc.getLight(neighbourChunk, relNeighbourBlockPos);
+				if (neighbourLight != 0 && neighbourLight < lightValue)
+				{
+					// this position may have been lit by the removed light
+					this.removeLight(neighbourChunk, neighbourBlockPos, relNeighbourBlockPos, isSkyLight, addPosQueue, setLightFunc);
+					removalPosQueue.push(neighbourBlockPos.x, neighbourBlockPos.y, neighbourBlockPos.z, neighbourLight);
+				}
+				else if (neighbourLight >= lightValue)
+				{
+					// this position was lit by something else,
+					// use it to re-light the removed area
+					addPosQueue.push(neighbourBlockPos.x, neighbourBlockPos.y, neighbourBlockPos.z, neighbourLight);
+				}
+			}
+		}
+		
+		
+		// re-add pass,
+		// positions may have been removed after they were queued,
+		// so they are re-queued using their current light values
+		while (!addPosQueue.isEmpty())
+		{
+			addPosQueue.popMutate(lightPos);
+			
+			IChunkWrapper chunk = adjacentChunkHolder.getByBlockPos(lightPos.x, lightPos.z);
+			lightPos.mutateToChunkRelativePos(relBlockPos);
+			int currentLightValue = getLightFunc.getLight(chunk, relBlockPos);
+			if (currentLightValue > 0)
+			{
+				removalPosQueue.push(lightPos.x, lightPos.y, lightPos.z, currentLightValue);
+			}
+		}
+		this.propagateLightPosList(removalPosQueue, adjacentChunkHolder, getLightFunc, setLightFunc);
+	}
+	/** clears the light at the given position, re-seeding it if the block emits light */
+	private void removeLight(IChunkWrapper chunk, DhBlockPos blockPos, DhBlockPos relBlockPos, boolean isSkyLight, StableLightPosStack addPosQueue, ISetLightFunc setLightFunc)
+	{
+		int emission = isSkyLight ? 0 : chunk.getBlockState(relBlockPos).getLightEmission();
+		setLightFunc.setLight(chunk, relBlockPos, emission);
+		if (emission > 0)
+		{
+			addPosQueue.push(blockPos.x, blockPos.y, blockPos.z, emission);
+		}
 	}
+	/** 
+	 * Adds or removes the sky light sources at and below the changed position. <br>
+	 * Matches how {@link DhLightingEngine#lightChunks} seeds sky lights.
+	 */
+	private void updateSkyLightColumn(
+			IChunkWrapper chunk, DhBlockPos changedPos, int maxSkyLight, 
+			StableLightPosStack removalPosQueue, StableLightPosStack addPosQueue, 
+			IGetLightFunc getLightFunc, ISetLightFunc setLightFunc)
+	{
+		DhBlockPos relPos = changedPos.mutateToChunkRelativePos(new DhBlockPos());
+		
+		// is anything above the changed position blocking the sky?
+		boolean exposedToSky = true;
+		for (int y = chunk.getMaxBuildHeight(); y > changedPos.y; y--)
+		{
+			IBlockStateWrapper block = chunk.getBlockState(relPos.x, y, relPos.z);
+			if (block != null && block.getOpacity() != IBlockStateWrapper.FULLY_TRANSPARENT)
+			{
+				exposedToSky = false;
+				break;
+			}
+		}
+		
+		for (int y = Math.min(changedPos.y, chunk.getMaxBuildHeight()); y >= chunk.getMinBuildHeight(); y--)
+		{
+			relPos.y = y;
+			if (exposedToSky)
+			{
+				IBlockStateWrapper block = chunk.getBlockState(relPos);
+				exposedToSky = (block == null || block.getOpacity() == IBlockStateWrapper.FULLY_TRANSPARENT);
+			}
+			
+			// only sources can have the max light value since propagation always reduces the light
+			boolean wasSource = (getLightFunc.getLight(chunk, relPos) == maxSkyLight);
+			if (exposedToSky && !wasSource)
+			{
+				setLightFunc.setLight(chunk, relPos, maxSkyLight);
+				addPosQueue.push(changedPos.x, y, changedPos.z, maxSkyLight);
+			}
+			else if (!exposedToSky && wasSource)
+			{
+				setLightFunc.setLight(chunk, relPos, 0);
+				removalPosQueue.push(changedPos.x, y, changedPos.z, maxSkyLight);
+			}
+			else if (!exposedToSky)
+			{
+				// sources are always continuous from the top of the column,
+				// so nothing below this point can have changed
+				break;
+			}
+		}
+	}
+	
+	
+	
+	
+	//=============//
+	// propagation //
+	//=============//
 	
 	/** Applies each {@link LightPos} from the queue to the given set of {@link IChunkWrapper}'s. */
 	private void propagateLightPosList(
@@ -303,62 +565,550 @@ public class DhLightingEngine
 		
 	}
 	
-	/** holds the adjacent chunks without having to create new Pos objects */
+	/** 
+	 * holds the adjacent chunks without having to create new Pos objects. <br>
+	 * Covers the bounding box of the lit chunks plus 1 chunk in each direction.
+	 */
 	private static class AdjacentChunkHolder
 	{
-		final IChunkWrapper[] chunkArray = new IChunkWrapper[9];		
+		final int minChunkX;
+		final int minChunkZ;
+		final int widthInChunks;
+		final int depthInChunks;
 		
+		final IChunkWrapper[] chunkArray;
+		/** true if the chunk at that index came from the nearby chunk list */
+		final boolean[] nearbyChunkFound;
+		int nearbyChunkFoundCount = 0;
 		
-		public AdjacentChunkHolder(IChunkWrapper centerWrapper) { this.chunkArray[4] = centerWrapper; }
 		
-		
-		public void add(IChunkWrapper centerWrapper) 
+		public AdjacentChunkHolder(ArrayList<IChunkWrapper> litChunkList)
 		{
-			DhChunkPos centerPos = this.chunkArray[4].getChunkPos();
-			DhChunkPos offsetPos = centerWrapper.getChunkPos();
+			int minX = Integer.MAX_VALUE;
+			int minZ = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE;
+			int maxZ = Integer.MIN_VALUE;
+			for (int i = 0; i < litChunkList.size(); i++)
+			{
+				DhChunkPos pos = litChunkList.get(i).getChunkPos();
+				minX = Math.min(minX, pos.x);
+				minZ = Math.min(minZ, pos.z);
+				maxX = Math.max(maxX, pos.x);
+				maxZ = Math.max(maxZ, pos.z);
+			}
 			
-			int offsetX = offsetPos.x - centerPos.x;
-			if (offsetX < -1 || offsetX > 1)
+			this.minChunkX = minX - 1;
+			this.minChunkZ = minZ - 1;
+			this.widthInChunks = (maxX - minX) + 3;
+			this.depthInChunks = (maxZ - minZ) + 3;
+			
+			this.chunkArray = new IChunkWrapper[this.widthInChunks * this.depthInChunks];
+			this.nearbyChunkFound = new boolean[this.chunkArray.length];
+			
+			for (int i = 0; i < litChunkList.size(); i++)
 			{
-				return;
+				IChunkWrapper litChunk = litChunkList.get(i);
+				int index = this.getIndex(litChunk.getChunkPos().x, litChunk.getChunkPos().z);
+				if (this.chunkArray[index] == null)
+				{
+					this.chunkArray[index] = litChunk;
+				}
+			}
+		}
+		
+		
+		/** @return true if the chunk was added and should be used as a light source */
+		public boolean tryAddNearbyChunk(IChunkWrapper chunk)
+		{
+			DhChunkPos pos = chunk.getChunkPos();
+			int index = this.getIndex(pos.x, pos.z);
+			if (index == -1 || this.nearbyChunkFound[index])
+			{
+				// out of range or a chunk was already found for this position
+				return false;
 			}
 			
-			int offsetZ = offsetPos.z - centerPos.z;
-			if (offsetZ < -1 || offsetZ > 1)
+			IChunkWrapper existingChunk = this.chunkArray[index];
+			if (existingChunk != null && existingChunk != chunk)
 			{
-				return;
+				// a different wrapper is being lit at this position
+				return false;
 			}
 			
-			// equivalent to 4 + offsetX + (offsetZ * 3).
-			this.chunkArray[4 + offsetX + offsetZ + (offsetZ << 1)] = centerWrapper;
+			this.chunkArray[index] = chunk;
+			this.nearbyChunkFound[index] = true;
+			this.nearbyChunkFoundCount++;
+			return true;
 		}
-
+		
+		public boolean isFull() { return this.nearbyChunkFoundCount == this.chunkArray.length; }
+		
 		public IChunkWrapper getByBlockPos(int blockX, int blockZ)
 		{
 			int chunkX = BitShiftUtil.divideByPowerOfTwo(blockX, 4);
 			int chunkZ = BitShiftUtil.divideByPowerOfTwo(blockZ, 4);
-			IChunkWrapper centerChunk = this.chunkArray[4];
-			DhChunkPos centerPos = centerChunk.getChunkPos();
-			if (centerPos.x == chunkX && centerPos.z == chunkZ)
+			int index = this.getIndex(chunkX, chunkZ);
+			return (index != -1) ? this.chunkArray[index] : null;
+		}
+		
+		/** @return -1 if the position is outside this holder */
+		private int getIndex(int chunkX, int chunkZ)
+		{
+			int offsetX = chunkX - this.minChunkX;
+			if (offsetX < 0 || offsetX >= this.widthInChunks)
 			{
-				return centerChunk;
+				return -1;
 			}
 			
-			int offsetX = chunkX - centerPos.x;
-			if (offsetX < -1 || offsetX > 1)
+			int offsetZ = chunkZ - this.minChunkZ;
+			if (offsetZ < 0 || offsetZ >= this.depthInChunks)
 			{
-				return null;
+				return -1;
 			}
 			
-			int offsetZ = chunkZ - centerPos.z;
-			if (offsetZ < -1 || offsetZ > 1)
+			return offsetX + (offsetZ * this.widthInChunks);
+		}
+		
+		@Override
+		public String toString() { return "[" + this.minChunkX + "," + this.minChunkZ + "] " + this.widthInChunks + "x" + this.depthInChunks; }
+		
+	}
+	
+	/**
+	 * A packed snapshot of the blocks in an {@link AdjacentChunkHolder}'s area. <br>
+	 * Each position is stored in a single byte, the upper nibble contains the amount
+	 * of light lost when entering that position (IE max(1, opacity)) and the lower nibble contains its current light.
+	 * Positions with a light loss of 0 can't be lit (they're outside a chunk's filled area or no chunk exists there). <br><br>
+	 *
+	 * Propagating light over this array is much faster than going through the {@link IChunkWrapper}s,
+	 * since each neighbour lookup is just an index offset.
+	 * Light values are only read from the chunks the first time a position is touched
+	 * and only positions whose light changed are written back.
+	 */
+	private static class LightingVolume
+	{
+		/** necessary to prevent multiple threads from modifying the cache at once */
+		private static final ReentrantLock cacheLock = new ReentrantLock();
+		private static final Queue<LightingVolume> volumeCache = new ArrayDeque<>();
+		
+		private static final int LIGHT_MASK = 0x0F;
+		
+		/** the volume has an un-lightable border of 1 position, so neighbour offsets never leave the array */
+		private static final int BORDER_WIDTH = 1;
+		
+		
+		private int minBlockX;
+		private int minBlockZ;
+		private int minBlockY;
+		private int maxBlockY;
+		
+		private int sizeX;
+		private int sizeZ;
+		private int volumeSize;
+		/** +y, -y, -x, +x, -z, +z */
+		private final int[] neighbourOffsets = new int[6];
+		
+		private byte[] data = new byte[0];
+		/** set once a position's light has been read from its chunk */
+		private long[] lightLoadedBits = new long[0];
+		private long[] lightChangedBits = new long[0];
+		private final IntArrayList changedIndexList = new IntArrayList();
+		/** each entry is (index << 4) | lightValue */
+		private final IntArrayList propagationStack = new IntArrayList();
+		
+		/** the highest non-transparent block in each column, relative to minBlockX/Z */
+		private int[] highestBlockingYByColumn = new int[0];
+		
+		/** re-used for each section's palette, grown as needed */
+		private byte[] lightLossByPaletteIndex = new byte[0];
+		private boolean[] blocksSkyByPaletteIndex = new boolean[0];
+		
+		private AdjacentChunkHolder adjacentChunkHolder;
+		private IGetLightFunc getLightFunc;
+		private final DhBlockPos relBlockPos = new DhBlockPos();
+		
+		
+		
+		//================//
+		// cache handling //
+		//================//
+		
+		private static LightingVolume borrowLightingVolume()
+		{
+			try
+			{
+				// prevent multiple threads modifying the cache at once
+				cacheLock.lock();
+				
+				return volumeCache.isEmpty() ? new LightingVolume() : volumeCache.remove();
+			}
+			finally
+			{
+				cacheLock.unlock();
+			}
+		}
+		
+		private static void returnLightingVolume(LightingVolume volume)
+		{
+			if (volume == null)
+			{
+				return;
+			}
+			
+			// don't hold onto the chunks
+			volume.adjacentChunkHolder = null;
+			volume.getLightFunc = null;
+			
+			try
+			{
+				// prevent multiple threads modifying the cache at once
+				cacheLock.lock();
+				volumeCache.add(volume);
+			}
+			finally
+			{
+				cacheLock.unlock();
+			}
+		}
+		
+		
+		
+		//==========//
+		// snapshot //
+		//==========//
+		
+		public void snapshotBlocks(AdjacentChunkHolder adjacentChunkHolder)
+		{
+			this.adjacentChunkHolder = adjacentChunkHolder;
+			
+			int minY = Integer.MAX_VALUE;
+			int maxY = Integer.MIN_VALUE;
+			for (IChunkWrapper chunk : adjacentChunkHolder.chunkArray) // since this is an array instead of an ArrayList this advanced for-loop shouldn't cause any GC issues
+			{
+				if (chunk != null)
+				{
+					minY = Math.min(minY, chunk.getMinBuildHeight());
+					maxY = Math.max(maxY, chunk.getMaxBuildHeight());
+				}
+			}
+			
+			this.minBlockX = adjacentChunkHolder.minChunkX * LodUtil.CHUNK_WIDTH;
+			this.minBlockZ = adjacentChunkHolder.minChunkZ * LodUtil.CHUNK_WIDTH;
+			this.minBlockY = minY;
+			this.maxBlockY = maxY;
+			
+			int blockWidthX = adjacentChunkHolder.widthInChunks * LodUtil.CHUNK_WIDTH;
+			int blockWidthZ = adjacentChunkHolder.depthInChunks * LodUtil.CHUNK_WIDTH;
+			this.sizeX = blockWidthX + (BORDER_WIDTH * 2);
+			this.sizeZ = blockWidthZ + (BORDER_WIDTH * 2);
+			int sizeY = (maxY - minY + 1) + (BORDER_WIDTH * 2);
+			this.volumeSize = this.sizeX * this.sizeZ * sizeY;
+			
+			int strideY = this.sizeX * this.sizeZ;
+			this.neighbourOffsets[0] = strideY;
+			this.neighbourOffsets[1] = -strideY;
+			this.neighbourOffsets[2] = -1;
+			this.neighbourOffsets[3] = 1;
+			this.neighbourOffsets[4] = -this.sizeX;
+			this.neighbourOffsets[5] = this.sizeX;
+			
+			
+			// re-use the arrays when possible
+			if (this.data.length < this.volumeSize)
+			{
+				this.data = new byte[this.volumeSize];
+				this.lightLoadedBits = new long[(this.volumeSize + 63) / 64];
+				this.lightChangedBits = new long[this.lightLoadedBits.length];
+			}
+			else
+			{
+				Arrays.fill(this.data, 0, this.volumeSize, (byte) 0);
+			}
+			
+			int columnCount = blockWidthX * blockWidthZ;
+			if (this.highestBlockingYByColumn.length < columnCount)
+			{
+				this.highestBlockingYByColumn = new int[columnCount];
+			}
+			Arrays.fill(this.highestBlockingYByColumn, 0, columnCount, Integer.MIN_VALUE);
+			
+			
+			for (int holderIndex = 0; holderIndex < adjacentChunkHolder.chunkArray.length; holderIndex++)
+			{
+				IChunkWrapper chunk = adjacentChunkHolder.chunkArray[holderIndex];
+				if (chunk != null)
+				{
+					this.snapshotChunk(chunk);
+				}
+			}
+		}
+		private void snapshotChunk(IChunkWrapper chunk)
+		{
+			int chunkOffsetX = chunk.getMinBlockX() - this.minBlockX;
+			int chunkOffsetZ = chunk.getMinBlockZ() - this.minBlockZ;
+			
+			// positions outside this range can't be lit, same as propagateLightPosList
+			int validMinY = Math.max(chunk.getMinFilledHeight(), this.minBlockY);
+			int validMaxY = Math.min(chunk.getMaxBuildHeight(), this.maxBlockY);
+			if (validMinY > validMaxY)
+			{
+				// empty chunk
+				return;
+			}
+			
+			
+			// most blocks can be read in bulk using the chunk's sections
+			int sectionCount = chunk.getSectionCount();
+			int lastSectionIndex = Math.min(sectionCount - 1, chunk.getSectionIndex(validMaxY));
+			for (int sectionIndex = Math.max(0, chunk.getSectionIndex(validMinY)); sectionIndex <= lastSectionIndex; sectionIndex++)
+			{
+				ChunkSectionPalette<IBlockStateWrapper> section = chunk.getBlockStateSection(sectionIndex);
+				
+				// convert the palette once instead of for every block
+				int paletteSize = section.getPaletteSize();
+				if (this.lightLossByPaletteIndex.length < paletteSize)
+				{
+					this.lightLossByPaletteIndex = new byte[paletteSize];
+					this.blocksSkyByPaletteIndex = new boolean[paletteSize];
+				}
+				byte[] lightLossByPaletteIndex = this.lightLossByPaletteIndex;
+				boolean[] blocksSkyByPaletteIndex = this.blocksSkyByPaletteIndex;
+				for (int paletteIndex = 0; paletteIndex < paletteSize; paletteIndex++)
+				{
+					IBlockStateWrapper block = section.getPaletteValue(paletteIndex);
+					lightLossByPaletteIndex[paletteIndex] = getLightLoss(block);
+					blocksSkyByPaletteIndex[paletteIndex] = blocksSkyLight(block);
+				}
+				
+				int sectionMinY = chunk.getSectionMinY(sectionIndex);
+				int minRelY = Math.max(0, validMinY - sectionMinY);
+				int maxRelY = Math.min(ChunkSectionPalette.SECTION_HEIGHT - 1, validMaxY - sectionMinY);
+				for (int relY = minRelY; relY <= maxRelY; relY++)
+				{
+					int y = sectionMinY + relY;
+					for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
+					{
+						for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++)
+						{
+							int paletteIndex = section.isUniform() ? 0 : section.getPaletteIndex(relX, relY, relZ);
+							this.setBlock(chunkOffsetX + relX, y, chunkOffsetZ + relZ, lightLossByPaletteIndex[paletteIndex], blocksSkyByPaletteIndex[paletteIndex]);
+						}
+					}
+				}
+			}
+			
+			// the max build height may be above the last section
+			int firstUnsectionedY = Math.max(validMinY, chunk.getSectionMinY(sectionCount));
+			for (int y = firstUnsectionedY; y <= validMaxY; y++)
+			{
+				for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
+				{
+					for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++)
+					{
+						IBlockStateWrapper block = chunk.getBlockState(relX, y, relZ);
+						this.setBlock(chunkOffsetX + relX, y, chunkOffsetZ + relZ, getLightLoss(block), blocksSkyLight(block));
+					}
+				}
+			}
+		}
+		private void setBlock(int volumeX, int y, int volumeZ, byte lightLoss, boolean blocksSkyLight)
+		{
+			this.data[this.getIndex(volumeX, y, volumeZ)] = (byte) (lightLoss << 4);
+			
+			if (blocksSkyLight)
+			{
+				int columnIndex = volumeX + (volumeZ * (this.sizeX - (BORDER_WIDTH * 2)));
+				if (y > this.highestBlockingYByColumn[columnIndex])
+				{
+					this.highestBlockingYByColumn[columnIndex] = y;
+				}
+			}
+		}
+		
+		/** matches the opacity handling in {@link DhLightingEngine#propagateLightPosList} */
+		private static byte getLightLoss(IBlockStateWrapper block)
+		{
+			int opacity = (block != null) ? block.getOpacity() : IBlockStateWrapper.FULLY_TRANSPARENT;
+			return (byte) Math.min(LIGHT_MASK, Math.max(1, opacity));
+		}
+		/** matches how sky lights are seeded in {@link DhLightingEngine#lightChunks} */
+		private static boolean blocksSkyLight(IBlockStateWrapper block) { return block != null && block.getOpacity() != IBlockStateWrapper.FULLY_TRANSPARENT; }
+		
+		/** @param volumeX and volumeZ are relative to minBlockX/Z */
+		private int getIndex(int volumeX, int y, int volumeZ) { return (volumeX + BORDER_WIDTH) + ((volumeZ + BORDER_WIDTH) * this.sizeX) + ((y - this.minBlockY + BORDER_WIDTH) * this.sizeX * this.sizeZ); }
+		
+		
+		
+		//==============//
+		// light values //
+		//==============//
+		
+		/** should be called before seeding each light type */
+		public void beginChannel(IGetLightFunc getLightFunc)
+		{
+			this.getLightFunc = getLightFunc;
+			
+			int bitArrayLength = (this.volumeSize + 63) / 64;
+			Arrays.fill(this.lightLoadedBits, 0, bitArrayLength, 0L);
+			Arrays.fill(this.lightChangedBits, 0, bitArrayLength, 0L);
+			this.changedIndexList.clear();
+			this.propagationStack.clear();
+		}
+		
+		private int getLight(int index)
+		{
+			if ((this.lightLoadedBits[index >>> 6] & (1L << index)) != 0)
 			{
-				return null;
+				return this.data[index] & LIGHT_MASK;
 			}
 			
-			// equivalent to 4 + offsetX + (offsetZ * 3).
-			return this.chunkArray[4 + offsetX + offsetZ + (offsetZ << 1)];
+			
+			// first time this position was touched, get its light from the chunk
+			this.lightLoadedBits[index >>> 6] |= (1L << index);
+			
+			int lightValue = 0;
+			IChunkWrapper chunk = this.getChunkAndRelPos(index, this.relBlockPos);
+			if (chunk != null)
+			{
+				lightValue = this.getLightFunc.getLight(chunk, this.relBlockPos) & LIGHT_MASK;
+			}
+			
+			this.data[index] = (byte) ((this.data[index] & ~LIGHT_MASK) | lightValue);
+			return lightValue;
+		}
+		
+		private void setLight(int index, int lightValue)
+		{
+			this.data[index] = (byte) ((this.data[index] & ~LIGHT_MASK) | lightValue);
+			this.lightLoadedBits[index >>> 6] |= (1L << index);
+			
+			if ((this.lightChangedBits[index >>> 6] & (1L << index)) == 0)
+			{
+				this.lightChangedBits[index >>> 6] |= (1L << index);
+				this.changedIndexList.add(index);
+			}
 		}
+		
+		/** sets the light at the given absolute block position and queues it for propagation */
+		public void seedLight(int blockX, int blockY, int blockZ, int lightValue)
+		{
+			int volumeX = blockX - this.minBlockX;
+			int volumeZ = blockZ - this.minBlockZ;
+			if (volumeX < 0 || volumeX >= this.sizeX - (BORDER_WIDTH * 2)
+				|| volumeZ < 0 || volumeZ >= this.sizeZ - (BORDER_WIDTH * 2)
+				|| blockY < this.minBlockY || blockY > this.maxBlockY)
+			{
+				return;
+			}
+			
+			int index = this.getIndex(volumeX, blockY, volumeZ);
+			lightValue &= LIGHT_MASK;
+			this.setLight(index, lightValue);
+			this.propagationStack.add((index << 4) | lightValue);
+		}
+		
+		/** seeds every position above the highest non-transparent block in each of the chunk's columns */
+		public void seedSkyLights(IChunkWrapper chunk, int maxSkyLight)
+		{
+			int chunkOffsetX = chunk.getMinBlockX() - this.minBlockX;
+			int chunkOffsetZ = chunk.getMinBlockZ() - this.minBlockZ;
+			int blockWidthX = this.sizeX - (BORDER_WIDTH * 2);
+			
+			for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++)
+			{
+				for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
+				{
+					int volumeX = chunkOffsetX + relX;
+					int volumeZ = chunkOffsetZ + relZ;
+					int highestBlockingY = this.highestBlockingYByColumn[volumeX + (volumeZ * blockWidthX)];
+					int minSkyY = Math.max(chunk.getMinBuildHeight(), highestBlockingY + 1);
+					
+					for (int y = chunk.getMaxBuildHeight(); y >= minSkyY; y--)
+					{
+						int index = this.getIndex(volumeX, y, volumeZ);
+						this.setLight(index, maxSkyLight);
+						this.propagationStack.add((index << 4) | maxSkyLight);
+					}
+				}
+			}
+		}
+		
+		
+		
+		//=============//
+		// propagation //
+		//=============//
+		
+		/** the primitive equivalent of {@link DhLightingEngine#propagateLightPosList} */
+		public void propagate()
+		{
+			final byte[] data = this.data;
+			final int[] neighbourOffsets = this.neighbourOffsets;
+			final IntArrayList stack = this.propagationStack;
+			
+			while (!stack.isEmpty())
+			{
+				// since we don't care about the order the positions are processed,
+				// we can grab the last position instead of the first
+				int entry = stack.popInt();
+				int index = entry >>> 4;
+				int lightValue = entry & LIGHT_MASK;
+				
+				for (int i = 0; i < neighbourOffsets.length; i++)
+				{
+					int neighbourIndex = index + neighbourOffsets[i];
+					int lightLoss = (data[neighbourIndex] >>> 4) & LIGHT_MASK;
+					if (lightLoss == 0)
+					{
+						// this position can't be lit
+						continue;
+					}
+					
+					int targetLevel = lightValue - lightLoss;
+					if (targetLevel > this.getLight(neighbourIndex))
+					{
+						// this position is darker than the new light value, update/set it
+						this.setLight(neighbourIndex, targetLevel);
+						
+						// now that light has been propagated to this position
+						// we need to queue it up so its neighbours can be propagated as well
+						stack.add((neighbourIndex << 4) | targetLevel);
+					}
+				}
+			}
+		}
+		
+		/** writes every light value that changed since {@link LightingVolume#beginChannel} back into the chunks */
+		public void writeChangedLights(ISetLightFunc setLightFunc)
+		{
+			for (int i = 0; i < this.changedIndexList.size(); i++)
+			{
+				int index = this.changedIndexList.getInt(i);
+				IChunkWrapper chunk = this.getChunkAndRelPos(index, this.relBlockPos);
+				if (chunk != null)
+				{
+					setLightFunc.setLight(chunk, this.relBlockPos, this.data[index] & LIGHT_MASK);
+				}
+			}
+		}
+		
+		/** @return null if no chunk exists at the given index */
+		private IChunkWrapper getChunkAndRelPos(int index, DhBlockPos relBlockPos)
+		{
+			int volumeX = (index % this.sizeX) - BORDER_WIDTH;
+			int remainder = index / this.sizeX;
+			int volumeZ = (remainder % this.sizeZ) - BORDER_WIDTH;
+			int volumeY = (remainder / this.sizeZ) - BORDER_WIDTH;
+			
+			int holderIndex = (volumeX >> 4) + ((volumeZ >> 4) * this.adjacentChunkHolder.widthInChunks);
+			IChunkWrapper chunk = this.adjacentChunkHolder.chunkArray[holderIndex];
+			
+			relBlockPos.x = volumeX & (LodUtil.CHUNK_WIDTH - 1);
+			relBlockPos.y = volumeY + this.minBlockY;
+			relBlockPos.z = volumeZ & (LodUtil.CHUNK_WIDTH - 1);
+			return chunk;
+		}
+		
 	}
 	
 	/** 
@@ -374,7 +1124,7 @@ public class DhLightingEngine
 		
 		/** the index of the last item in the array, -1 if empty */
 		private int index = -1;
-
+		
 		/** x, y, z, and lightValue. */
 		public static final int INTS_PER_LIGHT_POS = 4;
 		
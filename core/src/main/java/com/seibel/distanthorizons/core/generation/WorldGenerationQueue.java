@@ -28,6 +28,7 @@ import com.seibel.distanthorizons.core.generation.tasks.*;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
 import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.pos.DhLodPos;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.config.Config;
 import com.seibel.distanthorizons.core.dataObjects.transformers.LodDataBuilder;
@@ -220,18 +221,6 @@ public class WorldGenerationQueue implements IWorldGenerationQueue, IDebugRender
 			}
 		});
 	}
-
-	private static class Mapper
-	{
-		public final WorldGenTask task;
-		public final int dist;
-		public Mapper(WorldGenTask task, int dist)
-		{
-			this.task = task;
-			this.dist = dist;
-		}
-		
-	}
 	
 	/**
 	 * @param targetPos the position to center the generation around
@@ -255,17 +244,20 @@ public class WorldGenerationQueue implements IWorldGenerationQueue, IDebugRender
 		
 		
 		
-		Mapper closestTaskMap = this.waitingTasks.reduceEntries(1024,
-				entry -> new Mapper(entry.getValue(), entry.getValue().pos.getSectionBBoxPos().getCenterBlockPos().toPos2D().chebyshevDist(targetPos.toPos2D())),
-				(aMapper, bMapper) -> aMapper.dist < bMapper.dist ? aMapper : bMapper);
+		// find the closest distance first and then a task at that distance,
+		// this is done so we don't have to allocate an object for every task each time we scan the queue
+		long closestDist = this.waitingTasks.reduceValuesToLong(1024,
+				(task) -> getChebyshevDistToTask(task, targetPos),
+				Long.MAX_VALUE, Math::min);
+		WorldGenTask closestTask = this.waitingTasks.searchValues(1024,
+				(task) -> getChebyshevDistToTask(task, targetPos) == closestDist ? task : null);
 		
-		if (closestTaskMap == null)
+		if (closestTask == null)
 		{
 			// FIXME concurrency issue
 			return false;
 		}
 		
-		WorldGenTask closestTask = closestTaskMap.task;
 		
 		// remove the task we found, we are going to start it and don't want to run it multiple times
 		this.waitingTasks.remove(closestTask.pos, closestTask);
@@ -327,6 +319,12 @@ public class WorldGenerationQueue implements IWorldGenerationQueue, IDebugRender
 			return true;
 		}
 	}
+	private static long getChebyshevDistToTask(WorldGenTask task, DhBlockPos2D targetPos)
+	{
+		long packedPos = task.pos.asLong();
+		return targetPos.chebyshevDist(DhLodPos.getCenterBlockPosX(packedPos), DhLodPos.getCenterBlockPosZ(packedPos));
+	}
+	
 	/** @return true if the task was started, false otherwise */
 	private boolean tryStartingWorldGenTaskGroup(InProgressWorldGenTaskGroup newTaskGroup)
 	{
@@ -433,6 +431,7 @@ public class WorldGenerationQueue implements IWorldGenerationQueue, IDebugRender
 				ChunkSizedFullDataAccessor chunkDataAccessor = LodDataBuilder.createChunkData(chunk);
 				LodUtil.assertTrue(chunkDataAccessor != null);
 				chunkDataConsumer.accept(chunkDataAccessor);
+				chunkDataAccessor.release();
 			}
 			catch (ClassCastException e)
 			{
@@ -0,0 +1,124 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar;
+
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.sql.DatabaseMaintainer;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles the standalone jar's database vacuum mode,
+ * which converts existing databases to incremental auto vacuuming. <br>
+ * This is done outside the game since it requires a full VACUUM, which locks the database until it finishes. <br><br>
+ *
+ * Example: <br>
+ * <code>java -jar DistantHorizons.jar --vacuum ./world/data</code>
+ *
+ * @see DatabaseMaintainer#convertToIncrementalVacuum
+ */
+public class DatabaseVacuumCommand
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	public static final String VACUUM_ARG = "--vacuum";
+	
+	private static final String DATABASE_TYPE = "jdbc:sqlite";
+	private static final String DATABASE_FILE_SUFFIX = ".sqlite";
+	
+	public static final String USAGE = ""
+			+ "Usage: " + VACUUM_ARG + " <file or folder> \n"
+			+ "\n"
+			+ "Converts the given database (or every database in the folder, including shards) to incremental vacuuming. \n"
+			+ "The game must be closed while this runs and each database needs up to twice its size in free disk space. \n"
+			+ "";
+	
+	
+	
+	//=========//
+	// running //
+	//=========//
+	
+	/** @return the process exit code */
+	public static int run(List<String> args)
+	{
+		int index = args.indexOf(VACUUM_ARG);
+		if (index == -1 || index + 1 >= args.size())
+		{
+			System.out.println(USAGE);
+			return 1;
+		}
+		
+		File target = new File(args.get(index + 1));
+		if (!target.exists())
+		{
+			LOGGER.error("No database or folder exists at [" + target.getAbsolutePath() + "].");
+			return 1;
+		}
+		
+		ArrayList<File> databaseFileList = new ArrayList<>();
+		findDatabaseFiles(target, databaseFileList);
+		
+		int failedCount = 0;
+		for (File databaseFile : databaseFileList)
+		{
+			LOGGER.info("Vacuuming database [" + databaseFile.getPath() + "], this may take a while...");
+			try
+			{
+				if (!DatabaseMaintainer.convertToIncrementalVacuum(DATABASE_TYPE, databaseFile.getPath()))
+				{
+					LOGGER.info("Database [" + databaseFile.getPath() + "] already uses incremental vacuuming.");
+				}
+			}
+			catch (SQLException e)
+			{
+				failedCount++;
+				LOGGER.error("Unable to vacuum database [" + databaseFile.getPath() + "], error: [" + e.getMessage() + "].", e);
+			}
+		}
+		
+		LOGGER.info("Finished vacuuming [" + (databaseFileList.size() - failedCount) + "/" + databaseFileList.size() + "] databases.");
+		return (failedCount == 0) ? 0 : 2;
+	}
+	
+	private static void findDatabaseFiles(File file, ArrayList<File> databaseFileList)
+	{
+		File[] childFiles = file.listFiles();
+		if (childFiles == null)
+		{
+			// not a folder
+			if (file.getName().endsWith(DATABASE_FILE_SUFFIX))
+			{
+				databaseFileList.add(file);
+			}
+			return;
+		}
+		
+		for (File childFile : childFiles)
+		{
+			findDatabaseFiles(childFile, databaseFileList);
+		}
+	}
+	
+}
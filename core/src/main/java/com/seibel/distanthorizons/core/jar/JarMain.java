@@ -24,6 +24,7 @@ import com.seibel.distanthorizons.core.jar.gui.BaseJFrame;
 import com.seibel.distanthorizons.core.jar.gui.cusomJObject.JBox;
 import com.seibel.distanthorizons.core.jar.installer.ModrinthGetter;
 import com.seibel.distanthorizons.core.jar.installer.WebDownloader;
+import com.seibel.distanthorizons.core.jar.pregen.PreGenCommand;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
@@ -84,6 +85,18 @@ public class JarMain
 		}
 		JarDependencySetup.createInitialBindings();
 		
+		if (programArgs.contains(PreGenCommand.PREGEN_ARG))
+		{
+			System.exit(PreGenCommand.run(programArgs));
+			return;
+		}
+		
+		if (programArgs.contains(DatabaseVacuumCommand.VACUUM_ARG))
+		{
+			System.exit(DatabaseVacuumCommand.run(programArgs));
+			return;
+		}
+		
 		if (args.length == 0 || Arrays.asList(args).contains("--gui"))
 		{
 			startGUI();
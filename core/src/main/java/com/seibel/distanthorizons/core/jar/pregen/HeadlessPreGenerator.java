@@ -0,0 +1,306 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.core.file.fullDatafile.IFullDataSourceProvider;
+import com.seibel.distanthorizons.core.generation.DhLightingEngine;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.util.ThreadUtil;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds a full data database for a list of regions without a running game. <br><br>
+ *
+ * Each region is processed on its own thread: <br>
+ * 1. the region's data files (and their parents) are loaded so chunk data can be down-sampled into them <br>
+ * 2. the region's chunks are requested from the {@link IPreGenChunkSource} <br>
+ * 3. chunks without valid lighting are lit with the {@link DhLightingEngine} <br>
+ * 4. each chunk is converted to full data and written to the database <br>
+ * 5. the region is saved and marked as complete in the {@link PreGenProgressFile} <br>
+ *
+ * @see PreGenCommand
+ */
+public class HeadlessPreGenerator implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	private static final long MS_BETWEEN_PROGRESS_LOGS = TimeUnit.SECONDS.toMillis(10);
+	
+	private final IPreGenChunkSource chunkSource;
+	private final PreGenLevel level;
+	private final PreGenProgressFile progressFile;
+	private final int threadCount;
+	/** each region's parents up to this detail level will be populated */
+	private final byte topDetailLevel;
+	
+	private final AtomicInteger completedRegionCount = new AtomicInteger(0);
+	private final AtomicInteger failedRegionCount = new AtomicInteger(0);
+	private final AtomicLong processedChunkCount = new AtomicLong(0);
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public HeadlessPreGenerator(IPreGenChunkSource chunkSource, File outputFolder, int threadCount, byte topDetailLevel) throws IOException
+	{
+		this.chunkSource = chunkSource;
+		this.level = new PreGenLevel(chunkSource.getLevelWrapper(), outputFolder);
+		this.progressFile = new PreGenProgressFile(outputFolder);
+		this.threadCount = threadCount;
+		this.topDetailLevel = (byte) Math.max(topDetailLevel, LodUtil.REGION_DETAIL_LEVEL);
+	}
+	
+	
+	
+	//================//
+	// pre-generation //
+	//================//
+	
+	/**
+	 * Blocks until every region has been processed.
+	 * 
+	 * @param regionPosList regions at {@link LodUtil#REGION_DETAIL_LEVEL}, will be processed in order
+	 * @return the number of regions that failed
+	 */
+	public int run(List<DhSectionPos> regionPosList) throws InterruptedException
+	{
+		ArrayList<DhSectionPos> remainingRegionPosList = new ArrayList<>(regionPosList.size());
+		for (DhSectionPos regionPos : regionPosList)
+		{
+			LodUtil.assertTrue(regionPos.getDetailLevel() == LodUtil.REGION_DETAIL_LEVEL, "Expected a region position, got: [" + regionPos + "].");
+			if (!this.progressFile.isCompleted(regionPos))
+			{
+				remainingRegionPosList.add(regionPos);
+			}
+		}
+		
+		int skippedCount = regionPosList.size() - remainingRegionPosList.size();
+		if (skippedCount != 0)
+		{
+			LOGGER.info("Resuming pre-generation, [" + skippedCount + "] regions were already completed.");
+		}
+		LOGGER.info("Pre-generating [" + remainingRegionPosList.size() + "] regions using [" + this.threadCount + "] threads...");
+		
+		
+		long startMsTime = System.currentTimeMillis();
+		ThreadPoolExecutor executor = ThreadUtil.makeThreadPool(this.threadCount, HeadlessPreGenerator.class);
+		try
+		{
+			ArrayList<CompletableFuture<Void>> regionFutureList = new ArrayList<>(remainingRegionPosList.size());
+			for (DhSectionPos regionPos : remainingRegionPosList)
+			{
+				regionFutureList.add(CompletableFuture.runAsync(() -> this.processRegion(regionPos), executor));
+			}
+			
+			CompletableFuture<Void> allRegionsFuture = CompletableFuture.allOf(regionFutureList.toArray(new CompletableFuture[0]));
+			while (true)
+			{
+				try
+				{
+					allRegionsFuture.get(MS_BETWEEN_PROGRESS_LOGS, TimeUnit.MILLISECONDS);
+					break;
+				}
+				catch (TimeoutException e)
+				{
+					this.logProgress(startMsTime, remainingRegionPosList.size());
+				}
+				catch (ExecutionException e)
+				{
+					// shouldn't happen since each region handles its own errors
+					LOGGER.error("Unexpected pre-generation error: " + e.getMessage(), e);
+					break;
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		this.level.saveAsync().join();
+		this.logProgress(startMsTime, remainingRegionPosList.size());
+		LOGGER.info("Pre-generation finished in [" + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startMsTime) + "] seconds, [" + this.failedRegionCount.get() + "] regions failed.");
+		
+		return this.failedRegionCount.get();
+	}
+	
+	private void processRegion(DhSectionPos regionPos)
+	{
+		try
+		{
+			IFullDataSourceProvider fileHandler = this.level.getFileHandler();
+			
+			// chunk data is only written (and down-sampled) into loaded files,
+			// so every file this region touches needs to be loaded first
+			ArrayList<DhSectionPos> savePosList = getSectionPosToLoad(regionPos, this.topDetailLevel);
+			
+			ArrayList<CompletableFuture<?>> loadFutureList = new ArrayList<>(savePosList.size());
+			for (DhSectionPos pos : savePosList)
+			{
+				loadFutureList.add(fileHandler.readAsync(pos));
+			}
+			CompletableFuture.allOf(loadFutureList.toArray(new CompletableFuture[0])).join();
+			
+			
+			// a 1 chunk border is included so lighting can propagate in from outside the region
+			int minChunkX = regionPos.getX() * LodUtil.REGION_WIDTH_IN_CHUNKS;
+			int minChunkZ = regionPos.getZ() * LodUtil.REGION_WIDTH_IN_CHUNKS;
+			ArrayList<IChunkWrapper> nearbyChunkList = this.chunkSource.getChunks(minChunkX - 1, minChunkZ - 1, LodUtil.REGION_WIDTH_IN_CHUNKS + 2);
+			
+			ArrayList<IChunkWrapper> regionChunkList = new ArrayList<>(LodUtil.REGION_WIDTH_IN_CHUNKS * LodUtil.REGION_WIDTH_IN_CHUNKS);
+			ArrayList<IChunkWrapper> dhLitChunkList = new ArrayList<>();
+			for (IChunkWrapper chunk : nearbyChunkList)
+			{
+				DhChunkPos chunkPos = chunk.getChunkPos();
+				if (chunkPos.x < minChunkX || chunkPos.x >= minChunkX + LodUtil.REGION_WIDTH_IN_CHUNKS
+					|| chunkPos.z < minChunkZ || chunkPos.z >= minChunkZ + LodUtil.REGION_WIDTH_IN_CHUNKS)
+				{
+					// border chunk, only used for lighting
+					continue;
+				}
+				regionChunkList.add(chunk);
+				
+				if (chunk.isLightCorrect())
+				{
+					try
+					{
+						chunk.bakeDhLightingUsingMcLightingEngine();
+						continue;
+					}
+					catch (IllegalStateException e)
+					{
+						// fall back to DH's lighting
+					}
+				}
+				dhLitChunkList.add(chunk);
+			}
+			
+			// area lighting is done in a single pass so each light source is only propagated once
+			DhLightingEngine.INSTANCE.lightChunks(dhLitChunkList, nearbyChunkList, this.level.hasSkyLight() ? 15 : 0);
+			
+			
+			int writtenChunkCount = 0;
+			for (IChunkWrapper chunk : regionChunkList)
+			{
+				if (this.level.writeChunk(chunk))
+				{
+					writtenChunkCount++;
+				}
+			}
+			
+			ArrayList<CompletableFuture<Void>> saveFutureList = new ArrayList<>(savePosList.size());
+			for (DhSectionPos pos : savePosList)
+			{
+				saveFutureList.add(fileHandler.flushAndSaveAsync(pos));
+			}
+			CompletableFuture.allOf(saveFutureList.toArray(new CompletableFuture[0])).join();
+			
+			this.progressFile.markCompleted(regionPos);
+			this.processedChunkCount.addAndGet(writtenChunkCount);
+			this.completedRegionCount.incrementAndGet();
+			
+			// nothing is rendered, so handles can be evicted as soon as they're idle
+			fileHandler.tryEvictIdleFiles(Collections.emptyList());
+		}
+		catch (Exception e)
+		{
+			this.failedRegionCount.incrementAndGet();
+			LOGGER.error("Failed to pre-generate region [" + regionPos + "], it will be retried next run. Error: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * @return every section inside the given region (at each detail level below it),
+	 * the region itself, and its parents up to the given top detail level.
+	 */
+	public static ArrayList<DhSectionPos> getSectionPosToLoad(DhSectionPos regionPos, byte topDetailLevel)
+	{
+		ArrayList<DhSectionPos> posList = new ArrayList<>();
+		for (byte detailLevel = DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL; detailLevel < regionPos.getDetailLevel(); detailLevel++)
+		{
+			regionPos.forEachChildAtLevel(detailLevel, posList::add);
+		}
+		
+		for (DhSectionPos parentPos = regionPos; parentPos.getDetailLevel() <= topDetailLevel; parentPos = parentPos.getParentPos())
+		{
+			posList.add(parentPos);
+		}
+		return posList;
+	}
+	
+	private void logProgress(long startMsTime, int totalRegionCount)
+	{
+		double elapsedSeconds = Math.max(System.currentTimeMillis() - startMsTime, 1) / 1000.0;
+		double chunksPerSecond = this.processedChunkCount.get() / elapsedSeconds;
+		int completedCount = this.completedRegionCount.get();
+		
+		String etaString = "unknown";
+		if (completedCount != 0)
+		{
+			long etaSeconds = (long) ((elapsedSeconds / completedCount) * (totalRegionCount - completedCount - this.failedRegionCount.get()));
+			etaString = etaSeconds + " seconds";
+		}
+		
+		LOGGER.info("Pre-generated [" + completedCount + "/" + totalRegionCount + "] regions, "
+				+ "[" + this.processedChunkCount.get() + "] chunks at [" + String.format("%.1f", chunksPerSecond) + "] chunks/sec, "
+				+ "estimated time remaining: [" + etaString + "].");
+	}
+	
+	
+	
+	//==========//
+	// shutdown //
+	//==========//
+	
+	@Override
+	public void close()
+	{
+		this.level.close();
+		
+		try
+		{
+			this.progressFile.close();
+		}
+		catch (IOException e)
+		{
+			LOGGER.warn("Unable to close pre-generation progress file: " + e.getMessage(), e);
+		}
+	}
+	
+}
@@ -0,0 +1,59 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+
+import java.util.ArrayList;
+
+/**
+ * Provides chunks to the {@link HeadlessPreGenerator}. <br><br>
+ *
+ * Sources passed in via the command line must have a public
+ * constructor that accepts the world folder ({@link java.io.File}) as its only argument.
+ *
+ * @see WorldGeneratorChunkSource
+ * @see IPreGenWorldGenerator
+ * @see PreGenCommand
+ */
+public interface IPreGenChunkSource extends AutoCloseable
+{
+	/** Used for the data palette and the level's height range. */
+	ILevelWrapper getLevelWrapper();
+	
+	/**
+	 * Returns every chunk that could be loaded or generated in the given area,
+	 * chunks that don't exist can be omitted. <br>
+	 * Will be called by multiple threads at the same time.
+	 *
+	 * @param minChunkX the chunk X position closest to negative infinity
+	 * @param minChunkZ the chunk Z position closest to negative infinity
+	 * @param chunkWidth how many chunks wide the area is
+	 */
+	ArrayList<IChunkWrapper> getChunks(int minChunkX, int minChunkZ, int chunkWidth) throws Exception;
+	
+	
+	// This is overridden to remove the "throws Exception"
+	// that is present in the default AutoCloseable.close() method
+	@Override
+	void close();
+	
+}
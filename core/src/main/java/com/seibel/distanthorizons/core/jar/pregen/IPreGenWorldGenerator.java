@@ -0,0 +1,39 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.api.interfaces.override.worldGenerator.IDhApiWorldGenerator;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+
+/**
+ * A world generator that can be run by the {@link HeadlessPreGenerator}
+ * (via the {@link WorldGeneratorChunkSource}). <br><br>
+ *
+ * Generators passed in via the command line must have a public
+ * constructor that accepts the world folder ({@link java.io.File}) as its only argument.
+ *
+ * @see PreGenCommand
+ */
+public interface IPreGenWorldGenerator extends IDhApiWorldGenerator
+{
+	/** The level this generator creates chunks for, used for the data palette and the level's height range. */
+	ILevelWrapper getLevelWrapper();
+	
+}
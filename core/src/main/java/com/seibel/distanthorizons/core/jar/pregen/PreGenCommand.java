@@ -0,0 +1,300 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.util.threading.ThreadPools;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Handles the standalone jar's headless pre-generation mode. <br><br>
+ *
+ * Example: <br>
+ * <code>java -jar DistantHorizons.jar --pregen --world ./world/DIM-1 --source com.example.ChunkSource --radius 8</code> <br>
+ * <code>java -jar DistantHorizons.jar --pregen --world ./world/DIM-1 --generator com.example.WorldGenerator --radius 8</code>
+ *
+ * @see HeadlessPreGenerator
+ */
+public class PreGenCommand
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	public static final String PREGEN_ARG = "--pregen";
+	
+	public static final String USAGE = ""
+			+ "Usage: " + PREGEN_ARG + " --world <folder> (--source <class name> | --generator <class name>) (--radius <regions> | --regions <file>) [options] \n"
+			+ "\n"
+			+ "  --world <folder>      The world (dimension) folder, passed to the chunk source or generator. \n"
+			+ "  --source <class>      A class implementing " + IPreGenChunkSource.class.getName() + " \n"
+			+ "                        with a public constructor that accepts the world folder. \n"
+			+ "  --generator <class>   A class implementing " + IPreGenWorldGenerator.class.getName() + " \n"
+			+ "                        with a public constructor that accepts the world folder, replaces --source. \n"
+			+ "  --radius <regions>    How many regions (512x512 blocks) around the center to generate. \n"
+			+ "  --center <x>,<z>      The center region, defaults to 0,0. \n"
+			+ "  --regions <file>      A file with one \"<regionX>,<regionZ>\" per line, replaces --radius and --center. \n"
+			+ "  --output <folder>     Where the database will be written, defaults to the world folder. \n"
+			+ "  --threads <count>     How many regions to process at once, defaults to the number of CPU cores. \n"
+			+ "\n"
+			+ "Completed regions are recorded in \"" + PreGenProgressFile.FILE_NAME + "\", \n"
+			+ "running the same command again will resume where the last run stopped. \n"
+			+ "";
+	
+	
+	
+	//=========//
+	// running //
+	//=========//
+	
+	/** @return the process exit code */
+	public static int run(List<String> args)
+	{
+		String worldPath = getArgValue(args, "--world");
+		String sourceClassName = getArgValue(args, "--source");
+		String generatorClassName = getArgValue(args, "--generator");
+		String radiusString = getArgValue(args, "--radius");
+		String regionFilePath = getArgValue(args, "--regions");
+		if (worldPath == null
+			|| (sourceClassName == null) == (generatorClassName == null)
+			|| (radiusString == null && regionFilePath == null))
+		{
+			System.out.println(USAGE);
+			return 1;
+		}
+		
+		
+		File worldFolder = new File(worldPath);
+		String outputPath = getArgValue(args, "--output");
+		File outputFolder = (outputPath != null) ? new File(outputPath) : worldFolder;
+		if (!outputFolder.exists() && !outputFolder.mkdirs())
+		{
+			LOGGER.error("Unable to create output folder [" + outputFolder.getAbsolutePath() + "].");
+			return 1;
+		}
+		
+		ArrayList<DhSectionPos> regionPosList;
+		int threadCount;
+		try
+		{
+			if (regionFilePath != null)
+			{
+				regionPosList = readRegionFile(new File(regionFilePath));
+			}
+			else
+			{
+				int[] center = parseRegionCoordinates(getArgValue(args, "--center", "0,0"));
+				regionPosList = getRegionsInRadius(center[0], center[1], Integer.parseInt(radiusString));
+			}
+			
+			threadCount = Integer.parseInt(getArgValue(args, "--threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+			if (threadCount < 1)
+			{
+				throw new IllegalArgumentException("Thread count must be at least 1, got [" + threadCount + "].");
+			}
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			LOGGER.error("Invalid pre-generation arguments: " + e.getMessage());
+			System.out.println(USAGE);
+			return 1;
+		}
+		
+		
+		ThreadPools.setupThreadPools();
+		try (IPreGenChunkSource chunkSource = (sourceClassName != null) ? createChunkSource(sourceClassName, worldFolder) : createGeneratorChunkSource(generatorClassName, worldFolder);
+				HeadlessPreGenerator preGenerator = new HeadlessPreGenerator(chunkSource, outputFolder, threadCount, getTopDetailLevel(regionPosList)))
+		{
+			int failedRegionCount = preGenerator.run(regionPosList);
+			return (failedRegionCount == 0) ? 0 : 2;
+		}
+		catch (Exception e)
+		{
+			LOGGER.error("Pre-generation failed: " + e.getMessage(), e);
+			return 1;
+		}
+		finally
+		{
+			ThreadPools.shutdownThreadPools();
+		}
+	}
+	
+	
+	
+	//================//
+	// source loading //
+	//================//
+	
+	/** @throws IllegalArgumentException if the class doesn't implement {@link IPreGenChunkSource} */
+	public static IPreGenChunkSource createChunkSource(String className, File worldFolder) throws ReflectiveOperationException, IllegalArgumentException
+	{ return createWithWorldFolder(className, IPreGenChunkSource.class, worldFolder); }
+	
+	/** 
+	 * Wraps the generator in a {@link WorldGeneratorChunkSource}.
+	 * 
+	 * @throws IllegalArgumentException if the class doesn't implement {@link IPreGenWorldGenerator}
+	 * @throws IllegalStateException if the generated chunks can't be wrapped, see {@link WorldGeneratorChunkSource}
+	 */
+	public static IPreGenChunkSource createGeneratorChunkSource(String className, File worldFolder) throws ReflectiveOperationException, IllegalArgumentException, IllegalStateException
+	{
+		IPreGenWorldGenerator generator = createWithWorldFolder(className, IPreGenWorldGenerator.class, worldFolder);
+		try
+		{
+			return new WorldGeneratorChunkSource(generator);
+		}
+		catch (IllegalStateException e)
+		{
+			generator.close();
+			throw e;
+		}
+	}
+	
+	private static <T> T createWithWorldFolder(String className, Class<T> expectedInterface, File worldFolder) throws ReflectiveOperationException, IllegalArgumentException
+	{
+		Class<?> loadedClass = Class.forName(className);
+		if (!expectedInterface.isAssignableFrom(loadedClass))
+		{
+			throw new IllegalArgumentException("[" + className + "] doesn't implement [" + expectedInterface.getSimpleName() + "].");
+		}
+		
+		return expectedInterface.cast(loadedClass.getConstructor(File.class).newInstance(worldFolder));
+	}
+	
+	
+	
+	//================//
+	// region helpers //
+	//================//
+	
+	/** The regions are sorted closest first, so the area around the center is usable as soon as possible. */
+	public static ArrayList<DhSectionPos> getRegionsInRadius(int centerRegionX, int centerRegionZ, int radius)
+	{
+		if (radius < 0)
+		{
+			throw new IllegalArgumentException("Radius must be positive, got [" + radius + "].");
+		}
+		
+		ArrayList<DhSectionPos> regionPosList = new ArrayList<>((radius * 2 + 1) * (radius * 2 + 1));
+		for (int x = centerRegionX - radius; x <= centerRegionX + radius; x++)
+		{
+			for (int z = centerRegionZ - radius; z <= centerRegionZ + radius; z++)
+			{
+				regionPosList.add(new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, x, z));
+			}
+		}
+		
+		regionPosList.sort(Comparator.comparingLong((DhSectionPos pos) ->
+		{
+			long xDist = pos.getX() - centerRegionX;
+			long zDist = pos.getZ() - centerRegionZ;
+			return (xDist * xDist) + (zDist * zDist);
+		}));
+		return regionPosList;
+	}
+	
+	public static ArrayList<DhSectionPos> readRegionFile(File regionFile) throws IOException
+	{
+		ArrayList<DhSectionPos> regionPosList = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(regionFile)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+				
+				int[] regionPos = parseRegionCoordinates(line);
+				regionPosList.add(new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, regionPos[0], regionPos[1]));
+			}
+		}
+		return regionPosList;
+	}
+	
+	/** @throws IllegalArgumentException if the value isn't in the format "x,z" */
+	public static int[] parseRegionCoordinates(String value) throws IllegalArgumentException
+	{
+		String[] split = value.split(",");
+		if (split.length != 2)
+		{
+			throw new IllegalArgumentException("Expected region coordinates in the format \"x,z\", got [" + value + "].");
+		}
+		
+		return new int[]{ Integer.parseInt(split[0].trim()), Integer.parseInt(split[1].trim()) };
+	}
+	
+	/** 
+	 * Returns the lowest detail level where the given regions fit in a 2x2 area of sections,
+	 * so the generated area is down-sampled all the way to its lowest detail.
+	 */
+	public static byte getTopDetailLevel(List<DhSectionPos> regionPosList)
+	{
+		if (regionPosList.isEmpty())
+		{
+			return LodUtil.REGION_DETAIL_LEVEL;
+		}
+		
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+		int minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+		for (DhSectionPos pos : regionPosList)
+		{
+			minX = Math.min(minX, pos.getX());
+			maxX = Math.max(maxX, pos.getX());
+			minZ = Math.min(minZ, pos.getZ());
+			maxZ = Math.max(maxZ, pos.getZ());
+		}
+		
+		int shift = 0;
+		while ((maxX >> shift) - (minX >> shift) > 1
+				|| (maxZ >> shift) - (minZ >> shift) > 1)
+		{
+			shift++;
+		}
+		return (byte) (LodUtil.REGION_DETAIL_LEVEL + shift);
+	}
+	
+	
+	
+	//==================//
+	// argument helpers //
+	//==================//
+	
+	private static String getArgValue(List<String> args, String name) { return getArgValue(args, name, null); }
+	private static String getArgValue(List<String> args, String name, String defaultValue)
+	{
+		int index = args.indexOf(name);
+		if (index == -1 || index + 1 >= args.size())
+		{
+			return defaultValue;
+		}
+		return args.get(index + 1);
+	}
+	
+}
@@ -0,0 +1,114 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.core.dataObjects.fullData.accessor.ChunkSizedFullDataAccessor;
+import com.seibel.distanthorizons.core.dataObjects.transformers.LodDataBuilder;
+import com.seibel.distanthorizons.core.file.fullDatafile.FullDataFileHandler;
+import com.seibel.distanthorizons.core.file.fullDatafile.IFullDataSourceProvider;
+import com.seibel.distanthorizons.core.file.structure.AbstractSaveStructure;
+import com.seibel.distanthorizons.core.level.IDhLevel;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A minimal level used by the {@link HeadlessPreGenerator}. <br>
+ * Only handles full data, the database is written directly to the output folder.
+ */
+public class PreGenLevel implements IDhLevel
+{
+	private final ILevelWrapper levelWrapper;
+	private final FullDataFileHandler fileHandler;
+	
+	
+	
+	public PreGenLevel(ILevelWrapper levelWrapper, File outputFolder)
+	{
+		this.levelWrapper = levelWrapper;
+		// the save structure is only used if no folder override is given
+		this.fileHandler = new FullDataFileHandler(this, null, outputFolder);
+	}
+	
+	
+	
+	//==============//
+	// chunk saving //
+	//==============//
+	
+	/** 
+	 * Converts and writes the chunk on the calling thread, 
+	 * the {@link HeadlessPreGenerator} handles its own threading. 
+	 */
+	@Override
+	public void updateChunkAsync(IChunkWrapper chunk) { this.writeChunk(chunk); }
+	/** @return false if the chunk couldn't be converted */
+	public boolean writeChunk(IChunkWrapper chunk)
+	{
+		ChunkSizedFullDataAccessor chunkData = LodDataBuilder.createChunkData(chunk);
+		if (chunkData == null)
+		{
+			return false;
+		}
+		
+		this.fileHandler.writeChunkDataToFile(new DhSectionPos(chunk.getChunkPos()), chunkData);
+		// anything that needs the accessor after this point will have retained it
+		chunkData.release();
+		return true;
+	}
+	
+	@Override
+	public CompletableFuture<Void> saveAsync() { return this.fileHandler.flushAndSaveAsync(); }
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	@Override
+	public int getMinY() { return this.levelWrapper.getMinHeight(); }
+	
+	@Override
+	public ILevelWrapper getLevelWrapper() { return this.levelWrapper; }
+	
+	@Override
+	public IFullDataSourceProvider getFileHandler() { return this.fileHandler; }
+	
+	/** Always null since the output folder is used directly. */
+	@Override
+	public AbstractSaveStructure getSaveStructure() { return null; }
+	
+	@Override
+	public boolean hasSkyLight() { return this.levelWrapper.hasSkyLight(); }
+	
+	
+	
+	//==========//
+	// shutdown //
+	//==========//
+	
+	@Override
+	public void close() { this.fileHandler.close(); }
+	
+}
@@ -0,0 +1,149 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which regions have finished pre-generating so an interrupted run can be resumed. <br>
+ * Each completed region is appended as its own line, so at most the regions
+ * that were in progress are lost if the process is killed.
+ */
+public class PreGenProgressFile implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	public static final String FILE_NAME = "DistantHorizons.pregen-progress";
+	
+	private final Set<DhSectionPos> completedRegionPosSet = ConcurrentHashMap.newKeySet();
+	private final BufferedWriter writer;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public PreGenProgressFile(File outputFolder) throws IOException
+	{
+		File progressFile = new File(outputFolder, FILE_NAME);
+		if (progressFile.exists())
+		{
+			try (BufferedReader reader = new BufferedReader(new FileReader(progressFile)))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					line = line.trim();
+					if (line.isEmpty())
+					{
+						continue;
+					}
+					
+					DhSectionPos regionPos;
+					try
+					{
+						regionPos = DhSectionPos.deserialize(line);
+					}
+					catch (RuntimeException e)
+					{
+						regionPos = null;
+					}
+					
+					if (regionPos != null)
+					{
+						this.completedRegionPosSet.add(regionPos);
+					}
+					else
+					{
+						// can happen if the process was killed while writing the line,
+						// that region will just be generated again
+						LOGGER.warn("Skipping invalid pre-generation progress line: [" + line + "].");
+					}
+				}
+			}
+		}
+		
+		this.writer = new BufferedWriter(new FileWriter(progressFile, true));
+		if (!endsWithNewLine(progressFile))
+		{
+			// the last line was only partially written,
+			// without a new line the next region would be appended to it and lost
+			this.writer.newLine();
+			this.writer.flush();
+		}
+	}
+	
+	private static boolean endsWithNewLine(File file) throws IOException
+	{
+		if (file.length() == 0)
+		{
+			return true;
+		}
+		
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"))
+		{
+			randomAccessFile.seek(randomAccessFile.length() - 1);
+			return randomAccessFile.read() == '\n';
+		}
+	}
+	
+	
+	
+	//==========//
+	// progress //
+	//==========//
+	
+	public boolean isCompleted(DhSectionPos regionPos) { return this.completedRegionPosSet.contains(regionPos); }
+	public int getCompletedCount() { return this.completedRegionPosSet.size(); }
+	
+	/** Should only be called after the region's data has been saved. */
+	public synchronized void markCompleted(DhSectionPos regionPos) throws IOException
+	{
+		if (this.completedRegionPosSet.add(regionPos))
+		{
+			this.writer.write(regionPos.serialize());
+			this.writer.newLine();
+			this.writer.flush();
+		}
+	}
+	
+	
+	
+	//==========//
+	// shutdown //
+	//==========//
+	
+	@Override
+	public synchronized void close() throws IOException { this.writer.close(); }
+	
+}
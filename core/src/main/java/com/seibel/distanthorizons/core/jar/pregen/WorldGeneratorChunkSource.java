@@ -0,0 +1,132 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.jar.pregen;
+
+import com.seibel.distanthorizons.api.enums.EDhApiDetailLevel;
+import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiDistantGeneratorMode;
+import com.seibel.distanthorizons.api.interfaces.override.worldGenerator.IDhApiWorldGenerator;
+import com.seibel.distanthorizons.core.config.Config;
+import com.seibel.distanthorizons.core.dependencyInjection.SingletonInjector;
+import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.util.threading.ThreadPools;
+import com.seibel.distanthorizons.core.wrapperInterfaces.IWrapperFactory;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs an {@link IDhApiWorldGenerator} to provide chunks for the {@link HeadlessPreGenerator}. <br>
+ * Requires an {@link IWrapperFactory} to be bound so the generated objects can be wrapped.
+ */
+public class WorldGeneratorChunkSource implements IPreGenChunkSource
+{
+	private static final long MS_BETWEEN_BUSY_CHECKS = 50;
+	
+	private final IDhApiWorldGenerator generator;
+	private final ILevelWrapper levelWrapper;
+	private final IWrapperFactory wrapperFactory;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public WorldGeneratorChunkSource(IPreGenWorldGenerator generator) throws IllegalStateException { this(generator, generator.getLevelWrapper()); }
+	public WorldGeneratorChunkSource(IDhApiWorldGenerator generator, ILevelWrapper levelWrapper) throws IllegalStateException
+	{
+		this.generator = generator;
+		this.levelWrapper = levelWrapper;
+		
+		this.wrapperFactory = SingletonInjector.INSTANCE.get(IWrapperFactory.class);
+		if (this.wrapperFactory == null)
+		{
+			throw new IllegalStateException("No [" + IWrapperFactory.class.getSimpleName() + "] bound, generated chunks can't be wrapped.");
+		}
+	}
+	
+	
+	
+	//==================//
+	// chunk generation //
+	//==================//
+	
+	@Override
+	public ILevelWrapper getLevelWrapper() { return this.levelWrapper; }
+	
+	@Override
+	public ArrayList<IChunkWrapper> getChunks(int minChunkX, int minChunkZ, int chunkWidth) throws Exception
+	{
+		// generation tasks have to be aligned to the generator's granularity
+		byte granularity = this.generator.getMaxGenerationGranularity();
+		int genChunkWidth = 1 << (granularity - EDhApiDetailLevel.CHUNK.detailLevel);
+		int alignedMinChunkX = Math.floorDiv(minChunkX, genChunkWidth) * genChunkWidth;
+		int alignedMinChunkZ = Math.floorDiv(minChunkZ, genChunkWidth) * genChunkWidth;
+		
+		EDhApiDistantGeneratorMode generatorMode = Config.Client.Advanced.WorldGenerator.distantGeneratorMode.get();
+		ArrayList<IChunkWrapper> chunkList = new ArrayList<>();
+		ArrayList<CompletableFuture<Void>> genFutureList = new ArrayList<>();
+		for (int genChunkX = alignedMinChunkX; genChunkX < minChunkX + chunkWidth; genChunkX += genChunkWidth)
+		{
+			for (int genChunkZ = alignedMinChunkZ; genChunkZ < minChunkZ + chunkWidth; genChunkZ += genChunkWidth)
+			{
+				while (this.generator.isBusy())
+				{
+					Thread.sleep(MS_BETWEEN_BUSY_CHECKS);
+				}
+				
+				this.generator.preGeneratorTaskStart();
+				genFutureList.add(this.generator.generateChunks(
+						genChunkX, genChunkZ,
+						granularity, EDhApiDetailLevel.BLOCK.detailLevel, generatorMode,
+						ThreadPools.getWorldGenExecutor(), (generatedObjectArray) ->
+						{
+							// throws a ClassCastException if the generator returned the wrong objects
+							IChunkWrapper chunk = this.wrapperFactory.createChunkWrapper(generatedObjectArray);
+							
+							DhChunkPos chunkPos = chunk.getChunkPos();
+							if (chunkPos.x >= minChunkX && chunkPos.x < minChunkX + chunkWidth
+								&& chunkPos.z >= minChunkZ && chunkPos.z < minChunkZ + chunkWidth)
+							{
+								synchronized (chunkList)
+								{
+									chunkList.add(chunk);
+								}
+							}
+						}));
+			}
+		}
+		
+		CompletableFuture.allOf(genFutureList.toArray(new CompletableFuture[0])).get();
+		return chunkList;
+	}
+	
+	
+	
+	//==========//
+	// shutdown //
+	//==========//
+	
+	@Override
+	public void close() { this.generator.close(); }
+	
+}
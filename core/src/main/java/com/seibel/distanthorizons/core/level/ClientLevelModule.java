@@ -42,6 +42,7 @@ import com.seibel.distanthorizons.coreapi.util.math.Mat4f;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Closeable;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -102,7 +103,16 @@ public class ClientLevelModule implements Closeable
 				return;
 			}
 		}
-		clientRenderState.quadtree.tick(new DhBlockPos2D(MC_CLIENT.getPlayerBlockPos()));
+		DhBlockPos2D playerPos = new DhBlockPos2D(MC_CLIENT.getPlayerBlockPos());
+		clientRenderState.quadtree.tick(playerPos);
+		
+		// free any file handles the player has moved away from
+		clientRenderState.renderSourceFileHandler.tryEvictIdleFiles(playerPos);
+		this.parentClientLevel.getFileHandler().tryEvictIdleFiles(Collections.singletonList(playerPos));
+		
+		// verify and compact the databases while nothing else is being loaded
+		clientRenderState.renderSourceFileHandler.tryQueueDatabaseMaintenance();
+		this.parentClientLevel.getFileHandler().tryQueueDatabaseMaintenance();
 		
 		boolean isBuffersDirty = false;
 		EDebugRendering newDebugRendering = Config.Client.Advanced.Debugging.debugRendering.get();
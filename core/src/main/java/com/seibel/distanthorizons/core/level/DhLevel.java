@@ -58,6 +58,9 @@ public abstract class DhLevel implements IDhLevel
 				}
 				
 				this.saveWrites(chunkSizedFullDataAccessor);
+				// anything that needs the accessor after this point will have retained it
+				chunkSizedFullDataAccessor.release();
+				
 				ApiEventInjector.INSTANCE.fireAllEvents(
 						DhApiChunkModifiedEvent.class,
 						new DhApiChunkModifiedEvent.EventParam(this.getLevelWrapper(), chunk.getChunkPos().x, chunk.getChunkPos().z));
@@ -30,6 +30,7 @@ import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
 import com.seibel.distanthorizons.core.wrapperInterfaces.world.IServerLevelWrapper;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 
 public class DhServerLevel extends DhLevel implements IDhServerLevel
@@ -52,6 +53,10 @@ public class DhServerLevel extends DhLevel implements IDhServerLevel
 	public void serverTick()
 	{
 		chunkToLodBuilder.tick();
+		
+		// player positions aren't available on the server yet, so handles are evicted based on idle time alone
+		this.serverside.dataFileHandler.tryEvictIdleFiles(Collections.emptyList());
+		this.serverside.dataFileHandler.tryQueueDatabaseMaintenance();
 	}
 	
 	@Override
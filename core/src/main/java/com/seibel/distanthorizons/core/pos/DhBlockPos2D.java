@@ -45,10 +45,30 @@ public class DhBlockPos2D
 		this.z = blockPos.z;
 	}
 	
+	/** @see DhBlockPos2D#asLong() */
+	public DhBlockPos2D(long packed)
+	{
+		this.x = getX(packed);
+		this.z = getZ(packed);
+	}
+	
 	public static DhBlockPos2D fromPos2D(Pos2D pos) { return new DhBlockPos2D(pos.x, pos.y); }
 	
 	
 	
+	//==============//
+	// packed longs //
+	//==============//
+	
+	/** uses the same layout as {@link DhChunkPos#toLong(int, int)} */
+	public long asLong() { return asLong(this.x, this.z); }
+	public static long asLong(int x, int z) { return ((long) x & 0xFFFFFFFFL) << 32 | (long) z & 0xFFFFFFFFL; }
+	
+	public static int getX(long packed) { return (int) (packed >> 32); }
+	public static int getZ(long packed) { return (int) (packed & 0xFFFFFFFFL); }
+	
+	
+	
 	//==========//
 	// mutators //
 	//==========//
@@ -73,6 +93,9 @@ public class DhBlockPos2D
 	public long distSquared(DhBlockPos2D other) { return this.distSquared(other.x, other.z); }
 	public long distSquared(int x, int z) { return MathUtil.pow2((long) this.x - x) + MathUtil.pow2((long) this.z - z); }
 	
+	/** @return the largest distance along either axis */
+	public int chebyshevDist(int x, int z) { return Math.max(Math.abs(this.x - x), Math.abs(this.z - z)); }
+	
 	
 	
 	//===========//
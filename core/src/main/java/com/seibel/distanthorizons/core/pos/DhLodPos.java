@@ -48,6 +48,8 @@ public class DhLodPos implements Comparable<DhLodPos>
 		this.z = z;
 	}
 	public DhLodPos(DhSectionPos sectionPos) { this(sectionPos.getDetailLevel(), sectionPos.getX(), sectionPos.getZ()); }
+	/** @see DhLodPos#asLong() */
+	public DhLodPos(long packed) { this(DhSectionPos.getDetailLevel(packed), DhSectionPos.getX(packed), DhSectionPos.getZ(packed)); }
 	
 	
 	
@@ -76,6 +78,17 @@ public class DhLodPos implements Comparable<DhLodPos>
 	}
 	public DhBlockPos2D getCornerBlockPos() { return new DhBlockPos2D(this.getX().toBlockWidth(), this.getZ().toBlockWidth()); }
 	
+	/** 
+	 * Uses the same layout as {@link DhSectionPos#asLong()}, 
+	 * so {@link DhSectionPos}'s static packed helpers can be used on the result. 
+	 */
+	public long asLong() { return DhSectionPos.asLong(this.detailLevel, this.x, this.z); }
+	
+	/** allocation free version of {@link DhLodPos#getCenterBlockPos()} */
+	public static int getCenterBlockPosX(long packed) { return DhSectionPos.getMinCornerBlockX(packed) + BitShiftUtil.half(DhSectionPos.getBlockWidth(packed)); }
+	/** allocation free version of {@link DhLodPos#getCenterBlockPos()} */
+	public static int getCenterBlockPosZ(long packed) { return DhSectionPos.getMinCornerBlockZ(packed) + BitShiftUtil.half(DhSectionPos.getBlockWidth(packed)); }
+	
 	/** converts this position to a lower detail level, angled towards the corner position. */
 	public DhLodPos getCornerLodPos(byte newDetail)
 	{
@@ -55,6 +55,19 @@ public class DhSectionPos
 	public final static byte SECTION_REGION_DETAIL_LEVEL = SECTION_MINIMUM_DETAIL_LEVEL + LodUtil.REGION_DETAIL_LEVEL;
 	
 	
+	// packed long layout, from most to least significant bits: detail level, X, Z
+	// 29 bits is enough to hold any block position in a MC world (+- 30,000,000)
+	public static final int PACKED_DETAIL_LEVEL_LENGTH = 6;
+	public static final int PACKED_X_LENGTH = 29;
+	public static final int PACKED_Z_LENGTH = 29;
+	public static final long PACKED_DETAIL_LEVEL_MASK = (1L << PACKED_DETAIL_LEVEL_LENGTH) - 1L;
+	public static final long PACKED_X_MASK = (1L << PACKED_X_LENGTH) - 1L;
+	public static final long PACKED_Z_MASK = (1L << PACKED_Z_LENGTH) - 1L;
+	public static final int PACKED_Z_OFFSET = 0;
+	public static final int PACKED_X_OFFSET = PACKED_Z_LENGTH;
+	public static final int PACKED_DETAIL_LEVEL_OFFSET = PACKED_X_LENGTH + PACKED_Z_LENGTH;
+	
+	
 	protected byte detailLevel;
 	
 	/** in a sectionDetailLevel grid */
@@ -99,6 +112,9 @@ public class DhSectionPos
 		this.z = dhLodPos.z;
 	}
 	
+	/** @see DhSectionPos#asLong() */
+	public DhSectionPos(long packed) { this(getDetailLevel(packed), getX(packed), getZ(packed)); }
+	
 	
 	
 	//============//
@@ -189,26 +205,24 @@ public class DhSectionPos
 	
 	public DhBlockPos2D getCenterBlockPos() { return new DhBlockPos2D(this.getCenterBlockPosX(), this.getCenterBlockPosZ()); }
 	
-	public int getCenterBlockPosX() { return this.getCenterBlockPos(true); }
-	public int getCenterBlockPosZ() { return this.getCenterBlockPos(false); }
-	private int getCenterBlockPos(boolean returnX)
+	public int getCenterBlockPosX() { return getCenterBlockPos(this.detailLevel, this.x); }
+	public int getCenterBlockPosZ() { return getCenterBlockPos(this.detailLevel, this.z); }
+	private static int getCenterBlockPos(byte detailLevel, int pos)
 	{
-		int centerBlockPos = returnX ? this.x : this.z;
-		
-		if (this.detailLevel == 0)
+		if (detailLevel == 0)
 		{
 			// already at block detail level, no conversion necessary
-			return centerBlockPos;
+			return pos;
 		}
 		
 		// we can't get the center of the position at block level, only attempt to get the position offset for detail levels above 0
 		int positionOffset = 0;
-		if (this.detailLevel != 1)
+		if (detailLevel != 1)
 		{
-			positionOffset = BitShiftUtil.powerOfTwo(this.detailLevel - 1);
+			positionOffset = BitShiftUtil.powerOfTwo(detailLevel - 1);
 		}
 		
-		return (centerBlockPos * BitShiftUtil.powerOfTwo(this.detailLevel)) + positionOffset;
+		return (pos * BitShiftUtil.powerOfTwo(detailLevel)) + positionOffset;
 	}
 	
 	
@@ -266,6 +280,8 @@ public class DhSectionPos
 	// comparisons //
 	//=============//
 	
+	// comparisons are done with primitives since they are used in several high traffic loops (IE quad tree lookups)
+	
 	public boolean overlapsExactly(DhSectionPos other)
 	{
 		// original logic from DhLodPos
@@ -279,24 +295,30 @@ public class DhSectionPos
 		}
 		else if (this.detailLevel > other.detailLevel)
 		{
-			return this.equals(other.convertNewToDetailLevel(this.detailLevel));
+			// shifting is the same as floorDiv by a power of two
+			int detailLevelDiff = this.detailLevel - other.detailLevel;
+			return this.x == (other.x >> detailLevelDiff) && this.z == (other.z >> detailLevelDiff);
 		}
 		else
 		{
-			return other.equals(this.convertNewToDetailLevel(other.detailLevel));
+			int detailLevelDiff = other.detailLevel - this.detailLevel;
+			return other.x == (this.x >> detailLevelDiff) && other.z == (this.z >> detailLevelDiff);
 		}
 	}
 	
 	public boolean contains(DhSectionPos otherPos)
 	{
-		DhBlockPos2D thisMinBlockPos = this.getMinCornerLodPos(LodUtil.BLOCK_DETAIL_LEVEL).getCornerBlockPos();
-		DhBlockPos2D otherCornerBlockPos = otherPos.getMinCornerLodPos(LodUtil.BLOCK_DETAIL_LEVEL).getCornerBlockPos();
+		long thisMinBlockX = (long) this.x << this.detailLevel;
+		long thisMinBlockZ = (long) this.z << this.detailLevel;
+		long otherMinBlockX = (long) otherPos.x << otherPos.detailLevel;
+		long otherMinBlockZ = (long) otherPos.z << otherPos.detailLevel;
 		
-		int thisBlockWidth = this.getBlockWidth() - 1; // minus 1 to account for zero based positional indexing
-		DhBlockPos2D thisMaxBlockPos = new DhBlockPos2D(thisMinBlockPos.x + thisBlockWidth, thisMinBlockPos.z + thisBlockWidth);
+		long thisBlockWidth = this.getBlockWidth() - 1; // minus 1 to account for zero based positional indexing
+		long thisMaxBlockX = thisMinBlockX + thisBlockWidth;
+		long thisMaxBlockZ = thisMinBlockZ + thisBlockWidth;
 		
-		return thisMinBlockPos.x <= otherCornerBlockPos.x && otherCornerBlockPos.x <= thisMaxBlockPos.x &&
-				thisMinBlockPos.z <= otherCornerBlockPos.z && otherCornerBlockPos.z <= thisMaxBlockPos.z;
+		return thisMinBlockX <= otherMinBlockX && otherMinBlockX <= thisMaxBlockX &&
+				thisMinBlockZ <= otherMinBlockZ && otherMinBlockZ <= thisMaxBlockZ;
 	}
 	
 	
@@ -331,6 +353,77 @@ public class DhSectionPos
 	
 	
 	
+	//==============//
+	// packed longs //
+	//==============//
+	
+	/**
+	 * Packed positions can be used in high traffic loops or primitive collections
+	 * to prevent allocating a new {@link DhSectionPos} for every step. <br>
+	 * Uses the same layout as {@link DhLodPos#asLong()}.
+	 * 
+	 * @see DhSectionPos#DhSectionPos(long)
+	 */
+	public long asLong() { return asLong(this.detailLevel, this.x, this.z); }
+	public static long asLong(byte detailLevel, int x, int z)
+	{
+		return ((long) detailLevel & PACKED_DETAIL_LEVEL_MASK) << PACKED_DETAIL_LEVEL_OFFSET |
+				((long) x & PACKED_X_MASK) << PACKED_X_OFFSET |
+				((long) z & PACKED_Z_MASK) << PACKED_Z_OFFSET;
+	}
+	
+	public static byte getDetailLevel(long packed) { return (byte) ((packed >>> PACKED_DETAIL_LEVEL_OFFSET) & PACKED_DETAIL_LEVEL_MASK); }
+	// shifting left then right sign extends the value
+	public static int getX(long packed) { return (int) (packed << (64 - PACKED_X_OFFSET - PACKED_X_LENGTH) >> (64 - PACKED_X_LENGTH)); }
+	public static int getZ(long packed) { return (int) (packed << (64 - PACKED_Z_OFFSET - PACKED_Z_LENGTH) >> (64 - PACKED_Z_LENGTH)); }
+	
+	/** @see DhSectionPos#getBlockWidth() */
+	public static int getBlockWidth(long packed) { return BitShiftUtil.powerOfTwo(getDetailLevel(packed)); }
+	
+	/** @return the smallest X block position in the packed section */
+	public static int getMinCornerBlockX(long packed) { return getX(packed) * BitShiftUtil.powerOfTwo(getDetailLevel(packed)); }
+	/** @return the smallest Z block position in the packed section */
+	public static int getMinCornerBlockZ(long packed) { return getZ(packed) * BitShiftUtil.powerOfTwo(getDetailLevel(packed)); }
+	
+	/** @see DhSectionPos#getCenterBlockPosX() */
+	public static int getCenterBlockPosX(long packed) { return getCenterBlockPos(getDetailLevel(packed), getX(packed)); }
+	/** @see DhSectionPos#getCenterBlockPosZ() */
+	public static int getCenterBlockPosZ(long packed) { return getCenterBlockPos(getDetailLevel(packed), getZ(packed)); }
+	
+	/** @see DhSectionPos#getParentPos() */
+	public static long getParentPosPacked(long packed) { return asLong((byte) (getDetailLevel(packed) + 1), BitShiftUtil.half(getX(packed)), BitShiftUtil.half(getZ(packed))); }
+	
+	/** 
+	 * Doesn't validate its input, the caller is responsible for making sure child0to3 is between 0 and 3.
+	 * @see DhSectionPos#getChildByIndex(int) 
+	 */
+	public static long getChildByIndexPacked(long packed, int child0to3)
+	{
+		return asLong((byte) (getDetailLevel(packed) - 1),
+				getX(packed) * 2 + (child0to3 & 1),
+				getZ(packed) * 2 + BitShiftUtil.half(child0to3 & 2));
+	}
+	
+	/** @see DhSectionPos#convertNewToDetailLevel(byte) */
+	public static long convertToDetailLevelPacked(long packed, byte newDetailLevel)
+	{
+		byte detailLevel = getDetailLevel(packed);
+		int x = getX(packed);
+		int z = getZ(packed);
+		
+		if (newDetailLevel >= detailLevel)
+		{
+			// shifting is the same as floorDiv by a power of two
+			return asLong(newDetailLevel, x >> (newDetailLevel - detailLevel), z >> (newDetailLevel - detailLevel));
+		}
+		else
+		{
+			return asLong(newDetailLevel, x * BitShiftUtil.powerOfTwo(detailLevel - newDetailLevel), z * BitShiftUtil.powerOfTwo(detailLevel - newDetailLevel));
+		}
+	}
+	
+	
+	
 	//===============//
 	// serialization //
 	//===============//
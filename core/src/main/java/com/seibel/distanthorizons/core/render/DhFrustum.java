@@ -0,0 +1,263 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.render;
+
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeSnapshot;
+import com.seibel.distanthorizons.coreapi.util.math.Mat4f;
+
+/**
+ * CPU side view frustum used to skip LOD sections that can't be seen. <br><br>
+ *
+ * The six planes are extracted from the combined model view projection matrix
+ * (Gribb/Hartmann) and tested against each section's axis aligned bounding box,
+ * which covers the section's block width and the level's full height. <br>
+ * Since all LODs are rendered relative to the camera, bounding boxes are converted
+ * to camera relative coordinates before being tested. <br><br>
+ *
+ * {@link DhFrustum#forEachNode} walks a {@link QuadTreeSnapshot} top down, so a subtree
+ * that is completely inside or outside the frustum only needs its root tested.
+ */
+public class DhFrustum
+{
+	public static final int OUTSIDE = 0;
+	public static final int INTERSECTS = 1;
+	public static final int INSIDE = 2;
+	
+	private static final int PLANE_COUNT = 6;
+	/**
+	 * How far (in blocks) a bounding box can be outside a plane and still be considered visible. <br>
+	 * Prevents sections along the edge of the screen from popping in/out due to float precision.
+	 */
+	private static final float PLANE_PADDING_IN_BLOCKS = 2.0f;
+	
+	
+	/** each plane is stored as [a, b, c, d] where a point is inside if ax + by + cz + d >= 0 */
+	private final float[] planes = new float[PLANE_COUNT * 4];
+	
+	private double cameraX;
+	private double cameraY;
+	private double cameraZ;
+	
+	private float minY;
+	private float maxY;
+	
+	/** how many bounding boxes were tested during the last {@link DhFrustum#forEachNode} call */
+	private int lastTestedSectionCount = 0;
+	/** how many non-null sections were culled during the last {@link DhFrustum#forEachNode} call */
+	private int lastCulledSectionCount = 0;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public DhFrustum() { }
+	
+	
+	
+	//==============//
+	// plane update //
+	//==============//
+	
+	/**
+	 * Should be called once per frame before any tests are run.
+	 *
+	 * @param modelViewProjectionMatrix the matrix LODs are rendered with, must not contain the camera's translation
+	 * @param levelMinY the lowest block Y value in the level
+	 * @param levelMaxY the highest block Y value in the level
+	 */
+	public void update(Mat4f modelViewProjectionMatrix, double cameraX, double cameraY, double cameraZ, int levelMinY, int levelMaxY)
+	{
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+		
+		this.minY = (float) (levelMinY - cameraY);
+		this.maxY = (float) (levelMaxY - cameraY);
+		
+		
+		// row major
+		float[] m = modelViewProjectionMatrix.getValuesAsArray();
+		for (int axis = 0; axis < 3; axis++)
+		{
+			int rowIndex = axis * 4;
+			
+			// left, bottom, near
+			this.setPlane(axis * 2,
+					m[12] + m[rowIndex], m[13] + m[rowIndex + 1], m[14] + m[rowIndex + 2], m[15] + m[rowIndex + 3]);
+			// right, top, far
+			this.setPlane((axis * 2) + 1,
+					m[12] - m[rowIndex], m[13] - m[rowIndex + 1], m[14] - m[rowIndex + 2], m[15] - m[rowIndex + 3]);
+		}
+	}
+	private void setPlane(int planeIndex, float a, float b, float c, float d)
+	{
+		// normalizing the plane means the plane distance is in blocks,
+		// which is necessary for the padding to be consistent
+		float length = (float) Math.sqrt(a * a + b * b + c * c);
+		if (length == 0)
+		{
+			// shouldn't happen with a valid projection matrix,
+			// but if it does, make sure this plane doesn't cull anything
+			length = 1;
+			d = Float.MAX_VALUE;
+		}
+		
+		int index = planeIndex * 4;
+		this.planes[index] = a / length;
+		this.planes[index + 1] = b / length;
+		this.planes[index + 2] = c / length;
+		this.planes[index + 3] = d / length;
+	}
+	
+	
+	
+	//=======//
+	// tests //
+	//=======//
+	
+	/** @return {@link DhFrustum#OUTSIDE}, {@link DhFrustum#INTERSECTS}, or {@link DhFrustum#INSIDE} */
+	public int testSection(DhSectionPos pos)
+	{
+		int blockWidth = pos.getBlockWidth();
+		float minX = (float) (((long) pos.getX() * blockWidth) - this.cameraX);
+		float minZ = (float) (((long) pos.getZ() * blockWidth) - this.cameraZ);
+		
+		return this.testCameraRelativeBox(minX, this.minY, minZ, minX + blockWidth, this.maxY, minZ + blockWidth);
+	}
+	
+	/**
+	 * All values should be relative to the camera position.
+	 * @return {@link DhFrustum#OUTSIDE}, {@link DhFrustum#INTERSECTS}, or {@link DhFrustum#INSIDE}
+	 */
+	public int testCameraRelativeBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		int result = INSIDE;
+		for (int i = 0; i < PLANE_COUNT * 4; i += 4)
+		{
+			float a = this.planes[i];
+			float b = this.planes[i + 1];
+			float c = this.planes[i + 2];
+			float d = this.planes[i + 3];
+			
+			// the corner furthest along the plane's normal,
+			// if it's outside then the whole box is outside
+			float positiveDist = a * (a >= 0 ? maxX : minX)
+					+ b * (b >= 0 ? maxY : minY)
+					+ c * (c >= 0 ? maxZ : minZ)
+					+ d;
+			if (positiveDist < -PLANE_PADDING_IN_BLOCKS)
+			{
+				return OUTSIDE;
+			}
+			
+			// the corner furthest against the plane's normal,
+			// if it's outside then the box crosses this plane
+			if (result == INSIDE)
+			{
+				float negativeDist = a * (a >= 0 ? minX : maxX)
+						+ b * (b >= 0 ? minY : maxY)
+						+ c * (c >= 0 ? minZ : maxZ)
+						+ d;
+				if (negativeDist < -PLANE_PADDING_IN_BLOCKS)
+				{
+					result = INTERSECTS;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	
+	
+	//===================//
+	// quad tree walking //
+	//===================//
+	
+	/**
+	 * Calls the consumer for every node in the snapshot, parents before children. <br>
+	 * Children of nodes that are completely inside or outside the frustum aren't tested,
+	 * they inherit their parent's result.
+	 */
+	public <T> void forEachNode(QuadTreeSnapshot<T> snapshot, IFrustumNodeConsumer<T> nodeConsumer)
+	{
+		this.lastTestedSectionCount = 0;
+		this.lastCulledSectionCount = 0;
+		
+		int index = 0;
+		int nodeCount = snapshot.size();
+		while (index < nodeCount)
+		{
+			int result = this.testSection(snapshot.getPos(index));
+			this.lastTestedSectionCount++;
+			
+			if (result == INTERSECTS)
+			{
+				// each child needs to be tested individually
+				nodeConsumer.accept(snapshot.getPos(index), snapshot.getValue(index), true);
+				index++;
+				continue;
+			}
+			
+			
+			// the whole subtree is either inside or outside
+			boolean visible = (result == INSIDE);
+			int subtreeEndIndex = snapshot.getSubtreeEndIndex(index);
+			for (; index < subtreeEndIndex; index++)
+			{
+				T value = snapshot.getValue(index);
+				if (!visible && value != null)
+				{
+					this.lastCulledSectionCount++;
+				}
+				nodeConsumer.accept(snapshot.getPos(index), value, visible);
+			}
+		}
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getLastTestedSectionCount() { return this.lastTestedSectionCount; }
+	public int getLastCulledSectionCount() { return this.lastCulledSectionCount; }
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	@FunctionalInterface
+	public interface IFrustumNodeConsumer<T>
+	{
+		/**
+		 * @param value may be null
+		 * @param visible false if the node's bounding box is completely outside the frustum
+		 */
+		void accept(DhSectionPos pos, T value, boolean visible);
+	}
+	
+}
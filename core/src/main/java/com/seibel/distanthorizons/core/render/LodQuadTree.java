@@ -31,11 +31,13 @@ import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.quadTree.QuadNode;
 import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTree;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeSnapshot;
 import com.seibel.distanthorizons.coreapi.util.MathUtil;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -58,7 +60,14 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 	private final ConcurrentLinkedQueue<DhSectionPos> sectionsToReload = new ConcurrentLinkedQueue<>();
 	private final IDhClientLevel level; //FIXME: Proper hierarchy to remove this reference!
 	private final ConfigChangeListener<EHorizontalQuality> horizontalScaleChangeListener;
+	private final RenderSourcePrefetcher prefetcher;
+	/** only used by the thread(s) modifying the tree, the render thread should use {@link LodQuadTree#renderSnapshotRef} */
 	private final ReentrantLock treeReadWriteLock = new ReentrantLock();
+	/**
+	 * Re-created after every tick so the render thread can walk the tree
+	 * without waiting on, or racing with, the tree's tick.
+	 */
+	private final AtomicReference<QuadTreeSnapshot<LodRenderSection>> renderSnapshotRef = new AtomicReference<>(null);
 	
 	/** the smallest numerical detail level number that can be rendered */
 	private byte maxRenderDetailLevel;
@@ -81,13 +90,14 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 			int initialPlayerBlockX, int initialPlayerBlockZ,
 			IRenderSourceProvider provider)
 	{
-		super(viewDiameterInBlocks, new DhBlockPos2D(initialPlayerBlockX, initialPlayerBlockZ), TREE_LOWEST_DETAIL_LEVEL);
+		super(viewDiameterInBlocks, new DhBlockPos2D(initialPlayerBlockX, initialPlayerBlockZ), TREE_LOWEST_DETAIL_LEVEL, true);
 		
 		this.level = level;
 		this.renderSourceProvider = provider;
 		this.blockRenderDistanceDiameter = viewDiameterInBlocks;
 		
 		this.horizontalScaleChangeListener = new ConfigChangeListener<>(Config.Client.Advanced.Graphics.Quality.horizontalQuality, (newHorizontalScale) -> this.onHorizontalQualityChange());
+		this.prefetcher = new RenderSourcePrefetcher(this, provider);
 	}
 	
 	
@@ -124,6 +134,9 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 				this.setCenterBlockPos(playerPos, LodRenderSection::dispose);
 				
 				this.updateAllRenderSections(playerPos);
+				this.prefetcher.tick(playerPos);
+				
+				this.renderSnapshotRef.set(this.createSnapshot());
 			}
 			catch (Exception e)
 			{
@@ -169,7 +182,7 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 			DhSectionPos rootPos = rootPosIterator.next();
 			if (this.getNode(rootPos) == null)
 			{
-				this.setValue(rootPos, new LodRenderSection(this, rootPos));
+				this.setValue(rootPos, new LodRenderSection(rootPos));
 			}
 			
 			QuadNode<LodRenderSection> rootNode = this.getNode(rootPos);
@@ -189,7 +202,7 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 		// make sure the node is created
 		if (quadNode == null && this.isSectionPosInBounds(sectionPos)) // the position bounds should only fail when at the edge of the user's render distance
 		{
-			rootNode.setValue(sectionPos, new LodRenderSection(this, sectionPos));
+			rootNode.setValue(sectionPos, new LodRenderSection(sectionPos));
 			quadNode = rootNode.getNode(sectionPos);
 		}
 		if (quadNode == null)
@@ -203,7 +216,7 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 		// create a new render section if missing
 		if (renderSection == null)
 		{
-			LodRenderSection newRenderSection = new LodRenderSection(this, sectionPos);
+			LodRenderSection newRenderSection = new LodRenderSection(sectionPos);
 			rootNode.setValue(sectionPos, newRenderSection);
 			
 			renderSection = newRenderSection;
@@ -216,11 +229,9 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 		// handle enabling, loading,     //
 		// and disabling render sections //
 		//===============================//
-
+		
 		//byte expectedDetailLevel = DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL + 3; // can be used instead of the following logic for testing
-		byte expectedDetailLevel = this.calculateExpectedDetailLevel(playerPos, sectionPos);
-		expectedDetailLevel = (byte) Math.min(expectedDetailLevel, this.minRenderDetailLevel);
-		expectedDetailLevel += DhSectionPos.SECTION_BLOCK_DETAIL_LEVEL;
+		byte expectedDetailLevel = this.calculateExpectedRenderDetailLevel(playerPos, sectionPos);
 		
 		
 		if (sectionPos.getDetailLevel() > expectedDetailLevel)
@@ -286,7 +297,10 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 			{
 				// this is the detail level we want to render //
 				// prepare this section for rendering
-				renderSection.loadRenderSource(this.renderSourceProvider, this.level); // TODO this should fire for the lowest detail level first, wait for it to finish then fire the next highest to prevent waiting forever for 2 million chunk section to finish sampling everything
+				if (renderSection.loadRenderSource(this.renderSourceProvider, this.level)) // TODO this should fire for the lowest detail level first, wait for it to finish then fire the next highest to prevent waiting forever for 2 million chunk section to finish sampling everything
+				{
+					this.prefetcher.onRenderSourceLoadStarted(sectionPos);
+				}
 				
 				// wait for the parent to disable before enabling this section, so we don't overdraw/overlap render sections
 				if (!parentRenderSectionIsEnabled && renderSection.canRenderNow())
@@ -336,6 +350,13 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 	 * @return detail level of this section pos
 	 */
 	public byte calculateExpectedDetailLevel(DhBlockPos2D playerPos, DhSectionPos sectionPos) { return this.getDetailLevelFromDistance(playerPos.dist(sectionPos.getCenterBlockPosX(), sectionPos.getCenterBlockPosZ())); }
+	/** @return the section detail level that should be rendered at the given section pos, clamped to the detail levels this tree can render */
+	public byte calculateExpectedRenderDetailLevel(DhBlockPos2D playerPos, DhSectionPos sectionPos)
+	{
+		byte expectedDetailLevel = this.calculateExpectedDetailLevel(playerPos, sectionPos);
+		expectedDetailLevel = (byte) Math.min(expectedDetailLevel, this.minRenderDetailLevel);
+		return (byte) (expectedDetailLevel + DhSectionPos.SECTION_BLOCK_DETAIL_LEVEL);
+	}
 	private byte getDetailLevelFromDistance(double distance)
 	{
 		// special case, never drop the quality
@@ -416,6 +437,7 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 						quadNode.value = null;
 					}
 				}
+				this.renderSnapshotRef.set(this.createSnapshot());
 				
 				// delete the cache files
 				// TODO this will only delete the files for this level/world
@@ -434,6 +456,14 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 		}
 	}
 	
+	/**
+	 * Returns the tree's state as of the last completed tick. <br>
+	 * Can be safely used on any thread, but note that the render sections themselves are shared with the tree.
+	 *
+	 * @return null if the tree hasn't been ticked yet
+	 */
+	public QuadTreeSnapshot<LodRenderSection> getRenderSnapshot() { return this.renderSnapshotRef.get(); }
+	
 	/**
 	 * Can be called whenever a render section's data needs to be refreshed. <br>
 	 * This should be called whenever a world generation task is completed or if the connected server has new data to show.
@@ -474,6 +504,7 @@ public class LodQuadTree extends QuadTree<LodRenderSection> implements AutoClose
 		LOGGER.info("Shutting down " + LodQuadTree.class.getSimpleName() + "...");
 		
 		this.horizontalScaleChangeListener.close();
+		this.prefetcher.close();
 		
 		Iterator<QuadNode<LodRenderSection>> nodeIterator = this.nodeIterator();
 		while (nodeIterator.hasNext())
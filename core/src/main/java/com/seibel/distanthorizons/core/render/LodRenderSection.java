@@ -30,7 +30,7 @@ import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.render.renderer.IDebugRenderable;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.core.util.objects.Reference;
-import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTree;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeSnapshot;
 import com.seibel.distanthorizons.core.dataObjects.render.bufferBuilding.ColumnRenderBuffer;
 import com.seibel.distanthorizons.core.render.renderer.DebugRenderer;
 import org.apache.logging.log4j.Logger;
@@ -82,18 +82,15 @@ public class LodRenderSection implements IDebugRenderable
 	public final AtomicReference<ColumnRenderBuffer> activeRenderBufferRef = new AtomicReference<>();
 	private volatile boolean disposeActiveBuffer = false;
 	
-	private final QuadTree<LodRenderSection> parentQuadTree;
-	
 	
 	
 	//=============//
 	// constructor //
 	//=============//
 	
-	public LodRenderSection(QuadTree<LodRenderSection> parentQuadTree, DhSectionPos pos)
+	public LodRenderSection(DhSectionPos pos)
 	{
 		this.pos = pos;
-		this.parentQuadTree = parentQuadTree;
 		
 		DebugRenderer.register(this, Config.Client.Advanced.Debugging.DebugWireframe.showRenderSectionStatus);
 	}
@@ -113,15 +110,18 @@ public class LodRenderSection implements IDebugRenderable
 	// render data //
 	//=============//
 	
-	/** does nothing if a render source is already loaded or in the process of loading */
-	public void loadRenderSource(IRenderSourceProvider renderDataProvider, IDhClientLevel level)
+	/**
+	 * does nothing if a render source is already loaded or in the process of loading
+	 * @return true if a new render source load was started
+	 */
+	public boolean loadRenderSource(IRenderSourceProvider renderDataProvider, IDhClientLevel level)
 	{
 		this.renderSourceProvider = renderDataProvider;
 		this.level = level;
 		if (this.renderSourceProvider == null)
 		{
 			LOGGER.warn("LodRenderSection [" + this.pos + "] called loadRenderSource with a empty source provider");
-			return;
+			return false;
 		}
 		// don't re-load or double load the render source
 		if (this.renderSource != null || this.renderSourceLoadFuture != null)
@@ -133,10 +133,11 @@ public class LodRenderSection implements IDebugRenderable
 				this.markBufferDirty(); // empty LOD fix #3, all solutions revolve around markBufferDirty()
 			}
 			
-			return;
+			return false;
 		}
 		
 		this.startLoadRenderSourceAsync();
+		return true;
 	}
 	
 	public void reload(IRenderSourceProvider renderDataProvider)
@@ -238,30 +239,26 @@ public class LodRenderSection implements IDebugRenderable
 	// buffer building //
 	//=================//
 	
-	private LodRenderSection[] getNeighbors()
+	/** 
+	 * The snapshot is used instead of the live tree since this is called on the render thread, 
+	 * while the tree (and its node index) are modified on the tick thread. 
+	 */
+	private LodRenderSection[] getNeighbors(QuadTreeSnapshot<LodRenderSection> treeSnapshot)
 	{
 		LodRenderSection[] adjacentRenderSections = new LodRenderSection[EDhDirection.ADJ_DIRECTIONS.length];
 		for (EDhDirection direction : EDhDirection.ADJ_DIRECTIONS)
 		{
-			try
-			{
-				DhSectionPos adjPos = this.pos.getAdjacentPos(direction);
-				LodRenderSection adjRenderSection = this.parentQuadTree.getValue(adjPos);
-				// adjacent render sources might be null
-				adjacentRenderSections[direction.ordinal() - 2] = adjRenderSection;
-			}
-			catch (IndexOutOfBoundsException e)
-			{
-				// adjacent positions can be out of bounds, in that case a null render source will be used
-			}
+			// adjacent render sources might be null or out of bounds, in that case a null render source will be used
+			DhSectionPos adjPos = this.pos.getAdjacentPos(direction);
+			adjacentRenderSections[direction.ordinal() - 2] = treeSnapshot.getValue(adjPos);
 		}
 		
 		return adjacentRenderSections;
 	}
 	
-	private void tellNeighborsUpdated()
+	private void tellNeighborsUpdated(QuadTreeSnapshot<LodRenderSection> treeSnapshot)
 	{
-		LodRenderSection[] adjacentRenderSections = this.getNeighbors();
+		LodRenderSection[] adjacentRenderSections = this.getNeighbors(treeSnapshot);
 		for (LodRenderSection adj : adjacentRenderSections)
 		{
 			if (adj != null)
@@ -302,9 +299,10 @@ public class LodRenderSection implements IDebugRenderable
 	 * Try and swap in new render buffer for this section. Note that before this call, there should be no other
 	 * places storing or referencing the render buffer.
 	 *
+	 * @param treeSnapshot the snapshot currently being rendered, used to find this section's neighbors
 	 * @return True if the swap was successful. False if swap is not needed or if it is in progress.
 	 */
-	public boolean tryBuildAndSwapBuffer()
+	public boolean tryBuildAndSwapBuffer(QuadTreeSnapshot<LodRenderSection> treeSnapshot)
 	{
 		// delete the existing buffer if it should be disposed
 		if (this.disposeActiveBuffer && this.activeRenderBufferRef.get() != null)
@@ -337,11 +335,11 @@ public class LodRenderSection implements IDebugRenderable
 			if (this.lastSwapLocalVersion != newVersion)
 			{
 				this.lastSwapLocalVersion = newVersion;
-				this.tellNeighborsUpdated();
+				this.tellNeighborsUpdated(treeSnapshot);
 			}
 			
 			
-			LodRenderSection[] adjacentRenderSections = this.getNeighbors();
+			LodRenderSection[] adjacentRenderSections = this.getNeighbors(treeSnapshot);
 			ColumnRenderSource[] adjacentSources = new ColumnRenderSource[EDhDirection.ADJ_DIRECTIONS.length];
 			for (int i = 0; i < EDhDirection.ADJ_DIRECTIONS.length; i++)
 			{
@@ -352,7 +350,8 @@ public class LodRenderSection implements IDebugRenderable
 				}
 			}
 			
-			this.buildRenderBufferFuture = ColumnRenderBufferBuilder.buildBuffersAsync(this.level, this.inactiveRenderBufferRef, this.renderSource, adjacentSources);
+			this.buildRenderBufferFuture = ColumnRenderBufferBuilder.buildBuffersAsync(this.level, this.inactiveRenderBufferRef, this.renderSource, adjacentSources,
+					this.renderSourceProvider != null ? this.renderSourceProvider.getMeshDataRepo() : null);
 		}
 		
 		
@@ -19,19 +19,21 @@
 
 package com.seibel.distanthorizons.core.render;
 
-import com.seibel.distanthorizons.core.enums.EDhDirection;
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
-import com.seibel.distanthorizons.core.pos.Pos2D;
-import com.seibel.distanthorizons.core.util.objects.SortedArraySet;
 import com.seibel.distanthorizons.core.util.objects.quadTree.QuadNode;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeSnapshot;
 import com.seibel.distanthorizons.core.render.renderer.LodRenderer;
-import com.seibel.distanthorizons.coreapi.util.math.Vec3f;
+import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
+import com.seibel.distanthorizons.coreapi.util.math.Mat4f;
+import com.seibel.distanthorizons.coreapi.util.math.Vec3d;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.ListIterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -42,157 +44,90 @@ public class RenderBufferHandler
 {
 	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
 	
+	/**
+	 * The render list is sorted into rings of this width (in blocks) based on their Manhattan distance from the center. <br>
+	 * Also used to determine when the player has moved far enough to require re-sorting.
+	 */
+	private static final byte DISTANCE_RING_DETAIL_LEVEL = DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL;
+	
+	
 	/** contains all relevant data */
 	public final LodQuadTree lodQuadTree;
 	
-	// TODO: Make sorting go into the update loop instead of the render loop as it doesn't need to be done every frame
-	private SortedArraySet<LoadedRenderBuffer> loadedNearToFarBuffers = null;
+	/**
+	 * Every loaded buffer, sorted by their distance from the center. <br>
+	 * Only re-sorted when buffers are added/removed or the center moves into a different ring.
+	 */
+	private ArrayList<LoadedRenderBuffer> loadedNearToFarBuffers = new ArrayList<>();
+	/** swapped with {@link RenderBufferHandler#loadedNearToFarBuffers} when sorting so neither list needs to be re-allocated */
+	private ArrayList<LoadedRenderBuffer> sortScratchList = new ArrayList<>();
+	private int[] ringCountArray = new int[0];
+	
+	private final HashMap<DhSectionPos, LoadedRenderBuffer> loadedBufferBySectionPos = new HashMap<>();
+	/** incremented every time the render list is updated, used to find buffers that are no longer loaded */
+	private int updateIndex = 0;
+	private int updatedBufferCount = 0;
+	
+	private boolean renderListChanged = false;
+	private int lastSortCenterRingX = Integer.MIN_VALUE;
+	private int lastSortCenterRingZ = Integer.MIN_VALUE;
 	
 	private final AtomicBoolean rebuildAllBuffers = new AtomicBoolean(false);
 	
+	/** only used on the render thread */
+	private final DhFrustum frustum = new DhFrustum();
+	
 	
 	public RenderBufferHandler(LodQuadTree lodQuadTree) { this.lodQuadTree = lodQuadTree; }
 	
 	
 	
 	/**
-	 * The following buildRenderList sorting method is based on the following reddit post: <br>
+	 * Updates each section's buffers and which buffers should be rendered this frame. <br><br>
+	 *
+	 * The render list is sorted near to far based on each section's Manhattan distance from the center,
+	 * which is close enough for the translucent ordering described in this reddit post: <br>
 	 * <a href="https://www.reddit.com/r/VoxelGameDev/comments/a0l8zc/correct_depthordering_for_translucent_discrete/">correct_depth_ordering_for_translucent_discrete</a> <br><br>
 	 *
-	 * TODO: This might get locked by update() causing move() call. Is there a way to avoid this?
-	 *       Maybe dupe the base list and use atomic swap on render? Or is this not worth it?
+	 * @param modelViewProjectionMatrix used to skip sections outside the view frustum, see {@link DhFrustum}
+	 * @param cameraPos the position LODs are rendered relative to
 	 */
-	public void buildRenderListAndUpdateSections(Vec3f lookForwardVector)
+	public void buildRenderListAndUpdateSections(Mat4f modelViewProjectionMatrix, Vec3d cameraPos, int levelMinY, int levelMaxY)
 	{
-		EDhDirection[] axisDirections = new EDhDirection[3];
-		
-		// Do the axis that are the longest first (i.e. the largest absolute value of the lookForwardVector),
-		// with the sign being the opposite of the respective lookForwardVector component's sign
-		float absX = Math.abs(lookForwardVector.x);
-		float absY = Math.abs(lookForwardVector.y);
-		float absZ = Math.abs(lookForwardVector.z);
-		EDhDirection xDir = lookForwardVector.x < 0 ? EDhDirection.EAST : EDhDirection.WEST;
-		EDhDirection yDir = lookForwardVector.y < 0 ? EDhDirection.UP : EDhDirection.DOWN;
-		EDhDirection zDir = lookForwardVector.z < 0 ? EDhDirection.SOUTH : EDhDirection.NORTH;
-		
-		if (absX >= absY && absX >= absZ)
-		{
-			axisDirections[0] = xDir;
-			if (absY >= absZ)
-			{
-				axisDirections[1] = yDir;
-				axisDirections[2] = zDir;
-			}
-			else
-			{
-				axisDirections[1] = zDir;
-				axisDirections[2] = yDir;
-			}
-		}
-		else if (absY >= absX && absY >= absZ)
+		// the snapshot is used so this thread never has to wait on, or race with, the tree's tick
+		QuadTreeSnapshot<LodRenderSection> treeSnapshot = this.lodQuadTree.getRenderSnapshot();
+		if (treeSnapshot == null)
 		{
-			axisDirections[0] = yDir;
-			if (absX >= absZ)
-			{
-				axisDirections[1] = xDir;
-				axisDirections[2] = zDir;
-			}
-			else
-			{
-				axisDirections[1] = zDir;
-				axisDirections[2] = xDir;
-			}
-		}
-		else
-		{
-			axisDirections[0] = zDir;
-			if (absX >= absY)
-			{
-				axisDirections[1] = xDir;
-				axisDirections[2] = yDir;
-			}
-			else
-			{
-				axisDirections[1] = yDir;
-				axisDirections[2] = xDir;
-			}
+			// the tree hasn't been ticked yet
+			return;
 		}
 		
-		Pos2D cPos = this.lodQuadTree.getCenterBlockPos().toPos2D();
-		
-		// Now that we have the axis directions, we can sort the render list
-		Comparator<LoadedRenderBuffer> farToNearComparator = (loadedBufferA, loadedBufferB) ->
-		{
-			Pos2D aPos = loadedBufferA.pos.getCenterBlockPos().toPos2D();
-			Pos2D bPos = loadedBufferB.pos.getCenterBlockPos().toPos2D();
-			if (true)
-			{
-				int aManhattanDistance = aPos.manhattanDist(cPos);
-				int bManhattanDistance = bPos.manhattanDist(cPos);
-				return bManhattanDistance - aManhattanDistance;
-			}
-			
-			for (EDhDirection axisDirection : axisDirections)
-			{
-				if (axisDirection.getAxis().isVertical())
-				{
-					continue; // We only sort in the horizontal direction
-				}
-				
-				int abPosDifference;
-				if (axisDirection.getAxis().equals(EDhDirection.Axis.X))
-				{
-					abPosDifference = aPos.x - bPos.x;
-				}
-				else
-				{
-					abPosDifference = aPos.y - bPos.y;
-				}
-				
-				if (abPosDifference == 0)
-				{
-					continue;
-				}
-				
-				if (axisDirection.getAxisDirection().equals(EDhDirection.AxisDirection.NEGATIVE))
-				{
-					abPosDifference = -abPosDifference; // Reverse the sign
-				}
-				return abPosDifference;
-			}
-			
-			return loadedBufferA.pos.getDetailLevel() - loadedBufferB.pos.getDetailLevel(); // If all else fails, sort by detail
-		};
-		
-		// Build the sorted list
-		this.loadedNearToFarBuffers = new SortedArraySet<>((a, b) -> -farToNearComparator.compare(a, b)); // TODO is the comparator named wrong?
+		this.updateIndex++;
+		this.updatedBufferCount = 0;
 		
 		// Update the sections
 		boolean rebuildAllBuffers = this.rebuildAllBuffers.getAndSet(false);
-		Iterator<QuadNode<LodRenderSection>> nodeIterator = this.lodQuadTree.nodeIterator();
-		while (nodeIterator.hasNext())
+		this.frustum.update(modelViewProjectionMatrix, cameraPos.x, cameraPos.y, cameraPos.z, levelMinY, levelMaxY);
+		this.frustum.forEachNode(treeSnapshot, (sectionPos, renderSection, visible) ->
 		{
-			QuadNode<LodRenderSection> node = nodeIterator.next();
-			
-			DhSectionPos sectionPos = node.sectionPos;
-			LodRenderSection renderSection = node.value;
 			try
 			{
 				
 				if (renderSection != null)
 				{
+					// culled sections still need to be updated so their buffers are ready when they come into view
 					if (rebuildAllBuffers)
 					{
 						renderSection.markBufferDirty();
 					}
-					renderSection.tryBuildAndSwapBuffer();
+					renderSection.tryBuildAndSwapBuffer(treeSnapshot);
 					
 					if (renderSection.isRenderingEnabled())
 					{
 						AbstractRenderBuffer buffer = renderSection.activeRenderBufferRef.get();
 						if (buffer != null)
 						{
-							this.loadedNearToFarBuffers.add(new LoadedRenderBuffer(buffer, sectionPos));
+							this.updateLoadedBuffer(sectionPos, buffer, visible);
 						}
 					}
 				}
@@ -202,22 +137,157 @@ public class RenderBufferHandler
 				LOGGER.error("Error updating QuadTree render source at " + renderSection.pos + ".", e);
 				renderSection.markBufferDirty();
 			}
+		});
+		
+		
+		if (this.updatedBufferCount != this.loadedNearToFarBuffers.size())
+		{
+			// some buffers weren't found this update,
+			// removing them doesn't change the order of the remaining buffers
+			this.removeStaleBuffers();
+		}
+		
+		DhBlockPos2D centerPos = treeSnapshot.centerBlockPos;
+		int centerRingX = BitShiftUtil.divideByPowerOfTwo(centerPos.x, DISTANCE_RING_DETAIL_LEVEL);
+		int centerRingZ = BitShiftUtil.divideByPowerOfTwo(centerPos.z, DISTANCE_RING_DETAIL_LEVEL);
+		if (this.renderListChanged
+			|| centerRingX != this.lastSortCenterRingX
+			|| centerRingZ != this.lastSortCenterRingZ)
+		{
+			this.renderListChanged = false;
+			this.lastSortCenterRingX = centerRingX;
+			this.lastSortCenterRingZ = centerRingZ;
+			
+			this.sortNearToFar(centerPos);
+		}
+	}
+	
+	
+	
+	//=============//
+	// render list //
+	//=============//
+	
+	private void updateLoadedBuffer(DhSectionPos sectionPos, AbstractRenderBuffer buffer, boolean visible)
+	{
+		LoadedRenderBuffer loadedBuffer = this.loadedBufferBySectionPos.get(sectionPos);
+		if (loadedBuffer == null)
+		{
+			loadedBuffer = new LoadedRenderBuffer(buffer, sectionPos);
+			this.loadedBufferBySectionPos.put(sectionPos, loadedBuffer);
+			this.loadedNearToFarBuffers.add(loadedBuffer);
+			this.renderListChanged = true;
+		}
+		else if (loadedBuffer.buffer != buffer)
+		{
+			// the section's buffer was swapped, its position in the list doesn't need to change
+			loadedBuffer.buffer = buffer;
+		}
+		
+		loadedBuffer.visible = visible;
+		loadedBuffer.lastUpdateIndex = this.updateIndex;
+		this.updatedBufferCount++;
+	}
+	
+	private void removeStaleBuffers()
+	{
+		int writeIndex = 0;
+		for (int i = 0; i < this.loadedNearToFarBuffers.size(); i++)
+		{
+			LoadedRenderBuffer loadedBuffer = this.loadedNearToFarBuffers.get(i);
+			if (loadedBuffer.lastUpdateIndex == this.updateIndex)
+			{
+				// removing in place keeps the list sorted
+				this.loadedNearToFarBuffers.set(writeIndex, loadedBuffer);
+				writeIndex++;
+			}
+			else
+			{
+				this.loadedBufferBySectionPos.remove(loadedBuffer.pos);
+			}
+		}
+		
+		this.loadedNearToFarBuffers.subList(writeIndex, this.loadedNearToFarBuffers.size()).clear();
+	}
+	
+	/** bucket sorts the render list by each buffer's Manhattan distance ring */
+	private void sortNearToFar(DhBlockPos2D centerPos)
+	{
+		int bufferCount = this.loadedNearToFarBuffers.size();
+		
+		int maxRing = 0;
+		for (int i = 0; i < bufferCount; i++)
+		{
+			LoadedRenderBuffer loadedBuffer = this.loadedNearToFarBuffers.get(i);
+			int manhattanDistance = Math.abs(loadedBuffer.centerBlockPosX - centerPos.x) + Math.abs(loadedBuffer.centerBlockPosZ - centerPos.z);
+			loadedBuffer.distanceRing = BitShiftUtil.divideByPowerOfTwo(manhattanDistance, DISTANCE_RING_DETAIL_LEVEL);
+			maxRing = Math.max(maxRing, loadedBuffer.distanceRing);
+		}
+		
+		
+		if (this.ringCountArray.length < maxRing + 2)
+		{
+			this.ringCountArray = new int[maxRing + 2];
+		}
+		int[] ringStartIndex = this.ringCountArray;
+		Arrays.fill(ringStartIndex, 0, maxRing + 2, 0);
+		
+		// count each ring, offset by one so the prefix sum gives each ring's start index
+		for (int i = 0; i < bufferCount; i++)
+		{
+			ringStartIndex[this.loadedNearToFarBuffers.get(i).distanceRing + 1]++;
+		}
+		for (int ring = 1; ring <= maxRing + 1; ring++)
+		{
+			ringStartIndex[ring] += ringStartIndex[ring - 1];
+		}
+		
+		
+		ArrayList<LoadedRenderBuffer> sortedList = this.sortScratchList;
+		sortedList.clear();
+		for (int i = 0; i < bufferCount; i++)
+		{
+			sortedList.add(null);
+		}
+		for (int i = 0; i < bufferCount; i++)
+		{
+			LoadedRenderBuffer loadedBuffer = this.loadedNearToFarBuffers.get(i);
+			sortedList.set(ringStartIndex[loadedBuffer.distanceRing]++, loadedBuffer);
 		}
+		
+		this.sortScratchList = this.loadedNearToFarBuffers;
+		this.sortScratchList.clear();
+		this.loadedNearToFarBuffers = sortedList;
 	}
 	
+	
+	
+	//===========//
+	// rendering //
+	//===========//
+	
 	public void renderOpaque(LodRenderer renderContext)
 	{
 		//TODO: Directional culling
-		this.loadedNearToFarBuffers.forEach(loadedBuffer -> loadedBuffer.buffer.renderOpaque(renderContext));
+		for (int i = 0; i < this.loadedNearToFarBuffers.size(); i++)
+		{
+			LoadedRenderBuffer loadedBuffer = this.loadedNearToFarBuffers.get(i);
+			if (loadedBuffer.visible)
+			{
+				loadedBuffer.buffer.renderOpaque(renderContext);
+			}
+		}
 	}
 	public void renderTransparent(LodRenderer renderContext)
 	{
 		//TODO: Directional culling
-		ListIterator<LoadedRenderBuffer> iter = this.loadedNearToFarBuffers.listIterator(this.loadedNearToFarBuffers.size());
-		while (iter.hasPrevious())
+		for (int i = this.loadedNearToFarBuffers.size() - 1; i >= 0; i--)
 		{
-			LoadedRenderBuffer loadedBuffer = iter.previous();
-			loadedBuffer.buffer.renderTransparent(renderContext);
+			LoadedRenderBuffer loadedBuffer = this.loadedNearToFarBuffers.get(i);
+			if (loadedBuffer.visible)
+			{
+				loadedBuffer.buffer.renderTransparent(renderContext);
+			}
 		}
 	}
 	
@@ -229,6 +299,9 @@ public class RenderBufferHandler
 	
 	public void close()
 	{
+		this.loadedNearToFarBuffers.clear();
+		this.loadedBufferBySectionPos.clear();
+		
 		Iterator<QuadNode<LodRenderSection>> nodeIterator = this.lodQuadTree.nodeIterator();
 		while (nodeIterator.hasNext())
 		{
@@ -248,13 +321,24 @@ public class RenderBufferHandler
 	
 	private static class LoadedRenderBuffer
 	{
-		public final AbstractRenderBuffer buffer;
+		public AbstractRenderBuffer buffer;
 		public final DhSectionPos pos;
 		
+		public final int centerBlockPosX;
+		public final int centerBlockPosZ;
+		
+		/** only valid after sorting */
+		public int distanceRing;
+		public boolean visible;
+		public int lastUpdateIndex;
+		
 		LoadedRenderBuffer(AbstractRenderBuffer buffer, DhSectionPos pos)
 		{
 			this.buffer = buffer;
 			this.pos = pos;
+			
+			this.centerBlockPosX = pos.getCenterBlockPosX();
+			this.centerBlockPosZ = pos.getCenterBlockPosZ();
 		}
 		
 	}
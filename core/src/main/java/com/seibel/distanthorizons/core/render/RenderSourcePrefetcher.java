@@ -0,0 +1,397 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.render;
+
+import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderSource;
+import com.seibel.distanthorizons.core.file.renderfile.IRenderSourceProvider;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.logging.f3.F3Screen;
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.threading.ThreadPools;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads render sources ahead of time for sections the player is moving towards,
+ * so fast moving players (IE flying with an elytra) don't outrun the high detail LODs. <br><br>
+ *
+ * Recent player positions are used to extrapolate a look-ahead position,
+ * any section that would be rendered at a higher detail level at that position than it is now
+ * is read via {@link IRenderSourceProvider#readAsync(DhSectionPos)}.
+ * The loaded render source is kept in the render file's cache, so when the {@link LodQuadTree}
+ * needs the section it can be loaded immediately.
+ * The render file handles loading the full data if the render data needs to be (re)created. <br><br>
+ *
+ * Prefetches are low priority: only a few are run at a time and none are started
+ * while the file handler thread pool is busy. <br>
+ * If the player changes direction or slows down, queued prefetches are dropped
+ * and in-flight prefetches are canceled. <br><br>
+ *
+ * Should only be ticked by the thread ticking the {@link LodQuadTree}.
+ */
+public class RenderSourcePrefetcher implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	/** how far in the future the player's position will be predicted */
+	private static final double LOOK_AHEAD_TIME_IN_SECONDS = 3.0;
+	/** how much position history is used to calculate the player's velocity */
+	private static final long VELOCITY_WINDOW_IN_NS = TimeUnit.MILLISECONDS.toNanos(1_000);
+	/** velocities calculated over less time than this are too noisy to use */
+	private static final long MIN_VELOCITY_WINDOW_IN_NS = TimeUnit.MILLISECONDS.toNanos(250);
+	
+	/** walking/sprinting is slow enough that the normal loading can keep up */
+	private static final double MIN_PREFETCH_SPEED_IN_BLOCKS_PER_SECOND = 12.0;
+	/** anything faster is probably a teleport */
+	private static final double MAX_PREFETCH_SPEED_IN_BLOCKS_PER_SECOND = 250.0;
+	/** cos(30 degrees), if the player turns more than this the prediction is considered diverged */
+	private static final double MIN_DIRECTION_DOT_PRODUCT = 0.866;
+	/** how far the look-ahead position has to move before the prefetch list is re-calculated */
+	private static final int RECALCULATE_DISTANCE_IN_BLOCKS = 64;
+	
+	private static final int MAX_IN_FLIGHT_PREFETCH_COUNT = 4;
+	private static final int MAX_QUEUED_PREFETCH_COUNT = 256;
+	/** no new prefetches will be started while the file handler has more tasks queued than this */
+	private static final int MAX_FILE_HANDLER_QUEUE_SIZE = 16;
+	/** prefetched sections that aren't loaded within this time are counted as wasted */
+	private static final long PREFETCH_EXPIRATION_IN_NS = TimeUnit.SECONDS.toNanos(30);
+	
+	
+	private final LodQuadTree quadTree;
+	private final IRenderSourceProvider renderSourceProvider;
+	
+	private final ArrayDeque<PositionSample> positionHistory = new ArrayDeque<>();
+	
+	/** null if no prediction is currently active */
+	private DhBlockPos2D lastLookAheadPos = null;
+	private double lastDirectionX = 0;
+	private double lastDirectionZ = 0;
+	
+	private final ArrayDeque<DhSectionPos> queuedPosQueue = new ArrayDeque<>();
+	private final ConcurrentHashMap<DhSectionPos, CompletableFuture<ColumnRenderSource>> inFlightFutureByPos = new ConcurrentHashMap<>();
+	/** when each prefetch finished, used to determine if the prefetch was used */
+	private final ConcurrentHashMap<DhSectionPos, Long> completedNanoTimeByPos = new ConcurrentHashMap<>();
+	
+	private final AtomicLong issuedCount = new AtomicLong(0);
+	private final AtomicLong hitCount = new AtomicLong(0);
+	private final AtomicLong lateHitCount = new AtomicLong(0);
+	private final AtomicLong wastedCount = new AtomicLong(0);
+	private final AtomicLong canceledCount = new AtomicLong(0);
+	private final AtomicLong sectionLoadCount = new AtomicLong(0);
+	
+	private final F3Screen.NestedMessage f3Message;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public RenderSourcePrefetcher(LodQuadTree quadTree, IRenderSourceProvider renderSourceProvider)
+	{
+		this.quadTree = quadTree;
+		this.renderSourceProvider = renderSourceProvider;
+		this.f3Message = new F3Screen.NestedMessage(this::f3Log);
+	}
+	
+	
+	
+	//======//
+	// tick //
+	//======//
+	
+	/** Should be called after the {@link LodQuadTree} has finished updating its render sections. */
+	public void tick(DhBlockPos2D playerPos)
+	{
+		long nowNs = System.nanoTime();
+		this.expireCompletedPrefetches(nowNs);
+		
+		
+		// update the player's velocity
+		this.positionHistory.addLast(new PositionSample(playerPos, nowNs));
+		while (this.positionHistory.size() > 2 && nowNs - this.positionHistory.peekFirst().nanoTime > VELOCITY_WINDOW_IN_NS)
+		{
+			this.positionHistory.removeFirst();
+		}
+		
+		PositionSample oldestSample = this.positionHistory.peekFirst();
+		long elapsedNs = nowNs - oldestSample.nanoTime;
+		if (elapsedNs < MIN_VELOCITY_WINDOW_IN_NS)
+		{
+			return;
+		}
+		
+		double elapsedSeconds = elapsedNs / (double) TimeUnit.SECONDS.toNanos(1);
+		double velocityX = (playerPos.x - oldestSample.pos.x) / elapsedSeconds;
+		double velocityZ = (playerPos.z - oldestSample.pos.z) / elapsedSeconds;
+		double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+		if (speed > MAX_PREFETCH_SPEED_IN_BLOCKS_PER_SECOND)
+		{
+			// the player probably teleported, the old positions are useless
+			this.positionHistory.clear();
+			this.positionHistory.addLast(new PositionSample(playerPos, nowNs));
+			this.cancelPrefetching();
+			return;
+		}
+		else if (speed < MIN_PREFETCH_SPEED_IN_BLOCKS_PER_SECOND)
+		{
+			this.cancelPrefetching();
+			return;
+		}
+		
+		
+		// update the prediction
+		double directionX = velocityX / speed;
+		double directionZ = velocityZ / speed;
+		DhBlockPos2D lookAheadPos = new DhBlockPos2D(
+				(int) (playerPos.x + velocityX * LOOK_AHEAD_TIME_IN_SECONDS),
+				(int) (playerPos.z + velocityZ * LOOK_AHEAD_TIME_IN_SECONDS));
+		
+		if (this.lastLookAheadPos != null
+			&& (directionX * this.lastDirectionX) + (directionZ * this.lastDirectionZ) < MIN_DIRECTION_DOT_PRODUCT)
+		{
+			// the player changed direction, anything we were going to load probably isn't needed anymore
+			this.cancelPrefetching();
+		}
+		
+		if (this.lastLookAheadPos == null
+			|| lookAheadPos.distSquared(this.lastLookAheadPos) > (long) RECALCULATE_DISTANCE_IN_BLOCKS * RECALCULATE_DISTANCE_IN_BLOCKS)
+		{
+			this.lastLookAheadPos = lookAheadPos;
+			this.lastDirectionX = directionX;
+			this.lastDirectionZ = directionZ;
+			
+			this.queuePrefetchPositions(playerPos, lookAheadPos);
+		}
+		
+		this.startQueuedPrefetches();
+	}
+	
+	
+	
+	//=============//
+	// prefetching //
+	//=============//
+	
+	private void queuePrefetchPositions(DhBlockPos2D playerPos, DhBlockPos2D lookAheadPos)
+	{
+		// the area between the player and the look-ahead position
+		int searchRadius = (int) playerPos.dist(lookAheadPos);
+		
+		ArrayList<DhSectionPos> prefetchPosList = new ArrayList<>();
+		Iterator<DhSectionPos> rootPosIterator = this.quadTree.rootNodePosIterator();
+		while (rootPosIterator.hasNext())
+		{
+			this.addPrefetchPositions(rootPosIterator.next(), playerPos, lookAheadPos, searchRadius, prefetchPosList);
+		}
+		
+		// the closest sections will be needed first
+		prefetchPosList.sort(Comparator.comparingLong((pos) -> playerPos.distSquared(pos.getCenterBlockPosX(), pos.getCenterBlockPosZ())));
+		
+		// old queued positions are replaced since they were based on an older prediction
+		this.queuedPosQueue.clear();
+		for (int i = 0; i < prefetchPosList.size() && i < MAX_QUEUED_PREFETCH_COUNT; i++)
+		{
+			this.queuedPosQueue.add(prefetchPosList.get(i));
+		}
+	}
+	private void addPrefetchPositions(DhSectionPos pos, DhBlockPos2D playerPos, DhBlockPos2D lookAheadPos, int searchRadius, ArrayList<DhSectionPos> prefetchPosList)
+	{
+		if (!this.quadTree.isSectionPosInBounds(pos)
+			|| getDistanceToSection(lookAheadPos, pos) > searchRadius)
+		{
+			return;
+		}
+		
+		
+		byte futureDetailLevel = this.quadTree.calculateExpectedRenderDetailLevel(lookAheadPos, pos);
+		if (pos.getDetailLevel() > futureDetailLevel)
+		{
+			// this section will be rendered via its children
+			for (int i = 0; i < 4; i++)
+			{
+				this.addPrefetchPositions(pos.getChildByIndex(i), playerPos, lookAheadPos, searchRadius, prefetchPosList);
+			}
+		}
+		else if (pos.getDetailLevel() < this.quadTree.calculateExpectedRenderDetailLevel(playerPos, pos)
+				&& !this.inFlightFutureByPos.containsKey(pos)
+				&& !this.completedNanoTimeByPos.containsKey(pos))
+		{
+			// this section isn't rendered yet but will be once the player gets closer
+			prefetchPosList.add(pos);
+		}
+	}
+	
+	private void startQueuedPrefetches()
+	{
+		ThreadPoolExecutor executor = ThreadPools.getFileHandlerExecutor();
+		while (!this.queuedPosQueue.isEmpty()
+				&& this.inFlightFutureByPos.size() < MAX_IN_FLIGHT_PREFETCH_COUNT
+				&& (executor == null || executor.getQueue().size() < MAX_FILE_HANDLER_QUEUE_SIZE))
+		{
+			DhSectionPos pos = this.queuedPosQueue.poll();
+			
+			CompletableFuture<ColumnRenderSource> future = this.renderSourceProvider.readAsync(pos);
+			this.inFlightFutureByPos.put(pos, future);
+			this.issuedCount.incrementAndGet();
+			
+			future.whenComplete((renderSource, exception) ->
+			{
+				// only track the prefetch if it wasn't canceled
+				if (this.inFlightFutureByPos.remove(pos, future) && exception == null)
+				{
+					this.completedNanoTimeByPos.put(pos, System.nanoTime());
+				}
+			});
+		}
+	}
+	
+	/** Drops any queued prefetches and cancels any in-flight prefetches. */
+	private void cancelPrefetching()
+	{
+		this.lastLookAheadPos = null;
+		
+		this.canceledCount.addAndGet(this.queuedPosQueue.size());
+		this.queuedPosQueue.clear();
+		
+		for (Map.Entry<DhSectionPos, CompletableFuture<ColumnRenderSource>> entry : this.inFlightFutureByPos.entrySet())
+		{
+			if (this.inFlightFutureByPos.remove(entry.getKey(), entry.getValue()))
+			{
+				// Note: this may not stop a file read that has already started,
+				// but any data read will still be cached in case it's needed later
+				entry.getValue().cancel(true);
+				this.canceledCount.incrementAndGet();
+			}
+		}
+	}
+	
+	private void expireCompletedPrefetches(long nowNs)
+	{
+		for (Map.Entry<DhSectionPos, Long> entry : this.completedNanoTimeByPos.entrySet())
+		{
+			if (nowNs - entry.getValue() > PREFETCH_EXPIRATION_IN_NS
+				&& this.completedNanoTimeByPos.remove(entry.getKey(), entry.getValue()))
+			{
+				this.wastedCount.incrementAndGet();
+			}
+		}
+	}
+	
+	/** @return the distance between the given position and the closest edge of the section */
+	private static double getDistanceToSection(DhBlockPos2D pos, DhSectionPos sectionPos)
+	{
+		int halfBlockWidth = sectionPos.getBlockWidth() / 2;
+		int distX = Math.max(0, Math.abs(pos.x - sectionPos.getCenterBlockPosX()) - halfBlockWidth);
+		int distZ = Math.max(0, Math.abs(pos.z - sectionPos.getCenterBlockPosZ()) - halfBlockWidth);
+		return Math.sqrt((double) distX * distX + (double) distZ * distZ);
+	}
+	
+	
+	
+	//=========//
+	// metrics //
+	//=========//
+	
+	/** Should be called whenever the {@link LodQuadTree} starts loading a section's render source. */
+	public void onRenderSourceLoadStarted(DhSectionPos pos)
+	{
+		this.sectionLoadCount.incrementAndGet();
+		
+		if (this.completedNanoTimeByPos.remove(pos) != null)
+		{
+			this.hitCount.incrementAndGet();
+		}
+		else if (this.inFlightFutureByPos.containsKey(pos))
+		{
+			// the load will finish sooner, but not immediately
+			this.lateHitCount.incrementAndGet();
+		}
+	}
+	
+	/** @return the percent of prefetches that were used, including ones that were still loading */
+	public double getPrefetchAccuracyPercent()
+	{
+		long usedCount = this.hitCount.get() + this.lateHitCount.get();
+		long resolvedCount = usedCount + this.wastedCount.get();
+		return (resolvedCount == 0) ? 0 : (usedCount * 100.0) / resolvedCount;
+	}
+	/** @return the percent of section loads that were already prefetched */
+	public double getHitRatePercent()
+	{
+		long loadCount = this.sectionLoadCount.get();
+		return (loadCount == 0) ? 0 : (this.hitCount.get() * 100.0) / loadCount;
+	}
+	
+	private String[] f3Log()
+	{
+		return new String[]
+			{
+				"Prefetch: [" + this.queuedPosQueue.size() + "] queued, [" + this.inFlightFutureByPos.size() + "] loading, [" + this.issuedCount.get() + "] issued, [" + this.canceledCount.get() + "] canceled",
+				"Prefetch: [" + this.hitCount.get() + "] hits, [" + this.lateHitCount.get() + "] late, [" + this.wastedCount.get() + "] wasted, "
+					+ "hit rate [" + String.format("%.1f", this.getHitRatePercent()) + "%] accuracy [" + String.format("%.1f", this.getPrefetchAccuracyPercent()) + "%]"
+			};
+	}
+	
+	
+	
+	//==============//
+	// base methods //
+	//==============//
+	
+	@Override
+	public void close()
+	{
+		this.cancelPrefetching();
+		this.completedNanoTimeByPos.clear();
+		this.f3Message.close();
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	private static class PositionSample
+	{
+		public final DhBlockPos2D pos;
+		public final long nanoTime;
+		
+		public PositionSample(DhBlockPos2D pos, long nanoTime)
+		{
+			this.pos = pos;
+			this.nanoTime = nanoTime;
+		}
+		
+	}
+	
+}
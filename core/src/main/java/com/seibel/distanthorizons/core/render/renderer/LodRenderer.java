@@ -386,7 +386,8 @@ public class LodRenderer
 				this.quadIBO.bind();
 			}
 			
-			this.bufferHandler.buildRenderListAndUpdateSections(this.getLookVector());
+			this.bufferHandler.buildRenderListAndUpdateSections(modelViewProjectionMatrix, MC_RENDER.getCameraExactPosition(),
+					clientLevelWrapper.getMinHeight(), clientLevelWrapper.getMinHeight() + clientLevelWrapper.getHeight());
 			
 			
 			
@@ -76,14 +76,25 @@ public abstract class AbstractDhRepo<TDTO extends IBaseDTO>
 		// get or create the connection,
 		// reusing existing connections reduces the chance of locking the database during trivial queries
 		this.connectionString = this.databaseType+":"+this.databaseLocation;
-		if (!CONNECTIONS_BY_CONNECTION_STRING.containsKey(this.connectionString))
+		// locked since sharded repos may be created and closed from multiple threads
+		synchronized (CONNECTIONS_BY_CONNECTION_STRING)
 		{
-			Connection connection = DriverManager.getConnection(this.connectionString);
-			CONNECTIONS_BY_CONNECTION_STRING.put(this.connectionString, connection); 
+			if (!CONNECTIONS_BY_CONNECTION_STRING.containsKey(this.connectionString))
+			{
+				Connection connection = DriverManager.getConnection(this.connectionString);
+				
+				// only affects newly created databases, existing databases have to be converted offline (see DatabaseMaintainer)
+				try (Statement statement = connection.createStatement())
+				{
+					statement.execute("PRAGMA auto_vacuum = INCREMENTAL;");
+				}
+				
+				CONNECTIONS_BY_CONNECTION_STRING.put(this.connectionString, connection);
+			}
+			this.connection = CONNECTIONS_BY_CONNECTION_STRING.get(this.connectionString);
+			
+			ACTIVE_CONNECTION_STRINGS_BY_REPO.put(this, this.connectionString);
 		}
-		this.connection = CONNECTIONS_BY_CONNECTION_STRING.get(this.connectionString);
-		
-		ACTIVE_CONNECTION_STRINGS_BY_REPO.put(this, this.connectionString);
 		
 		DatabaseUpdater.runAutoUpdateScripts(this);
 	}
@@ -111,7 +122,9 @@ public abstract class AbstractDhRepo<TDTO extends IBaseDTO>
 	
 	public void save(TDTO dto)
 	{
-		if (this.getByPrimaryKey(dto.getPrimaryKeyString()) != null)
+		// only check existence so the whole row doesn't have to be read,
+		// this database is checked directly since subclasses may also look for the row in other databases
+		if (this.existsInThisDatabase(dto.getPrimaryKeyString()))
 		{
 			this.update(dto);
 		}
@@ -166,7 +179,8 @@ public abstract class AbstractDhRepo<TDTO extends IBaseDTO>
 	
 	
 	public boolean exists(TDTO dto) { return this.existsWithPrimaryKey(dto.getPrimaryKeyString()); }
-	public boolean existsWithPrimaryKey(String primaryKey) 
+	public boolean existsWithPrimaryKey(String primaryKey) { return this.existsInThisDatabase(primaryKey); }
+	private boolean existsInThisDatabase(String primaryKey)
 	{
 		String whereEqualStatement = this.createWherePrimaryKeySql(primaryKey);
 		Map<String, Object> result = this.queryDictionaryFirst("SELECT EXISTS(SELECT 1 FROM "+this.getTableName()+" WHERE "+whereEqualStatement+") as 'existingCount';"); 
@@ -189,8 +203,20 @@ public abstract class AbstractDhRepo<TDTO extends IBaseDTO>
 			return new ArrayList<>();
 		}
 	}
+	/** note: this doesn't close the given statement */
+	public List<Map<String, Object>> queryDictionary(PreparedStatement statement)
+	{
+		try
+		{
+			return this.query(statement);
+		}
+		catch (DbConnectionClosedException e)
+		{
+			return new ArrayList<>();
+		}
+	}
 	@Nullable
-	public Map<String, Object> queryDictionaryFirst(String sql) 
+	public Map<String, Object> queryDictionaryFirst(String sql)
 	{
 		try
 		{
@@ -316,26 +342,29 @@ public abstract class AbstractDhRepo<TDTO extends IBaseDTO>
 	
 	public void close()
 	{
-		try
+		synchronized (CONNECTIONS_BY_CONNECTION_STRING)
 		{
-			// mark this repo as deactivated
-			ACTIVE_CONNECTION_STRINGS_BY_REPO.remove(this);
-			
-			// check if any other repos are using this connection
-			if (!ACTIVE_CONNECTION_STRINGS_BY_REPO.containsValue(this.connectionString)) // not a fast operation, but we shouldn't have more than 10 repos active at a time, so it shouldn't be a problem
+			try
 			{
-				if(this.connection != null)
+				// mark this repo as deactivated
+				ACTIVE_CONNECTION_STRINGS_BY_REPO.remove(this);
+				
+				// check if any other repos are using this connection
+				if (!ACTIVE_CONNECTION_STRINGS_BY_REPO.containsValue(this.connectionString)) // not a fast operation, but we shouldn't have more than a few dozen repos active at a time, so it shouldn't be a problem
 				{
-					CONNECTIONS_BY_CONNECTION_STRING.remove(this.connectionString);
-					this.connection.close();
+					if(this.connection != null)
+					{
+						CONNECTIONS_BY_CONNECTION_STRING.remove(this.connectionString);
+						this.connection.close();
+					}
+					ACTIVE_CONNECTION_STRINGS_BY_REPO.remove(this);
 				}
-				ACTIVE_CONNECTION_STRINGS_BY_REPO.remove(this);
 			}
-		}
-		catch(SQLException e)
-		{
-			// connection close failed.
-			Assert.fail("Unable to close the connection: " + e.getMessage());
+			catch(SQLException e)
+			{
+				// connection close failed.
+				Assert.fail("Unable to close the connection: " + e.getMessage());
+			}
 		}
 	}
 	
@@ -23,18 +23,69 @@ import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGeneratio
 import com.seibel.distanthorizons.core.file.metaData.BaseMetaData;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.coreapi.util.StringUtil;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public abstract class AbstractMetaDataRepo extends AbstractDhRepo<MetaDataDto>
 {
-	public AbstractMetaDataRepo(String databaseType, String databaseLocation) throws SQLException
+	/** every column except the data blob, selecting these is much cheaper than "SELECT *" since the blob doesn't have to be read */
+	private static final String META_DATA_COLUMNS = "DhSectionPos, Checksum, DataVersion, DataDetailLevel, WorldGenStep, DataType, BinaryDataFormatVersion";
+	
+	public static final String SHARD_FOLDER_NAME = "shards";
+	
+	
+	/** null if sharding is disabled and no shards exist */
+	@Nullable
+	private final MetaDataRepoShards shards;
+	/** 
+	 * If false sharding was disabled after being used,
+	 * existing shards are still read but sections are moved back into this repo's database as they're saved.
+	 */
+	private final boolean saveToShards;
+	/** 
+	 * True if this repo's database has sections that belong in a shard, IE sections saved before sharding was enabled. <br>
+	 * Those sections are moved into their shard the next time they're saved.
+	 */
+	private final boolean thisDatabaseHasShardedSections;
+	
+	
+	
+	public AbstractMetaDataRepo(String databaseType, String databaseLocation) throws SQLException { this(databaseType, databaseLocation, false); }
+	/** @param useShards if true sections will be split between multiple database files, see {@link MetaDataRepoShards} */
+	public AbstractMetaDataRepo(String databaseType, String databaseLocation, boolean useShards) throws SQLException
 	{
 		super(databaseType, databaseLocation, MetaDataDto.class);
+		
+		File shardFolder = new File(new File(databaseLocation).getParentFile(), SHARD_FOLDER_NAME);
+		// existing shards are always used so their data is still visible if sharding is disabled
+		this.shards = (useShards || MetaDataRepoShards.folderContainsShards(shardFolder)) ? new MetaDataRepoShards(databaseType, shardFolder, this::createShardRepo) : null;
+		this.saveToShards = useShards;
+		this.thisDatabaseHasShardedSections = useShards && this.containsShardedSections();
+	}
+	/** Only run once on startup, so reads don't have to check this repo's database after every shard miss. */
+	private boolean containsShardedSections()
+	{
+		// the detail level is the first number in the serialized position, IE "[6,1,-2]"
+		Map<String, Object> result = this.queryDictionaryFirst(
+				"SELECT DhSectionPos FROM "+this.getTableName()+" \n" +
+				"WHERE CAST(substr(DhSectionPos, 2, instr(DhSectionPos, ',') - 2) AS INTEGER) <= "+MetaDataRepoShards.SHARD_DETAIL_LEVEL+" \n" +
+				"LIMIT 1");
+		return result != null && !result.isEmpty();
 	}
 	
+	/** Should return an un-sharded repo for this repo's table at the given location. */
+	protected abstract AbstractMetaDataRepo createShardRepo(String databaseType, String databaseLocation) throws SQLException;
+	
 	
 	
 	@Override 
@@ -43,6 +94,16 @@ public abstract class AbstractMetaDataRepo extends AbstractDhRepo<MetaDataDto>
 	
 	@Override 
 	public MetaDataDto convertDictionaryToDto(Map<String, Object> objectMap) throws ClassCastException
+	{
+		BaseMetaData baseMetaData = convertDictionaryToMetaData(objectMap);
+		
+		// binary data
+		byte[] dataByteArray = (byte[]) objectMap.get("Data");
+		
+		MetaDataDto metaFile = new MetaDataDto(baseMetaData, dataByteArray);
+		return metaFile;
+	}
+	private static BaseMetaData convertDictionaryToMetaData(Map<String, Object> objectMap) throws ClassCastException
 	{
 		String posString = (String) objectMap.get("DhSectionPos");
 		DhSectionPos pos = DhSectionPos.deserialize(posString);
@@ -57,20 +118,236 @@ public abstract class AbstractMetaDataRepo extends AbstractDhRepo<MetaDataDto>
 		String dataType = (String) objectMap.get("DataType");
 		byte binaryDataFormatVersion = (Byte) objectMap.get("BinaryDataFormatVersion");
 		
-		BaseMetaData baseMetaData = new BaseMetaData(pos, 
+		return new BaseMetaData(pos, 
 				checksum, dataDetailLevel, worldGenStep,
 				dataType, binaryDataFormatVersion, dataVersion);
-		
-		// binary data
-		byte[] dataByteArray = (byte[]) objectMap.get("Data");
-		
-		MetaDataDto metaFile = new MetaDataDto(baseMetaData, dataByteArray);
-		return metaFile;
 	}
 	
 	@Override 
 	public String createSelectPrimaryKeySql(String primaryKey) { return "SELECT * FROM "+this.getTableName()+" WHERE DhSectionPos = '"+primaryKey+"'"; }
 	
+	
+	
+	//=====================//
+	// split data fetching //
+	//=====================//
+	
+	/** 
+	 * Only reads the meta data columns, should be used instead of {@link AbstractDhRepo#getByPrimaryKey(String)} 
+	 * when the data itself isn't needed.
+	 * 
+	 * @return null if no row exists for the given position
+	 */
+	@Nullable
+	public BaseMetaData getMetaDataByPrimaryKey(String primaryKey) { return this.readRouted(primaryKey, (shardRepo) -> shardRepo.getMetaDataByPrimaryKey(primaryKey), () -> this.getMetaDataFromThisDatabase(primaryKey)); }
+	@Nullable
+	private BaseMetaData getMetaDataFromThisDatabase(String primaryKey)
+	{
+		Map<String, Object> objectMap = this.queryDictionaryFirst("SELECT "+META_DATA_COLUMNS+" FROM "+this.getTableName()+" WHERE DhSectionPos = '"+primaryKey+"'");
+		if (objectMap != null && !objectMap.isEmpty())
+		{
+			return convertDictionaryToMetaData(objectMap);
+		}
+		else
+		{
+			return null;
+		}
+	}
+	
+	/** 
+	 * Only reads the data blob. <br>
+	 * Note: the Sqlite JDBC driver always reads the whole blob, so the returned stream is backed by an in-memory array.
+	 * 
+	 * @return null if no row exists for the given position
+	 */
+	@Nullable
+	public InputStream getDataInputStreamByPrimaryKey(String primaryKey) { return this.readRouted(primaryKey, (shardRepo) -> shardRepo.getDataInputStreamByPrimaryKey(primaryKey), () -> this.getDataInputStreamFromThisDatabase(primaryKey)); }
+	@Nullable
+	private InputStream getDataInputStreamFromThisDatabase(String primaryKey)
+	{
+		Map<String, Object> objectMap = this.queryDictionaryFirst("SELECT Data FROM "+this.getTableName()+" WHERE DhSectionPos = '"+primaryKey+"'");
+		if (objectMap == null || objectMap.get("Data") == null)
+		{
+			return null;
+		}
+		
+		return new ByteArrayInputStream((byte[]) objectMap.get("Data"));
+	}
+	
+	
+	
+	//==========//
+	// sharding //
+	//==========//
+	
+	@Override
+	public MetaDataDto getByPrimaryKey(String primaryKey) { return this.readRouted(primaryKey, (shardRepo) -> shardRepo.getByPrimaryKey(primaryKey), () -> super.getByPrimaryKey(primaryKey)); }
+	
+	@Override
+	public boolean existsWithPrimaryKey(String primaryKey)
+	{
+		// null is used for "doesn't exist" so the un-sharded database can be checked
+		return this.readRouted(primaryKey, 
+				(shardRepo) -> shardRepo.existsWithPrimaryKey(primaryKey) ? Boolean.TRUE : null, 
+				() -> super.existsWithPrimaryKey(primaryKey) ? Boolean.TRUE : null) != null;
+	}
+	
+	@Override
+	public void save(MetaDataDto dto)
+	{
+		String primaryKey = dto.getPrimaryKeyString();
+		DhSectionPos shardPos = this.getShardPos(primaryKey);
+		if (shardPos == null)
+		{
+			super.save(dto);
+			return;
+		}
+		
+		if (this.saveToShards)
+		{
+			this.shards.runOnShard(shardPos, (shardRepo) -> 
+			{
+				shardRepo.save(dto);
+				return null;
+			});
+			
+			if (this.thisDatabaseHasShardedSections)
+			{
+				// move the section into its shard if it was saved before sharding was enabled
+				super.deleteByPrimaryKey(primaryKey);
+			}
+		}
+		else
+		{
+			super.save(dto);
+			
+			// move the section back out of its shard
+			this.shards.runOnExistingShard(shardPos, (shardRepo) ->
+			{
+				shardRepo.deleteByPrimaryKey(primaryKey);
+				return null;
+			});
+		}
+	}
+	
+	@Override
+	public void deleteByPrimaryKey(String primaryKey)
+	{
+		DhSectionPos shardPos = this.getShardPos(primaryKey);
+		if (shardPos == null)
+		{
+			super.deleteByPrimaryKey(primaryKey);
+			return;
+		}
+		
+		// the section may be in either database
+		this.shards.runOnExistingShard(shardPos, (shardRepo) ->
+		{
+			shardRepo.deleteByPrimaryKey(primaryKey);
+			return null;
+		});
+		
+		if (!this.saveToShards || this.thisDatabaseHasShardedSections)
+		{
+			super.deleteByPrimaryKey(primaryKey);
+		}
+	}
+	
+	/**
+	 * Unlike {@link AbstractMetaDataRepo#deleteByPrimaryKey} this only deletes the row from this repo's database,
+	 * any copies in a shard are left alone.
+	 */
+	public void deleteFromThisDatabase(String primaryKey) { super.deleteByPrimaryKey(primaryKey); }
+	
+	@Override
+	public void deleteAll()
+	{
+		super.deleteAll();
+		
+		if (this.shards != null)
+		{
+			this.shards.deleteAll();
+		}
+	}
+	
+	/** Closes any shards that haven't been used recently. Can be called every tick. */
+	public void tryCloseIdleShards()
+	{
+		if (this.shards != null)
+		{
+			this.shards.tryCloseIdleShards();
+		}
+	}
+	
+	public int getOpenShardCount() { return (this.shards != null) ? this.shards.getOpenShardCount() : 0; }
+	
+	/** @return every shard that exists on disk, empty if sharding has never been used */
+	public List<DhSectionPos> getExistingShardPosList() { return (this.shards != null) ? this.shards.getExistingShardPosList() : new ArrayList<>(); }
+	
+	/**
+	 * Runs the given function on an existing shard's repo, the shard won't be closed while the function is running.
+	 * 
+	 * @return null if the shard doesn't exist
+	 */
+	@Nullable
+	public <T> T runOnExistingShard(DhSectionPos shardPos, Function<AbstractMetaDataRepo, T> func) { return (this.shards != null) ? this.shards.runOnExistingShard(shardPos, func) : null; }
+	
+	@Override
+	public void close()
+	{
+		if (this.shards != null)
+		{
+			this.shards.close();
+		}
+		super.close();
+	}
+	
+	/** @return null if no shards are used or the section is always stored in this repo's database */
+	@Nullable
+	private DhSectionPos getShardPos(String primaryKey) { return (this.shards != null) ? MetaDataRepoShards.getShardPos(primaryKey) : null; }
+	
+	/**
+	 * Runs the given query on whichever database has the newest copy of the section first. <br>
+	 * The other database is only queried if it may also contain the section,
+	 * IE this repo's database before its old sections have been moved into their shards,
+	 * or an existing shard after sharding was disabled.
+	 */
+	@Nullable
+	private <T> T readRouted(String primaryKey, Function<AbstractMetaDataRepo, T> shardQuery, Supplier<T> thisDatabaseQuery)
+	{
+		DhSectionPos shardPos = this.getShardPos(primaryKey);
+		if (shardPos == null)
+		{
+			return thisDatabaseQuery.get();
+		}
+		
+		if (this.saveToShards)
+		{
+			T result = this.shards.runOnExistingShard(shardPos, shardQuery);
+			if (result == null && this.thisDatabaseHasShardedSections)
+			{
+				result = thisDatabaseQuery.get();
+			}
+			return result;
+		}
+		else
+		{
+			T result = thisDatabaseQuery.get();
+			if (result == null)
+			{
+				result = this.shards.runOnExistingShard(shardPos, shardQuery);
+			}
+			return result;
+		}
+	}
+	
+	
+	
+	//===================//
+	// insert and update //
+	//===================//
+	
+	
 	@Override
 	public PreparedStatement createInsertStatement(MetaDataDto dto) throws SQLException
 	{
@@ -114,7 +391,7 @@ public abstract class AbstractMetaDataRepo extends AbstractDhRepo<MetaDataDto>
 			"   ,WorldGenStep = ? \n" +
 			"   ,DataType = ? \n" +
 			"   ,BinaryDataFormatVersion = ? \n" +
-					
+			
 			"   ,Data = ? \n" +
 			
 			"   ,LastModifiedDateTime = CURRENT_TIMESTAMP \n" +
@@ -0,0 +1,473 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+import com.seibel.distanthorizons.core.config.Config;
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.ThreadUtil;
+import com.seibel.distanthorizons.core.util.threading.ThreadPools;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.zip.Adler32;
+
+/**
+ * Runs background maintenance on an {@link AbstractMetaDataRepo}'s table,
+ * including the table in each of the repo's shards: <br>
+ * 1. verifies each row's stored checksum against its data <br>
+ * 2. finds rows written with an outdated binary data format so they can be re-written <br>
+ * 3. releases the database's free pages a few at a time (if the database uses incremental auto vacuuming) <br>
+ * 4. updates the query planner's statistics with ANALYZE <br><br>
+ *
+ * Work is split into small steps that only run while the file handler threads are idle,
+ * so maintenance doesn't compete with LOD loading or world generation. <br>
+ * A full VACUUM is never run here since it locks the whole database,
+ * see {@link DatabaseMaintainer#convertToIncrementalVacuum} instead.
+ */
+public class DatabaseMaintainer implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	private static final long MS_BETWEEN_STEPS = TimeUnit.SECONDS.toMillis(1);
+	/** after a pass is finished the next one won't start until this much time has passed */
+	private static final long MS_BETWEEN_PASSES = TimeUnit.HOURS.toMillis(1);
+	/** 
+	 * How many rows are verified per step. <br>
+	 * Kept small since each row's data has to be read. 
+	 */
+	private static final int ROWS_PER_STEP = 32;
+	/** with Sqlite's default page size of 4 KB this frees up to 1 MB per step */
+	private static final int PAGES_PER_VACUUM_STEP = 256;
+	/** how long a rewrite can take before the maintainer moves on */
+	private static final long MAX_REWRITE_WAIT_SECONDS = 30;
+	
+	private static final int SQLITE_AUTO_VACUUM_INCREMENTAL = 2;
+	
+	/** shared between every maintainer since only one step should run at a time */
+	private static final ThreadPoolExecutor MAINTENANCE_THREAD = ThreadUtil.makeSingleThreadPool("Database Maintenance", ThreadUtil.MINIMUM_RELATIVE_PRIORITY);
+	
+	
+	private final AbstractMetaDataRepo repo;
+	private final IMaintenanceHandler handler;
+	
+	private final AtomicBoolean stepRunning = new AtomicBoolean(false);
+	private volatile boolean closed = false;
+	private volatile long lastStepMsTime = System.currentTimeMillis();
+	
+	// pass state, only modified on the maintenance thread
+	private volatile EMaintenancePhase phase = EMaintenancePhase.SETUP;
+	/** the shards that existed when the pass started */
+	private List<DhSectionPos> shardPosList = new ArrayList<>();
+	/** -1 when the repo's own database is being maintained, otherwise the index of the shard in {@link DatabaseMaintainer#shardPosList} */
+	private volatile int shardIndex = -1;
+	private String lastVerifiedPrimaryKey = "";
+	private boolean incrementalVacuumEnabled = false;
+	private boolean incrementalVacuumWarningLogged = false;
+	private long passStartMsTime = 0;
+	/** only counts the database currently being maintained */
+	private volatile int totalRowCount = 0;
+	/** only counts the database currently being maintained */
+	private volatile int databaseVerifiedRowCount = 0;
+	private int verifiedRowCount = 0;
+	private int corruptedRowCount = 0;
+	private int rewrittenRowCount = 0;
+	private long freedPageCount = 0;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public DatabaseMaintainer(AbstractMetaDataRepo repo, IMaintenanceHandler handler)
+	{
+		this.repo = repo;
+		this.handler = handler;
+	}
+	
+	
+	
+	//=============//
+	// maintenance //
+	//=============//
+	
+	/**
+	 * Queues the next maintenance step if enough time has passed and the file handler is idle. <br>
+	 * Can be called every tick.
+	 */
+	public void tryQueueMaintenance()
+	{
+		long nowMs = System.currentTimeMillis();
+		long msBetweenSteps = (this.phase == EMaintenancePhase.DONE) ? MS_BETWEEN_PASSES : MS_BETWEEN_STEPS;
+		if (this.closed
+			|| nowMs - this.lastStepMsTime < msBetweenSteps
+			|| !Config.Client.Advanced.LodBuilding.enableDatabaseMaintenance.get()
+			|| !isFileHandlerIdle()
+			|| MAINTENANCE_THREAD.isTerminated()
+			|| !this.stepRunning.compareAndSet(false, true))
+		{
+			return;
+		}
+		this.lastStepMsTime = nowMs;
+		
+		
+		MAINTENANCE_THREAD.execute(() ->
+		{
+			try
+			{
+				if (!this.closed)
+				{
+					this.runStep();
+				}
+			}
+			catch (Exception e)
+			{
+				// the repo may have been closed mid-step, the pass will be retried later
+				LOGGER.warn("Database maintenance step failed for table [" + this.repo.getTableName() + "], error: [" + e.getMessage() + "].", e);
+				this.phase = EMaintenancePhase.DONE;
+			}
+			finally
+			{
+				this.lastStepMsTime = System.currentTimeMillis();
+				this.stepRunning.set(false);
+			}
+		});
+	}
+	private static boolean isFileHandlerIdle()
+	{
+		ThreadPoolExecutor fileHandlerExecutor = ThreadPools.getFileHandlerExecutor();
+		return fileHandlerExecutor != null
+				&& fileHandlerExecutor.getQueue().isEmpty()
+				&& fileHandlerExecutor.getActiveCount() == 0;
+	}
+	
+	private void runStep()
+	{
+		switch (this.phase)
+		{
+			case SETUP:
+				this.setupPass();
+				this.runOnCurrentDatabase(this::setupDatabase);
+				this.phase = EMaintenancePhase.VERIFY_ROWS;
+				break;
+			
+			case VERIFY_ROWS:
+				if (!this.runOnCurrentDatabase(this::verifyNextRows))
+				{
+					this.phase = EMaintenancePhase.VACUUM;
+				}
+				break;
+			
+			case VACUUM:
+				if (!this.incrementalVacuumEnabled || !this.runOnCurrentDatabase(this::vacuumNextPages))
+				{
+					this.runOnCurrentDatabase(this::finishDatabase);
+					
+					if (this.shardIndex + 1 < this.shardPosList.size())
+					{
+						// move on to the next shard
+						this.shardIndex++;
+						this.runOnCurrentDatabase(this::setupDatabase);
+						this.phase = EMaintenancePhase.VERIFY_ROWS;
+					}
+					else
+					{
+						this.finishPass();
+						this.phase = EMaintenancePhase.DONE;
+					}
+				}
+				break;
+			
+			case DONE:
+				// start a new pass
+				this.phase = EMaintenancePhase.SETUP;
+				break;
+		}
+	}
+	
+	private void setupPass()
+	{
+		this.passStartMsTime = System.currentTimeMillis();
+		this.shardPosList = this.repo.getExistingShardPosList();
+		this.shardIndex = -1;
+		this.verifiedRowCount = 0;
+		this.corruptedRowCount = 0;
+		this.rewrittenRowCount = 0;
+		this.freedPageCount = 0;
+	}
+	
+	/** @return always true */
+	private boolean setupDatabase(AbstractMetaDataRepo database)
+	{
+		this.lastVerifiedPrimaryKey = "";
+		this.databaseVerifiedRowCount = 0;
+		
+		Map<String, Object> countResult = database.queryDictionaryFirst("SELECT COUNT(*) as 'rowCount' FROM " + database.getTableName());
+		this.totalRowCount = (countResult != null) ? ((Number) countResult.get("rowCount")).intValue() : 0;
+		
+		
+		// new databases are created with incremental vacuuming enabled (see AbstractDhRepo),
+		// existing databases have to be converted offline since that requires a full VACUUM
+		this.incrementalVacuumEnabled = getAutoVacuumMode(database) == SQLITE_AUTO_VACUUM_INCREMENTAL;
+		if (!this.incrementalVacuumEnabled && !this.incrementalVacuumWarningLogged)
+		{
+			this.incrementalVacuumWarningLogged = true;
+			LOGGER.info("Database [" + database.databaseLocation + "] doesn't use incremental vacuuming, free pages won't be released. "
+					+ "It can be converted while the game is closed by running the standalone jar with the [--vacuum] argument.");
+		}
+		return true;
+	}
+	private static int getAutoVacuumMode(AbstractMetaDataRepo database)
+	{
+		Map<String, Object> result = database.queryDictionaryFirst("PRAGMA auto_vacuum;");
+		return (result != null) ? ((Number) result.get("auto_vacuum")).intValue() : 0;
+	}
+	
+	/** @return false if every row has been verified */
+	private boolean verifyNextRows(AbstractMetaDataRepo database)
+	{
+		String sql =
+				"SELECT DhSectionPos, Checksum, DataType, BinaryDataFormatVersion, Data \n" +
+				"FROM " + database.getTableName() + " \n" +
+				"WHERE DhSectionPos > ? \n" +
+				"ORDER BY DhSectionPos \n" +
+				"LIMIT " + ROWS_PER_STEP;
+		
+		List<Map<String, Object>> rowList;
+		try (PreparedStatement statement = database.createPreparedStatement(sql))
+		{
+			statement.setString(1, this.lastVerifiedPrimaryKey);
+			rowList = database.queryDictionary(statement);
+		}
+		catch (SQLException e)
+		{
+			throw new RuntimeException("Unable to read rows from database [" + database.databaseLocation + "], error: [" + e.getMessage() + "].", e);
+		}
+		
+		
+		for (Map<String, Object> row : rowList)
+		{
+			String posString = (String) row.get("DhSectionPos");
+			this.lastVerifiedPrimaryKey = posString;
+			this.databaseVerifiedRowCount++;
+			this.verifiedRowCount++;
+			
+			DhSectionPos pos = DhSectionPos.deserialize(posString);
+			byte[] data = (byte[]) row.get("Data");
+			Number checksum = (Number) row.get("Checksum");
+			if (pos == null || data == null || checksum == null)
+			{
+				continue;
+			}
+			
+			
+			if (!isChecksumValid(data, checksum.intValue()))
+			{
+				LOGGER.warn("Checksum mismatch for [" + pos + "] in database [" + database.databaseLocation + "], the data will be re-created.");
+				this.corruptedRowCount++;
+				
+				// only the scanned database is changed,
+				// the same section may have a valid row in another database (IE a shard)
+				database.deleteFromThisDatabase(posString);
+				this.handler.onCorruptedRowDeleted(pos);
+				continue;
+			}
+			
+			String dataType = (String) row.get("DataType");
+			Number binaryDataFormatVersion = (Number) row.get("BinaryDataFormatVersion");
+			if (dataType != null && binaryDataFormatVersion != null
+				&& this.handler.isFormatOutdated(dataType, binaryDataFormatVersion.byteValue()))
+			{
+				try
+				{
+					// waiting prevents queuing more rewrites than the file handler can keep up with
+					this.handler.rewriteRowAsync(pos).get(MAX_REWRITE_WAIT_SECONDS, TimeUnit.SECONDS);
+					this.rewrittenRowCount++;
+				}
+				catch (Exception e)
+				{
+					LOGGER.warn("Unable to rewrite [" + pos + "] in table [" + this.repo.getTableName() + "] to the newest format, error: [" + e.getMessage() + "].");
+				}
+			}
+		}
+		
+		return rowList.size() == ROWS_PER_STEP;
+	}
+	
+	/** @return false if there aren't any free pages left */
+	private boolean vacuumNextPages(AbstractMetaDataRepo database)
+	{
+		Map<String, Object> freePageResult = database.queryDictionaryFirst("PRAGMA freelist_count;");
+		int freePageCount = (freePageResult != null) ? ((Number) freePageResult.get("freelist_count")).intValue() : 0;
+		if (freePageCount == 0)
+		{
+			return false;
+		}
+		
+		database.queryDictionary("PRAGMA incremental_vacuum(" + PAGES_PER_VACUUM_STEP + ");");
+		this.freedPageCount += Math.min(freePageCount, PAGES_PER_VACUUM_STEP);
+		return true;
+	}
+	
+	/** @return always true */
+	private boolean finishDatabase(AbstractMetaDataRepo database)
+	{
+		database.queryDictionaryFirst("ANALYZE " + database.getTableName() + ";");
+		return true;
+	}
+	
+	private void finishPass()
+	{
+		LOGGER.info("Database maintenance for table [" + this.repo.getTableName() + "] finished in [" + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - this.passStartMsTime) + "] seconds. "
+				+ "Verified [" + this.verifiedRowCount + "] rows in [" + (this.shardPosList.size() + 1) + "] databases, "
+				+ "[" + this.corruptedRowCount + "] corrupted, "
+				+ "[" + this.rewrittenRowCount + "] rewritten, "
+				+ "[" + this.freedPageCount + "] pages freed.");
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	/**
+	 * Runs the given step on the database currently being maintained,
+	 * IE the repo's own database or one of its shards.
+	 * 
+	 * @return false if the step returned false or the shard no longer exists
+	 */
+	private boolean runOnCurrentDatabase(Function<AbstractMetaDataRepo, Boolean> step)
+	{
+		if (this.shardIndex == -1)
+		{
+			return step.apply(this.repo);
+		}
+		
+		Boolean result = this.repo.runOnExistingShard(this.shardPosList.get(this.shardIndex), step);
+		return result != null && result;
+	}
+	
+	/**
+	 * Converts an existing database to incremental auto vacuuming, which requires a full VACUUM. <br>
+	 * The VACUUM re-writes the whole file, needs up to twice the database's size in free disk space,
+	 * and locks the database until it finishes, so this should only be run while nothing else is using the database.
+	 *
+	 * @return false if the database already used incremental vacuuming
+	 */
+	public static boolean convertToIncrementalVacuum(String databaseType, String databaseLocation) throws SQLException
+	{
+		try (Connection connection = DriverManager.getConnection(databaseType + ":" + databaseLocation);
+			Statement statement = connection.createStatement())
+		{
+			// no timeout, vacuuming a large database can take several minutes
+			statement.setQueryTimeout(0);
+			
+			try (ResultSet resultSet = statement.executeQuery("PRAGMA auto_vacuum;"))
+			{
+				if (resultSet.next() && resultSet.getInt(1) == SQLITE_AUTO_VACUUM_INCREMENTAL)
+				{
+					return false;
+				}
+			}
+			
+			statement.execute("PRAGMA auto_vacuum = INCREMENTAL;");
+			statement.execute("VACUUM;");
+			return true;
+		}
+	}
+	
+	/** The checksum is calculated by {@link com.seibel.distanthorizons.core.file.metaData.AbstractMetaDataContainerFile} when the data is written. */
+	public static boolean isChecksumValid(byte[] data, int checksum)
+	{
+		Adler32 adler32 = new Adler32();
+		adler32.update(data, 0, data.length);
+		return (int) adler32.getValue() == checksum;
+	}
+	
+	/** Returns a short description of the current pass, for use in the F3 menu. */
+	public String getProgressString()
+	{
+		switch (this.phase)
+		{
+			case VERIFY_ROWS:
+				String shardProgress = this.shardPosList.isEmpty() ? "" : " (database " + (this.shardIndex + 2) + "/" + (this.shardPosList.size() + 1) + ")";
+				return "DB maintenance: verifying " + this.databaseVerifiedRowCount + "/" + this.totalRowCount + shardProgress;
+			case VACUUM:
+				return "DB maintenance: vacuuming";
+			default:
+				return "DB maintenance: idle";
+		}
+	}
+	
+	
+	
+	//==========//
+	// shutdown //
+	//==========//
+	
+	/** Prevents any queued steps from running, should be called before the repo is closed. */
+	@Override
+	public void close() { this.closed = true; }
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	/** Handles the table specific parts of maintenance. */
+	public interface IMaintenanceHandler
+	{
+		/**
+		 * Called after a row whose data doesn't match its checksum has been deleted from the scanned database. <br>
+		 * Any loaded copies of that row's data should be discarded so the data can be re-created.
+		 */
+		void onCorruptedRowDeleted(DhSectionPos pos);
+		
+		/** @return true if data saved with this format should be re-written with the newest format */
+		boolean isFormatOutdated(String dataType, byte binaryDataFormatVersion);
+		/** Should re-write the given row using the newest binary data format. */
+		CompletableFuture<Void> rewriteRowAsync(DhSectionPos pos);
+	}
+	
+	private enum EMaintenancePhase
+	{
+		SETUP,
+		VERIFY_ROWS,
+		VACUUM,
+		DONE,
+	}
+	
+}
@@ -0,0 +1,143 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the level-wide biome/block state palette. <br>
+ * Palette IDs are never changed or re-used once they have been inserted,
+ * so they can be safely saved in the full data blobs.
+ */
+public class FullDataPaletteRepo extends AbstractDhRepo<PaletteDto>
+{
+	public static final String TABLE_NAME = "DhFullDataPalette";
+	
+	
+	
+	public FullDataPaletteRepo(String databaseType, String databaseLocation) throws SQLException
+	{
+		super(databaseType, databaseLocation, PaletteDto.class);
+	}
+	
+	
+	
+	//===========//
+	// overrides //
+	//===========//
+	
+	@Override
+	public String getTableName() { return TABLE_NAME; }
+	
+	@Override
+	public String getPrimaryKeyName() { return "Id"; }
+	
+	
+	@Override
+	public PaletteDto convertDictionaryToDto(Map<String, Object> objectMap) throws ClassCastException
+	{
+		// SQLite may return the ID as either an Integer or Long depending on its size
+		int id = ((Number) objectMap.get("Id")).intValue();
+		String biomeBlockStateString = (String) objectMap.get("BiomeBlockStateString");
+		return new PaletteDto(id, biomeBlockStateString);
+	}
+	
+	@Override
+	public String createSelectPrimaryKeySql(String primaryKey) { return "SELECT * FROM "+TABLE_NAME+" WHERE Id = '"+primaryKey+"'"; }
+	
+	@Override
+	public PreparedStatement createInsertStatement(PaletteDto dto) throws SQLException
+	{
+		String sql =
+			"INSERT INTO "+TABLE_NAME+" \n" +
+			"  (Id, BiomeBlockStateString) \n" +
+			"   VALUES(?, ?);";
+		PreparedStatement statement = this.createPreparedStatement(sql);
+		
+		int i = 1;
+		statement.setObject(i++, dto.id);
+		statement.setObject(i++, dto.biomeBlockStateString);
+		
+		return statement;
+	}
+	
+	@Override
+	public PreparedStatement createUpdateStatement(PaletteDto dto) throws SQLException
+	{
+		String sql =
+			"UPDATE "+TABLE_NAME+" \n" +
+			"SET BiomeBlockStateString = ? \n" +
+			"WHERE Id = ?";
+		PreparedStatement statement = this.createPreparedStatement(sql);
+		
+		int i = 1;
+		statement.setObject(i++, dto.biomeBlockStateString);
+		statement.setObject(i++, dto.id);
+		
+		return statement;
+	}
+	
+	
+	
+	//==================//
+	// palette specific //
+	//==================//
+	
+	/** @return every palette entry currently in the database */
+	public List<PaletteDto> getAll()
+	{
+		List<Map<String, Object>> resultList = this.queryDictionary("SELECT Id, BiomeBlockStateString FROM "+TABLE_NAME+";");
+		
+		ArrayList<PaletteDto> dtoList = new ArrayList<>(resultList.size());
+		for (Map<String, Object> objectMap : resultList)
+		{
+			dtoList.add(this.convertDictionaryToDto(objectMap));
+		}
+		return dtoList;
+	}
+	
+	/**
+	 * Inserts the given string if it isn't already present.
+	 * 
+	 * @return the string's palette ID, or -1 if the database connection has been closed
+	 */
+	public int getOrInsertId(String biomeBlockStateString)
+	{
+		try (PreparedStatement insertStatement = this.createPreparedStatement("INSERT OR IGNORE INTO "+TABLE_NAME+" (BiomeBlockStateString) VALUES(?);");
+			PreparedStatement selectStatement = this.createPreparedStatement("SELECT Id FROM "+TABLE_NAME+" WHERE BiomeBlockStateString = ?;"))
+		{
+			insertStatement.setString(1, biomeBlockStateString);
+			this.queryDictionary(insertStatement);
+			
+			selectStatement.setString(1, biomeBlockStateString);
+			List<Map<String, Object>> resultList = this.queryDictionary(selectStatement);
+			return !resultList.isEmpty() ? ((Number) resultList.get(0).get("Id")).intValue() : -1;
+		}
+		catch (SQLException e)
+		{
+			throw new RuntimeException("Unable to get or insert the palette entry: ["+biomeBlockStateString+"], error: ["+e.getMessage()+"].", e);
+		}
+	}
+	
+}
@@ -29,13 +29,17 @@ public class FullDataRepo extends AbstractMetaDataRepo
 	public static final String TABLE_NAME = "DhFullData";
 	
 	
-	public FullDataRepo(String databaseType, String databaseLocation) throws SQLException
+	public FullDataRepo(String databaseType, String databaseLocation) throws SQLException { this(databaseType, databaseLocation, false); }
+	public FullDataRepo(String databaseType, String databaseLocation, boolean useShards) throws SQLException
 	{
-		super(databaseType, databaseLocation);
+		super(databaseType, databaseLocation, useShards);
 	}
 	
 	
 	@Override
 	public String getTableName() { return TABLE_NAME; }
 	
+	@Override
+	protected AbstractMetaDataRepo createShardRepo(String databaseType, String databaseLocation) throws SQLException { return new FullDataRepo(databaseType, databaseLocation, false); }
+	
 }
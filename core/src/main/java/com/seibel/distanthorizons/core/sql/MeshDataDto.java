@@ -0,0 +1,52 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+
+/** 
+ * A cached mesh for a single render section. 
+ * 
+ * @see MeshDataRepo
+ */
+public class MeshDataDto implements IBaseDTO
+{
+	public final DhSectionPos pos;
+	/** hash of the render source the mesh was built from */
+	public final long renderSourceHash;
+	/** hash of the adjacent render sources and build settings the mesh was built with */
+	public final long buildInputHash;
+	/** compressed packed vertex data */
+	public final byte[] dataArray;
+	
+	
+	public MeshDataDto(DhSectionPos pos, long renderSourceHash, long buildInputHash, byte[] dataArray)
+	{
+		this.pos = pos;
+		this.renderSourceHash = renderSourceHash;
+		this.buildInputHash = buildInputHash;
+		this.dataArray = dataArray;
+	}
+	
+	
+	@Override
+	public String getPrimaryKeyString() { return this.pos.serialize(); }
+	
+}
@@ -0,0 +1,115 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Stores the finished vertex data for render sections
+ * so they can be uploaded without re-building their quads.
+ * 
+ * @see com.seibel.distanthorizons.core.dataObjects.render.bufferBuilding.ColumnMeshData
+ */
+public class MeshDataRepo extends AbstractDhRepo<MeshDataDto>
+{
+	public static final String TABLE_NAME = "DhMeshData";
+	
+	
+	
+	public MeshDataRepo(String databaseType, String databaseLocation) throws SQLException
+	{
+		super(databaseType, databaseLocation, MeshDataDto.class);
+	}
+	
+	
+	
+	//===========//
+	// overrides //
+	//===========//
+	
+	@Override
+	public String getTableName() { return TABLE_NAME; }
+	
+	@Override
+	public String getPrimaryKeyName() { return "DhSectionPos"; }
+	
+	
+	@Override
+	public MeshDataDto convertDictionaryToDto(Map<String, Object> objectMap) throws ClassCastException
+	{
+		String posString = (String) objectMap.get("DhSectionPos");
+		DhSectionPos pos = DhSectionPos.deserialize(posString);
+		
+		// SQLite may return integers as either an Integer or Long depending on their size
+		long renderSourceHash = ((Number) objectMap.get("RenderSourceHash")).longValue();
+		long buildInputHash = ((Number) objectMap.get("BuildInputHash")).longValue();
+		byte[] dataByteArray = (byte[]) objectMap.get("Data");
+		
+		return new MeshDataDto(pos, renderSourceHash, buildInputHash, dataByteArray);
+	}
+	
+	@Override
+	public String createSelectPrimaryKeySql(String primaryKey) { return "SELECT * FROM "+TABLE_NAME+" WHERE DhSectionPos = '"+primaryKey+"'"; }
+	
+	@Override
+	public PreparedStatement createInsertStatement(MeshDataDto dto) throws SQLException
+	{
+		String sql =
+			"INSERT INTO "+TABLE_NAME+" \n" +
+			"  (DhSectionPos, RenderSourceHash, BuildInputHash, Data) \n" +
+			"   VALUES(?, ?, ?, ?);";
+		PreparedStatement statement = this.createPreparedStatement(sql);
+		
+		int i = 1;
+		statement.setObject(i++, dto.getPrimaryKeyString());
+		statement.setObject(i++, dto.renderSourceHash);
+		statement.setObject(i++, dto.buildInputHash);
+		statement.setObject(i++, dto.dataArray);
+		
+		return statement;
+	}
+	
+	@Override
+	public PreparedStatement createUpdateStatement(MeshDataDto dto) throws SQLException
+	{
+		String sql =
+			"UPDATE "+TABLE_NAME+" \n" +
+			"SET \n" +
+			"    RenderSourceHash = ? \n" +
+			"   ,BuildInputHash = ? \n" +
+			"   ,Data = ? \n" +
+			"   ,LastModifiedDateTime = CURRENT_TIMESTAMP \n" +
+			"WHERE DhSectionPos = ?";
+		PreparedStatement statement = this.createPreparedStatement(sql);
+		
+		int i = 1;
+		statement.setObject(i++, dto.renderSourceHash);
+		statement.setObject(i++, dto.buildInputHash);
+		statement.setObject(i++, dto.dataArray);
+		statement.setObject(i++, dto.getPrimaryKeyString());
+		
+		return statement;
+	}
+	
+}
@@ -0,0 +1,328 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits an {@link AbstractMetaDataRepo}'s sections between multiple database files
+ * based on which top level region they are in. <br><br>
+ *
+ * Each shard has its own connection, so writes to different shards don't block each other
+ * and shards that haven't been used for a while can be closed. <br>
+ * Sections that are wider than a shard are stored in the parent repo's database. <br><br>
+ *
+ * Which shard files exist is tracked in memory,
+ * so sections in shards that were never created can be looked up without opening a database.
+ */
+public class MetaDataRepoShards implements AutoCloseable
+{
+	private static final Logger LOGGER = DhLoggerBuilder.getLogger();
+	
+	/** 16,384 blocks, IE 32 x 32 Minecraft region files */
+	public static final byte SHARD_DETAIL_LEVEL = 14;
+	
+	private static final String SHARD_FILE_PREFIX = "DistantHorizons_";
+	private static final String SHARD_FILE_SUFFIX = ".sqlite";
+	private static final Pattern SHARD_FILE_PATTERN = Pattern.compile("^" + SHARD_FILE_PREFIX + "(-?\\d+)_(-?\\d+)" + Pattern.quote(SHARD_FILE_SUFFIX) + "$");
+	
+	private static final long MS_BETWEEN_IDLE_CHECKS = TimeUnit.SECONDS.toMillis(10);
+	/** How long a shard has to go unused before its connection is closed */
+	private static final long MS_BEFORE_IDLE_CLOSE = TimeUnit.SECONDS.toMillis(60);
+	
+	
+	private final String databaseType;
+	private final File shardFolder;
+	private final IShardRepoFactory shardRepoFactory;
+	
+	private final ConcurrentHashMap<Long, Shard> shardByPackedPos = new ConcurrentHashMap<>();
+	/** includes shards that aren't currently open */
+	private final Set<DhSectionPos> existingShardPosSet = ConcurrentHashMap.newKeySet();
+	private volatile long lastIdleCheckMsTime = System.currentTimeMillis();
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	public MetaDataRepoShards(String databaseType, File shardFolder, IShardRepoFactory shardRepoFactory)
+	{
+		this.databaseType = databaseType;
+		this.shardFolder = shardFolder;
+		this.shardRepoFactory = shardRepoFactory;
+		
+		if (!this.shardFolder.exists() && !this.shardFolder.mkdirs())
+		{
+			LOGGER.warn("Unable to create database shard folder [" + this.shardFolder + "], file saving may fail.");
+		}
+		
+		File[] shardFiles = this.shardFolder.listFiles();
+		if (shardFiles != null)
+		{
+			for (File shardFile : shardFiles)
+			{
+				DhSectionPos shardPos = getShardPosFromFileName(shardFile.getName());
+				if (shardPos != null)
+				{
+					this.existingShardPosSet.add(shardPos);
+				}
+			}
+		}
+	}
+	
+	/** @return true if the given folder contains any shard databases */
+	public static boolean folderContainsShards(File shardFolder)
+	{
+		File[] shardFiles = shardFolder.listFiles();
+		if (shardFiles != null)
+		{
+			for (File shardFile : shardFiles)
+			{
+				if (getShardPosFromFileName(shardFile.getName()) != null)
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/** @return null if the file isn't a shard database */
+	@Nullable
+	private static DhSectionPos getShardPosFromFileName(String fileName)
+	{
+		Matcher matcher = SHARD_FILE_PATTERN.matcher(fileName);
+		if (!matcher.matches())
+		{
+			return null;
+		}
+		
+		return new DhSectionPos(SHARD_DETAIL_LEVEL, Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+	}
+	
+	
+	
+	//=========//
+	// routing //
+	//=========//
+	
+	/** @return null if the section is too large to fit in a shard or the primary key isn't a valid position */
+	@Nullable
+	public static DhSectionPos getShardPos(String primaryKey)
+	{
+		DhSectionPos pos = DhSectionPos.deserialize(primaryKey);
+		if (pos == null || pos.getDetailLevel() > SHARD_DETAIL_LEVEL)
+		{
+			return null;
+		}
+		
+		return pos.convertNewToDetailLevel(SHARD_DETAIL_LEVEL);
+	}
+	
+	/**
+	 * Runs the given function on the shard that contains the given section,
+	 * creating the shard if it doesn't exist yet. <br>
+	 * The shard won't be closed while the function is running.
+	 */
+	public <T> T runOnShard(DhSectionPos shardPos, Function<AbstractMetaDataRepo, T> func)
+	{
+		Shard shard = this.acquireShard(shardPos);
+		try
+		{
+			return func.apply(shard.repo);
+		}
+		finally
+		{
+			synchronized (shard)
+			{
+				shard.activeUserCount--;
+				shard.lastAccessedMsTime = System.currentTimeMillis();
+			}
+		}
+	}
+	/**
+	 * Same as {@link MetaDataRepoShards#runOnShard} but won't create the shard.
+	 *
+	 * @return null if the shard doesn't exist
+	 */
+	@Nullable
+	public <T> T runOnExistingShard(DhSectionPos shardPos, Function<AbstractMetaDataRepo, T> func)
+	{
+		if (!this.existingShardPosSet.contains(shardPos))
+		{
+			return null;
+		}
+		
+		return this.runOnShard(shardPos, func);
+	}
+	private Shard acquireShard(DhSectionPos shardPos)
+	{
+		while (true)
+		{
+			Shard shard = this.shardByPackedPos.computeIfAbsent(shardPos.asLong(), (packedPos) -> this.openShard(shardPos));
+			synchronized (shard)
+			{
+				if (!shard.closed)
+				{
+					shard.activeUserCount++;
+					return shard;
+				}
+			}
+			
+			// the shard was closed between being retrieved and acquired, try again
+		}
+	}
+	private Shard openShard(DhSectionPos shardPos)
+	{
+		String databaseLocation = new File(this.shardFolder, SHARD_FILE_PREFIX + shardPos.getX() + "_" + shardPos.getZ() + SHARD_FILE_SUFFIX).getPath();
+		try
+		{
+			Shard shard = new Shard(this.shardRepoFactory.createShardRepo(this.databaseType, databaseLocation));
+			this.existingShardPosSet.add(shardPos);
+			return shard;
+		}
+		catch (SQLException e)
+		{
+			// should only happen if there is an issue with the database (it's locked or can't be created if missing) 
+			// or the database update failed
+			throw new RuntimeException("Unable to open database shard [" + databaseLocation + "], error: [" + e.getMessage() + "].", e);
+		}
+	}
+	
+	
+	
+	//==========//
+	// clean up //
+	//==========//
+	
+	/** 
+	 * Closes the connection to any shards that haven't been used recently. <br>
+	 * Can be called every tick. 
+	 */
+	public void tryCloseIdleShards()
+	{
+		long nowMs = System.currentTimeMillis();
+		if (nowMs - this.lastIdleCheckMsTime < MS_BETWEEN_IDLE_CHECKS)
+		{
+			return;
+		}
+		this.lastIdleCheckMsTime = nowMs;
+		
+		long expiredAccessMsTime = nowMs - MS_BEFORE_IDLE_CLOSE;
+		for (Map.Entry<Long, Shard> entry : this.shardByPackedPos.entrySet())
+		{
+			Shard shard = entry.getValue();
+			synchronized (shard)
+			{
+				if (shard.activeUserCount == 0 && shard.lastAccessedMsTime < expiredAccessMsTime)
+				{
+					this.closeShard(entry.getKey(), shard);
+				}
+			}
+		}
+	}
+	/** should be called while synchronized on the shard */
+	private void closeShard(long packedPos, Shard shard)
+	{
+		shard.closed = true;
+		this.shardByPackedPos.remove(packedPos, shard);
+		shard.repo.close();
+	}
+	
+	/** Deletes every row in every shard, including shards that aren't currently open. */
+	public void deleteAll()
+	{
+		for (DhSectionPos shardPos : this.existingShardPosSet)
+		{
+			this.runOnShard(shardPos, (repo) ->
+			{
+				repo.deleteAll();
+				return null;
+			});
+		}
+	}
+	
+	@Override
+	public void close()
+	{
+		for (Map.Entry<Long, Shard> entry : this.shardByPackedPos.entrySet())
+		{
+			Shard shard = entry.getValue();
+			synchronized (shard)
+			{
+				this.closeShard(entry.getKey(), shard);
+			}
+		}
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int getOpenShardCount() { return this.shardByPackedPos.size(); }
+	
+	/** @return every shard that exists, including shards that aren't currently open */
+	public List<DhSectionPos> getExistingShardPosList() { return new ArrayList<>(this.existingShardPosSet); }
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	@FunctionalInterface
+	public interface IShardRepoFactory
+	{
+		/** The returned repo must not be sharded itself. */
+		AbstractMetaDataRepo createShardRepo(String databaseType, String databaseLocation) throws SQLException;
+	}
+	
+	private static class Shard
+	{
+		public final AbstractMetaDataRepo repo;
+		
+		/** guarded by synchronizing on this shard */
+		public int activeUserCount = 0;
+		/** guarded by synchronizing on this shard */
+		public boolean closed = false;
+		public volatile long lastAccessedMsTime = System.currentTimeMillis();
+		
+		public Shard(AbstractMetaDataRepo repo) { this.repo = repo; }
+	}
+	
+}
@@ -0,0 +1,44 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.sql;
+
+/** 
+ * A single entry in a level's shared biome/block state palette. 
+ * 
+ * @see FullDataPaletteRepo
+ */
+public class PaletteDto implements IBaseDTO
+{
+	public final int id;
+	/** the combined biome and block state serial strings */
+	public final String biomeBlockStateString;
+	
+	
+	public PaletteDto(int id, String biomeBlockStateString)
+	{
+		this.id = id;
+		this.biomeBlockStateString = biomeBlockStateString;
+	}
+	
+	
+	@Override
+	public String getPrimaryKeyString() { return Integer.toString(this.id); }
+	
+}
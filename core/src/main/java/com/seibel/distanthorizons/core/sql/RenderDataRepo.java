@@ -26,13 +26,17 @@ public class RenderDataRepo extends AbstractMetaDataRepo
 	public static final String TABLE_NAME = "DhRenderData";
 	
 	
-	public RenderDataRepo(String databaseType, String databaseLocation) throws SQLException
+	public RenderDataRepo(String databaseType, String databaseLocation) throws SQLException { this(databaseType, databaseLocation, false); }
+	public RenderDataRepo(String databaseType, String databaseLocation, boolean useShards) throws SQLException
 	{
-		super(databaseType, databaseLocation);
+		super(databaseType, databaseLocation, useShards);
 	}
 	
 	
 	@Override
 	public String getTableName() { return TABLE_NAME; }
 	
+	@Override
+	protected AbstractMetaDataRepo createShardRepo(String databaseType, String databaseLocation) throws SQLException { return new RenderDataRepo(databaseType, databaseLocation, false); }
+	
 }
@@ -168,4 +168,127 @@ public class RayCastUtil
 	private static boolean isRoughly(double input, double equalsVal, double errorValue) { return input >= equalsVal - errorValue && input <= equalsVal + errorValue; }
 	
 	
+	
+	//=================//
+	// column stepping //
+	//=================//
+	
+	/**
+	 * Visits every column the ray passes through, in order, starting with the column containing the ray's origin. <br>
+	 * Uses a DDA (Amanatides-Woo) traversal so each column is visited exactly once,
+	 * no matter how shallow the ray's angle is. <br><br>
+	 * 
+	 * The Y axis isn't stepped since LOD columns span the whole world height,
+	 * instead the visitor is given the ray distance where the ray enters and exits each column.
+	 * 
+	 * @param rayDirX the ray direction must be normalized
+	 * @param maxRayLength the maximum distance along the ray that will be checked
+	 * @param columnWidth the width of each column in blocks
+	 * @return true if the visitor stopped the traversal early
+	 * @see ColumnWalker
+	 */
+	public static boolean walkColumns(
+			double rayX, double rayZ, double rayDirX, double rayDirZ,
+			double maxRayLength, int columnWidth, IColumnVisitor visitor)
+	{
+		return new ColumnWalker(rayX, rayZ, rayDirX, rayDirZ, maxRayLength, columnWidth).walk(visitor);
+	}
+	
+	/**
+	 * Holds the traversal state for {@link RayCastUtil#walkColumns} so a walk can be stopped and resumed later. <br>
+	 * Resuming continues from the stored column and boundary distances instead of
+	 * re-computing them from a point along the ray, which could round back into a previous column
+	 * when the ray is shallow and far from the origin.
+	 */
+	public static class ColumnWalker
+	{
+		private final int stepX;
+		private final int stepZ;
+		/** how far along the ray we need to travel to cross one column */
+		private final double deltaX;
+		private final double deltaZ;
+		private final double maxRayLength;
+		
+		private int columnX;
+		private int columnZ;
+		/** how far along the ray the next column boundary is */
+		private double nextX;
+		private double nextZ;
+		private double enterDistance = 0;
+		
+		
+		
+		/** see {@link RayCastUtil#walkColumns} for the parameters */
+		public ColumnWalker(
+				double rayX, double rayZ, double rayDirX, double rayDirZ,
+				double maxRayLength, int columnWidth)
+		{
+			this.maxRayLength = maxRayLength;
+			
+			this.columnX = Math.floorDiv((int) Math.floor(rayX), columnWidth);
+			this.columnZ = Math.floorDiv((int) Math.floor(rayZ), columnWidth);
+			
+			this.stepX = (rayDirX > 0) ? 1 : (rayDirX < 0) ? -1 : 0;
+			this.stepZ = (rayDirZ > 0) ? 1 : (rayDirZ < 0) ? -1 : 0;
+			
+			this.deltaX = (this.stepX != 0) ? columnWidth / Math.abs(rayDirX) : Double.POSITIVE_INFINITY;
+			this.deltaZ = (this.stepZ != 0) ? columnWidth / Math.abs(rayDirZ) : Double.POSITIVE_INFINITY;
+			
+			this.nextX = (this.stepX != 0) ? (((double) (this.columnX + (this.stepX > 0 ? 1 : 0)) * columnWidth) - rayX) / rayDirX : Double.POSITIVE_INFINITY;
+			this.nextZ = (this.stepZ != 0) ? (((double) (this.columnZ + (this.stepZ > 0 ? 1 : 0)) * columnWidth) - rayZ) / rayDirZ : Double.POSITIVE_INFINITY;
+		}
+		
+		
+		
+		/**
+		 * If the visitor stops the walk, the next call will start by
+		 * visiting the same column again.
+		 * 
+		 * @return true if the visitor stopped the traversal early
+		 */
+		public boolean walk(IColumnVisitor visitor)
+		{
+			while (this.enterDistance <= this.maxRayLength)
+			{
+				double exitDistance = Math.min(Math.min(this.nextX, this.nextZ), this.maxRayLength);
+				if (visitor.visit(this.columnX, this.columnZ, this.enterDistance, exitDistance))
+				{
+					return true;
+				}
+				
+				if (this.nextX == Double.POSITIVE_INFINITY && this.nextZ == Double.POSITIVE_INFINITY)
+				{
+					// the ray is vertical, it will never leave this column
+					this.enterDistance = Double.POSITIVE_INFINITY;
+				}
+				else if (this.nextX < this.nextZ)
+				{
+					this.columnX += this.stepX;
+					this.enterDistance = this.nextX;
+					this.nextX += this.deltaX;
+				}
+				else
+				{
+					this.columnZ += this.stepZ;
+					this.enterDistance = this.nextZ;
+					this.nextZ += this.deltaZ;
+				}
+			}
+			
+			return false;
+		}
+		
+	}
+	
+	@FunctionalInterface
+	public interface IColumnVisitor
+	{
+		/**
+		 * @param enterDistance the distance along the ray where it enters this column
+		 * @param exitDistance the distance along the ray where it exits this column (or the ray ends)
+		 * @return true to stop walking the ray
+		 */
+		boolean visit(int columnX, int columnZ, double enterDistance, double exitDistance);
+	}
+	
 }
@@ -38,9 +38,11 @@ import java.io.InputStream;
  */
 public class DhDataInputStream extends DataInputStream
 {
-	public DhDataInputStream(InputStream stream) throws IOException
+	public DhDataInputStream(InputStream stream) throws IOException { this(stream, true); }
+	/** @param decompress should match the value used when the data was written, see {@link DhDataOutputStream#DhDataOutputStream(java.io.OutputStream, boolean)} */
+	public DhDataInputStream(InputStream stream, boolean decompress) throws IOException
 	{
-		super(new LZ4FrameInputStream(new BufferedInputStream(stream)));
+		super(decompress ? new LZ4FrameInputStream(new BufferedInputStream(stream)) : new BufferedInputStream(stream));
 	}
 	
 	@Override
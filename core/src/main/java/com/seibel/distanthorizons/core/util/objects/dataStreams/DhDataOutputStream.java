@@ -30,9 +30,11 @@ import java.io.*;
  */
 public class DhDataOutputStream extends DataOutputStream
 {
-	public DhDataOutputStream(OutputStream stream) throws IOException
+	public DhDataOutputStream(OutputStream stream) throws IOException { this(stream, true); }
+	/** @param compress should only be false if the written data handles its own compression */
+	public DhDataOutputStream(OutputStream stream, boolean compress) throws IOException
 	{
-		super(new LZ4FrameOutputStream(new BufferedOutputStream(stream)));
+		super(compress ? new LZ4FrameOutputStream(new BufferedOutputStream(stream)) : new BufferedOutputStream(stream));
 	}
 	
 	@Override
@@ -65,12 +65,18 @@ public class QuadNode<T>
 	 */
 	public QuadNode<T> seChild;
 	
+	/** null if the parent tree isn't indexed */
+	private final QuadNodeIndex<T> nodeIndex;
 	
 	
-	public QuadNode(DhSectionPos sectionPos, byte minimumDetailLevel)
+	
+	public QuadNode(DhSectionPos sectionPos, byte minimumDetailLevel) { this(sectionPos, minimumDetailLevel, null); }
+	/** @param nodeIndex if not null, any child nodes created or removed by this node will be added/removed from the index */
+	public QuadNode(DhSectionPos sectionPos, byte minimumDetailLevel, QuadNodeIndex<T> nodeIndex)
 	{
 		this.sectionPos = sectionPos;
 		this.minimumDetailLevel = minimumDetailLevel;
+		this.nodeIndex = nodeIndex;
 	}
 	
 	
@@ -175,6 +181,32 @@ public class QuadNode<T>
 	 */
 	private QuadNode<T> getOrSetValue(DhSectionPos inputSectionPos, boolean replaceValue, T newValue) throws IllegalArgumentException
 	{
+		// indexed lookup
+		
+		if (this.nodeIndex != null
+			&& inputSectionPos.getDetailLevel() >= this.minimumDetailLevel
+			&& isPosWithin(this.sectionPos, inputSectionPos))
+		{
+			QuadNode<T> indexedNode = this.nodeIndex.get(inputSectionPos);
+			if (indexedNode != null)
+			{
+				if (replaceValue)
+				{
+					indexedNode.value = newValue;
+				}
+				return indexedNode;
+			}
+			else if (!replaceValue)
+			{
+				// every node in this tree is indexed, so the node doesn't exist
+				return null;
+			}
+			
+			// the node needs to be created, walk down the tree so any missing parent nodes are created as well
+		}
+		
+		
+		
 		// debug validation
 		
 		if (!this.sectionPos.contains(inputSectionPos))
@@ -230,7 +262,7 @@ public class QuadNode<T>
 				if (replaceValue && this.nwChild == null)
 				{
 					// if no node exists for this position, but we want to insert a new value at this position, create a new node
-					this.nwChild = new QuadNode<>(nwPos, this.minimumDetailLevel);
+					this.nwChild = this.createChildNode(nwPos);
 				}
 				childNode = this.nwChild;
 				
@@ -243,7 +275,7 @@ public class QuadNode<T>
 				if (replaceValue && this.swChild == null)
 				{
 					// if no node exists for this position, but we want to insert a new value at this position, create a new node
-					this.swChild = new QuadNode<>(swPos, this.minimumDetailLevel);
+					this.swChild = this.createChildNode(swPos);
 				}
 				childNode = this.swChild;
 				
@@ -256,7 +288,7 @@ public class QuadNode<T>
 				if (replaceValue && this.neChild == null)
 				{
 					// if no node exists for this position, but we want to insert a new value at this position, create a new node
-					this.neChild = new QuadNode<>(nePos, this.minimumDetailLevel);
+					this.neChild = this.createChildNode(nePos);
 				}
 				childNode = this.neChild;
 				
@@ -269,7 +301,7 @@ public class QuadNode<T>
 				if (replaceValue && this.seChild == null)
 				{
 					// if no node exists for this position, but we want to insert a new value at this position, create a new node
-					this.seChild = new QuadNode<>(sePos, this.minimumDetailLevel);
+					this.seChild = this.createChildNode(sePos);
 				}
 				childNode = this.seChild;
 				
@@ -285,6 +317,32 @@ public class QuadNode<T>
 	
 	
 	
+	private QuadNode<T> createChildNode(DhSectionPos childPos)
+	{
+		QuadNode<T> childNode = new QuadNode<>(childPos, this.minimumDetailLevel, this.nodeIndex);
+		if (this.nodeIndex != null)
+		{
+			this.nodeIndex.put(childNode);
+		}
+		return childNode;
+	}
+	
+	/** allocation free alternative to {@link DhSectionPos#contains(DhSectionPos)} */
+	private static boolean isPosWithin(DhSectionPos parentPos, DhSectionPos childPos)
+	{
+		int detailLevelDiff = parentPos.getDetailLevel() - childPos.getDetailLevel();
+		if (detailLevelDiff < 0)
+		{
+			return false;
+		}
+		
+		// the shift rounds towards negative infinity, so negative positions are handled correctly
+		return (childPos.getX() >> detailLevelDiff) == parentPos.getX()
+				&& (childPos.getZ() >> detailLevelDiff) == parentPos.getZ();
+	}
+	
+	
+	
 	//===========//
 	// iterators //
 	//===========//
@@ -312,6 +370,11 @@ public class QuadNode<T>
 			if (childNode != null)
 			{
 				childNode.deleteAllChildren(removedItemConsumer);
+				
+				if (this.nodeIndex != null)
+				{
+					this.nodeIndex.remove(childNode);
+				}
 			}
 		}
 		
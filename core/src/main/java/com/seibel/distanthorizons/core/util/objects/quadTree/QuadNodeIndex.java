@@ -0,0 +1,133 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.util.objects.quadTree;
+
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A flat index of every {@link QuadNode} in a {@link QuadTree}, allowing nodes
+ * to be found without walking down from their root node. <br><br>
+ *
+ * Each detail level has its own open addressed hash map keyed by the node's packed (x,z) position. <br>
+ * The index is kept up to date by {@link QuadTree} and {@link QuadNode}
+ * whenever nodes are created or removed; values are read directly from the nodes.
+ */
+public class QuadNodeIndex<T>
+{
+	/** the numerically smallest detail level stored in this index */
+	private final byte minDetailLevel;
+	private final Long2ObjectOpenHashMap<QuadNode<T>>[] nodeMapByDetailLevel;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	/**
+	 * @param treeMaxDetailLevel the numerically smallest detail level that will be stored
+	 * @param treeMinDetailLevel the numerically largest detail level that will be stored
+	 */
+	@SuppressWarnings("unchecked")
+	public QuadNodeIndex(byte treeMaxDetailLevel, byte treeMinDetailLevel)
+	{
+		this.minDetailLevel = treeMaxDetailLevel;
+		
+		this.nodeMapByDetailLevel = new Long2ObjectOpenHashMap[treeMinDetailLevel - treeMaxDetailLevel + 1];
+		for (int i = 0; i < this.nodeMapByDetailLevel.length; i++)
+		{
+			this.nodeMapByDetailLevel[i] = new Long2ObjectOpenHashMap<>();
+		}
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	/** @return null if no node exists at the given position */
+	public QuadNode<T> get(DhSectionPos pos) { return this.get(pos.getDetailLevel(), pos.getX(), pos.getZ()); }
+	/** @return null if no node exists at the given position */
+	public QuadNode<T> get(byte detailLevel, int x, int z)
+	{
+		int levelIndex = detailLevel - this.minDetailLevel;
+		if (levelIndex < 0 || levelIndex >= this.nodeMapByDetailLevel.length)
+		{
+			return null;
+		}
+		
+		return this.nodeMapByDetailLevel[levelIndex].get(packPos(x, z));
+	}
+	
+	/** @return the number of nodes in this index */
+	public int size()
+	{
+		int size = 0;
+		for (Long2ObjectOpenHashMap<QuadNode<T>> nodeMap : this.nodeMapByDetailLevel)
+		{
+			size += nodeMap.size();
+		}
+		return size;
+	}
+	
+	
+	
+	//==========//
+	// updating //
+	//==========//
+	
+	void put(QuadNode<T> node)
+	{
+		DhSectionPos pos = node.sectionPos;
+		this.nodeMapByDetailLevel[pos.getDetailLevel() - this.minDetailLevel].put(packPos(pos.getX(), pos.getZ()), node);
+	}
+	
+	/** only removes the node if it is the node currently indexed at its position */
+	void remove(QuadNode<T> node)
+	{
+		DhSectionPos pos = node.sectionPos;
+		this.nodeMapByDetailLevel[pos.getDetailLevel() - this.minDetailLevel].remove(packPos(pos.getX(), pos.getZ()), node);
+	}
+	
+	/** removes the given node and all of its children */
+	void removeSubtree(QuadNode<T> node)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			QuadNode<T> childNode = node.getChildByIndex(i);
+			if (childNode != null)
+			{
+				this.removeSubtree(childNode);
+			}
+		}
+		this.remove(node);
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static long packPos(int x, int z) { return ((long) x << 32) | (z & 0xFFFFFFFFL); }
+	
+}
@@ -21,15 +21,16 @@ package com.seibel.distanthorizons.core.util.objects.quadTree;
 
 import com.seibel.distanthorizons.core.logging.DhLoggerBuilder;
 import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
-import com.seibel.distanthorizons.core.pos.DhLodPos;
 import com.seibel.distanthorizons.core.pos.DhSectionPos;
 import com.seibel.distanthorizons.core.pos.Pos2D;
 import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.coreapi.util.BitShiftUtil;
 import com.seibel.distanthorizons.coreapi.util.MathUtil;
 import com.seibel.distanthorizons.core.util.gridList.MovableGridRingList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
@@ -63,6 +64,9 @@ public class QuadTree<T>
 	
 	private DhBlockPos2D centerBlockPos;
 	
+	/** null if node indexing is disabled */
+	private final QuadNodeIndex<T> nodeIndex;
+	
 	
 	
 	/**
@@ -70,7 +74,13 @@ public class QuadTree<T>
 	 *
 	 * @param diameterInBlocks equivalent to the distance between the two opposing sides
 	 */
-	public QuadTree(int diameterInBlocks, DhBlockPos2D centerBlockPos, byte treeMaxDetailLevel)
+	public QuadTree(int diameterInBlocks, DhBlockPos2D centerBlockPos, byte treeMaxDetailLevel) { this(diameterInBlocks, centerBlockPos, treeMaxDetailLevel, false); }
+	/**
+	 * @param diameterInBlocks equivalent to the distance between the two opposing sides
+	 * @param useNodeIndex if true a {@link QuadNodeIndex} will be maintained alongside the tree,
+	 *                     making node lookups constant time at the cost of some extra memory.
+	 */
+	public QuadTree(int diameterInBlocks, DhBlockPos2D centerBlockPos, byte treeMaxDetailLevel, boolean useNodeIndex)
 	{
 		this.centerBlockPos = centerBlockPos;
 		this.diameterInBlocks = diameterInBlocks;
@@ -87,6 +97,7 @@ public class QuadTree<T>
 				BitShiftUtil.divideByPowerOfTwo(this.centerBlockPos.z, this.treeMinDetailLevel));
 		this.topRingList = new MovableGridRingList<>(halfSizeInRootNodes, ringListCenterPos.x, ringListCenterPos.y);
 		
+		this.nodeIndex = useNodeIndex ? new QuadNodeIndex<>(this.treeMaxDetailLevel, this.treeMinDetailLevel) : null;
 	}
 	
 	
@@ -129,6 +140,25 @@ public class QuadTree<T>
 		
 		
 		
+		if (this.nodeIndex != null)
+		{
+			QuadNode<T> indexedNode = this.nodeIndex.get(pos);
+			if (indexedNode != null)
+			{
+				if (setNewValue)
+				{
+					indexedNode.value = newValue;
+				}
+				return indexedNode;
+			}
+			else if (!setNewValue)
+			{
+				return null;
+			}
+		}
+		
+		
+		
 		DhSectionPos rootPos = pos.convertNewToDetailLevel(this.treeMinDetailLevel);
 		int ringListPosX = rootPos.getX();
 		int ringListPosZ = rootPos.getZ();
@@ -141,9 +171,13 @@ public class QuadTree<T>
 				return null;
 			}
 			
-			topQuadNode = new QuadNode<T>(rootPos, this.treeMaxDetailLevel);
+			topQuadNode = new QuadNode<T>(rootPos, this.treeMaxDetailLevel, this.nodeIndex);
 			boolean successfullyAdded = this.topRingList.set(ringListPosX, ringListPosZ, topQuadNode);
 			LodUtil.assertTrue(successfullyAdded, "Failed to add top quadTree node at position: " + rootPos);
+			if (this.nodeIndex != null)
+			{
+				this.nodeIndex.put(topQuadNode);
+			}
 		}
 		
 		if (!topQuadNode.sectionPos.contains(pos))
@@ -160,45 +194,35 @@ public class QuadTree<T>
 		return returnNode;
 	}
 	
-	public boolean isSectionPosInBounds(DhSectionPos testPos)
+	public boolean isSectionPosInBounds(DhSectionPos testPos) { return this.isSectionPosInBounds(testPos.getDetailLevel(), testPos.getX(), testPos.getZ()); }
+	/** allocation free version of {@link QuadTree#isSectionPosInBounds(DhSectionPos)} */
+	boolean isSectionPosInBounds(byte detailLevel, int posX, int posZ)
 	{
 		// check if the testPos is within the detail level limits of the tree
-		boolean detailLevelWithinBounds = this.treeMaxDetailLevel <= testPos.getDetailLevel() && testPos.getDetailLevel() <= this.treeMinDetailLevel;
+		boolean detailLevelWithinBounds = this.treeMaxDetailLevel <= detailLevel && detailLevel <= this.treeMinDetailLevel;
 		if (!detailLevelWithinBounds)
 		{
 			return false;
 		}
 		
 		
-		// check if the testPos is within the X,Z boundary of the tree
-		DhBlockPos2D treeBlockCorner = this.centerBlockPos.add(new DhBlockPos2D(-this.diameterInBlocks / 2, -this.diameterInBlocks / 2));
-		DhLodPos treeCornerPos = new DhLodPos((byte) 0, treeBlockCorner.x, treeBlockCorner.z);
+		// check if the testPos is within the X,Z boundary of the tree,
+		// done with primitives since this is called for almost every tree operation
+		long treeMinBlockX = (long) this.centerBlockPos.x - (this.diameterInBlocks / 2);
+		long treeMinBlockZ = (long) this.centerBlockPos.z - (this.diameterInBlocks / 2);
 		
-		DhSectionPos inputSectionCorner = testPos.convertNewToDetailLevel((byte) 0);
-		DhLodPos inputCornerPos = new DhLodPos((byte) 0, inputSectionCorner.getX(), inputSectionCorner.getZ());
-		int inputBlockWidth = BitShiftUtil.powerOfTwo(testPos.getDetailLevel());
+		long inputMinBlockX = (long) posX << detailLevel;
+		long inputMinBlockZ = (long) posZ << detailLevel;
+		long inputBlockWidth = 1L << detailLevel;
 		
-		return DoSquaresOverlap(treeCornerPos, this.diameterInBlocks, inputCornerPos, inputBlockWidth);
+		return DoSquaresOverlap(treeMinBlockX, treeMinBlockZ, this.diameterInBlocks, inputMinBlockX, inputMinBlockZ, inputBlockWidth);
 	}
-	private static boolean DoSquaresOverlap(DhLodPos square1Min, int square1Width, DhLodPos square2Min, int square2Width)
+	private static boolean DoSquaresOverlap(long square1MinX, long square1MinZ, long square1Width, long square2MinX, long square2MinZ, long square2Width)
 	{
-		// Determine the coordinates of the squares (the variables say rect[angle] because this logic would also work there and was simplified to work for squares)
-		float rect1MinX = square1Min.x;
-		float rect1MaxX = square1Min.x + square1Width;
-		float rect1MinZ = square1Min.z;
-		float rect1MaxZ = square1Min.z + square1Width;
-		
-		float rect2MinX = square2Min.x;
-		float rect2MaxX = square2Min.x + square2Width;
-		float rect2MinZ = square2Min.z;
-		float rect2MaxZ = square2Min.z + square2Width;
-		
-		// Check if the squares overlap
-		return
-				rect1MinX < rect2MaxX &&
-						rect1MaxX > rect2MinX &&
-						rect1MinZ < rect2MaxZ &&
-						rect1MaxZ > rect2MinZ;
+		return square1MinX < square2MinX + square2Width
+				&& square1MinX + square1Width > square2MinX
+				&& square1MinZ < square2MinZ + square2Width
+				&& square1MinZ + square1Width > square2MinZ;
 	}
 	
 	
@@ -234,6 +258,81 @@ public class QuadTree<T>
 	public Iterator<QuadNode<T>> nodeIterator() { return new QuadTreeNodeIterator(false); }
 	public Iterator<QuadNode<T>> leafNodeIterator() { return new QuadTreeNodeIterator(true); }
 	
+	/**
+	 * Allocation free alternative to {@link QuadTree#nodeIterator()}, the cursor can be re-used via {@link QuadTreeNodeCursor#reset()}. <br>
+	 * The tree shouldn't be modified while a cursor is in use.
+	 */
+	public QuadTreeNodeCursor<T> nodeCursor() { return new QuadTreeNodeCursor<>(this); }
+	
+	MovableGridRingList<QuadNode<T>> getTopRingList() { return this.topRingList; }
+	
+	/** @return null if node indexing is disabled */
+	public QuadNodeIndex<T> getNodeIndex() { return this.nodeIndex; }
+	
+	
+	
+	//==========//
+	// snapshot //
+	//==========//
+	
+	/**
+	 * Should only be called by the thread that modifies this tree. <br>
+	 * See {@link QuadTreeSnapshot} for more information.
+	 */
+	public QuadTreeSnapshot<T> createSnapshot()
+	{
+		ArrayList<QuadNode<T>> nodeList = new ArrayList<>();
+		IntArrayList subtreeEndIndexList = new IntArrayList();
+		
+		Iterator<DhSectionPos> rootPosIterator = this.rootNodePosIterator();
+		while (rootPosIterator.hasNext())
+		{
+			QuadNode<T> rootNode = this.getNode(rootPosIterator.next());
+			if (rootNode != null)
+			{
+				addNodeToSnapshotLists(rootNode, nodeList, subtreeEndIndexList);
+			}
+		}
+		
+		
+		int nodeCount = nodeList.size();
+		DhSectionPos[] posArray = new DhSectionPos[nodeCount];
+		Object[] valueArray = new Object[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+		{
+			QuadNode<T> node = nodeList.get(i);
+			posArray[i] = node.sectionPos;
+			valueArray[i] = node.value;
+		}
+		
+		return new QuadTreeSnapshot<>(this.centerBlockPos, nodeCount, posArray, valueArray, subtreeEndIndexList.toIntArray());
+	}
+	private static <T> void addNodeToSnapshotLists(QuadNode<T> node, ArrayList<QuadNode<T>> nodeList, IntArrayList subtreeEndIndexList)
+	{
+		int index = nodeList.size();
+		nodeList.add(node);
+		subtreeEndIndexList.add(-1);
+		
+		if (node.nwChild != null)
+		{
+			addNodeToSnapshotLists(node.nwChild, nodeList, subtreeEndIndexList);
+		}
+		if (node.neChild != null)
+		{
+			addNodeToSnapshotLists(node.neChild, nodeList, subtreeEndIndexList);
+		}
+		if (node.swChild != null)
+		{
+			addNodeToSnapshotLists(node.swChild, nodeList, subtreeEndIndexList);
+		}
+		if (node.seChild != null)
+		{
+			addNodeToSnapshotLists(node.seChild, nodeList, subtreeEndIndexList);
+		}
+		
+		subtreeEndIndexList.set(index, nodeList.size());
+	}
+	
 	
 	
 	//================//
@@ -259,6 +358,11 @@ public class QuadTree<T>
 		// remove out of bounds root nodes
 		this.topRingList.moveTo(expectedCenterPos.x, expectedCenterPos.y, (quadNode) ->
 		{
+			if (quadNode != null && this.nodeIndex != null)
+			{
+				this.nodeIndex.removeSubtree(quadNode);
+			}
+			
 			if (quadNode != null && removedItemConsumer != null)
 			{
 				removedItemConsumer.accept(quadNode.value);
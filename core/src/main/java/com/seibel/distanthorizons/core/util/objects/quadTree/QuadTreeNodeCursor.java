@@ -0,0 +1,157 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.util.objects.quadTree;
+
+import com.seibel.distanthorizons.core.pos.Pos2D;
+import com.seibel.distanthorizons.core.util.gridList.MovableGridRingList;
+
+/**
+ * Walks every node in a {@link QuadTree} without allocating,
+ * intended for hot loops where {@link QuadTree#nodeIterator()}'s
+ * per-root iterators and position objects would create a lot of garbage. <br><br>
+ *
+ * Nodes are returned in pre-order, each root followed by its children. <br>
+ * The tree shouldn't be modified while the cursor is in use. <br><br>
+ *
+ * Example: <br>
+ * <code>
+ * cursor.reset(); <br>
+ * while (cursor.next()) { cursor.getNode() ... }
+ * </code>
+ *
+ * @see QuadTree#nodeCursor()
+ */
+public class QuadTreeNodeCursor<T>
+{
+	private final QuadTree<T> tree;
+	
+	/** the index of the next root slot in the tree's ring list, goes from 0 to (width * width) */
+	private int nextRootSlotIndex;
+	
+	/** the nodes between the current root and the current node */
+	private final QuadNode<T>[] nodeStack;
+	/** the next child index (0-3) that should be checked for the node at the same stack depth */
+	private final byte[] nextChildIndexStack;
+	/** -1 if the cursor isn't currently inside a root node */
+	private int stackDepth;
+	
+	private QuadNode<T> currentNode;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	@SuppressWarnings("unchecked")
+	QuadTreeNodeCursor(QuadTree<T> tree)
+	{
+		this.tree = tree;
+		
+		int maxDepth = tree.treeMinDetailLevel - tree.treeMaxDetailLevel + 1;
+		this.nodeStack = (QuadNode<T>[]) new QuadNode[maxDepth];
+		this.nextChildIndexStack = new byte[maxDepth];
+		
+		this.reset();
+	}
+	
+	
+	
+	//==========//
+	// iterator //
+	//==========//
+	
+	/** Moves the cursor back to the start of the tree. */
+	public void reset()
+	{
+		this.nextRootSlotIndex = 0;
+		this.stackDepth = -1;
+		this.currentNode = null;
+	}
+	
+	/** @return true if the cursor moved to a new node, false if every node has been visited */
+	public boolean next()
+	{
+		// continue the depth first walk through the current root
+		while (this.stackDepth >= 0)
+		{
+			QuadNode<T> parentNode = this.nodeStack[this.stackDepth];
+			
+			QuadNode<T> childNode = null;
+			while (childNode == null && this.nextChildIndexStack[this.stackDepth] < 4)
+			{
+				childNode = parentNode.getChildByIndex(this.nextChildIndexStack[this.stackDepth]);
+				this.nextChildIndexStack[this.stackDepth]++;
+			}
+			
+			if (childNode != null)
+			{
+				this.push(childNode);
+				return true;
+			}
+			else
+			{
+				// every child of this node has been visited
+				this.nodeStack[this.stackDepth] = null;
+				this.stackDepth--;
+			}
+		}
+		
+		
+		// move to the next root node
+		MovableGridRingList<QuadNode<T>> topRingList = this.tree.getTopRingList();
+		Pos2D minPos = topRingList.getMinPosInRange();
+		int width = topRingList.getWidth();
+		int slotCount = width * width;
+		while (this.nextRootSlotIndex < slotCount)
+		{
+			int rootPosX = minPos.x + (this.nextRootSlotIndex % width);
+			int rootPosZ = minPos.y + (this.nextRootSlotIndex / width);
+			this.nextRootSlotIndex++;
+			
+			QuadNode<T> rootNode = topRingList.get(rootPosX, rootPosZ);
+			if (rootNode != null && this.tree.isSectionPosInBounds(this.tree.treeMinDetailLevel, rootPosX, rootPosZ))
+			{
+				this.push(rootNode);
+				return true;
+			}
+		}
+		
+		this.currentNode = null;
+		return false;
+	}
+	private void push(QuadNode<T> node)
+	{
+		this.stackDepth++;
+		this.nodeStack[this.stackDepth] = node;
+		this.nextChildIndexStack[this.stackDepth] = 0;
+		this.currentNode = node;
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	/** @return the node the cursor is currently on, null if {@link QuadTreeNodeCursor#next()} hasn't been called or returned false */
+	public QuadNode<T> getNode() { return this.currentNode; }
+	
+}
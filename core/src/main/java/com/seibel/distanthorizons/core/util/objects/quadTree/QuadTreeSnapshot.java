@@ -0,0 +1,108 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.util.objects.quadTree;
+
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable copy of a {@link QuadTree}'s nodes, created via {@link QuadTree#createSnapshot()}. <br>
+ * This allows one thread to modify the tree while other threads walk the most recent snapshot without locking. <br><br>
+ *
+ * Nodes are stored in pre-order, each root followed by its children (north west, north east, south west, south east),
+ * so a node's subtree covers the indices [index, {@link QuadTreeSnapshot#getSubtreeEndIndex(int)}). <br>
+ * Nodes with null values are included so the hierarchy is kept intact. <br><br>
+ *
+ * Note: only the tree's structure is copied, the values themselves are shared with the tree.
+ */
+public class QuadTreeSnapshot<T>
+{
+	/** the tree's center when this snapshot was created */
+	public final DhBlockPos2D centerBlockPos;
+	
+	private final int nodeCount;
+	private final DhSectionPos[] posArray;
+	private final Object[] valueArray;
+	private final int[] subtreeEndIndexArray;
+	
+	
+	
+	//=============//
+	// constructor //
+	//=============//
+	
+	QuadTreeSnapshot(DhBlockPos2D centerBlockPos, int nodeCount, DhSectionPos[] posArray, Object[] valueArray, int[] subtreeEndIndexArray)
+	{
+		this.centerBlockPos = centerBlockPos;
+		this.nodeCount = nodeCount;
+		this.posArray = posArray;
+		this.valueArray = valueArray;
+		this.subtreeEndIndexArray = subtreeEndIndexArray;
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	public int size() { return this.nodeCount; }
+	
+	public DhSectionPos getPos(int index) { return this.posArray[index]; }
+	@SuppressWarnings("unchecked")
+	public T getValue(int index) { return (T) this.valueArray[index]; }
+	/** @return the index after the last node in the given node's subtree */
+	public int getSubtreeEndIndex(int index) { return this.subtreeEndIndexArray[index]; }
+	
+	/**
+	 * Only walks the nodes between the root and the given position,
+	 * subtrees that don't contain the position are skipped.
+	 * 
+	 * @return null if no node exists at the given position or the node's value is null
+	 */
+	@Nullable
+	public T getValue(DhSectionPos pos)
+	{
+		int index = 0;
+		int searchEndIndex = this.nodeCount;
+		while (index < searchEndIndex)
+		{
+			DhSectionPos nodePos = this.posArray[index];
+			if (nodePos.equals(pos))
+			{
+				return this.getValue(index);
+			}
+			
+			if (nodePos.getDetailLevel() > pos.getDetailLevel() && nodePos.contains(pos))
+			{
+				// the position can only be in this node's subtree
+				searchEndIndex = this.subtreeEndIndexArray[index];
+				index++;
+			}
+			else
+			{
+				index = this.subtreeEndIndexArray[index];
+			}
+		}
+		return null;
+	}
+	
+}
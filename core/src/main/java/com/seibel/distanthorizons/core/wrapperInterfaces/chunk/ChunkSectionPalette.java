@@ -0,0 +1,191 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.seibel.distanthorizons.core.wrapperInterfaces.chunk;
+
+import com.seibel.distanthorizons.core.util.LodUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Holds a single 16x16x16 chunk section as a palette of values
+ * and a bit-packed array of palette indices, similar to Minecraft's PalettedContainer. <br><br>
+ * 
+ * Indices are stored in YZX order (see {@link ChunkSectionPalette#getIndex(int, int, int)})
+ * and entries never span two longs, which matches Minecraft's 1.16+ BitStorage layout
+ * so wrappers can copy Minecraft's data directly when possible. <br><br>
+ * 
+ * If the palette only contains a single value the section is uniform
+ * and no index array is stored.
+ *
+ * @param <T> generally {@link com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper} 
+ *           or {@link com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper}
+ * @see IChunkWrapper#getBlockStateSection(int) 
+ */
+public class ChunkSectionPalette<T>
+{
+	public static final int SECTION_HEIGHT = 16;
+	public static final int SECTION_VOLUME = LodUtil.CHUNK_WIDTH * LodUtil.CHUNK_WIDTH * SECTION_HEIGHT;
+	
+	private final ArrayList<T> palette;
+	/** 0 if the section is uniform */
+	private final int bitsPerEntry;
+	private final int entriesPerLong;
+	private final long entryMask;
+	/** null if the section is uniform */
+	private final long[] packedIndices;
+	
+	
+	
+	//==============//
+	// constructors //
+	//==============//
+	
+	/** Creates a section where every position contains the same value. */
+	public static <T> ChunkSectionPalette<T> createUniform(T value)
+	{
+		ArrayList<T> palette = new ArrayList<>(1);
+		palette.add(value);
+		return new ChunkSectionPalette<>(palette, 0, null);
+	}
+	
+	/**
+	 * @param bitsPerEntry how many bits each index uses, 0 if the palette only contains one value
+	 * @param packedIndices must be laid out as described in the class' Javadoc, can be null if bitsPerEntry is 0
+	 */
+	public ChunkSectionPalette(ArrayList<T> palette, int bitsPerEntry, long[] packedIndices)
+	{
+		if (palette.isEmpty())
+		{
+			throw new IllegalArgumentException("A section palette must contain at least one value.");
+		}
+		
+		this.palette = palette;
+		this.bitsPerEntry = bitsPerEntry;
+		if (bitsPerEntry == 0)
+		{
+			this.entriesPerLong = 0;
+			this.entryMask = 0;
+			this.packedIndices = null;
+		}
+		else
+		{
+			this.entriesPerLong = 64 / bitsPerEntry;
+			this.entryMask = (1L << bitsPerEntry) - 1L;
+			this.packedIndices = packedIndices;
+			
+			int requiredLongCount = (SECTION_VOLUME + this.entriesPerLong - 1) / this.entriesPerLong;
+			if (packedIndices == null || packedIndices.length < requiredLongCount)
+			{
+				throw new IllegalArgumentException("Packed index array too small, expected at least [" + requiredLongCount + "] longs for [" + bitsPerEntry + "] bits per entry.");
+			}
+		}
+	}
+	
+	/** 
+	 * Builds a section by sampling each position individually. <br>
+	 * This is slow and should only be used when the underlying chunk doesn't have palette data.
+	 */
+	public static <T> ChunkSectionPalette<T> createFromSampler(IPositionSampler<T> sampler)
+	{
+		ArrayList<T> palette = new ArrayList<>();
+		HashMap<T, Integer> paletteIndexByValue = new HashMap<>();
+		int[] indices = new int[SECTION_VOLUME];
+		
+		for (int y = 0; y < SECTION_HEIGHT; y++)
+		{
+			for (int z = 0; z < LodUtil.CHUNK_WIDTH; z++)
+			{
+				for (int x = 0; x < LodUtil.CHUNK_WIDTH; x++)
+				{
+					T value = sampler.get(x, y, z);
+					Integer paletteIndex = paletteIndexByValue.get(value);
+					if (paletteIndex == null)
+					{
+						paletteIndex = palette.size();
+						palette.add(value);
+						paletteIndexByValue.put(value, paletteIndex);
+					}
+					
+					indices[getIndex(x, y, z)] = paletteIndex;
+				}
+			}
+		}
+		
+		
+		if (palette.size() == 1)
+		{
+			return new ChunkSectionPalette<>(palette, 0, null);
+		}
+		
+		int bitsPerEntry = 32 - Integer.numberOfLeadingZeros(palette.size() - 1);
+		int entriesPerLong = 64 / bitsPerEntry;
+		long[] packedIndices = new long[(SECTION_VOLUME + entriesPerLong - 1) / entriesPerLong];
+		for (int i = 0; i < SECTION_VOLUME; i++)
+		{
+			packedIndices[i / entriesPerLong] |= ((long) indices[i]) << ((i % entriesPerLong) * bitsPerEntry);
+		}
+		return new ChunkSectionPalette<>(palette, bitsPerEntry, packedIndices);
+	}
+	
+	
+	
+	//=========//
+	// getters //
+	//=========//
+	
+	/** @return true if every position in this section contains the same value */
+	public boolean isUniform() { return this.bitsPerEntry == 0; }
+	
+	public int getPaletteSize() { return this.palette.size(); }
+	public T getPaletteValue(int paletteIndex) { return this.palette.get(paletteIndex); }
+	
+	/** all positions are relative to this section */
+	public T get(int relX, int relY, int relZ) { return this.palette.get(this.getPaletteIndex(relX, relY, relZ)); }
+	/** all positions are relative to this section */
+	public int getPaletteIndex(int relX, int relY, int relZ)
+	{
+		if (this.bitsPerEntry == 0)
+		{
+			return 0;
+		}
+		
+		int index = getIndex(relX, relY, relZ);
+		long packedLong = this.packedIndices[index / this.entriesPerLong];
+		return (int) ((packedLong >>> ((index % this.entriesPerLong) * this.bitsPerEntry)) & this.entryMask);
+	}
+	
+	/** @return the index in YZX order, IE: y * 256 + z * 16 + x */
+	public static int getIndex(int relX, int relY, int relZ) { return (relY << 8) | (relZ << 4) | relX; }
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	@FunctionalInterface
+	public interface IPositionSampler<T>
+	{
+		/** all positions are relative to the section */
+		T get(int relX, int relY, int relZ);
+	}
+	
+}
@@ -150,4 +150,43 @@ public interface IChunkWrapper extends IBindable
 	
 	boolean isStillValid();
 	
+	
+	
+	//===============//
+	// bulk sections //
+	//===============//
+	
+	/** @return how many {@link ChunkSectionPalette#SECTION_HEIGHT} block tall sections this chunk contains */
+	default int getSectionCount() { return (this.getHeight() + ChunkSectionPalette.SECTION_HEIGHT - 1) / ChunkSectionPalette.SECTION_HEIGHT; }
+	/** @return the index of the section containing the given Y position, sections start at {@link IChunkWrapper#getMinBuildHeight()} */
+	default int getSectionIndex(int y) { return Math.floorDiv(y - this.getMinBuildHeight(), ChunkSectionPalette.SECTION_HEIGHT); }
+	/** @return the lowest Y position contained in the given section */
+	default int getSectionMinY(int sectionIndex) { return this.getMinBuildHeight() + (sectionIndex * ChunkSectionPalette.SECTION_HEIGHT); }
+	
+	/**
+	 * Returns every block state in the given section at once,
+	 * which is significantly faster than calling {@link IChunkWrapper#getBlockState(int, int, int)} for each block. <br><br>
+	 * 
+	 * The default implementation samples each block individually,
+	 * wrappers should override this to expose the chunk's existing palette data if possible.
+	 */
+	default ChunkSectionPalette<IBlockStateWrapper> getBlockStateSection(int sectionIndex)
+	{
+		int minY = this.getSectionMinY(sectionIndex);
+		return ChunkSectionPalette.createFromSampler((relX, relY, relZ) -> this.getBlockState(relX, minY + relY, relZ));
+	}
+	
+	/**
+	 * Returns every biome in the given section at once,
+	 * which is significantly faster than calling {@link IChunkWrapper#getBiome(int, int, int)} for each block. <br><br>
+	 * 
+	 * The default implementation samples each block individually,
+	 * wrappers should override this to expose the chunk's existing palette data if possible.
+	 */
+	default ChunkSectionPalette<IBiomeWrapper> getBiomeSection(int sectionIndex)
+	{
+		int minY = this.getSectionMinY(sectionIndex);
+		return ChunkSectionPalette.createFromSampler((relX, relY, relZ) -> this.getBiome(relX, minY + relY, relZ));
+	}
+	
 }
@@ -0,0 +1,9 @@
+
+CREATE TABLE DhFullDataPalette(
+	 Id INTEGER NOT NULL PRIMARY KEY
+	
+	-- the biome and block state serial strings, see FullDataPointIdMap
+	,BiomeBlockStateString TEXT NOT NULL UNIQUE
+	
+	,CreatedDateTime DATETIME NOT NULL default CURRENT_TIMESTAMP -- in UTC
+);
@@ -0,0 +1,14 @@
+
+CREATE TABLE DhMeshData(
+	 DhSectionPos TEXT NOT NULL PRIMARY KEY
+	
+	-- the mesh is only valid if both of these match what it would be built from, see ColumnMeshData
+	,RenderSourceHash BIGINT NOT NULL
+	,BuildInputHash BIGINT NOT NULL
+	
+	-- compressed packed vertex data
+	,Data BLOB NULL
+	
+	,CreatedDateTime DATETIME NOT NULL default CURRENT_TIMESTAMP -- in UTC
+	,LastModifiedDateTime DATETIME NOT NULL default CURRENT_TIMESTAMP -- in UTC
+);
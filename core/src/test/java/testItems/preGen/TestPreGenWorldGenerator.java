@@ -0,0 +1,73 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package testItems.preGen;
+
+import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiDistantGeneratorMode;
+import com.seibel.distanthorizons.core.jar.pregen.IPreGenWorldGenerator;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Dummy generator used to test loading generators via the pre-generator's command line.
+ */
+public class TestPreGenWorldGenerator implements IPreGenWorldGenerator
+{
+	/** the most recently constructed generator */
+	public static TestPreGenWorldGenerator lastCreated = null;
+	
+	public final File worldFolder;
+	public boolean closed = false;
+	
+	
+	
+	public TestPreGenWorldGenerator(File worldFolder)
+	{
+		this.worldFolder = worldFolder;
+		lastCreated = this;
+	}
+	
+	
+	
+	// testable methods //
+	
+	@Override
+	public ILevelWrapper getLevelWrapper() { return null; }
+	
+	@Override
+	public void close() { this.closed = true; }
+	
+	
+	
+	// not used when unit testing //
+	
+	@Override
+	public boolean isBusy() { return false; }
+	
+	@Override
+	public CompletableFuture<Void> generateChunks(int chunkPosMinX, int chunkPosMinZ, byte granularity, byte targetDataDetail, EDhApiDistantGeneratorMode maxGenerationStep, ExecutorService executorService, Consumer<Object[]> resultConsumer) { return CompletableFuture.completedFuture(null); }
+	
+	@Override
+	public void preGeneratorTaskStart() { }
+	
+}
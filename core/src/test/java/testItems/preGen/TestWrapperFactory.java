@@ -0,0 +1,50 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package testItems.preGen;
+
+import com.seibel.distanthorizons.core.level.IDhLevel;
+import com.seibel.distanthorizons.core.wrapperInterfaces.IWrapperFactory;
+import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.ILevelWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.worldGeneration.AbstractBatchGenerationEnvironmentWrapper;
+
+import java.util.HashSet;
+
+/**
+ * Dummy wrapper factory, only needs to exist so generator chunk sources can be created.
+ */
+public class TestWrapperFactory implements IWrapperFactory
+{
+	@Override
+	public AbstractBatchGenerationEnvironmentWrapper createBatchGenerator(IDhLevel targetLevel) { return null; }
+	@Override
+	public IBiomeWrapper deserializeBiomeWrapper(String str, ILevelWrapper levelWrapper) { return null; }
+	@Override
+	public IBlockStateWrapper deserializeBlockStateWrapper(String str, ILevelWrapper levelWrapper) { return null; }
+	@Override
+	public IBlockStateWrapper getAirBlockStateWrapper() { return null; }
+	@Override
+	public HashSet<IBlockStateWrapper> getRendererIgnoredBlocks(ILevelWrapper levelWrapper) { return new HashSet<>(); }
+	@Override
+	public IChunkWrapper createChunkWrapper(Object[] objectArray) { return null; }
+	
+}
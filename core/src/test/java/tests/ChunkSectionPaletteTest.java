@@ -0,0 +1,159 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package tests;
+
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.ChunkSectionPalette;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Validates {@link ChunkSectionPalette} unpacks the same indices
+ * that were packed using Minecraft's 1.16+ BitStorage layout.
+ */
+public class ChunkSectionPaletteTest
+{
+	/** Minecraft's global block state palette uses up to 15 bits per entry */
+	public static int MAX_TESTED_BITS_PER_ENTRY = 15;
+	
+	
+	
+	@Test
+	public void testUnpackEveryWidth()
+	{
+		Random random = new Random(1234);
+		for (int bitsPerEntry = 1; bitsPerEntry <= MAX_TESTED_BITS_PER_ENTRY; bitsPerEntry++)
+		{
+			int paletteSize = 1 << bitsPerEntry;
+			int[] indices = new int[ChunkSectionPalette.SECTION_VOLUME];
+			for (int i = 0; i < indices.length; i++)
+			{
+				indices[i] = random.nextInt(paletteSize);
+			}
+			
+			// widths that don't divide 64 leave padding bits at the top of each long,
+			// those are filled in so any reads that span two longs would return the wrong value
+			ChunkSectionPalette<Integer> section = new ChunkSectionPalette<>(createPalette(paletteSize), bitsPerEntry, pack(indices, bitsPerEntry));
+			Assert.assertFalse("section shouldn't be uniform", section.isUniform());
+			assertIndicesEqual("[" + bitsPerEntry + "] bits per entry", indices, section);
+		}
+	}
+	
+	@Test
+	public void testSingleValuePalette()
+	{
+		ArrayList<Integer> palette = new ArrayList<>();
+		palette.add(42);
+		
+		ChunkSectionPalette<Integer> section = new ChunkSectionPalette<>(palette, 0, null);
+		Assert.assertTrue("single value section should be uniform", section.isUniform());
+		assertIndicesEqual("single value palette", new int[ChunkSectionPalette.SECTION_VOLUME], section);
+		Assert.assertEquals(Integer.valueOf(42), section.get(15, 15, 15));
+		
+		section = ChunkSectionPalette.createFromSampler((x, y, z) -> 42);
+		Assert.assertTrue("sampled single value section should be uniform", section.isUniform());
+		Assert.assertEquals(Integer.valueOf(42), section.get(7, 3, 9));
+	}
+	
+	@Test
+	public void testMaximumPaletteWidth()
+	{
+		// every position has a unique value, which requires the widest palette a section can have
+		ChunkSectionPalette<Integer> section = ChunkSectionPalette.createFromSampler(ChunkSectionPalette::getIndex);
+		Assert.assertEquals(ChunkSectionPalette.SECTION_VOLUME, section.getPaletteSize());
+		
+		for (int y = 0; y < ChunkSectionPalette.SECTION_HEIGHT; y++)
+		{
+			for (int z = 0; z < 16; z++)
+			{
+				for (int x = 0; x < 16; x++)
+				{
+					Assert.assertEquals("wrong value at [" + x + "," + y + "," + z + "]", Integer.valueOf(ChunkSectionPalette.getIndex(x, y, z)), section.get(x, y, z));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testTooSmallIndexArrayIsRejected()
+	{
+		try
+		{
+			new ChunkSectionPalette<>(createPalette(32), 5, new long[10]);
+			Assert.fail("packed index array should have been rejected");
+		}
+		catch (IllegalArgumentException ignored) { }
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static ArrayList<Integer> createPalette(int paletteSize)
+	{
+		ArrayList<Integer> palette = new ArrayList<>(paletteSize);
+		for (int i = 0; i < paletteSize; i++)
+		{
+			palette.add(i);
+		}
+		return palette;
+	}
+	
+	/** packs the indices the same way Minecraft's BitStorage does, entries never span two longs and any padding bits are set */
+	private static long[] pack(int[] indices, int bitsPerEntry)
+	{
+		int entriesPerLong = 64 / bitsPerEntry;
+		long[] packedIndices = new long[(indices.length + entriesPerLong - 1) / entriesPerLong];
+		for (int i = 0; i < indices.length; i++)
+		{
+			packedIndices[i / entriesPerLong] |= ((long) indices[i]) << ((i % entriesPerLong) * bitsPerEntry);
+		}
+		
+		int paddingBitCount = 64 - (entriesPerLong * bitsPerEntry);
+		if (paddingBitCount != 0)
+		{
+			for (int i = 0; i < packedIndices.length; i++)
+			{
+				packedIndices[i] |= -1L << (64 - paddingBitCount);
+			}
+		}
+		return packedIndices;
+	}
+	
+	private static void assertIndicesEqual(String message, int[] expectedIndices, ChunkSectionPalette<Integer> section)
+	{
+		for (int y = 0; y < ChunkSectionPalette.SECTION_HEIGHT; y++)
+		{
+			for (int z = 0; z < 16; z++)
+			{
+				for (int x = 0; x < 16; x++)
+				{
+					int index = ChunkSectionPalette.getIndex(x, y, z);
+					Assert.assertEquals(message + " wrong index at [" + x + "," + y + "," + z + "]", expectedIndices[index], section.getPaletteIndex(x, y, z));
+				}
+			}
+		}
+	}
+	
+}
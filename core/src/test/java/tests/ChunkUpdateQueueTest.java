@@ -0,0 +1,260 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package tests;
+
+import com.seibel.distanthorizons.core.api.internal.ChunkUpdateQueue;
+import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validates {@link ChunkUpdateQueue} keeps processing updates when its thread pool is replaced,
+ * keeps its pending updates bounded
+ * and doesn't run overlapping updates at the same time.
+ */
+public class ChunkUpdateQueueTest
+{
+	public static int MAX_WORKER_COUNT = 1;
+	public static long TIMEOUT_IN_SEC = 5;
+	
+	
+	
+	@Test
+	public void testUpdatesResumeAfterPoolShutdown() throws InterruptedException
+	{
+		Set<DhChunkPos> updatedPosSet = ConcurrentHashMap.newKeySet();
+		CountDownLatch updatesFinishedLatch = new CountDownLatch(2);
+		
+		ThreadPoolExecutor firstExecutor = createExecutor();
+		AtomicReference<ThreadPoolExecutor> executorRef = new AtomicReference<>(firstExecutor);
+		ChunkUpdateQueue queue = new ChunkUpdateQueue((update) ->
+			{
+				updatedPosSet.add(update.chunkList.get(0).getChunkPos());
+				updatesFinishedLatch.countDown();
+			}, 
+			executorRef::get, () -> MAX_WORKER_COUNT, () -> 0);
+		
+		
+		// block the only thread so the worker stays queued
+		CountDownLatch blockingTaskLatch = new CountDownLatch(1);
+		firstExecutor.execute(() -> awaitQuietly(blockingTaskLatch));
+		
+		DhChunkPos firstPos = new DhChunkPos(0, 0);
+		queue.queueUpdate(createChunk(firstPos), null);
+		Assert.assertEquals("worker not queued", 1, queue.getRunningWorkerCount());
+		
+		// the queued worker is discarded without running
+		firstExecutor.shutdownNow();
+		blockingTaskLatch.countDown();
+		Assert.assertTrue("first pool didn't shut down", firstExecutor.awaitTermination(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+		Assert.assertTrue("update shouldn't have run", updatedPosSet.isEmpty());
+		
+		
+		// replacing the pool should allow new workers to start
+		ThreadPoolExecutor secondExecutor = createExecutor();
+		executorRef.set(secondExecutor);
+		try
+		{
+			DhChunkPos secondPos = new DhChunkPos(10, 10);
+			queue.queueUpdate(createChunk(secondPos), null);
+			
+			Assert.assertTrue("updates didn't resume after the pool was replaced", updatesFinishedLatch.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+			Assert.assertTrue("update queued before the shutdown was lost", updatedPosSet.contains(firstPos));
+			Assert.assertTrue("update queued after the shutdown was lost", updatedPosSet.contains(secondPos));
+		}
+		finally
+		{
+			secondExecutor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testClearResetsWorkers() throws InterruptedException
+	{
+		ThreadPoolExecutor executor = createExecutor();
+		ChunkUpdateQueue queue = new ChunkUpdateQueue((update) -> { }, () -> executor, () -> MAX_WORKER_COUNT, () -> 0);
+		
+		CountDownLatch blockingTaskLatch = new CountDownLatch(1);
+		executor.execute(() -> awaitQuietly(blockingTaskLatch));
+		queue.queueUpdate(createChunk(new DhChunkPos(0, 0)), null);
+		executor.shutdownNow();
+		blockingTaskLatch.countDown();
+		
+		queue.clear();
+		Assert.assertEquals("pending updates not cleared", 0, queue.getQueueDepth());
+		Assert.assertEquals("busy positions not cleared", 0, queue.getBusyCount());
+		Assert.assertEquals("worker count not reset", 0, queue.getRunningWorkerCount());
+	}
+	
+	@Test
+	public void testPendingUpdatesStayBounded() throws InterruptedException
+	{
+		int maxPendingUpdateCount = 8;
+		int queuedUpdateCount = 100;
+		
+		Set<DhChunkPos> updatedPosSet = ConcurrentHashMap.newKeySet();
+		CountDownLatch updatesFinishedLatch = new CountDownLatch(maxPendingUpdateCount);
+		
+		ThreadPoolExecutor executor = createExecutor();
+		ChunkUpdateQueue queue = new ChunkUpdateQueue((update) ->
+			{
+				updatedPosSet.add(update.chunkList.get(0).getChunkPos());
+				updatesFinishedLatch.countDown();
+			}, 
+			() -> executor, () -> MAX_WORKER_COUNT, () -> 0, maxPendingUpdateCount);
+		
+		try
+		{
+			// block the only thread so nothing is drained while updates are queued
+			CountDownLatch blockingTaskLatch = new CountDownLatch(1);
+			executor.execute(() -> awaitQuietly(blockingTaskLatch));
+			
+			for (int i = 0; i < queuedUpdateCount; i++)
+			{
+				queue.queueUpdate(createChunk(new DhChunkPos(i, 0)), null);
+				Assert.assertTrue("pending updates exceeded the limit", queue.getQueueDepth() <= maxPendingUpdateCount);
+			}
+			Assert.assertEquals("dropped update count", queuedUpdateCount - maxPendingUpdateCount, queue.getDroppedUpdateCount());
+			
+			
+			// only the newest updates should be processed
+			blockingTaskLatch.countDown();
+			Assert.assertTrue("remaining updates didn't run", updatesFinishedLatch.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+			for (int i = queuedUpdateCount - maxPendingUpdateCount; i < queuedUpdateCount; i++)
+			{
+				Assert.assertTrue("newest update was dropped", updatedPosSet.contains(new DhChunkPos(i, 0)));
+			}
+			Assert.assertEquals("dropped updates were processed", maxPendingUpdateCount, updatedPosSet.size());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	
+	@Test
+	public void testAreaRelightBlocksOverlappingUpdates() throws InterruptedException
+	{
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+		try
+		{
+			Set<DhChunkPos> runningPosSet = ConcurrentHashMap.newKeySet();
+			AtomicReference<DhChunkPos> overlappingPosRef = new AtomicReference<>(null);
+			CountDownLatch areaStartedLatch = new CountDownLatch(1);
+			CountDownLatch releaseAreaLatch = new CountDownLatch(1);
+			CountDownLatch updatesFinishedLatch = new CountDownLatch(2);
+			
+			ChunkUpdateQueue queue = new ChunkUpdateQueue((update) ->
+				{
+					for (IChunkWrapper chunk : update.chunkList)
+					{
+						if (!runningPosSet.add(chunk.getChunkPos()))
+						{
+							overlappingPosRef.set(chunk.getChunkPos());
+						}
+					}
+					
+					if (update.isAreaRelight)
+					{
+						areaStartedLatch.countDown();
+						awaitQuietly(releaseAreaLatch);
+					}
+					
+					for (IChunkWrapper chunk : update.chunkList)
+					{
+						runningPosSet.remove(chunk.getChunkPos());
+					}
+					updatesFinishedLatch.countDown();
+				}, 
+				() -> executor, () -> 2, () -> 0);
+			
+			
+			// queue a 3x3 area relight centered on 0,0
+			ArrayList<IChunkWrapper> areaChunkList = new ArrayList<>();
+			for (int x = -1; x <= 1; x++)
+			{
+				for (int z = -1; z <= 1; z++)
+				{
+					areaChunkList.add(createChunk(new DhChunkPos(x, z)));
+				}
+			}
+			queue.queueAreaRelight(areaChunkList.get(4), areaChunkList, null);
+			Assert.assertTrue("area relight didn't start", areaStartedLatch.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+			
+			// the second worker is free, but this chunk is inside the running area
+			DhChunkPos innerPos = new DhChunkPos(1, 1);
+			queue.queueUpdate(createChunk(innerPos), null);
+			Thread.sleep(200);
+			Assert.assertNull("update ran inside a running area relight", overlappingPosRef.get());
+			Assert.assertEquals("inner update should still be pending", 1, queue.getQueueDepth());
+			
+			releaseAreaLatch.countDown();
+			Assert.assertTrue("inner update didn't run after the area finished", updatesFinishedLatch.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+			Assert.assertNull("update ran inside a running area relight", overlappingPosRef.get());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static ThreadPoolExecutor createExecutor() { return new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()); }
+	
+	private static IChunkWrapper createChunk(DhChunkPos pos)
+	{
+		return (IChunkWrapper) Proxy.newProxyInstance(IChunkWrapper.class.getClassLoader(), new Class<?>[]{ IChunkWrapper.class }, 
+			(proxy, method, args) ->
+			{
+				if (method.getName().equals("getChunkPos"))
+				{
+					return pos;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+	}
+	
+	private static void awaitQuietly(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch (InterruptedException ignored) { }
+	}
+	
+}
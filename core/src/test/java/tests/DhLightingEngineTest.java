@@ -0,0 +1,369 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package tests;
+
+import com.seibel.distanthorizons.core.generation.DhLightingEngine;
+import com.seibel.distanthorizons.core.pos.DhBlockPos;
+import com.seibel.distanthorizons.core.pos.DhChunkPos;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.wrapperInterfaces.block.IBlockStateWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.chunk.IChunkWrapper;
+import com.seibel.distanthorizons.core.wrapperInterfaces.world.IBiomeWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares {@link DhLightingEngine#updateChangedBlockLights} against
+ * a full re-light using {@link DhLightingEngine#lightChunks}.
+ */
+public class DhLightingEngineTest
+{
+	private static final int MIN_BUILD_HEIGHT = 0;
+	private static final int MAX_BUILD_HEIGHT = 47;
+	private static final int MAX_SKY_LIGHT = 15;
+	
+	private static final TestBlockState AIR = new TestBlockState("air", 0, 0);
+	private static final TestBlockState STONE = new TestBlockState("stone", 15, 0);
+	private static final TestBlockState LEAVES = new TestBlockState("leaves", 1, 0);
+	private static final TestBlockState WATER = new TestBlockState("water", 2, 0);
+	private static final TestBlockState TORCH = new TestBlockState("torch", 0, 14);
+	private static final TestBlockState GLOWSTONE = new TestBlockState("glowstone", 15, 15);
+	private static final TestBlockState[] PLACEABLE_BLOCKS = { AIR, STONE, LEAVES, WATER, TORCH, GLOWSTONE };
+	
+	
+	
+	@Test
+	public void incrementalMatchesFullRelight()
+	{
+		Random random = new Random(1234);
+		ArrayList<IChunkWrapper> chunkList = createWorld(random);
+		DhLightingEngine.INSTANCE.lightChunks(chunkList, chunkList, MAX_SKY_LIGHT);
+		
+		for (int i = 0; i < 200; i++)
+		{
+			// change between 1 and 3 blocks at once
+			ArrayList<DhBlockPos> changedPosList = new ArrayList<>();
+			int changeCount = 1 + random.nextInt(3);
+			for (int j = 0; j < changeCount; j++)
+			{
+				changedPosList.add(setRandomBlock(chunkList, random));
+			}
+			
+			DhLightingEngine.INSTANCE.updateChangedBlockLights(chunkList, changedPosList, MAX_SKY_LIGHT);
+			
+			
+			ArrayList<IChunkWrapper> expectedChunkList = copyBlocks(chunkList);
+			DhLightingEngine.INSTANCE.lightChunks(expectedChunkList, expectedChunkList, MAX_SKY_LIGHT);
+			assertLightsEqual(expectedChunkList, chunkList, "change " + i + " at " + changedPosList);
+		}
+	}
+	
+	@Test
+	public void incrementalMatchesFullRelightForLightSources()
+	{
+		Random random = new Random(5678);
+		ArrayList<IChunkWrapper> chunkList = createWorld(random);
+		DhLightingEngine.INSTANCE.lightChunks(chunkList, chunkList, MAX_SKY_LIGHT);
+		
+		// repeatedly add and remove light sources, 
+		// removing a light is the most complicated case since the old light has to be un-propagated first
+		ArrayList<DhBlockPos> lightPosList = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			ArrayList<DhBlockPos> changedPosList = new ArrayList<>();
+			if (!lightPosList.isEmpty() && random.nextBoolean())
+			{
+				DhBlockPos removedPos = lightPosList.remove(random.nextInt(lightPosList.size()));
+				setBlock(chunkList, removedPos, random.nextBoolean() ? AIR : STONE);
+				changedPosList.add(removedPos);
+			}
+			else
+			{
+				DhBlockPos addedPos = setRandomBlock(chunkList, random, random.nextBoolean() ? TORCH : GLOWSTONE);
+				lightPosList.add(addedPos);
+				changedPosList.add(addedPos);
+			}
+			
+			DhLightingEngine.INSTANCE.updateChangedBlockLights(chunkList, changedPosList, MAX_SKY_LIGHT);
+			
+			
+			ArrayList<IChunkWrapper> expectedChunkList = copyBlocks(chunkList);
+			DhLightingEngine.INSTANCE.lightChunks(expectedChunkList, expectedChunkList, MAX_SKY_LIGHT);
+			assertLightsEqual(expectedChunkList, chunkList, "light change " + i + " at " + changedPosList);
+		}
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	/** @return a 3x3 grid of chunks centered on 0,0 */
+	private static ArrayList<IChunkWrapper> createWorld(Random random)
+	{
+		ArrayList<IChunkWrapper> chunkList = new ArrayList<>(9);
+		for (int chunkX = -1; chunkX <= 1; chunkX++)
+		{
+			for (int chunkZ = -1; chunkZ <= 1; chunkZ++)
+			{
+				TestChunkWrapper chunk = new TestChunkWrapper(new DhChunkPos(chunkX, chunkZ));
+				for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++)
+				{
+					for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
+					{
+						int groundHeight = 16 + random.nextInt(8);
+						for (int y = MIN_BUILD_HEIGHT; y <= groundHeight; y++)
+						{
+							// random caves
+							chunk.setBlockState(relX, y, relZ, (random.nextInt(10) == 0) ? AIR : STONE);
+						}
+						
+						int featureRoll = random.nextInt(40);
+						if (featureRoll == 0)
+						{
+							chunk.setBlockState(relX, groundHeight + 1, relZ, TORCH);
+						}
+						else if (featureRoll < 4)
+						{
+							for (int y = groundHeight + 3; y < groundHeight + 6; y++)
+							{
+								chunk.setBlockState(relX, y, relZ, LEAVES);
+							}
+						}
+						else if (featureRoll < 6)
+						{
+							chunk.setBlockState(relX, groundHeight + 1, relZ, WATER);
+						}
+					}
+				}
+				chunkList.add(chunk);
+			}
+		}
+		return chunkList;
+	}
+	
+	/** @return the absolute position of the changed block */
+	private static DhBlockPos setRandomBlock(ArrayList<IChunkWrapper> chunkList, Random random)
+	{ return setRandomBlock(chunkList, random, PLACEABLE_BLOCKS[random.nextInt(PLACEABLE_BLOCKS.length)]); }
+	/** @return the absolute position of the changed block */
+	private static DhBlockPos setRandomBlock(ArrayList<IChunkWrapper> chunkList, Random random, TestBlockState blockState)
+	{
+		TestChunkWrapper chunk = (TestChunkWrapper) chunkList.get(random.nextInt(chunkList.size()));
+		int relX = random.nextInt(LodUtil.CHUNK_WIDTH);
+		int relZ = random.nextInt(LodUtil.CHUNK_WIDTH);
+		// most changes happen near the surface
+		int y = 10 + random.nextInt(20);
+		
+		chunk.setBlockState(relX, y, relZ, blockState);
+		return new DhBlockPos(chunk.getMinBlockX() + relX, y, chunk.getMinBlockZ() + relZ);
+	}
+	
+	private static void setBlock(ArrayList<IChunkWrapper> chunkList, DhBlockPos pos, TestBlockState blockState)
+	{
+		for (IChunkWrapper chunk : chunkList)
+		{
+			if (chunk.getMinBlockX() <= pos.x && pos.x <= chunk.getMaxBlockX()
+				&& chunk.getMinBlockZ() <= pos.z && pos.z <= chunk.getMaxBlockZ())
+			{
+				((TestChunkWrapper) chunk).setBlockState(pos.x - chunk.getMinBlockX(), pos.y, pos.z - chunk.getMinBlockZ(), blockState);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("no chunk contains [" + pos + "]");
+	}
+	
+	/** @return new chunks with the same blocks but no lighting */
+	private static ArrayList<IChunkWrapper> copyBlocks(ArrayList<IChunkWrapper> chunkList)
+	{
+		ArrayList<IChunkWrapper> copyList = new ArrayList<>(chunkList.size());
+		for (IChunkWrapper chunk : chunkList)
+		{
+			TestChunkWrapper copy = new TestChunkWrapper(chunk.getChunkPos());
+			System.arraycopy(((TestChunkWrapper) chunk).blockStates, 0, copy.blockStates, 0, copy.blockStates.length);
+			copyList.add(copy);
+		}
+		return copyList;
+	}
+	
+	private static void assertLightsEqual(ArrayList<IChunkWrapper> expectedChunkList, ArrayList<IChunkWrapper> actualChunkList, String message)
+	{
+		for (int i = 0; i < expectedChunkList.size(); i++)
+		{
+			TestChunkWrapper expected = (TestChunkWrapper) expectedChunkList.get(i);
+			TestChunkWrapper actual = (TestChunkWrapper) actualChunkList.get(i);
+			for (int index = 0; index < expected.blockLights.length; index++)
+			{
+				if (expected.blockLights[index] != actual.blockLights[index]
+					|| expected.skyLights[index] != actual.skyLights[index])
+				{
+					Assert.fail(message + ", chunk " + expected.getChunkPos() + " index " + index 
+							+ " expected block/sky [" + expected.blockLights[index] + "/" + expected.skyLights[index] + "]" 
+							+ " actual [" + actual.blockLights[index] + "/" + actual.skyLights[index] + "]");
+				}
+			}
+		}
+	}
+	
+	
+	
+	//================//
+	// helper classes //
+	//================//
+	
+	private static class TestBlockState implements IBlockStateWrapper
+	{
+		private final String name;
+		private final int opacity;
+		private final int lightEmission;
+		
+		public TestBlockState(String name, int opacity, int lightEmission)
+		{
+			this.name = name;
+			this.opacity = opacity;
+			this.lightEmission = lightEmission;
+		}
+		
+		@Override
+		public String getSerialString() { return this.name; }
+		@Override
+		public int getOpacity() { return this.opacity; }
+		@Override
+		public int getLightEmission() { return this.lightEmission; }
+		
+		@Override
+		public boolean isAir() { return this == AIR; }
+		@Override
+		public boolean isSolid() { return this.opacity == 15; }
+		@Override
+		public boolean isLiquid() { return this == WATER; }
+		@Override
+		public Object getWrappedMcObject() { return null; }
+		
+		@Override
+		public String toString() { return this.name; }
+		
+	}
+	
+	private static class TestChunkWrapper implements IChunkWrapper
+	{
+		private static final int HEIGHT = MAX_BUILD_HEIGHT - MIN_BUILD_HEIGHT + 1;
+		
+		private final DhChunkPos chunkPos;
+		private final TestBlockState[] blockStates = new TestBlockState[LodUtil.CHUNK_WIDTH * LodUtil.CHUNK_WIDTH * HEIGHT];
+		private final byte[] blockLights = new byte[this.blockStates.length];
+		private final byte[] skyLights = new byte[this.blockStates.length];
+		
+		
+		
+		public TestChunkWrapper(DhChunkPos chunkPos)
+		{
+			this.chunkPos = chunkPos;
+			Arrays.fill(this.blockStates, AIR);
+		}
+		
+		
+		
+		private static int index(int relX, int y, int relZ) { return relX + (relZ * LodUtil.CHUNK_WIDTH) + ((y - MIN_BUILD_HEIGHT) * LodUtil.CHUNK_WIDTH * LodUtil.CHUNK_WIDTH); }
+		
+		public void setBlockState(int relX, int y, int relZ, TestBlockState blockState) { this.blockStates[index(relX, y, relZ)] = blockState; }
+		@Override
+		public IBlockStateWrapper getBlockState(int relX, int relY, int relZ) { return this.blockStates[index(relX, relY, relZ)]; }
+		
+		@Override
+		public int getDhSkyLight(int relX, int relY, int relZ) { return this.skyLights[index(relX, relY, relZ)]; }
+		@Override
+		public void setDhSkyLight(int relX, int relY, int relZ, int lightValue) { this.skyLights[index(relX, relY, relZ)] = (byte) lightValue; }
+		@Override
+		public int getDhBlockLight(int relX, int relY, int relZ) { return this.blockLights[index(relX, relY, relZ)]; }
+		@Override
+		public void setDhBlockLight(int relX, int relY, int relZ, int lightValue) { this.blockLights[index(relX, relY, relZ)] = (byte) lightValue; }
+		
+		@Override
+		public ArrayList<DhBlockPos> getBlockLightPosList()
+		{
+			ArrayList<DhBlockPos> lightPosList = new ArrayList<>();
+			for (int y = MIN_BUILD_HEIGHT; y <= MAX_BUILD_HEIGHT; y++)
+			{
+				for (int relX = 0; relX < LodUtil.CHUNK_WIDTH; relX++)
+				{
+					for (int relZ = 0; relZ < LodUtil.CHUNK_WIDTH; relZ++)
+					{
+						if (this.blockStates[index(relX, y, relZ)].getLightEmission() > 0)
+						{
+							lightPosList.add(new DhBlockPos(this.getMinBlockX() + relX, y, this.getMinBlockZ() + relZ));
+						}
+					}
+				}
+			}
+			return lightPosList;
+		}
+		
+		@Override
+		public DhChunkPos getChunkPos() { return this.chunkPos; }
+		@Override
+		public int getMinBuildHeight() { return MIN_BUILD_HEIGHT; }
+		@Override
+		public int getMaxBuildHeight() { return MAX_BUILD_HEIGHT; }
+		@Override
+		public int getMinFilledHeight() { return MIN_BUILD_HEIGHT; }
+		@Override
+		public int getSolidHeightMapValue(int xRel, int zRel) { return MAX_BUILD_HEIGHT; }
+		@Override
+		public int getLightBlockingHeightMapValue(int xRel, int zRel) { return MAX_BUILD_HEIGHT; }
+		@Override
+		public int getMinBlockX() { return this.chunkPos.x * LodUtil.CHUNK_WIDTH; }
+		@Override
+		public int getMinBlockZ() { return this.chunkPos.z * LodUtil.CHUNK_WIDTH; }
+		@Override
+		public int getMaxBlockX() { return this.getMinBlockX() + LodUtil.CHUNK_WIDTH - 1; }
+		@Override
+		public int getMaxBlockZ() { return this.getMinBlockZ() + LodUtil.CHUNK_WIDTH - 1; }
+		@Override
+		public long getLongChunkPos() { return this.chunkPos.getLong(); }
+		
+		@Override
+		public void setIsDhLightCorrect(boolean isDhLightCorrect) { }
+		@Override
+		public void setUseDhLighting(boolean useDhLighting) { }
+		@Override
+		public boolean isLightCorrect() { return false; }
+		@Override
+		public int getBlockLight(int relX, int relY, int relZ) { return this.getDhBlockLight(relX, relY, relZ); }
+		@Override
+		public int getSkyLight(int relX, int relY, int relZ) { return this.getDhSkyLight(relX, relY, relZ); }
+		
+		@Override
+		public IBiomeWrapper getBiome(int relX, int relY, int relZ) { return null; }
+		@Override
+		public boolean doNearbyChunksExist() { return true; }
+		@Override
+		public boolean isStillValid() { return true; }
+		
+		@Override
+		public String toString() { return "TestChunkWrapper " + this.chunkPos; }
+		
+	}
+	
+}
@@ -19,6 +19,7 @@
 
 package tests;
 
+import com.seibel.distanthorizons.core.sql.DatabaseMaintainer;
 import com.seibel.distanthorizons.core.sql.DatabaseUpdater;
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,7 +27,11 @@ import testItems.sql.TestDataRepo;
 import testItems.sql.TestDto;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Map;
 
 /**
@@ -130,4 +135,47 @@ public class DhRepoSqliteTest
 		}
 	}
 	
+	@Test
+	public void testIncrementalVacuumConversion()
+	{
+		String dbFileName = "vacuumTest.sqlite";
+		
+		
+		File dbFile = new File(dbFileName);
+		if (dbFile.exists())
+		{
+			Assert.assertTrue("unable to delete old test DB File.", dbFile.delete());
+		}
+		
+		
+		try
+		{
+			// create a database without incremental vacuuming, like those saved by older versions
+			try (Connection connection = DriverManager.getConnection(DATABASE_TYPE + ":" + dbFileName);
+				Statement statement = connection.createStatement())
+			{
+				statement.execute("CREATE TABLE Test (Id INT PRIMARY KEY);");
+				
+				ResultSet resultSet = statement.executeQuery("PRAGMA auto_vacuum;");
+				Assert.assertTrue(resultSet.next());
+				Assert.assertNotEquals("new databases shouldn't use incremental vacuuming", 2, resultSet.getInt(1));
+			}
+			
+			Assert.assertTrue("database not converted", DatabaseMaintainer.convertToIncrementalVacuum(DATABASE_TYPE, dbFileName));
+			Assert.assertFalse("converted database shouldn't be vacuumed again", DatabaseMaintainer.convertToIncrementalVacuum(DATABASE_TYPE, dbFileName));
+			
+			try (Connection connection = DriverManager.getConnection(DATABASE_TYPE + ":" + dbFileName);
+				Statement statement = connection.createStatement())
+			{
+				ResultSet resultSet = statement.executeQuery("PRAGMA auto_vacuum;");
+				Assert.assertTrue(resultSet.next());
+				Assert.assertEquals("incremental vacuuming not enabled", 2, resultSet.getInt(1));
+			}
+		}
+		catch (SQLException e)
+		{
+			Assert.fail(e.getMessage());
+		}
+	}
+	
 }
@@ -358,5 +358,68 @@ public class DhSectionPosTest
 		
 	}
 	
+	@Test
+	public void PackedPosTest()
+	{
+		DhSectionPos[] testPositions = new DhSectionPos[] {
+				new DhSectionPos((byte) 0, 0, 0),
+				new DhSectionPos((byte) 0, 30_000_000, -30_000_000),
+				new DhSectionPos((byte) 1, -10000, 5000),
+				new DhSectionPos(DhSectionPos.SECTION_BLOCK_DETAIL_LEVEL, -15433, 656),
+				new DhSectionPos(DhSectionPos.SECTION_REGION_DETAIL_LEVEL, -1, 1),
+		};
+		
+		for (DhSectionPos pos : testPositions)
+		{
+			long packed = pos.asLong();
+			
+			// round trip
+			Assert.assertEquals(pos, new DhSectionPos(packed));
+			Assert.assertEquals(pos.getDetailLevel(), DhSectionPos.getDetailLevel(packed));
+			Assert.assertEquals(pos.getX(), DhSectionPos.getX(packed));
+			Assert.assertEquals(pos.getZ(), DhSectionPos.getZ(packed));
+			Assert.assertEquals(pos.getSectionBBoxPos(), new DhLodPos(packed));
+			Assert.assertEquals(packed, pos.getSectionBBoxPos().asLong());
+			
+			// the packed helpers should match their object equivalents
+			Assert.assertEquals(pos.getBlockWidth(), DhSectionPos.getBlockWidth(packed));
+			Assert.assertEquals(pos.getCenterBlockPosX(), DhSectionPos.getCenterBlockPosX(packed));
+			Assert.assertEquals(pos.getCenterBlockPosZ(), DhSectionPos.getCenterBlockPosZ(packed));
+			Assert.assertEquals(pos.getSectionBBoxPos().getCenterBlockPos(), new DhBlockPos2D(DhLodPos.getCenterBlockPosX(packed), DhLodPos.getCenterBlockPosZ(packed)));
+			Assert.assertEquals(pos.getSectionBBoxPos().getCornerBlockPos(), new DhBlockPos2D(DhSectionPos.getMinCornerBlockX(packed), DhSectionPos.getMinCornerBlockZ(packed)));
+			Assert.assertEquals(pos.getParentPos(), new DhSectionPos(DhSectionPos.getParentPosPacked(packed)));
+			Assert.assertEquals(pos.convertNewToDetailLevel(DhSectionPos.SECTION_REGION_DETAIL_LEVEL), new DhSectionPos(DhSectionPos.convertToDetailLevelPacked(packed, DhSectionPos.SECTION_REGION_DETAIL_LEVEL)));
+			if (pos.getDetailLevel() > 0)
+			{
+				for (int i = 0; i < 4; i++)
+				{
+					Assert.assertEquals(pos.getChildByIndex(i), new DhSectionPos(DhSectionPos.getChildByIndexPacked(packed, i)));
+				}
+				Assert.assertEquals(pos.convertNewToDetailLevel((byte) 0), new DhSectionPos(DhSectionPos.convertToDetailLevelPacked(packed, (byte) 0)));
+			}
+		}
+		
+		
+		// block pos 2D
+		DhBlockPos2D blockPos = new DhBlockPos2D(-30_000_000, 12345);
+		Assert.assertEquals(blockPos, new DhBlockPos2D(blockPos.asLong()));
+		Assert.assertEquals(DhChunkPos.toLong(blockPos.x, blockPos.z), blockPos.asLong());
+		Assert.assertEquals(blockPos.toPos2D().chebyshevDist(DhBlockPos2D.ZERO.toPos2D()), blockPos.chebyshevDist(0, 0));
+	}
+	
+	@Test
+	public void OverlapsExactlyTest()
+	{
+		DhSectionPos parent = new DhSectionPos((byte) 10, -1, 2);
+		Assert.assertTrue(parent.overlapsExactly(parent));
+		Assert.assertTrue(parent.overlapsExactly(new DhSectionPos((byte) 9, -2, 5)));
+		Assert.assertTrue(new DhSectionPos((byte) 9, -1, 4).overlapsExactly(parent));
+		Assert.assertTrue(parent.overlapsExactly(new DhSectionPos((byte) 0, -1, 2048)));
+		
+		Assert.assertFalse(parent.overlapsExactly(new DhSectionPos((byte) 10, -1, 3)));
+		Assert.assertFalse(parent.overlapsExactly(new DhSectionPos((byte) 9, 0, 4)));
+		Assert.assertFalse(new DhSectionPos((byte) 9, -3, 4).overlapsExactly(parent));
+	}
+	
 	
 }
@@ -0,0 +1,202 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package tests;
+
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.render.DhFrustum;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadNode;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTree;
+import com.seibel.distanthorizons.coreapi.util.MathUtil;
+import com.seibel.distanthorizons.coreapi.util.math.Mat4f;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Validates {@link DhFrustum} and checks that the hierarchical culling
+ * tests fewer sections than testing every section.
+ */
+public class FrustumCullingTest
+{
+	/** the highest detail level LOD render sections use */
+	private static final byte MIN_SECTION_DETAIL_LEVEL = 6;
+	
+	private static final int LEVEL_MIN_Y = -64;
+	private static final int LEVEL_MAX_Y = 320;
+	private static final double CAMERA_Y = 100;
+	
+	
+	
+	@Test
+	public void basicSectionVisibility()
+	{
+		DhFrustum frustum = createFrustum(256);
+		
+		// directly in front of the camera
+		Assert.assertNotEquals(DhFrustum.OUTSIDE, frustum.testSection(new DhSectionPos(MIN_SECTION_DETAIL_LEVEL, 3, 0)));
+		// directly behind the camera
+		Assert.assertEquals(DhFrustum.OUTSIDE, frustum.testSection(new DhSectionPos(MIN_SECTION_DETAIL_LEVEL, -4, 0)));
+		// far to the side of the camera
+		Assert.assertEquals(DhFrustum.OUTSIDE, frustum.testSection(new DhSectionPos(MIN_SECTION_DETAIL_LEVEL, 1, 40)));
+		Assert.assertEquals(DhFrustum.OUTSIDE, frustum.testSection(new DhSectionPos(MIN_SECTION_DETAIL_LEVEL, 1, -40)));
+		
+		// the section containing the camera
+		Assert.assertEquals(DhFrustum.INTERSECTS, frustum.testSection(new DhSectionPos(MIN_SECTION_DETAIL_LEVEL, 0, 0)));
+		// a small box well within the view
+		Assert.assertEquals(DhFrustum.INSIDE, frustum.testCameraRelativeBox(100, -10, -10, 120, 10, 10));
+	}
+	
+	@Test
+	public void hierarchicalMatchesFlatCulling()
+	{
+		int chunkRenderDistance = 256;
+		QuadTree<Integer> tree = createPopulatedTree(chunkRenderDistance);
+		DhFrustum frustum = createFrustum(chunkRenderDistance);
+		
+		HashMap<DhSectionPos, Boolean> visibleByPos = new HashMap<>();
+		frustum.forEachNode(tree.createSnapshot(), (pos, value, visible) -> visibleByPos.put(pos, visible));
+		
+		int nodeCount = 0;
+		int visibleCount = 0;
+		Iterator<QuadNode<Integer>> nodeIterator = tree.nodeIterator();
+		while (nodeIterator.hasNext())
+		{
+			QuadNode<Integer> node = nodeIterator.next();
+			nodeCount++;
+			
+			boolean flatVisible = frustum.testSection(node.sectionPos) != DhFrustum.OUTSIDE;
+			Assert.assertEquals("hierarchical and flat culling disagree at " + node.sectionPos, flatVisible, visibleByPos.get(node.sectionPos));
+			if (flatVisible)
+			{
+				visibleCount++;
+			}
+		}
+		
+		Assert.assertEquals("not every node was visited", nodeCount, visibleByPos.size());
+		Assert.assertTrue("nothing was visible", visibleCount > 0);
+		Assert.assertTrue("nothing was culled", visibleCount < nodeCount);
+	}
+	
+	@Test
+	public void hierarchicalCullingCounts()
+	{
+		testCullingCounts(256);
+		testCullingCounts(1024);
+	}
+	private static void testCullingCounts(int chunkRenderDistance)
+	{
+		QuadTree<Integer> tree = createPopulatedTree(chunkRenderDistance);
+		DhFrustum frustum = createFrustum(chunkRenderDistance);
+		
+		int nodeCount = 0;
+		int flatVisibleCount = 0;
+		Iterator<QuadNode<Integer>> nodeIterator = tree.nodeIterator();
+		while (nodeIterator.hasNext())
+		{
+			nodeCount++;
+			if (frustum.testSection(nodeIterator.next().sectionPos) != DhFrustum.OUTSIDE)
+			{
+				flatVisibleCount++;
+			}
+		}
+		
+		int[] visibleCount = new int[1];
+		frustum.forEachNode(tree.createSnapshot(), (pos, value, visible) ->
+		{
+			if (visible)
+			{
+				visibleCount[0]++;
+			}
+		});
+		
+		
+		Assert.assertEquals(flatVisibleCount, visibleCount[0]);
+		Assert.assertEquals(nodeCount - visibleCount[0], frustum.getLastCulledSectionCount());
+		Assert.assertTrue("hierarchical culling should test fewer sections than exist", frustum.getLastTestedSectionCount() < nodeCount);
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	/** @return a frustum looking horizontally down the positive X axis from (0, {@link FrustumCullingTest#CAMERA_Y}, 0) */
+	private static DhFrustum createFrustum(int chunkRenderDistance)
+	{
+		float farClipPlane = (float) (chunkRenderDistance * LodUtil.CHUNK_WIDTH * Math.sqrt(2)) + LodUtil.CHUNK_WIDTH;
+		Mat4f modelViewProjectionMatrix = Mat4f.perspective(70, 16 / 9f, 0.1f, farClipPlane);
+		
+		// rotation only view matrix, forward = +X, up = +Y, right = +Z
+		Mat4f viewMatrix = new Mat4f(new float[]{
+				0, 0, 1, 0,
+				0, 1, 0, 0,
+				-1, 0, 0, 0,
+				0, 0, 0, 1,
+		});
+		modelViewProjectionMatrix.multiply(viewMatrix);
+		
+		DhFrustum frustum = new DhFrustum();
+		frustum.update(modelViewProjectionMatrix, 0, CAMERA_Y, 0, LEVEL_MIN_Y, LEVEL_MAX_Y);
+		return frustum;
+	}
+	
+	/** Populates the tree similar to how LODs are loaded, with the detail level decreasing as the distance from the center increases. */
+	private static QuadTree<Integer> createPopulatedTree(int chunkRenderDistance)
+	{
+		int diameterInBlocks = chunkRenderDistance * LodUtil.CHUNK_WIDTH * 2;
+		QuadTree<Integer> tree = new QuadTree<>(diameterInBlocks, DhBlockPos2D.ZERO, MIN_SECTION_DETAIL_LEVEL);
+		
+		Iterator<DhSectionPos> rootPosIterator = tree.rootNodePosIterator();
+		while (rootPosIterator.hasNext())
+		{
+			populateNode(tree, rootPosIterator.next());
+		}
+		return tree;
+	}
+	private static void populateNode(QuadTree<Integer> tree, DhSectionPos pos)
+	{
+		if (!tree.isSectionPosInBounds(pos))
+		{
+			return;
+		}
+		tree.setValue(pos, (int) pos.getDetailLevel());
+		
+		
+		int halfWidth = pos.getBlockWidth() / 2;
+		int distX = Math.max(0, Math.abs(pos.getCenterBlockPosX()) - halfWidth);
+		int distZ = Math.max(0, Math.abs(pos.getCenterBlockPosZ()) - halfWidth);
+		int distance = Math.max(distX, distZ);
+		int expectedDetailLevel = MIN_SECTION_DETAIL_LEVEL + MathUtil.log2(Math.max(1, distance / 256));
+		
+		if (pos.getDetailLevel() > expectedDetailLevel && pos.getDetailLevel() > MIN_SECTION_DETAIL_LEVEL)
+		{
+			for (int i = 0; i < 4; i++)
+			{
+				populateNode(tree, pos.getChildByIndex(i));
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,152 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package tests;
+
+import com.seibel.distanthorizons.core.pos.DhBlockPos2D;
+import com.seibel.distanthorizons.core.pos.DhLodPos;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTree;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Confirms the position methods used in high traffic loops don't allocate. <br>
+ * Uses {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)},
+ * these tests are skipped if the JVM doesn't support it.
+ */
+public class PositionAllocationTest
+{
+	private static final int ITERATION_COUNT = 100_000;
+	/** the JVM may allocate a few bytes of its own while we're measuring */
+	private static final long MAX_ALLOCATED_BYTES = 1024;
+	
+	/** written to so the JIT can't remove the tested code */
+	private static long blackHole = 0;
+	
+	
+	
+	@Test
+	public void packedSectionPosTest()
+	{
+		long packedPos = new DhSectionPos(DhSectionPos.SECTION_BLOCK_DETAIL_LEVEL, -1234, 5678).asLong();
+		
+		assertNoAllocations("packed section pos helpers", () ->
+		{
+			for (int i = 0; i < ITERATION_COUNT; i++)
+			{
+				long pos = DhSectionPos.asLong(DhSectionPos.getDetailLevel(packedPos), DhSectionPos.getX(packedPos) + i, DhSectionPos.getZ(packedPos));
+				long parentPos = DhSectionPos.getParentPosPacked(pos);
+				long childPos = DhSectionPos.getChildByIndexPacked(pos, i & 3);
+				long regionPos = DhSectionPos.convertToDetailLevelPacked(pos, DhSectionPos.SECTION_REGION_DETAIL_LEVEL);
+				
+				blackHole += parentPos + childPos + regionPos
+						+ DhSectionPos.getCenterBlockPosX(pos) + DhSectionPos.getCenterBlockPosZ(pos)
+						+ DhSectionPos.getMinCornerBlockX(pos) + DhSectionPos.getMinCornerBlockZ(pos)
+						+ DhLodPos.getCenterBlockPosX(pos) + DhLodPos.getCenterBlockPosZ(pos);
+			}
+		});
+	}
+	
+	@Test
+	public void sectionPosComparisonTest()
+	{
+		DhSectionPos parentPos = new DhSectionPos((byte) 10, -1, 2);
+		DhSectionPos childPos = new DhSectionPos((byte) 7, -5, 17);
+		DhSectionPos otherPos = new DhSectionPos((byte) 7, 100, 17);
+		
+		assertNoAllocations("section pos comparisons", () ->
+		{
+			for (int i = 0; i < ITERATION_COUNT; i++)
+			{
+				boolean result = parentPos.contains(childPos)
+						&& !parentPos.contains(otherPos)
+						&& parentPos.overlapsExactly(childPos)
+						&& !otherPos.overlapsExactly(parentPos);
+				blackHole += result ? 1 : 0;
+			}
+		});
+	}
+	
+	@Test
+	public void blockPos2DTest()
+	{
+		DhBlockPos2D blockPos = new DhBlockPos2D(-1000, 2000);
+		
+		assertNoAllocations("block pos 2D helpers", () ->
+		{
+			for (int i = 0; i < ITERATION_COUNT; i++)
+			{
+				long packed = DhBlockPos2D.asLong(blockPos.x + i, blockPos.z);
+				blackHole += blockPos.chebyshevDist(DhBlockPos2D.getX(packed), DhBlockPos2D.getZ(packed));
+			}
+		});
+	}
+	
+	@Test
+	public void indexedQuadTreeLookupTest()
+	{
+		QuadTree<Integer> tree = new QuadTree<>(4096, DhBlockPos2D.ZERO, DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, true);
+		DhSectionPos[] posArray = new DhSectionPos[64];
+		for (int i = 0; i < posArray.length; i++)
+		{
+			posArray[i] = new DhSectionPos(DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, i - 32, 31 - i);
+			tree.setValue(posArray[i], i);
+		}
+		
+		assertNoAllocations("indexed quad tree lookups", () ->
+		{
+			for (int i = 0; i < ITERATION_COUNT; i++)
+			{
+				blackHole += tree.getNode(posArray[i & 63]).sectionPos.getX();
+			}
+		});
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static void assertNoAllocations(String name, Runnable runnable)
+	{
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue("thread allocation tracking isn't supported by this JVM", threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		
+		long threadId = Thread.currentThread().getId();
+		
+		// warm up so the JIT has compiled the tested code
+		for (int i = 0; i < 10; i++)
+		{
+			runnable.run();
+		}
+		
+		long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		runnable.run();
+		long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+		
+		Assert.assertTrue(name + " allocated [" + allocatedBytes + "] bytes over [" + ITERATION_COUNT + "] iterations.", allocatedBytes <= MAX_ALLOCATED_BYTES);
+	}
+	
+}
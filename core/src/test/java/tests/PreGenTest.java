@@ -0,0 +1,276 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package tests;
+
+import com.seibel.distanthorizons.core.dependencyInjection.SingletonInjector;
+import com.seibel.distanthorizons.core.jar.pregen.HeadlessPreGenerator;
+import com.seibel.distanthorizons.core.jar.pregen.IPreGenChunkSource;
+import com.seibel.distanthorizons.core.jar.pregen.PreGenCommand;
+import com.seibel.distanthorizons.core.jar.pregen.PreGenProgressFile;
+import com.seibel.distanthorizons.core.jar.pregen.WorldGeneratorChunkSource;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.LodUtil;
+import com.seibel.distanthorizons.core.wrapperInterfaces.IWrapperFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import testItems.preGen.TestPreGenWorldGenerator;
+import testItems.preGen.TestWrapperFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Validates the headless pre-generator's helpers and progress file.
+ *
+ * @see PreGenCommand
+ */
+public class PreGenTest
+{
+	public static String PROGRESS_FOLDER_NAME = "testPreGenProgress";
+	
+	
+	
+	//================//
+	// region helpers //
+	//================//
+	
+	@Test
+	public void testRegionsInRadius()
+	{
+		ArrayList<DhSectionPos> regionPosList = PreGenCommand.getRegionsInRadius(3, -2, 2);
+		Assert.assertEquals(25, regionPosList.size());
+		Assert.assertEquals("regions should be unique", 25, new HashSet<>(regionPosList).size());
+		
+		// closest first
+		Assert.assertEquals(new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 3, -2), regionPosList.get(0));
+		long lastDistance = 0;
+		for (DhSectionPos pos : regionPosList)
+		{
+			Assert.assertEquals(LodUtil.REGION_DETAIL_LEVEL, pos.getDetailLevel());
+			Assert.assertTrue(Math.abs(pos.getX() - 3) <= 2 && Math.abs(pos.getZ() + 2) <= 2);
+			
+			long distance = (long) (pos.getX() - 3) * (pos.getX() - 3) + (long) (pos.getZ() + 2) * (pos.getZ() + 2);
+			Assert.assertTrue("regions should be sorted closest first", distance >= lastDistance);
+			lastDistance = distance;
+		}
+		
+		
+		Assert.assertEquals(1, PreGenCommand.getRegionsInRadius(0, 0, 0).size());
+		try
+		{
+			PreGenCommand.getRegionsInRadius(0, 0, -1);
+			Assert.fail("negative radius should throw");
+		}
+		catch (IllegalArgumentException ignored) { }
+	}
+	
+	@Test
+	public void testTopDetailLevel()
+	{
+		Assert.assertEquals(LodUtil.REGION_DETAIL_LEVEL, PreGenCommand.getTopDetailLevel(new ArrayList<>()));
+		
+		// a 2x2 area aligned to the parent already fits
+		Assert.assertEquals(LodUtil.REGION_DETAIL_LEVEL, PreGenCommand.getTopDetailLevel(Arrays.asList(
+				new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 0, 0),
+				new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 1, 1))));
+		
+		Assert.assertEquals(LodUtil.REGION_DETAIL_LEVEL + 1, PreGenCommand.getTopDetailLevel(Arrays.asList(
+				new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 0, 0),
+				new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 2, 0))));
+		
+		// negative positions
+		byte topDetailLevel = PreGenCommand.getTopDetailLevel(PreGenCommand.getRegionsInRadius(0, 0, 8));
+		Assert.assertEquals(LodUtil.REGION_DETAIL_LEVEL + 4, topDetailLevel);
+		
+		DhSectionPos minPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, -8, -8);
+		DhSectionPos maxPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 8, 8);
+		while (minPos.getDetailLevel() < topDetailLevel)
+		{
+			minPos = minPos.getParentPos();
+			maxPos = maxPos.getParentPos();
+		}
+		Assert.assertTrue("regions should fit in a 2x2 area", maxPos.getX() - minPos.getX() <= 1 && maxPos.getZ() - minPos.getZ() <= 1);
+	}
+	
+	@Test
+	public void testParseRegionCoordinates()
+	{
+		Assert.assertArrayEquals(new int[]{ 4, -7 }, PreGenCommand.parseRegionCoordinates("4,-7"));
+		Assert.assertArrayEquals(new int[]{ -1, 2 }, PreGenCommand.parseRegionCoordinates(" -1 , 2 "));
+		
+		for (String invalidValue : new String[]{ "", "4", "4,5,6", "a,b" })
+		{
+			try
+			{
+				PreGenCommand.parseRegionCoordinates(invalidValue);
+				Assert.fail("[" + invalidValue + "] should be invalid");
+			}
+			catch (IllegalArgumentException ignored) { }
+		}
+	}
+	
+	@Test
+	public void testSectionPosToLoad()
+	{
+		DhSectionPos regionPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, -3, 5);
+		byte topDetailLevel = LodUtil.REGION_DETAIL_LEVEL + 2;
+		ArrayList<DhSectionPos> posList = HeadlessPreGenerator.getSectionPosToLoad(regionPos, topDetailLevel);
+		Assert.assertEquals("positions should be unique", posList.size(), new HashSet<>(posList).size());
+		
+		// every level between the smallest section and the top level should be loaded
+		for (byte detailLevel = DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL; detailLevel <= topDetailLevel; detailLevel++)
+		{
+			int expectedCount = (detailLevel < regionPos.getDetailLevel()) ? (1 << (2 * (regionPos.getDetailLevel() - detailLevel))) : 1;
+			int count = 0;
+			for (DhSectionPos pos : posList)
+			{
+				if (pos.getDetailLevel() == detailLevel)
+				{
+					count++;
+					Assert.assertTrue("[" + pos + "] should overlap the region", pos.overlapsExactly(regionPos));
+				}
+			}
+			Assert.assertEquals("wrong number of positions at detail level [" + detailLevel + "]", expectedCount, count);
+		}
+		Assert.assertEquals(64 + 16 + 4 + 1 + 2, posList.size());
+	}
+	
+	
+	
+	//===============//
+	// progress file //
+	//===============//
+	
+	@Test
+	public void testProgressFileResume() throws IOException
+	{
+		File folder = createEmptyFolder(PROGRESS_FOLDER_NAME);
+		DhSectionPos firstPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 0, 0);
+		DhSectionPos secondPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, -4, 9);
+		DhSectionPos thirdPos = new DhSectionPos(LodUtil.REGION_DETAIL_LEVEL, 2, 2);
+		
+		try (PreGenProgressFile progressFile = new PreGenProgressFile(folder))
+		{
+			Assert.assertEquals(0, progressFile.getCompletedCount());
+			progressFile.markCompleted(firstPos);
+			progressFile.markCompleted(secondPos);
+			// duplicates shouldn't be written twice
+			progressFile.markCompleted(secondPos);
+			Assert.assertEquals(2, progressFile.getCompletedCount());
+		}
+		
+		// simulate the process being killed while writing a line
+		try (FileWriter writer = new FileWriter(new File(folder, PreGenProgressFile.FILE_NAME), true))
+		{
+			writer.write("[9,");
+		}
+		
+		
+		try (PreGenProgressFile progressFile = new PreGenProgressFile(folder))
+		{
+			Assert.assertEquals(2, progressFile.getCompletedCount());
+			Assert.assertTrue(progressFile.isCompleted(firstPos));
+			Assert.assertTrue(progressFile.isCompleted(secondPos));
+			Assert.assertFalse(progressFile.isCompleted(thirdPos));
+			
+			progressFile.markCompleted(thirdPos);
+		}
+		
+		try (PreGenProgressFile progressFile = new PreGenProgressFile(folder))
+		{
+			Assert.assertEquals(3, progressFile.getCompletedCount());
+			Assert.assertTrue(progressFile.isCompleted(thirdPos));
+		}
+	}
+	
+	
+	
+	//================//
+	// source loading //
+	//================//
+	
+	@Test
+	public void testGeneratorChunkSource() throws ReflectiveOperationException
+	{
+		File worldFolder = new File(PROGRESS_FOLDER_NAME);
+		SingletonInjector.INSTANCE.clear();
+		try
+		{
+			// generated chunks can't be wrapped without a wrapper factory
+			try
+			{
+				PreGenCommand.createGeneratorChunkSource(TestPreGenWorldGenerator.class.getName(), worldFolder);
+				Assert.fail("generator sources require a wrapper factory");
+			}
+			catch (IllegalStateException ignored) { }
+			Assert.assertTrue("the generator should be closed if the source can't be created", TestPreGenWorldGenerator.lastCreated.closed);
+			
+			
+			SingletonInjector.INSTANCE.bind(IWrapperFactory.class, new TestWrapperFactory());
+			try (IPreGenChunkSource chunkSource = PreGenCommand.createGeneratorChunkSource(TestPreGenWorldGenerator.class.getName(), worldFolder))
+			{
+				Assert.assertTrue(chunkSource instanceof WorldGeneratorChunkSource);
+				Assert.assertEquals(worldFolder, TestPreGenWorldGenerator.lastCreated.worldFolder);
+				Assert.assertFalse(TestPreGenWorldGenerator.lastCreated.closed);
+			}
+			Assert.assertTrue("closing the source should close the generator", TestPreGenWorldGenerator.lastCreated.closed);
+			
+			
+			// generators aren't chunk sources
+			try
+			{
+				PreGenCommand.createChunkSource(TestPreGenWorldGenerator.class.getName(), worldFolder);
+				Assert.fail("generators can't be used as chunk sources");
+			}
+			catch (IllegalArgumentException ignored) { }
+		}
+		finally
+		{
+			SingletonInjector.INSTANCE.clear();
+		}
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static File createEmptyFolder(String folderName)
+	{
+		File folder = new File(folderName);
+		File[] files = folder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				Assert.assertTrue("unable to delete old test file.", file.delete());
+			}
+		}
+		
+		Assert.assertTrue("unable to create test folder.", folder.exists() || folder.mkdirs());
+		return folder;
+	}
+	
+}
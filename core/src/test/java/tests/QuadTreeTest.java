@@ -27,6 +27,8 @@ import com.seibel.distanthorizons.core.util.LodUtil;
 import com.seibel.distanthorizons.coreapi.util.MathUtil;
 import com.seibel.distanthorizons.core.util.objects.quadTree.QuadNode;
 import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTree;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeNodeCursor;
+import com.seibel.distanthorizons.core.util.objects.quadTree.QuadTreeSnapshot;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.config.Configurator;
@@ -35,6 +37,7 @@ import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class QuadTreeTest
@@ -746,6 +749,138 @@ public class QuadTreeTest
 		
 	}
 	
+	@Test
+	public void indexedTreeMatchesUnindexedTreeTest()
+	{
+		AbstractTestTreeParams treeParams = new LargeTestTree();
+		QuadTree<Integer> tree = new QuadTree<>(treeParams.getWidthInBlocks(), treeParams.getPositiveEdgeCenterPos(), DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, false);
+		QuadTree<Integer> indexedTree = new QuadTree<>(treeParams.getWidthInBlocks(), treeParams.getPositiveEdgeCenterPos(), DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, true);
+		Assert.assertNull(tree.getNodeIndex());
+		Assert.assertNotNull(indexedTree.getNodeIndex());
+		
+		Random random = new Random(1234);
+		
+		
+		// set //
+		populateTrees(random, 5_000, tree, indexedTree);
+		assertTreesMatch(tree, indexedTree);
+		
+		
+		// delete //
+		for (int i = 0; i < 50; i++)
+		{
+			DhSectionPos pos = getRandomPosInTree(tree, random);
+			QuadNode<Integer> node = tree.getNode(pos);
+			QuadNode<Integer> indexedNode = indexedTree.getNode(pos);
+			Assert.assertEquals("node presence mismatch at " + pos, node == null, indexedNode == null);
+			if (node != null)
+			{
+				node.deleteAllChildren();
+				indexedNode.deleteAllChildren();
+			}
+		}
+		assertTreesMatch(tree, indexedTree);
+		
+		
+		// move //
+		// far enough that some root nodes are removed
+		DhBlockPos2D movedCenterPos = treeParams.getPositiveEdgeCenterPos().add(new DhBlockPos2D(treeParams.getWidthInBlocks() / 4, -treeParams.getWidthInBlocks() / 8));
+		tree.setCenterBlockPos(movedCenterPos);
+		indexedTree.setCenterBlockPos(movedCenterPos);
+		assertTreesMatch(tree, indexedTree);
+		
+		populateTrees(random, 5_000, tree, indexedTree);
+		assertTreesMatch(tree, indexedTree);
+		
+		
+		// move back to the origin
+		tree.setCenterBlockPos(DhBlockPos2D.ZERO);
+		indexedTree.setCenterBlockPos(DhBlockPos2D.ZERO);
+		assertTreesMatch(tree, indexedTree);
+		
+	}
+	
+	@Test
+	public void nodeCursorTest()
+	{
+		AbstractTestTreeParams treeParams = new LargeTestTree();
+		QuadTree<Integer> tree = new QuadTree<>(treeParams.getWidthInBlocks(), treeParams.getPositiveEdgeCenterPos(), DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, true);
+		
+		QuadTreeNodeCursor<Integer> cursor = tree.nodeCursor();
+		Assert.assertFalse("empty tree shouldn't have any nodes", cursor.next());
+		Assert.assertNull(cursor.getNode());
+		
+		
+		populateTrees(new Random(5678), 5_000, tree);
+		
+		HashSet<DhSectionPos> iteratorPosSet = new HashSet<>();
+		Iterator<QuadNode<Integer>> nodeIterator = tree.nodeIterator();
+		while (nodeIterator.hasNext())
+		{
+			iteratorPosSet.add(nodeIterator.next().sectionPos);
+		}
+		
+		// run twice to confirm reset works
+		for (int i = 0; i < 2; i++)
+		{
+			cursor.reset();
+			
+			HashSet<DhSectionPos> cursorPosSet = new HashSet<>();
+			int cursorNodeCount = 0;
+			while (cursor.next())
+			{
+				cursorPosSet.add(cursor.getNode().sectionPos);
+				cursorNodeCount++;
+			}
+			
+			Assert.assertEquals("cursor returned the same node multiple times", cursorPosSet.size(), cursorNodeCount);
+			Assert.assertEquals("cursor and iterator returned different nodes", iteratorPosSet, cursorPosSet);
+		}
+		Assert.assertEquals("node index size doesn't match the tree's node count", iteratorPosSet.size(), tree.getNodeIndex().size());
+		
+	}
+	
+	@Test
+	public void snapshotLookupTest()
+	{
+		AbstractTestTreeParams treeParams = new LargeTestTree();
+		QuadTree<Integer> tree = new QuadTree<>(treeParams.getWidthInBlocks(), treeParams.getPositiveEdgeCenterPos(), DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, true);
+		
+		Random random = new Random(9012);
+		populateTrees(random, 5_000, tree);
+		QuadTreeSnapshot<Integer> snapshot = tree.createSnapshot();
+		
+		// every node in the snapshot can be found by position
+		for (int i = 0; i < snapshot.size(); i++)
+		{
+			Assert.assertEquals("snapshot lookup mismatch at " + snapshot.getPos(i), snapshot.getValue(i), snapshot.getValue(snapshot.getPos(i)));
+		}
+		
+		// random positions, including ones without a node
+		DhSectionPos[] lookupPosArray = new DhSectionPos[5_000];
+		for (int i = 0; i < lookupPosArray.length; i++)
+		{
+			lookupPosArray[i] = getRandomPosInTree(tree, random);
+			Assert.assertEquals("snapshot and tree disagree at " + lookupPosArray[i], tree.getValue(lookupPosArray[i]), snapshot.getValue(lookupPosArray[i]));
+		}
+		Assert.assertNull("out of bounds position found", snapshot.getValue(new DhSectionPos(DhSectionPos.SECTION_MINIMUM_DETAIL_LEVEL, Integer.MAX_VALUE / 2, 0)));
+		
+		
+		// changing the tree shouldn't change the snapshot
+		Integer[] expectedValues = new Integer[lookupPosArray.length];
+		for (int i = 0; i < lookupPosArray.length; i++)
+		{
+			expectedValues[i] = tree.getValue(lookupPosArray[i]);
+		}
+		populateTrees(random, 5_000, tree);
+		tree.setCenterBlockPos(treeParams.getPositiveEdgeCenterPos().add(new DhBlockPos2D(treeParams.getWidthInBlocks() / 4, 0)));
+		for (int i = 0; i < lookupPosArray.length; i++)
+		{
+			Assert.assertEquals("snapshot changed at " + lookupPosArray[i], expectedValues[i], snapshot.getValue(lookupPosArray[i]));
+		}
+		
+	}
+	
 	// this is here for quickly testing the toString method, it should never fail
 	@Test
 	public void toStringTest()
@@ -847,6 +982,69 @@ public class QuadTreeTest
 	// helper methods //
 	//================//
 	
+	/** sets the same random values in each tree */
+	@SafeVarargs
+	private static void populateTrees(Random random, int setCount, QuadTree<Integer>... trees)
+	{
+		for (int i = 0; i < setCount; i++)
+		{
+			DhSectionPos pos = getRandomPosInTree(trees[0], random);
+			int value = random.nextInt(1_000);
+			for (QuadTree<Integer> tree : trees)
+			{
+				tree.setValue(pos, value);
+			}
+		}
+	}
+	
+	/** @return a position at a random detail level that is within the tree's bounds */
+	private static DhSectionPos getRandomPosInTree(QuadTree<Integer> tree, Random random)
+	{
+		byte detailLevel = (byte) (tree.treeMaxDetailLevel + random.nextInt(tree.treeMinDetailLevel - tree.treeMaxDetailLevel + 1));
+		int radius = tree.diameterInBlocks() / 2;
+		int blockX = tree.getCenterBlockPos().x - radius + random.nextInt(tree.diameterInBlocks());
+		int blockZ = tree.getCenterBlockPos().z - radius + random.nextInt(tree.diameterInBlocks());
+		return new DhSectionPos(detailLevel, BitShiftUtil.divideByPowerOfTwo(blockX, detailLevel), BitShiftUtil.divideByPowerOfTwo(blockZ, detailLevel));
+	}
+	
+	/** checks every position in the trees' bounds */
+	private static void assertTreesMatch(QuadTree<Integer> expectedTree, QuadTree<Integer> actualTree)
+	{
+		Assert.assertEquals(expectedTree.getCenterBlockPos(), actualTree.getCenterBlockPos());
+		
+		int radius = expectedTree.diameterInBlocks() / 2;
+		for (byte detailLevel = expectedTree.treeMaxDetailLevel; detailLevel <= expectedTree.treeMinDetailLevel; detailLevel++)
+		{
+			int minX = BitShiftUtil.divideByPowerOfTwo(expectedTree.getCenterBlockPos().x - radius, detailLevel);
+			int minZ = BitShiftUtil.divideByPowerOfTwo(expectedTree.getCenterBlockPos().z - radius, detailLevel);
+			int maxX = BitShiftUtil.divideByPowerOfTwo(expectedTree.getCenterBlockPos().x + radius, detailLevel);
+			int maxZ = BitShiftUtil.divideByPowerOfTwo(expectedTree.getCenterBlockPos().z + radius, detailLevel);
+			
+			for (int x = minX; x <= maxX; x++)
+			{
+				for (int z = minZ; z <= maxZ; z++)
+				{
+					DhSectionPos pos = new DhSectionPos(detailLevel, x, z);
+					if (!expectedTree.isSectionPosInBounds(pos))
+					{
+						continue;
+					}
+					
+					QuadNode<Integer> expectedNode = expectedTree.getNode(pos);
+					QuadNode<Integer> actualNode = actualTree.getNode(pos);
+					Assert.assertEquals("node presence mismatch at " + pos, expectedNode == null, actualNode == null);
+					if (expectedNode != null)
+					{
+						Assert.assertEquals("value mismatch at " + pos, expectedNode.value, actualNode.value);
+						Assert.assertEquals("position mismatch at " + pos, expectedNode.sectionPos, actualNode.sectionPos);
+					}
+				}
+			}
+		}
+		
+		Assert.assertEquals("node count mismatch", expectedTree.count(), actualTree.count());
+	}
+	
 	private static void testSet(QuadTree<Integer> tree, DhSectionPos pos, Integer setValue) { testSet(tree, pos, setValue, null); }
 	private static <TE extends Throwable> void testSet(QuadTree<Integer> tree, DhSectionPos pos, Integer setValue, Class<TE> expectedExceptionClass)
 	{
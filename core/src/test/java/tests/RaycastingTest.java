@@ -23,12 +23,20 @@ import com.seibel.distanthorizons.core.util.RayCastUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
 /**
  * @author James Seibel
  * @version 2022-11-19
  */
 public class RaycastingTest
 {
+	/** about the LOD render distance at 256 chunks */
+	private static final int LONG_RAY_LENGTH = 4096;
+	private static final int LONG_RAY_COUNT = 200;
+	
 	
 	@Test
 	public void HorizontalSquareTests()
@@ -291,6 +299,224 @@ public class RaycastingTest
 	}
 	
 	
+	
+	//=================//
+	// column stepping //
+	//=================//
+	
+	@Test
+	public void AxisAlignedColumnWalkTest()
+	{
+		// ray points right - direction <1,0>
+		ArrayList<int[]> columns = walkColumns(0.5, 0.5, 1, 0, 10, 1);
+		Assert.assertEquals(11, columns.size());
+		for (int i = 0; i < columns.size(); i++)
+		{
+			Assert.assertEquals(i, columns.get(i)[0]);
+			Assert.assertEquals(0, columns.get(i)[1]);
+		}
+		
+		// ray points down - direction <0,-1>, starting in a negative column
+		columns = walkColumns(-0.5, -0.5, 0, -1, 3, 1);
+		Assert.assertEquals(4, columns.size());
+		for (int i = 0; i < columns.size(); i++)
+		{
+			Assert.assertEquals(-1, columns.get(i)[0]);
+			Assert.assertEquals(-1 - i, columns.get(i)[1]);
+		}
+		
+		// wider columns
+		columns = walkColumns(0.5, 0.5, 1, 0, 40, 16);
+		Assert.assertEquals(3, columns.size());
+		Assert.assertEquals(2, columns.get(2)[0]);
+		
+		// vertical ray (no horizontal movement)
+		columns = walkColumns(5.5, 5.5, 0, 0, 100, 1);
+		Assert.assertEquals(1, columns.size());
+	}
+	
+	@Test
+	public void DiagonalColumnWalkTest()
+	{
+		Random random = new Random(1234);
+		for (int i = 0; i < 100; i++)
+		{
+			double angle = random.nextDouble() * Math.PI * 2;
+			double dirX = Math.cos(angle);
+			double dirZ = Math.sin(angle);
+			double rayX = (random.nextDouble() - 0.5) * 100;
+			double rayZ = (random.nextDouble() - 0.5) * 100;
+			
+			ArrayList<int[]> columns = walkColumns(rayX, rayZ, dirX, dirZ, 256, 1);
+			
+			// the first column must contain the ray's origin
+			Assert.assertEquals((int) Math.floor(rayX), columns.get(0)[0]);
+			Assert.assertEquals((int) Math.floor(rayZ), columns.get(0)[1]);
+			
+			// the last column must contain the ray's end
+			int[] lastColumn = columns.get(columns.size() - 1);
+			Assert.assertEquals((int) Math.floor(rayX + dirX * 256), lastColumn[0]);
+			Assert.assertEquals((int) Math.floor(rayZ + dirZ * 256), lastColumn[1]);
+			
+			// each column must be visited once and be next to the previous column
+			HashSet<Long> visitedColumns = new HashSet<>();
+			for (int j = 0; j < columns.size(); j++)
+			{
+				int[] column = columns.get(j);
+				Assert.assertTrue("column visited twice", visitedColumns.add(((long) column[0] << 32) | (column[1] & 0xFFFFFFFFL)));
+				
+				if (j != 0)
+				{
+					int[] previousColumn = columns.get(j - 1);
+					Assert.assertEquals(1, Math.abs(column[0] - previousColumn[0]) + Math.abs(column[1] - previousColumn[1]));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void ColumnWalkEarlyExitTest()
+	{
+		int[] visitCount = new int[1];
+		boolean stopped = RayCastUtil.walkColumns(0.5, 0.5, 1, 0, 100, 1, (columnX, columnZ, enterDistance, exitDistance) ->
+		{
+			visitCount[0]++;
+			return columnX == 5;
+		});
+		
+		Assert.assertTrue(stopped);
+		Assert.assertEquals(6, visitCount[0]);
+	}
+	
+	/**
+	 * Stops the walk whenever a new section is entered (like the LOD raycaster does while loading data)
+	 * and confirms the resumed walks visit the same columns as a single uninterrupted walk. <br>
+	 * Shallow rays far from the origin are used since re-computing the start position
+	 * from the ray distance would round back into the previous column there.
+	 */
+	@Test
+	public void ColumnWalkResumeTest()
+	{
+		int sectionWidth = 64;
+		// each ray starts just before a section boundary on its shallow axis so that axis crosses into a new section
+		double[][] rays = new double[][]
+				{
+						{ 10_000_000.5, 9_999_999.95, 1, 1.0E-4 },
+						{ -10_000_000.5, -9_999_999.95, -1, -1.0E-4 },
+						{ 9_999_999.95, 10_000_000.5, 1.0E-4, 1 },
+						{ -9_999_999.95, -10_000_000.5, -1.0E-4, -1 },
+						{ 10_000_000.5, -10_000_000.05, 1, -1.0E-3 },
+				};
+		for (double[] ray : rays)
+		{
+			double length = Math.sqrt(ray[2] * ray[2] + ray[3] * ray[3]);
+			double dirX = ray[2] / length;
+			double dirZ = ray[3] / length;
+			
+			ArrayList<int[]> expectedColumns = walkColumns(ray[0], ray[1], dirX, dirZ, 2048, 1);
+			
+			
+			ArrayList<int[]> resumedColumns = new ArrayList<>();
+			int[] loadedSection = new int[]{ Integer.MIN_VALUE, Integer.MIN_VALUE };
+			RayCastUtil.ColumnWalker walker = new RayCastUtil.ColumnWalker(ray[0], ray[1], dirX, dirZ, 2048, 1);
+			int walkCount = 0;
+			while (walker.walk((columnX, columnZ, enterDistance, exitDistance) ->
+			{
+				int sectionX = Math.floorDiv(columnX, sectionWidth);
+				int sectionZ = Math.floorDiv(columnZ, sectionWidth);
+				if (sectionX != loadedSection[0] || sectionZ != loadedSection[1])
+				{
+					// stop so the section can be "loaded"
+					loadedSection[0] = sectionX;
+					loadedSection[1] = sectionZ;
+					return true;
+				}
+				
+				resumedColumns.add(new int[]{ columnX, columnZ });
+				return false;
+			}))
+			{
+				walkCount++;
+				Assert.assertTrue("the resumed walk isn't making progress", walkCount <= expectedColumns.size());
+			}
+			
+			
+			Assert.assertTrue("the ray should cross multiple sections", walkCount > 1);
+			Assert.assertEquals(expectedColumns.size(), resumedColumns.size());
+			for (int i = 0; i < expectedColumns.size(); i++)
+			{
+				Assert.assertArrayEquals(expectedColumns.get(i), resumedColumns.get(i));
+			}
+		}
+	}
+	
+	/** compares the column walk to the previous approach of stepping one block at a time and checking the surrounding 3x3 columns */
+	@Test
+	public void LongRayColumnCountTest()
+	{
+		Random random = new Random(1234);
+		double[][] rays = new double[LONG_RAY_COUNT][];
+		for (int i = 0; i < LONG_RAY_COUNT; i++)
+		{
+			double angle = random.nextDouble() * Math.PI * 2;
+			rays[i] = new double[]{ random.nextDouble() * 16, random.nextDouble() * 16, Math.cos(angle), Math.sin(angle) };
+		}
+		
+		
+		long[] walkedColumnCount = new long[1];
+		for (double[] ray : rays)
+		{
+			RayCastUtil.walkColumns(ray[0], ray[1], ray[2], ray[3], LONG_RAY_LENGTH, 1, (columnX, columnZ, enterDistance, exitDistance) ->
+			{
+				walkedColumnCount[0]++;
+				return false;
+			});
+		}
+		
+		
+		long steppedColumnCount = 0;
+		for (double[] ray : rays)
+		{
+			for (int length = 0; length <= LONG_RAY_LENGTH; length++)
+			{
+				long blockX = Math.round(ray[0] + ray[2] * length);
+				long blockZ = Math.round(ray[1] + ray[3] * length);
+				for (int x = -1; x <= 1; x++)
+				{
+					for (int z = -1; z <= 1; z++)
+					{
+						if (RayCastUtil.rayIntersectsSquare(blockX, blockZ, ray[2], ray[3], blockX + x, blockZ + z, 1))
+						{
+							steppedColumnCount++;
+						}
+					}
+				}
+			}
+		}
+		
+		
+		// each column lookup is a data source read, so visiting fewer columns is what matters
+		Assert.assertTrue("the column walk should check fewer columns than 3x3 stepping", walkedColumnCount[0] < steppedColumnCount);
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static ArrayList<int[]> walkColumns(double rayX, double rayZ, double dirX, double dirZ, double maxLength, int columnWidth)
+	{
+		ArrayList<int[]> columns = new ArrayList<>();
+		RayCastUtil.walkColumns(rayX, rayZ, dirX, dirZ, maxLength, columnWidth, (columnX, columnZ, enterDistance, exitDistance) ->
+		{
+			Assert.assertTrue(enterDistance <= exitDistance);
+			columns.add(new int[]{ columnX, columnZ });
+			return false;
+		});
+		return columns;
+	}
+	
 	private static void testRay(boolean expectedToIntersect, double rayX, double rayY, double xDir, double yDir, double squareMinX, double squareMinY, double squareWidth)
 	{
 		boolean intersects = RayCastUtil.rayIntersectsSquare(rayX, rayY, xDir, yDir, squareMinX, squareMinY, squareWidth);
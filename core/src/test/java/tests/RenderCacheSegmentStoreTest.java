@@ -0,0 +1,292 @@
+/*
+ *    This file is part of the Distant Horizons mod
+ *    licensed under the GNU LGPL v3 License.
+ *
+ *    Copyright (C) 2020-2023 James Seibel
+ *
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, version 3.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package tests;
+
+import com.seibel.distanthorizons.api.enums.worldGeneration.EDhApiWorldGenerationStep;
+import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderLoader;
+import com.seibel.distanthorizons.core.dataObjects.render.ColumnRenderSource;
+import com.seibel.distanthorizons.core.file.metaData.BaseMetaData;
+import com.seibel.distanthorizons.core.file.renderfile.RenderCacheSegmentStore;
+import com.seibel.distanthorizons.core.pos.DhSectionPos;
+import com.seibel.distanthorizons.core.util.objects.dataStreams.DhDataOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Validates {@link RenderCacheSegmentStore}.
+ */
+public class RenderCacheSegmentStoreTest
+{
+	public static String SEGMENT_FOLDER_NAME = "testRenderSegments";
+	
+	/** small enough that the tests fill multiple segments */
+	public static int SEGMENT_SIZE_IN_BYTES = 64 * 1024;
+	public static int VERTICAL_SIZE = 2;
+	public static int Y_OFFSET = -64;
+	
+	/** same as the record format in {@link RenderCacheSegmentStore} */
+	public static int RECORD_HEADER_SIZE_IN_BYTES = 32;
+	public static int DATA_LENGTH_OFFSET = 28;
+	
+	
+	
+	@Test
+	public void testReadWrite() throws IOException
+	{
+		File folder = createEmptyFolder(SEGMENT_FOLDER_NAME);
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			DhSectionPos pos = new DhSectionPos((byte) 6, 1, -2);
+			Assert.assertFalse("empty store shouldn't contain data", store.exists(pos));
+			Assert.assertNull("empty store shouldn't contain meta data", store.getMetaData(pos));
+			
+			
+			// write
+			long[] dataPoints = createDataPoints(new Random(0), VERTICAL_SIZE);
+			store.write(createMetaData(pos, 5), createRenderData(dataPoints, VERTICAL_SIZE));
+			Assert.assertTrue("write failed", store.exists(pos));
+			
+			BaseMetaData metaData = store.getMetaData(pos);
+			Assert.assertNotNull("meta data missing", metaData);
+			Assert.assertEquals("pos not equal", pos, metaData.pos);
+			Assert.assertEquals("data version not equal", 5, metaData.dataVersion.get());
+			Assert.assertEquals("world gen step not equal", EDhApiWorldGenerationStep.SURFACE, metaData.worldGenStep);
+			
+			ColumnRenderLoader.ParsedColumnData parsedData = store.read(pos, (dataBuffer) -> ColumnRenderLoader.readDataV1(dataBuffer, Y_OFFSET));
+			Assert.assertNotNull("read failed", parsedData);
+			Assert.assertArrayEquals("data not equal", dataPoints, parsedData.dataContainer);
+			
+			
+			// overwrite
+			long[] newDataPoints = createDataPoints(new Random(1), VERTICAL_SIZE);
+			store.write(createMetaData(pos, 6), createRenderData(newDataPoints, VERTICAL_SIZE));
+			Assert.assertEquals("overwrite failed", 6, store.getMetaData(pos).dataVersion.get());
+			parsedData = store.read(pos, (dataBuffer) -> ColumnRenderLoader.readDataV1(dataBuffer, Y_OFFSET));
+			Assert.assertArrayEquals("overwritten data not equal", newDataPoints, parsedData.dataContainer);
+			
+			
+			// delete
+			store.delete(pos);
+			Assert.assertFalse("delete failed", store.exists(pos));
+			Assert.assertNull("deleted data returned", store.read(pos, (dataBuffer) -> dataBuffer));
+		}
+	}
+	
+	@Test
+	public void testReopen() throws IOException
+	{
+		File folder = createEmptyFolder(SEGMENT_FOLDER_NAME);
+		DhSectionPos keptPos = new DhSectionPos((byte) 6, 0, 0);
+		DhSectionPos deletedPos = new DhSectionPos((byte) 7, 3, 4);
+		long[] dataPoints = createDataPoints(new Random(2), VERTICAL_SIZE);
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			store.write(createMetaData(keptPos, 1), createRenderData(createDataPoints(new Random(3), VERTICAL_SIZE), VERTICAL_SIZE));
+			store.write(createMetaData(keptPos, 2), createRenderData(dataPoints, VERTICAL_SIZE));
+			store.write(createMetaData(deletedPos, 1), createRenderData(dataPoints, VERTICAL_SIZE));
+			store.delete(deletedPos);
+		}
+		
+		// the index should be re-built from the segment files
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			Assert.assertEquals("newest record not used", 2, store.getMetaData(keptPos).dataVersion.get());
+			ColumnRenderLoader.ParsedColumnData parsedData = store.read(keptPos, (dataBuffer) -> ColumnRenderLoader.readDataV1(dataBuffer, Y_OFFSET));
+			Assert.assertArrayEquals("data not equal after re-opening", dataPoints, parsedData.dataContainer);
+			
+			Assert.assertFalse("deletion lost after re-opening", store.exists(deletedPos));
+		}
+	}
+	
+	@Test
+	public void testCompaction() throws IOException
+	{
+		File folder = createEmptyFolder(SEGMENT_FOLDER_NAME);
+		DhSectionPos keptPos = new DhSectionPos((byte) 6, 10, 10);
+		long[] keptDataPoints = createDataPoints(new Random(4), VERTICAL_SIZE);
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			store.write(createMetaData(keptPos, 1), createRenderData(keptDataPoints, VERTICAL_SIZE));
+			
+			// repeatedly overwriting the same position fills multiple segments with stale records
+			DhSectionPos overwrittenPos = new DhSectionPos((byte) 6, 11, 10);
+			byte[] renderData = createRenderData(createDataPoints(new Random(5), VERTICAL_SIZE), VERTICAL_SIZE);
+			for (int i = 0; i < 20; i++)
+			{
+				store.write(createMetaData(overwrittenPos, i), renderData);
+			}
+			Assert.assertTrue("test data should span multiple segments", store.getSegmentCount() > 2);
+			
+			
+			long usedByteCount = store.getUsedByteCount();
+			while (store.compactNextSegment()) { }
+			Assert.assertTrue("compaction didn't free any space", store.getUsedByteCount() < usedByteCount);
+			Assert.assertEquals("compaction changed the live data", store.getLiveByteCount(), store.getUsedByteCount());
+			
+			Assert.assertEquals("overwritten pos lost", 19, store.getMetaData(overwrittenPos).dataVersion.get());
+			ColumnRenderLoader.ParsedColumnData parsedData = store.read(keptPos, (dataBuffer) -> ColumnRenderLoader.readDataV1(dataBuffer, Y_OFFSET));
+			Assert.assertArrayEquals("kept data not equal after compaction", keptDataPoints, parsedData.dataContainer);
+		}
+		
+		// compacted segments shouldn't be re-loaded
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			Assert.assertEquals("compacted records re-loaded", store.getLiveByteCount(), store.getUsedByteCount());
+			Assert.assertTrue("kept pos lost after re-opening", store.exists(keptPos));
+		}
+	}
+	
+	@Test
+	public void testCorruptData() throws IOException
+	{
+		File folder = createEmptyFolder(SEGMENT_FOLDER_NAME);
+		DhSectionPos corruptPos = new DhSectionPos((byte) 6, 0, 0);
+		DhSectionPos validPos = new DhSectionPos((byte) 6, 1, 0);
+		long[] validDataPoints = createDataPoints(new Random(6), VERTICAL_SIZE);
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			store.write(createMetaData(corruptPos, 1), createRenderData(createDataPoints(new Random(7), VERTICAL_SIZE), VERTICAL_SIZE));
+			store.write(createMetaData(validPos, 1), createRenderData(validDataPoints, VERTICAL_SIZE));
+		}
+		
+		// change a byte in the first record's data
+		try (RandomAccessFile file = new RandomAccessFile(getOnlySegmentFile(folder), "rw"))
+		{
+			file.seek(RECORD_HEADER_SIZE_IN_BYTES + 100);
+			int value = file.read();
+			file.seek(RECORD_HEADER_SIZE_IN_BYTES + 100);
+			file.write(value ^ 0xFF);
+		}
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			Assert.assertNull("corrupt data returned", store.read(corruptPos, (dataBuffer) -> dataBuffer));
+			Assert.assertFalse("corrupt data wasn't deleted", store.exists(corruptPos));
+			
+			ColumnRenderLoader.ParsedColumnData parsedData = store.read(validPos, (dataBuffer) -> ColumnRenderLoader.readDataV1(dataBuffer, Y_OFFSET));
+			Assert.assertArrayEquals("valid data not equal", validDataPoints, parsedData.dataContainer);
+		}
+	}
+	
+	@Test
+	public void testCorruptLength() throws IOException
+	{
+		File folder = createEmptyFolder(SEGMENT_FOLDER_NAME);
+		DhSectionPos pos = new DhSectionPos((byte) 6, 0, 0);
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			store.write(createMetaData(pos, 1), createRenderData(createDataPoints(new Random(8), VERTICAL_SIZE), VERTICAL_SIZE));
+		}
+		
+		// a length this large would overflow if the record length was calculated as an int
+		try (RandomAccessFile file = new RandomAccessFile(getOnlySegmentFile(folder), "rw"))
+		{
+			file.seek(DATA_LENGTH_OFFSET);
+			file.writeInt(Integer.MAX_VALUE - 3);
+		}
+		
+		try (RenderCacheSegmentStore store = new RenderCacheSegmentStore(folder, ColumnRenderSource.DATA_NAME, SEGMENT_SIZE_IN_BYTES))
+		{
+			Assert.assertFalse("record with a corrupt length was loaded", store.exists(pos));
+			
+			// the store should still be usable
+			store.write(createMetaData(pos, 2), createRenderData(createDataPoints(new Random(9), VERTICAL_SIZE), VERTICAL_SIZE));
+			Assert.assertEquals("write after corrupt length failed", 2, store.getMetaData(pos).dataVersion.get());
+		}
+	}
+	
+	
+	
+	//================//
+	// helper methods //
+	//================//
+	
+	private static File createEmptyFolder(String folderName)
+	{
+		File folder = new File(folderName);
+		File[] files = folder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				Assert.assertTrue("unable to delete old test segment.", file.delete());
+			}
+		}
+		return folder;
+	}
+	
+	private static File getOnlySegmentFile(File folder)
+	{
+		File[] files = folder.listFiles();
+		Assert.assertNotNull("segment folder missing", files);
+		Assert.assertEquals("expected a single segment", 1, files.length);
+		return files[0];
+	}
+	
+	private static BaseMetaData createMetaData(DhSectionPos pos, long dataVersion)
+	{
+		return new BaseMetaData(pos, 0, (byte) 0, EDhApiWorldGenerationStep.SURFACE, ColumnRenderSource.DATA_NAME, ColumnRenderSource.DATA_FORMAT_VERSION, dataVersion);
+	}
+	
+	private static long[] createDataPoints(Random random, int verticalSize)
+	{
+		long[] dataPoints = new long[ColumnRenderSource.SECTION_SIZE * ColumnRenderSource.SECTION_SIZE * verticalSize];
+		for (int i = 0; i < dataPoints.length; i++)
+		{
+			// leave some columns empty like real render data
+			dataPoints[i] = (random.nextInt(4) == 0) ? 0 : random.nextLong();
+		}
+		return dataPoints;
+	}
+	
+	private static byte[] createRenderData(long[] dataPoints, int verticalSize) throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		DhDataOutputStream outputStream = new DhDataOutputStream(byteArrayOutputStream, false);
+		writeRenderData(outputStream, dataPoints, verticalSize);
+		outputStream.flush();
+		return byteArrayOutputStream.toByteArray();
+	}
+	
+	/** same format as {@link ColumnRenderSource#writeData} */
+	private static void writeRenderData(DhDataOutputStream outputStream, long[] dataPoints, int verticalSize) throws IOException
+	{
+		outputStream.writeByte(0);
+		outputStream.writeInt(verticalSize);
+		outputStream.writeByte(ColumnRenderSource.DATA_GUARD_BYTE);
+		outputStream.writeInt(Y_OFFSET);
+		for (long dataPoint : dataPoints)
+		{
+			outputStream.writeLong(Long.reverseBytes(dataPoint));
+		}
+		outputStream.writeByte(ColumnRenderSource.DATA_GUARD_BYTE);
+		outputStream.writeByte(EDhApiWorldGenerationStep.SURFACE.value);
+	}
+	
+}